@@ -192,4 +192,181 @@ CREATE TABLE UserCouponUsage (
     FOREIGN KEY (user_id) REFERENCES User(userId) ON DELETE CASCADE,
     FOREIGN KEY (coupon_id) REFERENCES Coupon(couponId) ON DELETE CASCADE,
     INDEX idx_user_coupon (user_id, coupon_id)
-);
\ No newline at end of file
+);
+
+-- Rating aggregates over APPROVED reviews, maintained incrementally on review moderation
+ALTER TABLE Product
+ADD COLUMN ratingCount INT NOT NULL DEFAULT 0,
+ADD COLUMN ratingSum BIGINT NOT NULL DEFAULT 0,
+ADD COLUMN averageRating DOUBLE NOT NULL DEFAULT 0,
+ADD COLUMN zeroStarRatings INT NOT NULL DEFAULT 0,
+ADD COLUMN oneStarRatings INT NOT NULL DEFAULT 0,
+ADD COLUMN twoStarRatings INT NOT NULL DEFAULT 0,
+ADD COLUMN threeStarRatings INT NOT NULL DEFAULT 0,
+ADD COLUMN fourStarRatings INT NOT NULL DEFAULT 0,
+ADD COLUMN fiveStarRatings INT NOT NULL DEFAULT 0;
+ALTER TABLE Product ADD INDEX idx_status_average_rating (status, averageRating);
+
+-- One-off backfill of the rating aggregates from existing reviews
+UPDATE Product p
+JOIN (
+    SELECT productId,
+           COUNT(*) AS cnt,
+           SUM(rating) AS total,
+           SUM(rating = 0) AS r0, SUM(rating = 1) AS r1, SUM(rating = 2) AS r2,
+           SUM(rating = 3) AS r3, SUM(rating = 4) AS r4, SUM(rating = 5) AS r5
+    FROM Review
+    WHERE status = 'APPROVED'
+    GROUP BY productId
+) r ON r.productId = p.productId
+SET p.ratingCount = r.cnt,
+    p.ratingSum = r.total,
+    p.averageRating = r.total / r.cnt,
+    p.zeroStarRatings = r.r0, p.oneStarRatings = r.r1, p.twoStarRatings = r.r2,
+    p.threeStarRatings = r.r3, p.fourStarRatings = r.r4, p.fiveStarRatings = r.r5;
+
+-- Paginated approved reviews per product
+ALTER TABLE Review ADD INDEX idx_product_status_created (productId, status, createdAt);
+
+-- Daily sales rollups (day x producer x primary category x order status), maintained
+-- incrementally on order changes and rebuilt from Order/OrderItem by the batch job
+CREATE TABLE DailySalesRollup (
+    rollupId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    salesDay DATE NOT NULL,
+    producerId BIGINT NOT NULL,
+    categoryId BIGINT NOT NULL,
+    status ENUM('PENDING_PAYMENT', 'PAYMENT_FAILED', 'PAYMENT_COMPLETED', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'RETURNED') NOT NULL,
+    orderCount BIGINT NOT NULL DEFAULT 0,
+    producerOrders BIGINT NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    discount DECIMAL(14,2) NOT NULL DEFAULT 0,
+    UNIQUE KEY uk_rollup_key (salesDay, producerId, categoryId, status),
+    INDEX idx_rollup_producer_day (producerId, salesDay)
+);
+ALTER TABLE `Order` ADD INDEX idx_order_date (orderDate);
+
+-- Rollup changes written in the order transaction and applied by the scheduled flush
+CREATE TABLE SalesRollupDelta (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    salesDay DATE NOT NULL,
+    producerId BIGINT NOT NULL,
+    categoryId BIGINT NOT NULL,
+    status ENUM('PENDING_PAYMENT', 'PAYMENT_FAILED', 'PAYMENT_COMPLETED', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'RETURNED') NOT NULL,
+    orderCount BIGINT NOT NULL DEFAULT 0,
+    producerOrders BIGINT NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    discount DECIMAL(14,2) NOT NULL DEFAULT 0,
+    INDEX idx_rollup_delta_day (salesDay)
+);
+-- Category an item's sales are attributed to, as of the order (NULL on older items)
+ALTER TABLE OrderItem ADD COLUMN categoryId BIGINT NULL;
+
+CREATE TABLE DailyActiveUsersSketch (
+    sketchId BIGINT AUTO_INCREMENT PRIMARY KEY,
+    activityDay DATE NOT NULL,
+    role ENUM('CUSTOMER', 'PRODUCER', 'ADMIN') NOT NULL,
+    sketch BLOB NOT NULL,
+    UNIQUE KEY uk_active_users_day_role (activityDay, role)
+);
+
+-- Role-wide notifications, stored once per event and merged with each user's
+-- StoredNotification rows at read time
+CREATE TABLE BroadcastNotification (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    role ENUM('CUSTOMER', 'PRODUCER', 'ADMIN') NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    message VARCHAR(255) NOT NULL,
+    data TEXT,
+    timestamp DATETIME NOT NULL,
+    expiresAt DATETIME NOT NULL,
+    INDEX idx_broadcast_role_time (role, timestamp)
+);
+
+-- Broadcasts a user marked read or deleted one by one
+CREATE TABLE BroadcastReceipt (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    broadcastId BIGINT NOT NULL,
+    recipientEmail VARCHAR(255) NOT NULL,
+    `read` BOOLEAN NOT NULL DEFAULT FALSE,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    UNIQUE KEY uk_receipt_broadcast_recipient (broadcastId, recipientEmail)
+);
+
+-- Every broadcast of the role up to lastReadBroadcastId counts as read ("mark all as
+-- read"); kept per role, as broadcast ids of one role mean nothing for another
+CREATE TABLE NotificationReadCursor (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipientEmail VARCHAR(255) NOT NULL,
+    role ENUM('CUSTOMER', 'PRODUCER', 'ADMIN') NOT NULL,
+    lastReadBroadcastId BIGINT NOT NULL,
+    UNIQUE KEY uk_read_cursor_recipient_role (recipientEmail, role)
+);
+
+-- Unread personal notifications per recipient, the source of the badge count
+CREATE TABLE NotificationCounter (
+    recipientEmail VARCHAR(255) PRIMARY KEY,
+    unreadCount BIGINT NOT NULL
+);
+ALTER TABLE StoredNotification ADD INDEX idx_notification_recipient_read (recipientEmail, `read`);
+
+-- Personal notifications published but not stored yet (at-least-once delivery)
+CREATE TABLE NotificationOutbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    message VARCHAR(255) NOT NULL,
+    data TEXT,
+    timestamp DATETIME NOT NULL,
+    createdAt DATETIME NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    claimedBy VARCHAR(36) NOT NULL,
+    claimedAt DATETIME NOT NULL,
+    INDEX idx_outbox_created (createdAt),
+    INDEX idx_outbox_claimed (claimedAt)
+);
+
+-- Producer notifications waiting in their coalescing window
+CREATE TABLE PendingProducerNotification (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    producerId BIGINT NOT NULL,
+    type VARCHAR(255) NOT NULL,
+    message VARCHAR(255) NOT NULL,
+    data TEXT,
+    productId BIGINT NULL,
+    timestamp DATETIME NOT NULL,
+    createdAt DATETIME NOT NULL,
+    INDEX idx_pending_producer_window (producerId, type, createdAt)
+);
+
+-- Keyset pages of a recipient's notification list
+ALTER TABLE StoredNotification ADD INDEX idx_notification_recipient_time (recipientEmail, timestamp);
+
+-- Batched notification retention: expired rows, and old read or noisy ones by timestamp
+-- with the filter column first, so a batch reads only rows it deletes
+ALTER TABLE StoredNotification ADD INDEX idx_notification_expires (expiresAt);
+ALTER TABLE StoredNotification ADD INDEX idx_notification_read_time (`read`, timestamp);
+ALTER TABLE StoredNotification ADD INDEX idx_notification_type_time (type, timestamp);
+ALTER TABLE BroadcastNotification ADD INDEX idx_broadcast_expires (expiresAt);
+ALTER TABLE BroadcastNotification ADD INDEX idx_broadcast_type_time (type, timestamp);
+
+-- Change counters of the public catalog (products, categories, producers) behind its ETags
+CREATE TABLE CatalogGeneration (
+    scope VARCHAR(32) PRIMARY KEY,
+    generation BIGINT NOT NULL
+);
+
+-- Stock level of each product's last alert (only products below a threshold or with
+-- reservations), so alerts are not repeated after a restart
+CREATE TABLE StockAlertState (
+    productId BIGINT PRIMARY KEY,
+    level ENUM('OK', 'LOW', 'CRITICAL') NOT NULL,
+    reserved BIGINT NOT NULL
+);
+
+-- How far the stock monitor checked reservations for expiry, across restarts
+CREATE TABLE StockMonitorWatermark (
+    name VARCHAR(64) PRIMARY KEY,
+    checkedUntil DATETIME NOT NULL
+);
@@ -0,0 +1,32 @@
+package com.localmarket.main.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AnalyticsConfig {
+
+    @Value("${analytics.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${analytics.executor.queue-capacity:200}")
+    private int queueCapacity;
+
+    // Bounded pool for independent analytics queries; when it is saturated the caller
+    // runs the query itself instead of queueing without limit
+    @Bean
+    public ThreadPoolTaskExecutor analyticsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("analytics-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,32 @@
+package com.localmarket.main.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ExportDataSourceConfig {
+    public static final String EXPORT_DATA_SOURCE = "exportDataSource";
+
+    @Value("${exports.datasource.pool-size:2}")
+    private int poolSize;
+
+    // Small pool for the streamed exports only, on the same database. MySQL Connector/J
+    // ignores a positive fetch size unless useCursorFetch is set, and that flag moves every
+    // statement of a connection to server-side cursors, so the main pool keeps it off.
+    // Not a default candidate: the auto-configured DataSource stays the one injected by type
+    @Bean(name = EXPORT_DATA_SOURCE, defaultCandidate = false)
+    @Qualifier(EXPORT_DATA_SOURCE)
+    public HikariDataSource exportDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("export");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(0);
+        dataSource.setReadOnly(true);
+        dataSource.addDataSourceProperty("useCursorFetch", "true");
+        return dataSource;
+    }
+}
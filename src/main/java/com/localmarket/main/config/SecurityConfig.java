@@ -8,6 +8,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.http.HttpMethod;
+import jakarta.servlet.DispatcherType;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
@@ -75,6 +76,8 @@ public class SecurityConfig {
             
             // Request authorization
             .authorizeHttpRequests(auth -> auth
+                // Async dispatches finish requests that were already authorized (streamed responses)
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // WebSocket endpoint
                 .requestMatchers("/ws/**").permitAll()
                 // Swagger UI endpoints
@@ -136,10 +139,15 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/coupons/check-welcome").hasAnyAuthority(CUSTOMER , PRODUCER , ADMIN)
                 .requestMatchers(HttpMethod.GET, "/api/coupons/validate/**").permitAll()
                 .requestMatchers("/api/coupons/**").hasAuthority(ADMIN)
+                // Notifications
+                .requestMatchers("/api/notifications/delivery-stats").hasAuthority(ADMIN)
+                .requestMatchers("/api/notifications/retention-report").hasAuthority(ADMIN)
                 // Analytics - Admin endpoints
                 .requestMatchers("/api/analytics/users").hasAuthority(ADMIN)
                 .requestMatchers("/api/analytics/transactions").hasAuthority(ADMIN)
+                .requestMatchers("/api/analytics/transactions/details").hasAuthority(ADMIN)
                 .requestMatchers("/api/analytics/business-metrics").hasAuthority(ADMIN)
+                .requestMatchers("/api/analytics/revenue-series").hasAuthority(ADMIN)
                 .requestMatchers("/api/analytics/export").hasAuthority(ADMIN)
                 // Analytics - Producer endpoints
                 .requestMatchers("/api/analytics/overview").hasAuthority(PRODUCER)
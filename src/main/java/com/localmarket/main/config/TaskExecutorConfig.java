@@ -0,0 +1,20 @@
+package com.localmarket.main.config;
+
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class TaskExecutorConfig {
+
+    // Boot only creates its application executor when no other Executor bean exists, and
+    // the analytics and WebSocket pools are Executor beans. Spring MVC runs async requests
+    // (the streamed analytics exports) on it, and would otherwise fall back to a
+    // SimpleAsyncTaskExecutor with a thread per request. Configured by spring.task.execution.*
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.localmarket.main.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+// Kept out of WebSocketConfig, which depends on the handler that uses these pools
+@Configuration
+public class WebSocketExecutorConfig {
+
+    @Value("${websocket.send.pool-size:4}")
+    private int senderPoolSize;
+
+    @Value("${websocket.replay.pool-size:2}")
+    private int replayPoolSize;
+
+    @Value("${websocket.replay.queue-capacity:1000}")
+    private int replayQueueCapacity;
+
+    // Drains the per-session send queues of WebSocketDispatcher; it holds at most one
+    // task per session
+    @Bean
+    public ThreadPoolTaskExecutor webSocketSenderExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(senderPoolSize);
+        executor.setMaxPoolSize(senderPoolSize);
+        executor.setThreadNamePrefix("ws-sender-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Runs the steps of reconnect replays; a replay waiting for room in a send queue
+    // holds no thread here
+    @Bean
+    public ThreadPoolTaskExecutor webSocketReplayExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(replayPoolSize);
+        executor.setMaxPoolSize(replayPoolSize);
+        executor.setQueueCapacity(replayQueueCapacity);
+        executor.setThreadNamePrefix("ws-replay-");
+        executor.initialize();
+        return executor;
+    }
+}
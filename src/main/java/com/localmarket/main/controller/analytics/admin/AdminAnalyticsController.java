@@ -1,6 +1,10 @@
 package com.localmarket.main.controller.analytics.admin;
 
 import com.localmarket.main.service.analytics.AnalyticsService;
+import com.localmarket.main.service.analytics.AnalyticsSnapshotCache;
+import com.localmarket.main.service.analytics.RevenueSeriesService;
+import com.localmarket.main.service.analytics.SalesRollupService;
+import com.localmarket.main.service.analytics.StandardRange;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -10,14 +14,19 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.localmarket.main.dto.analytics.admin.BusinessMetricsResponse;
+import com.localmarket.main.dto.analytics.admin.CombinedAnalyticsResponse;
+import com.localmarket.main.dto.analytics.admin.RevenueSeriesResponse;
 import com.localmarket.main.dto.analytics.admin.TransactionAnalyticsResponse;
 import com.localmarket.main.dto.analytics.admin.UserAnalyticsResponse;
 import com.localmarket.main.security.AdminOnly;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.zip.GZIPOutputStream;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import com.localmarket.main.exception.ApiException;
 import com.localmarket.main.exception.ErrorType;
 
@@ -27,25 +36,36 @@ import com.localmarket.main.exception.ErrorType;
 @Tag(name = "Analytics Admin", description = "Analytics APIs (Admin only)")
 public class AdminAnalyticsController {
     private final AnalyticsService analyticsService;
+    private final SalesRollupService salesRollupService;
+    private final RevenueSeriesService revenueSeriesService;
+    private final AnalyticsSnapshotCache snapshotCache;
 
-    @Operation(summary = "Get user analytics", description = "Get user-related analytics")
+    @Operation(summary = "Get user analytics", description = "Get user-related analytics. Without dates, the standard range (this month by default) is served from a precomputed snapshot")
     @SecurityRequirement(name = "cookie")
     @GetMapping("/users")
     @AdminOnly
     public ResponseEntity<UserAnalyticsResponse> getUserAnalytics(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "THIS_MONTH") StandardRange range) {
+        if (startDate == null && endDate == null) {
+            return fromSnapshot(snapshotCache.userAnalytics(range));
+        }
         return ResponseEntity.ok(analyticsService.getUserAnalytics(startDate, endDate));
     }
 
-    @Operation(summary = "Get transaction analytics", description = "Get transaction-related analytics")
+    @Operation(summary = "Get transaction analytics", description = "Get transaction-related analytics. Without dates, the standard range (the last 30 days by default) is served from a precomputed snapshot")
     @SecurityRequirement(name = "cookie")
     @GetMapping("/transactions")
     @AdminOnly
     public ResponseEntity<TransactionAnalyticsResponse> getTransactionAnalytics(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "LAST_30_DAYS") StandardRange range) {
         try {
+            if (startDate == null && endDate == null) {
+                return fromSnapshot(snapshotCache.transactionAnalytics(range));
+            }
             return ResponseEntity.ok(analyticsService.getTransactionAnalytics(startDate, endDate));
         } catch (Exception e) {
             throw new ApiException(ErrorType.INTERNAL_SERVER_ERROR, 
@@ -53,42 +73,109 @@ public class AdminAnalyticsController {
         }
     }
 
-    @Operation(summary = "Get business metrics", description = "Get business performance metrics")
+    @Operation(summary = "Stream transactions", description = "Stream every transaction of the period as a JSON array")
+    @SecurityRequirement(name = "cookie")
+    @GetMapping("/transactions/details")
+    @AdminOnly
+    public ResponseEntity<StreamingResponseBody> streamTransactions(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        StreamingResponseBody body = out -> analyticsService.writeTransactions(startDate, endDate, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
+    @Operation(summary = "Get business metrics", description = "Get business performance metrics. Without dates, the standard range (this month by default) is served from a precomputed snapshot")
     @SecurityRequirement(name = "cookie")
     @GetMapping("/business-metrics")
     @AdminOnly
     public ResponseEntity<BusinessMetricsResponse> getBusinessMetrics(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "THIS_MONTH") StandardRange range) {
+        if (startDate == null && endDate == null) {
+            return fromSnapshot(snapshotCache.businessMetrics(range));
+        }
         return ResponseEntity.ok(analyticsService.getBusinessMetrics(startDate, endDate));
     }
 
-    @Operation(summary = "Export analytics", description = "Export combined analytics data as CSV or PDF")
+    @Operation(summary = "Get revenue series", description = "Get order count and revenue per hour, day, week or month of a period, in the given time zone. Empty buckets are included")
+    @SecurityRequirement(name = "cookie")
+    @GetMapping("/revenue-series")
+    @AdminOnly
+    public ResponseEntity<RevenueSeriesResponse> getRevenueSeries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "DAY") RevenueSeriesService.Bucket bucket,
+            @RequestParam(required = false) String zone) {
+        ZoneId zoneId;
+        try {
+            zoneId = zone != null ? ZoneId.of(zone) : ZoneId.systemDefault();
+        } catch (DateTimeException e) {
+            throw new ApiException(ErrorType.VALIDATION_FAILED, "Unknown time zone: " + zone);
+        }
+        LocalDate end = endDate != null ? endDate : LocalDate.now(zoneId);
+        return ResponseEntity.ok(revenueSeriesService.series(
+            startDate.atStartOfDay(), end.plusDays(1).atStartOfDay(), bucket, zoneId));
+    }
+
+    @Operation(summary = "Export analytics", description = "Export combined analytics data as PDF, or as CSV with every transaction of the period. The CSV is streamed, optionally gzip-compressed")
     @SecurityRequirement(name = "cookie")
     @GetMapping("/export")
     @AdminOnly
-    public ResponseEntity<Resource> exportAnalytics(
+    public ResponseEntity<?> exportAnalytics(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            @RequestParam(defaultValue = "csv") String format) {
-        
-        byte[] data = analyticsService.exportAnalytics(startDate, endDate, format);
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
         String filename = "analytics_report_" + LocalDate.now();
-        String contentType;
-        
+
         if (format.equalsIgnoreCase("pdf")) {
-            filename += ".pdf";
-            contentType = MediaType.APPLICATION_PDF_VALUE;
-        } else {
-            filename += ".csv";
-            contentType = "text/csv";
+            ByteArrayResource resource = new ByteArrayResource(analyticsService.exportPdf(startDate, endDate));
+            return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename + ".pdf")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(resource);
+        }
+
+        // Summary first, so a failing query still gets an error response; then the
+        // transactions are written as they are read
+        CombinedAnalyticsResponse analytics = analyticsService.getCombinedAnalytics(startDate, endDate);
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream compressed = new GZIPOutputStream(out, 8192)) {
+                    analyticsService.writeCsvExport(analytics, compressed);
+                }
+            } else {
+                analyticsService.writeCsvExport(analytics, out);
+            }
+        };
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=" + filename + (gzip ? ".csv.gz" : ".csv"))
+            .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : "text/csv"))
+            .body(body);
+    }
+
+    @Operation(summary = "Rebuild sales rollups", description = "Recompute the daily sales rollups of a date range from the orders. Returns the number of orders processed")
+    @SecurityRequirement(name = "cookie")
+    @PostMapping("/rollups/rebuild")
+    @AdminOnly
+    public ResponseEntity<Integer> rebuildSalesRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        if (startDate.isAfter(end)) {
+            throw new ApiException(ErrorType.VALIDATION_FAILED, "startDate must not be after endDate");
         }
+        return ResponseEntity.ok(salesRollupService.rebuild(startDate, end));
+    }
 
-        ByteArrayResource resource = new ByteArrayResource(data);
-        
+    // Snapshots may be served by private caches until the next one is due, and while it is computed
+    private <T> ResponseEntity<T> fromSnapshot(AnalyticsSnapshotCache.Snapshot<T> snapshot) {
         return ResponseEntity.ok()
-            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-            .contentType(MediaType.parseMediaType(contentType))
-            .body(resource);
+            .cacheControl(snapshotCache.cacheControl(snapshot))
+            .body(snapshot.value());
     }
-} 
\ No newline at end of file
+}
@@ -1,17 +1,18 @@
 package com.localmarket.main.controller.analytics.producer;
 
-import java.time.LocalDateTime;
-import java.time.temporal.TemporalAdjusters;
-
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.localmarket.main.dto.analytics.producer.ProducerAnalyticsResponse;
 import com.localmarket.main.dto.analytics.producer.OrderStatisticsResponse;
-import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.security.CustomUserDetails;
 import com.localmarket.main.security.ProducerOnly;
-import com.localmarket.main.service.analytics.producer.ProducerAnalyticsService;
+import com.localmarket.main.service.analytics.AnalyticsSnapshotCache;
+import com.localmarket.main.service.analytics.StandardRange;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,59 +24,61 @@ import lombok.RequiredArgsConstructor;
 @Tag(name = "Analytics Producer", description = "Analytics APIs (Producer only)")
 @RequiredArgsConstructor
 public class ProducerAnalyticsController {
-    private final ProducerAnalyticsService producerAnalyticsService;
+    private final AnalyticsSnapshotCache snapshotCache;
 
     @ProducerOnly
     @GetMapping("/overview")
-    @Operation(summary = "Get analytics overview", description = "Provides a summary of total orders, revenue, products sold, and growth rate for the current and previous months.")
-    public ProducerAnalyticsResponse getAnalyticsOverview() {
-        // Define time periods
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfCurrentMonth = now.with(TemporalAdjusters.firstDayOfMonth()).toLocalDate().atStartOfDay();
-        LocalDateTime endOfCurrentMonth = now.with(TemporalAdjusters.lastDayOfMonth()).toLocalDate().atTime(23, 59, 59);
-        LocalDateTime startOfPreviousMonth = startOfCurrentMonth.minusMonths(1);
-        LocalDateTime endOfPreviousMonth = startOfPreviousMonth.with(TemporalAdjusters.lastDayOfMonth()).toLocalDate().atTime(23, 59, 59);
-
-        return producerAnalyticsService.getAnalyticsOverview(
-            startOfCurrentMonth,
-            endOfCurrentMonth,
-            startOfPreviousMonth,
-            endOfPreviousMonth
-        );
+    @Operation(summary = "Get analytics overview", description = "Provides a summary of your orders, revenue, products sold, and growth rate for this month, the last 30 days or the year to date, compared with the period before.")
+    public ResponseEntity<ProducerAnalyticsResponse> getAnalyticsOverview(
+            @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(defaultValue = "THIS_MONTH") StandardRange range) {
+        AnalyticsSnapshotCache.Snapshot<ProducerAnalyticsResponse> snapshot =
+            snapshotCache.producerOverview(userDetails.getId(), range);
+        return ResponseEntity.ok()
+            .cacheControl(snapshotCache.cacheControl(snapshot))
+            .body(snapshot.value());
     }
 
     @ProducerOnly
     @GetMapping("/total-orders")
-    @Operation(summary = "Get total orders", description = "Returns the total number of orders placed.")
-    public int getTotalOrders() {
-        return producerAnalyticsService.getTotalOrders();
+    @Operation(summary = "Get total orders", description = "Returns the total number of orders for your products.")
+    public int getTotalOrders(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return orderStatistics(userDetails).getTotalOrders();
     }
 
     @ProducerOnly
     @GetMapping("/total-pending-orders")
-    @Operation(summary = "Get total pending orders", description = "Returns the total number of pending orders.")
-    public int getTotalPendingOrders() {
-        return producerAnalyticsService.getTotalOrdersByStatus(OrderStatus.PENDING_PAYMENT);
+    @Operation(summary = "Get total pending orders", description = "Returns the number of your pending orders.")
+    public int getTotalPendingOrders(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return orderStatistics(userDetails).getPendingOrders();
     }
 
     @ProducerOnly
     @GetMapping("/total-delivered-orders")
-    @Operation(summary = "Get total delivered orders", description = "Returns the total number of delivered orders.")
-    public int getTotalDeliveredOrders() {
-        return producerAnalyticsService.getTotalOrdersByStatus(OrderStatus.DELIVERED);
+    @Operation(summary = "Get total delivered orders", description = "Returns the number of your delivered orders.")
+    public int getTotalDeliveredOrders(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return orderStatistics(userDetails).getDeliveredOrders();
     }
 
     @ProducerOnly
     @GetMapping("/total-processing-orders")
-    @Operation(summary = "Get total processing orders", description = "Returns the total number of processing orders.")
-    public int getTotalProcessingOrders() {
-        return producerAnalyticsService.getTotalOrdersByStatus(OrderStatus.PROCESSING);
+    @Operation(summary = "Get total processing orders", description = "Returns the number of your processing orders.")
+    public int getTotalProcessingOrders(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return orderStatistics(userDetails).getProcessingOrders();
     }
 
     @ProducerOnly
     @GetMapping("/order-statistics")
-    @Operation(summary = "Get order statistics", description = "Returns statistics about orders including total, pending, processing, and delivered orders.")
-    public OrderStatisticsResponse getOrderStatistics() {
-        return producerAnalyticsService.getOrderStatistics();
+    @Operation(summary = "Get order statistics", description = "Returns statistics about your orders including total, pending, processing, and delivered orders.")
+    public ResponseEntity<OrderStatisticsResponse> getOrderStatistics(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        AnalyticsSnapshotCache.Snapshot<OrderStatisticsResponse> snapshot =
+            snapshotCache.producerOrderStatistics(userDetails.getId());
+        return ResponseEntity.ok()
+            .cacheControl(snapshotCache.cacheControl(snapshot))
+            .body(snapshot.value());
+    }
+
+    private OrderStatisticsResponse orderStatistics(CustomUserDetails userDetails) {
+        return snapshotCache.producerOrderStatistics(userDetails.getId()).value();
     }
 }
@@ -17,7 +17,11 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import com.localmarket.main.dto.error.ErrorResponse;
 
+import java.time.Duration;
 import java.util.List;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/categories")
@@ -26,6 +30,9 @@ import java.util.List;
 public class CategoryController {
     private final CategoryService categoryService;
 
+    // Categories change rarely; clients may reuse the list for a few minutes, then revalidate
+    private static final CacheControl CATEGORIES_CACHE = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     @Operation(summary = "Create category", description = "Create a new category (Admin only)")
     @SecurityRequirement(name = "cookie")
     @ApiResponses(value = {
@@ -41,11 +48,17 @@ public class CategoryController {
 
     @Operation(summary = "Get all categories", description = "Retrieve all available categories")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Categories retrieved successfully", content = @Content(schema = @Schema(implementation = CategoryResponse.class)))
+        @ApiResponse(responseCode = "200", description = "Categories retrieved successfully", content = @Content(schema = @Schema(implementation = CategoryResponse.class))),
+        @ApiResponse(responseCode = "304", description = "Categories not modified since the supplied ETag")
     })
     @GetMapping
-    public ResponseEntity<List<CategoryResponse>> getAllCategories() {
-        return ResponseEntity.ok(categoryService.getAllCategories());
+    public ResponseEntity<List<CategoryResponse>> getAllCategories(WebRequest webRequest) {
+        if (webRequest.checkNotModified(categoryService.getCategoriesETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CATEGORIES_CACHE).build();
+        }
+        return ResponseEntity.ok()
+            .cacheControl(CATEGORIES_CACHE)
+            .body(categoryService.getAllCategories());
     }
 
     @Operation(summary = "Get category by ID", description = "Retrieve a category by its unique identifier")
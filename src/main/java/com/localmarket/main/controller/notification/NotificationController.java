@@ -7,28 +7,39 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import com.localmarket.main.service.notification.NotificationRetentionService;
 import com.localmarket.main.service.notification.WebSocketService;
 import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.security.AdminOnly;
+import com.localmarket.main.websocket.WebSocketDispatcher;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.time.LocalDateTime;
+
 @RestController
 @RequestMapping("/api/notifications")
 @RequiredArgsConstructor
 @Tag(name = "Notifications", description = "Notification management APIs")
 public class NotificationController {
     private final WebSocketService webSocketService;
+    private final WebSocketDispatcher webSocketDispatcher;
+    private final NotificationRetentionService notificationRetentionService;
 
     @GetMapping
-    @Operation(summary = "Get user's notifications")
+    @Operation(summary = "Get user's notifications", description = "Newest first. For the next page pass the timestamp and id of the last notification received as before and beforeId")
     @SecurityRequirement(name = "cookie")
     @ApiResponse(responseCode = "200", description = "Retrieved notifications successfully")
     public ResponseEntity<Page<NotificationResponse>> getNotifications(
             @AuthenticationPrincipal CustomUserDetails userDetails,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) Long beforeId,
             Pageable pageable) {
-        return ResponseEntity.ok(webSocketService.getStoredNotifications(userDetails.getEmail(), pageable));
+        return ResponseEntity.ok(webSocketService.getStoredNotifications(userDetails.getEmail(), userDetails.getRole(),
+            before, beforeId, pageable));
     }
 
     @GetMapping("/unread-count")
@@ -36,7 +47,7 @@ public class NotificationController {
     @SecurityRequirement(name = "cookie")
     public ResponseEntity<Long> getUnreadCount(
             @AuthenticationPrincipal CustomUserDetails userDetails) {
-        return ResponseEntity.ok(webSocketService.getUnreadCount(userDetails.getEmail()));
+        return ResponseEntity.ok(webSocketService.getUnreadCount(userDetails.getEmail(), userDetails.getRole()));
     }
 
     @PostMapping("/mark-read")
@@ -44,7 +55,7 @@ public class NotificationController {
     @SecurityRequirement(name = "cookie")
     public ResponseEntity<Void> markAllAsRead(
             @AuthenticationPrincipal CustomUserDetails userDetails) {
-        webSocketService.markAllAsRead(userDetails.getEmail());
+        webSocketService.markAllAsRead(userDetails.getEmail(), userDetails.getRole());
         return ResponseEntity.ok().build();
     }
 
@@ -54,7 +65,7 @@ public class NotificationController {
     public ResponseEntity<Void> markAsRead(
             @AuthenticationPrincipal CustomUserDetails userDetails,
             @PathVariable Long notificationId) {
-        webSocketService.markAsRead(userDetails.getEmail(), notificationId);
+        webSocketService.markAsRead(userDetails.getEmail(), userDetails.getRole(), notificationId);
         return ResponseEntity.ok().build();
     }
 
@@ -65,7 +76,25 @@ public class NotificationController {
     public ResponseEntity<Void> deleteNotification(
             @AuthenticationPrincipal CustomUserDetails userDetails,
             @PathVariable Long notificationId) {
-        webSocketService.deleteNotification(userDetails.getEmail(), notificationId);
+        webSocketService.deleteNotification(userDetails.getEmail(), userDetails.getRole(), notificationId);
         return ResponseEntity.noContent().build();
     }
-} 
\ No newline at end of file
+
+    @GetMapping("/delivery-stats")
+    @Operation(summary = "Get WebSocket delivery statistics", description = "Open sessions, queued messages, drops, disconnects and send latency of the notification sockets")
+    @SecurityRequirement(name = "cookie")
+    @AdminOnly
+    public ResponseEntity<WebSocketDispatcher.DeliveryStats> getDeliveryStats() {
+        return ResponseEntity.ok(webSocketDispatcher.stats());
+    }
+
+    @GetMapping("/retention-report")
+    @Operation(summary = "Get the last notification retention report", description = "Rows purged per retention policy, batches and time taken by the last purge")
+    @SecurityRequirement(name = "cookie")
+    @AdminOnly
+    @ApiResponse(responseCode = "204", description = "No purge has run since startup")
+    public ResponseEntity<NotificationRetentionService.RetentionReport> getRetentionReport() {
+        NotificationRetentionService.RetentionReport report = notificationRetentionService.lastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+}
\ No newline at end of file
@@ -42,6 +42,10 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.WebRequest;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/api/products")
@@ -51,6 +55,10 @@ public class ProductController {
     private final ProductService productService;
     private final FileStorageService fileStorageService;
 
+    // Detail may be reused briefly by clients; listings always revalidate since a 304 is cheap
+    private static final CacheControl PRODUCT_CACHE = CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic().mustRevalidate();
+    private static final CacheControl CATALOG_CACHE = CacheControl.noCache().cachePublic();
+
     @Value("${app.upload.dir}")
     private String uploadDir;
 
@@ -109,13 +117,22 @@ public class ProductController {
     @Operation(summary = "Get product by ID", description = "Retrieve product details")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Product found", content = @Content(schema = @Schema(implementation = ProductResponse.class))),
+        @ApiResponse(responseCode = "304", description = "Product not modified since the supplied ETag"),
         @ApiResponse(responseCode = "404", description = "Product not found", content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
     })
     @GetMapping("/{id}")
-    public ResponseEntity<ProductResponse> getProduct(@PathVariable Long id) {
-        return ResponseEntity.ok(productService.getProductByIdWithCategories(id)
+    public ResponseEntity<ProductResponse> getProduct(@PathVariable Long id, WebRequest webRequest) {
+        String etag = productService.getProductETag(id)
             .orElseThrow(() -> new ApiException(ErrorType.PRODUCT_NOT_FOUND, 
-                "Product with id " + id + " not found")));
+                "Product with id " + id + " not found"));
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(PRODUCT_CACHE).build();
+        }
+        return ResponseEntity.ok()
+            .cacheControl(PRODUCT_CACHE)
+            .body(productService.getProductByIdWithCategories(id)
+                .orElseThrow(() -> new ApiException(ErrorType.PRODUCT_NOT_FOUND, 
+                    "Product with id " + id + " not found")));
     }
 
     @Operation(summary = "Update product", description = "Update existing product (Producer only)")
@@ -201,7 +218,7 @@ public class ProductController {
         return ResponseEntity.noContent().build();
     }
 
-    @Operation(summary = "Get all products", description = "Retrieve all products with pagination and optional search")
+    @Operation(summary = "Get all products", description = "Retrieve all products with pagination and optional search. sortBy accepts product fields such as createdAt, price, averageRating or ratingCount")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Products found", content = @Content(schema = @Schema(implementation = ProductResponse.class)))
     })
@@ -211,10 +228,16 @@ public class ProductController {
             @RequestParam(defaultValue = "6") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String direction,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(productService.getCatalogETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CATALOG_CACHE).build();
+        }
         Sort.Direction sortDirection = Sort.Direction.fromString(direction.toUpperCase());
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        return ResponseEntity.ok(productService.getAllProducts(pageable, search));
+        return ResponseEntity.ok()
+            .cacheControl(CATALOG_CACHE)
+            .body(productService.getAllProducts(pageable, search));
     }
 
     @Operation(summary = "Get products by category", description = "Retrieve products by category with pagination")
@@ -227,10 +250,16 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String direction) {
+            @RequestParam(defaultValue = "desc") String direction,
+            WebRequest webRequest) {
+        if (webRequest.checkNotModified(productService.getCatalogETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CATALOG_CACHE).build();
+        }
         Sort.Direction sortDirection = Sort.Direction.fromString(direction.toUpperCase());
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        return ResponseEntity.ok(productService.getProductsByCategoryFlat(categoryId, pageable));
+        return ResponseEntity.ok()
+            .cacheControl(CATALOG_CACHE)
+            .body(productService.getProductsByCategoryFlat(categoryId, pageable));
     }
 
     @Operation(summary = "Get product image", description = "Retrieve product image")
@@ -11,7 +11,6 @@ import com.localmarket.main.security.CustomUserDetails;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
-import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -83,9 +82,16 @@ public class ReviewController {
     }
 
     @GetMapping("/product/{productId}")
-    @Operation(summary = "Get product reviews", description = "Get all approved reviews for a product")
-    public ResponseEntity<List<ReviewResponse>> getProductReviews(@PathVariable Long productId) {
-        return ResponseEntity.ok(reviewService.getProductReviews(productId));
+    @Operation(summary = "Get product reviews", description = "Get approved reviews for a product with pagination")
+    public ResponseEntity<Page<ReviewResponse>> getProductReviews(
+            @PathVariable Long productId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String direction) {
+        Sort.Direction sortDirection = Sort.Direction.fromString(direction.toUpperCase());
+        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
+        return ResponseEntity.ok(reviewService.getProductReviews(productId, pageable));
     }
 
     @GetMapping("/pending")
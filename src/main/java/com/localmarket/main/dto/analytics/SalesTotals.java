@@ -0,0 +1,23 @@
+package com.localmarket.main.dto.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Aggregated sales figures read from the daily rollups; revenue is net of discounts
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesTotals {
+    public static final SalesTotals EMPTY = new SalesTotals(0, 0, BigDecimal.ZERO);
+
+    private long orders;
+    private long units;
+    private BigDecimal revenue;
+
+    public SalesTotals plus(SalesTotals other) {
+        return new SalesTotals(orders + other.orders, units + other.units, revenue.add(other.revenue));
+    }
+}
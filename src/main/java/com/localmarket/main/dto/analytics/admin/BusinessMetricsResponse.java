@@ -14,6 +14,7 @@ public class BusinessMetricsResponse {
     private double revenueGrowthRate;
     private long activeUsers;
     private double activeUsersGrowthRate;
+    private long activeCustomers;
     private long totalSales;
     private double salesGrowthRate;
     private double overallGrowthRate;
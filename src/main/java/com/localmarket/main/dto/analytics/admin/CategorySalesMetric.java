@@ -1,5 +1,7 @@
 package com.localmarket.main.dto.analytics.admin;
 
+import java.math.BigDecimal;
+
 import lombok.Builder;
 import lombok.Data;
 
@@ -9,5 +11,6 @@ import lombok.Data;
 public class CategorySalesMetric {
     private String category;
     private long sales;
+    private BigDecimal revenue;
     private double percentage;
 }
\ No newline at end of file
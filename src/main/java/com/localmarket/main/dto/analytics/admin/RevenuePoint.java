@@ -0,0 +1,20 @@
+package com.localmarket.main.dto.analytics.admin;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenuePoint {
+    private String label;
+    // Bucket start, in the series time zone
+    private LocalDateTime start;
+    private long orders;
+    private BigDecimal revenue;
+}
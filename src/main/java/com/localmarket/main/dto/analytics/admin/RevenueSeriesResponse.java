@@ -0,0 +1,20 @@
+package com.localmarket.main.dto.analytics.admin;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenueSeriesResponse {
+    private String bucket;
+    private String zone;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private List<RevenuePoint> points;
+}
@@ -1,7 +1,6 @@
 package com.localmarket.main.dto.analytics.admin;
 
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.Map;
 import java.time.LocalDate;
 import lombok.Builder;
@@ -21,6 +20,5 @@ public class TransactionAnalyticsResponse {
     private BigDecimal averageOrderValue;
     private Map<OrderStatus, Long> transactionsByStatus;
     private Map<LocalDate, BigDecimal> revenueByDay;
-    private List<TransactionDetails> transactions;
 }
 
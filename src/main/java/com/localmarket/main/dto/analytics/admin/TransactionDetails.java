@@ -2,11 +2,18 @@ package com.localmarket.main.dto.analytics.admin;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+
+import com.localmarket.main.entity.order.OrderStatus;
+
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class TransactionDetails {
     private Long orderId;
     private String transactionId;
@@ -15,4 +22,11 @@ public class TransactionDetails {
     private BigDecimal amount;
     private String status;
     private LocalDateTime date;
-} 
\ No newline at end of file
+
+    // Used by the JPQL constructor expression of the transaction stream
+    public TransactionDetails(Long orderId, String transactionId, String customerName, String producerName,
+                              BigDecimal amount, OrderStatus status, LocalDateTime date) {
+        this(orderId, transactionId, customerName, producerName, amount,
+            status != null ? status.toString() : null, date);
+    }
+}
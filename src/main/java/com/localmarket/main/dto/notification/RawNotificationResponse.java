@@ -0,0 +1,19 @@
+package com.localmarket.main.dto.notification;
+
+import java.time.LocalDateTime;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.Builder;
+import lombok.Data;
+
+// A stored notification as sent on replay: data is the stored JSON, written as is
+@Data
+@Builder
+public class RawNotificationResponse {
+    private Long id;
+    private String type;
+    private String message;
+    @JsonRawValue
+    private String data;
+    private LocalDateTime timestamp;
+    private boolean read;
+}
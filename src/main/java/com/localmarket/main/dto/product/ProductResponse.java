@@ -2,12 +2,11 @@ package com.localmarket.main.dto.product;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.localmarket.main.entity.category.Category;
 import com.localmarket.main.dto.user.FilterUsersResponse;
-import com.localmarket.main.dto.review.VerifiedReviews;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -27,7 +26,10 @@ public class ProductResponse {
     private LocalDateTime updatedAt;
     private FilterUsersResponse producer;
     private Set<Category> categories;
-    private List<VerifiedReviews> verifiedReviews;
+    private double averageRating;
+    private int ratingCount;
+    // stars (0-5) -> number of approved reviews
+    private Map<Integer, Integer> ratingHistogram;
     private boolean stock;
 }
 
@@ -0,0 +1,41 @@
+package com.localmarket.main.dto.product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import com.localmarket.main.entity.product.ProductStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Flat row for product listings, selected with a JPQL constructor expression so
+// listing pages never hydrate Product/User entities
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSummary {
+    private Long productId;
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private Integer quantity;
+    private String imageUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private ProductStatus status;
+    private String declineReason;
+    private Long producerId;
+    private String producerUsername;
+    private String producerEmail;
+    private String producerFirstname;
+    private String producerLastname;
+    private int ratingCount;
+    private double averageRating;
+    private int zeroStarRatings;
+    private int oneStarRatings;
+    private int twoStarRatings;
+    private int threeStarRatings;
+    private int fourStarRatings;
+    private int fiveStarRatings;
+}
@@ -0,0 +1,39 @@
+package com.localmarket.main.entity.analytics;
+
+import com.localmarket.main.entity.user.Role;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// HyperLogLog sketch of the users of one role that were active on one day, stored in the
+// compact form of HyperLogLog.toBytes()
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "DailyActiveUsersSketch",
+    uniqueConstraints = @UniqueConstraint(name = "uk_active_users_day_role",
+        columnNames = {"activityDay", "role"}))
+public class DailyActiveUsersSketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long sketchId;
+
+    @Column(nullable = false)
+    private LocalDate activityDay;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Role role;
+
+    @Lob
+    @Column(nullable = false, length = 65535)
+    private byte[] sketch;
+
+    public DailyActiveUsersSketch(LocalDate activityDay, Role role, byte[] sketch) {
+        this.activityDay = activityDay;
+        this.role = role;
+        this.sketch = sketch;
+    }
+}
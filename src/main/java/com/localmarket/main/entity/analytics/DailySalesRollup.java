@@ -0,0 +1,66 @@
+package com.localmarket.main.entity.analytics;
+
+import com.localmarket.main.entity.order.OrderStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Sales aggregated per order day x producer x primary category x order status.
+// Item figures (units, revenue) go to each item's category; order figures (orderCount,
+// discount) go to the category of the order's first item, so every dimension sums up
+// to the same totals as the Order table. Net revenue is revenue - discount.
+// producerOrders counts every order once per producer it contains items of, on the row
+// of that producer's first item, for per-producer order counts.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "DailySalesRollup",
+    uniqueConstraints = @UniqueConstraint(name = "uk_rollup_key",
+        columnNames = {"salesDay", "producerId", "categoryId", "status"}))
+public class DailySalesRollup {
+    // Used for products without categories (or items whose product was removed)
+    public static final long NO_CATEGORY = 0L;
+    public static final long NO_PRODUCER = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long rollupId;
+
+    @Column(nullable = false)
+    private LocalDate salesDay;
+
+    @Column(nullable = false)
+    private Long producerId;
+
+    @Column(nullable = false)
+    private Long categoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long producerOrders;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal discount = BigDecimal.ZERO;
+
+    public DailySalesRollup(LocalDate salesDay, Long producerId, Long categoryId, OrderStatus status) {
+        this.salesDay = salesDay;
+        this.producerId = producerId;
+        this.categoryId = categoryId;
+        this.status = status;
+    }
+}
@@ -0,0 +1,50 @@
+package com.localmarket.main.entity.analytics;
+
+import com.localmarket.main.entity.order.OrderStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// A change to one DailySalesRollup row not applied yet. Written in the order transaction,
+// so it commits or rolls back with the order, and deleted by the flush that applies it.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "SalesRollupDelta",
+    indexes = @Index(name = "idx_rollup_delta_day", columnList = "salesDay"))
+public class SalesRollupDelta {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate salesDay;
+
+    @Column(nullable = false)
+    private Long producerId;
+
+    @Column(nullable = false)
+    private Long categoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OrderStatus status;
+
+    @Column(nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long producerOrders;
+
+    @Column(nullable = false)
+    private long units;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal discount = BigDecimal.ZERO;
+}
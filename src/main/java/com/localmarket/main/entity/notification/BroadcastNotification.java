@@ -0,0 +1,43 @@
+package com.localmarket.main.entity.notification;
+
+import com.localmarket.main.entity.user.Role;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A notification for every user of a role, stored once. Who has read or deleted it is
+// recorded per user in BroadcastReceipt and NotificationReadCursor. The API exposes it
+// under the negated id, so it never collides with a StoredNotification id.
+@Entity
+@Data
+@Table(name = "BroadcastNotification",
+    indexes = {
+        @Index(name = "idx_broadcast_role_time", columnList = "role, timestamp"),
+        @Index(name = "idx_broadcast_expires", columnList = "expiresAt"),
+        @Index(name = "idx_broadcast_type_time", columnList = "type, timestamp")
+    })
+public class BroadcastNotification {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Role role;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private String message;
+
+    @Column(columnDefinition = "TEXT")
+    private String data;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,34 @@
+package com.localmarket.main.entity.notification;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// What one user did with one broadcast, when it was marked read or deleted on its own.
+// Broadcasts without a receipt are unread unless the user's read cursor has passed them.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "BroadcastReceipt",
+    uniqueConstraints = @UniqueConstraint(name = "uk_receipt_broadcast_recipient",
+        columnNames = {"broadcastId", "recipientEmail"}))
+public class BroadcastReceipt {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long broadcastId;
+
+    @Column(nullable = false)
+    private String recipientEmail;
+
+    private boolean read;
+
+    private boolean deleted;
+
+    public BroadcastReceipt(Long broadcastId, String recipientEmail) {
+        this.broadcastId = broadcastId;
+        this.recipientEmail = recipientEmail;
+    }
+}
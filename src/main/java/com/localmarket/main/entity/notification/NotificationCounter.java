@@ -0,0 +1,28 @@
+package com.localmarket.main.entity.notification;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Unread personal notifications of a recipient, kept up to date in the transactions
+// that insert, read or delete them. A missing row means it was never materialized;
+// it is then counted from StoredNotification.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "NotificationCounter")
+public class NotificationCounter {
+    @Id
+    private String recipientEmail;
+
+    @Column(nullable = false)
+    private long unreadCount;
+
+    public NotificationCounter(String recipientEmail, long unreadCount) {
+        this.recipientEmail = recipientEmail;
+        this.unreadCount = unreadCount;
+    }
+}
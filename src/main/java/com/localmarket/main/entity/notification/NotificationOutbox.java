@@ -0,0 +1,51 @@
+package com.localmarket.main.entity.notification;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A personal notification published but not stored yet. Written in the publisher's
+// transaction and deleted with the batch that stores it, so a notification survives a
+// full bus or a restart. The row is claimed by whoever is delivering it: the publishing
+// node at first, then any node whose sweep finds the claim older than the grace period.
+@Entity
+@Data
+@Table(name = "NotificationOutbox",
+    indexes = {
+        @Index(name = "idx_outbox_created", columnList = "createdAt"),
+        @Index(name = "idx_outbox_claimed", columnList = "claimedAt")
+    })
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // An email, or a user id still to resolve
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private String message;
+
+    @Column(columnDefinition = "TEXT")
+    private String data;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private int attempts = 0;
+
+    // Token of the last claim; only the holder of that claim may store the row
+    @Column(nullable = false, length = 36)
+    private String claimedBy;
+
+    @Column(nullable = false)
+    private LocalDateTime claimedAt;
+}
@@ -0,0 +1,37 @@
+package com.localmarket.main.entity.notification;
+
+import com.localmarket.main.entity.user.Role;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// "Mark all as read" for broadcasts: every broadcast of the role up to this id counts as
+// read, so the operation is one row whatever the number of broadcasts. Kept per role, as
+// broadcast ids of one role say nothing about those of another after a role change.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "NotificationReadCursor",
+    uniqueConstraints = @UniqueConstraint(name = "uk_read_cursor_recipient_role",
+        columnNames = {"recipientEmail", "role"}))
+public class NotificationReadCursor {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipientEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Role role;
+
+    @Column(nullable = false)
+    private Long lastReadBroadcastId;
+
+    public NotificationReadCursor(String recipientEmail, Role role, Long lastReadBroadcastId) {
+        this.recipientEmail = recipientEmail;
+        this.role = role;
+        this.lastReadBroadcastId = lastReadBroadcastId;
+    }
+}
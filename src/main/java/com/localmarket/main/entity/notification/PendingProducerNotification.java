@@ -0,0 +1,40 @@
+package com.localmarket.main.entity.notification;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// A producer notification waiting in its coalescing window. Written in the publisher's
+// transaction and deleted with the transaction that sends the window, so an open window
+// survives a restart.
+@Entity
+@Data
+@Table(name = "PendingProducerNotification",
+    indexes = @Index(name = "idx_pending_producer_window", columnList = "producerId, type, createdAt"))
+public class PendingProducerNotification {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long producerId;
+
+    @Column(nullable = false)
+    private String type;
+
+    @Column(nullable = false)
+    private String message;
+
+    @Column(columnDefinition = "TEXT")
+    private String data;
+
+    // From the data, when it names a product
+    private Long productId;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -2,6 +2,7 @@ package com.localmarket.main.entity.notification;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.Index;
 import lombok.Data;
 import java.time.LocalDateTime;
 import jakarta.persistence.Id;
@@ -11,7 +12,14 @@ import jakarta.persistence.Column;
 
 @Entity
 @Data
-@Table(name = "StoredNotification")
+@Table(name = "StoredNotification",
+    indexes = {
+        @Index(name = "idx_notification_recipient_read", columnList = "recipientEmail, read"),
+        @Index(name = "idx_notification_recipient_time", columnList = "recipientEmail, timestamp"),
+        @Index(name = "idx_notification_expires", columnList = "expiresAt"),
+        @Index(name = "idx_notification_read_time", columnList = "read, timestamp"),
+        @Index(name = "idx_notification_type_time", columnList = "type, timestamp")
+    })
 public class StoredNotification {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
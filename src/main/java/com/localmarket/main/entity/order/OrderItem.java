@@ -6,6 +6,7 @@ import lombok.ToString;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 @Entity
@@ -28,4 +29,9 @@ public class OrderItem {
     
     private Integer quantity;
     private BigDecimal price;
+
+    // The product's primary category when it was ordered (0 for none), so recategorizing
+    // a product does not move its past sales. Null on items older than this column.
+    @JsonIgnore
+    private Long categoryId;
 } 
\ No newline at end of file
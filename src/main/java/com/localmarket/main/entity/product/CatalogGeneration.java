@@ -0,0 +1,28 @@
+package com.localmarket.main.entity.product;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A change counter of one part of the public catalog (products, categories, producers),
+// incremented in the transaction that changes it. Catalog ETags are built from these, so
+// every instance hands out the same tag for the same data.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "CatalogGeneration")
+public class CatalogGeneration {
+    @Id
+    private String scope;
+
+    @Column(nullable = false)
+    private long generation;
+
+    public CatalogGeneration(String scope, long generation) {
+        this.scope = scope;
+        this.generation = generation;
+    }
+}
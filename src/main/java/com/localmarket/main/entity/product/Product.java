@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.localmarket.main.entity.category.Category;
 import com.localmarket.main.entity.user.User;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -24,6 +25,14 @@ import com.localmarket.main.entity.order.OrderItem;
 @Entity
 @Data
 @Table(name = "Product")
+// Product detail page: the product, its producer and its categories, nothing else
+@NamedEntityGraph(
+    name = "Product.detail",
+    attributeNodes = {
+        @NamedAttributeNode("producer"),
+        @NamedAttributeNode("categories")
+    }
+)
 @EqualsAndHashCode(exclude = {"categories", "reviews", "orderItems"})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
@@ -89,6 +98,44 @@ public class Product {
 
     @Column(name = "declineReason")
     private String declineReason;
+
+    // Aggregates over APPROVED reviews. Only ProductRepository.applyRating writes them, so
+    // saving a Product loaded before a moderation never writes old values back
+    @Column(name = "ratingCount", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int ratingCount = 0;
+
+    @Column(name = "ratingSum", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private long ratingSum = 0;
+
+    @Column(name = "averageRating", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private double averageRating = 0;
+
+    @Column(name = "zeroStarRatings", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int zeroStarRatings = 0;
+
+    @Column(name = "oneStarRatings", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int oneStarRatings = 0;
+
+    @Column(name = "twoStarRatings", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int twoStarRatings = 0;
+
+    @Column(name = "threeStarRatings", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int threeStarRatings = 0;
+
+    @Column(name = "fourStarRatings", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int fourStarRatings = 0;
+
+    @Column(name = "fiveStarRatings", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private int fiveStarRatings = 0;
     
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Review> reviews = new HashSet<>();
@@ -0,0 +1,7 @@
+package com.localmarket.main.entity.product;
+
+public enum StockAlertLevel {
+    OK,
+    LOW,
+    CRITICAL
+}
@@ -0,0 +1,35 @@
+package com.localmarket.main.entity.product;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// The stock level a product's last alert was about, and its reserved quantity then.
+// Only products below a threshold or with reservations have a row; kept in the database
+// so a restart neither repeats nor forgets an alert.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "StockAlertState")
+public class StockAlertState {
+    @Id
+    private Long productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StockAlertLevel level;
+
+    @Column(nullable = false)
+    private long reserved;
+
+    public StockAlertState(Long productId, StockAlertLevel level, long reserved) {
+        this.productId = productId;
+        this.level = level;
+        this.reserved = reserved;
+    }
+}
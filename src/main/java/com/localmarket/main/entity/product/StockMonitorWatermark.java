@@ -0,0 +1,29 @@
+package com.localmarket.main.entity.product;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// How far a scan of the stock monitor has got, e.g. the reservations checked for expiry,
+// so the next run, on any instance and after any downtime, picks up from there
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "StockMonitorWatermark")
+public class StockMonitorWatermark {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime checkedUntil;
+
+    public StockMonitorWatermark(String name, LocalDateTime checkedUntil) {
+        this.name = name;
+        this.checkedUntil = checkedUntil;
+    }
+}
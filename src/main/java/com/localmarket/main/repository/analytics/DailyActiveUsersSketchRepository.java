@@ -0,0 +1,25 @@
+package com.localmarket.main.repository.analytics;
+
+import com.localmarket.main.entity.analytics.DailyActiveUsersSketch;
+import com.localmarket.main.entity.user.Role;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DailyActiveUsersSketchRepository extends JpaRepository<DailyActiveUsersSketch, Long> {
+
+    // Locked, so flushes of the same day from several nodes merge one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DailyActiveUsersSketch s WHERE s.activityDay = :activityDay AND s.role = :role")
+    Optional<DailyActiveUsersSketch> findForUpdate(@Param("activityDay") LocalDate activityDay, @Param("role") Role role);
+
+    List<DailyActiveUsersSketch> findByActivityDayBetween(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,139 @@
+package com.localmarket.main.repository.analytics;
+
+import com.localmarket.main.entity.analytics.DailySalesRollup;
+import com.localmarket.main.entity.order.OrderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, Long> {
+
+    // Adds a delta to an existing rollup row; returns 0 when the row does not exist yet
+    @Modifying
+    @Query("""
+            UPDATE DailySalesRollup r SET
+                r.orderCount = r.orderCount + :orderCount,
+                r.producerOrders = r.producerOrders + :producerOrders,
+                r.units = r.units + :units,
+                r.revenue = r.revenue + :revenue,
+                r.discount = r.discount + :discount
+            WHERE r.salesDay = :salesDay
+            AND r.producerId = :producerId
+            AND r.categoryId = :categoryId
+            AND r.status = :status
+            """)
+    int addDelta(
+        @Param("salesDay") LocalDate salesDay,
+        @Param("producerId") Long producerId,
+        @Param("categoryId") Long categoryId,
+        @Param("status") OrderStatus status,
+        @Param("orderCount") long orderCount,
+        @Param("producerOrders") long producerOrders,
+        @Param("units") long units,
+        @Param("revenue") BigDecimal revenue,
+        @Param("discount") BigDecimal discount);
+
+    @Modifying
+    @Query("DELETE FROM DailySalesRollup r WHERE r.salesDay BETWEEN :from AND :to")
+    int deleteBySalesDayBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows of [status, orders, units, revenue, discount]
+    @Query("""
+            SELECT r.status, SUM(r.orderCount), SUM(r.units), SUM(r.revenue), SUM(r.discount)
+            FROM DailySalesRollup r
+            WHERE r.salesDay BETWEEN :from AND :to
+            GROUP BY r.status
+            """)
+    List<Object[]> summarizeByStatus(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows of [categoryId, name, units, net revenue]; the name is null for NO_CATEGORY and
+    // for categories deleted since
+    @Query("""
+            SELECT r.categoryId, c.name, SUM(r.units), SUM(r.revenue - r.discount)
+            FROM DailySalesRollup r
+            LEFT JOIN Category c ON c.categoryId = r.categoryId
+            WHERE r.salesDay BETWEEN :from AND :to
+            GROUP BY r.categoryId, c.name
+            """)
+    List<Object[]> summarizeByCategory(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows of [day, net revenue]
+    @Query("""
+            SELECT r.salesDay, SUM(r.revenue - r.discount)
+            FROM DailySalesRollup r
+            WHERE r.salesDay BETWEEN :from AND :to
+            GROUP BY r.salesDay
+            ORDER BY r.salesDay
+            """)
+    List<Object[]> netRevenueByDay(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows of [day, orders, units, net revenue]
+    @Query("""
+            SELECT r.salesDay, SUM(r.orderCount), SUM(r.units), SUM(r.revenue - r.discount)
+            FROM DailySalesRollup r
+            WHERE r.salesDay BETWEEN :from AND :to
+            GROUP BY r.salesDay
+            ORDER BY r.salesDay
+            """)
+    List<Object[]> dailyTotals(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows of [status, orders, units, revenue, discount] for one producer
+    @Query("""
+            SELECT r.status, SUM(r.orderCount), SUM(r.units), SUM(r.revenue), SUM(r.discount)
+            FROM DailySalesRollup r
+            WHERE r.producerId = :producerId
+            AND r.salesDay BETWEEN :from AND :to
+            GROUP BY r.status
+            """)
+    List<Object[]> summarizeByStatusForProducer(
+        @Param("producerId") Long producerId,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to);
+
+    // Rows of [day, orders, units, net revenue] for one producer
+    @Query("""
+            SELECT r.salesDay, SUM(r.orderCount), SUM(r.units), SUM(r.revenue - r.discount)
+            FROM DailySalesRollup r
+            WHERE r.producerId = :producerId
+            AND r.salesDay BETWEEN :from AND :to
+            GROUP BY r.salesDay
+            ORDER BY r.salesDay
+            """)
+    List<Object[]> dailyTotalsForProducer(
+        @Param("producerId") Long producerId,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to);
+
+    // Rows of [status, orders] over the producer's whole history
+    @Query("""
+            SELECT r.status, SUM(r.orderCount)
+            FROM DailySalesRollup r
+            WHERE r.producerId = :producerId
+            GROUP BY r.status
+            """)
+    List<Object[]> countOrdersByStatusForProducer(@Param("producerId") Long producerId);
+
+    // Rows of [producerId, current orders, current revenue, previous revenue] for every
+    // producer with sales in [previousFrom, to]; the current period starts at :from
+    @Query("""
+            SELECT r.producerId,
+                SUM(CASE WHEN r.salesDay >= :from THEN r.producerOrders ELSE 0 END),
+                SUM(CASE WHEN r.salesDay >= :from THEN r.revenue ELSE 0 END),
+                SUM(CASE WHEN r.salesDay < :from THEN r.revenue ELSE 0 END)
+            FROM DailySalesRollup r
+            WHERE r.salesDay BETWEEN :previousFrom AND :to
+            AND r.producerId <> 0
+            GROUP BY r.producerId
+            """)
+    List<Object[]> summarizeProducers(
+        @Param("previousFrom") LocalDate previousFrom,
+        @Param("from") LocalDate from,
+        @Param("to") LocalDate to);
+}
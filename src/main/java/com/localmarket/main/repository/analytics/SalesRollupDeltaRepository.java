@@ -0,0 +1,25 @@
+package com.localmarket.main.repository.analytics;
+
+import com.localmarket.main.entity.analytics.SalesRollupDelta;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesRollupDeltaRepository extends JpaRepository<SalesRollupDelta, Long> {
+
+    // Oldest deltas first, locked so two nodes never apply the same rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM SalesRollupDelta d ORDER BY d.id")
+    List<SalesRollupDelta> findOldestForUpdate(Pageable pageable);
+
+    @Query("SELECT d.id FROM SalesRollupDelta d WHERE d.salesDay BETWEEN :from AND :to")
+    List<Long> findIdsBySalesDayBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
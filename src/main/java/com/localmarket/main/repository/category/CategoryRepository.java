@@ -1,6 +1,7 @@
 package com.localmarket.main.repository.category;
 
 import com.localmarket.main.entity.category.Category;
+import com.localmarket.main.entity.product.ProductStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -23,4 +24,8 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     @Query("SELECT COUNT(p) FROM Category c JOIN c.products p WHERE c.categoryId = :categoryId AND p.status = 'APPROVED'")
     int countApprovedProducts(@Param("categoryId") Long categoryId);
+
+    // Rows of [categoryId, productCount] for categories with at least one product in the given status
+    @Query("SELECT c.categoryId, COUNT(p) FROM Category c JOIN c.products p WHERE p.status = :status GROUP BY c.categoryId")
+    List<Object[]> countProductsByCategory(@Param("status") ProductStatus status);
 } 
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.localmarket.main.repository.notification;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.notification.BroadcastNotification;
+import com.localmarket.main.entity.user.Role;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BroadcastNotificationRepository extends JpaRepository<BroadcastNotification, Long> {
+    // Rows of [BroadcastNotification, BroadcastReceipt or null], newest first, without
+    // the ones the user deleted
+    @Query("""
+            SELECT b, r FROM BroadcastNotification b
+            LEFT JOIN BroadcastReceipt r ON r.broadcastId = b.id AND r.recipientEmail = :email
+            WHERE b.role = :role AND b.expiresAt > :now
+            AND (r.id IS NULL OR r.deleted = false)
+            ORDER BY b.timestamp DESC, b.id DESC
+            """)
+    List<Object[]> findVisible(Role role, String email, LocalDateTime now, Pageable pageable);
+
+    // Same rows as findVisible after (before, beforeBroadcastId), for keyset paging
+    @Query("""
+            SELECT b, r FROM BroadcastNotification b
+            LEFT JOIN BroadcastReceipt r ON r.broadcastId = b.id AND r.recipientEmail = :email
+            WHERE b.role = :role AND b.expiresAt > :now
+            AND (r.id IS NULL OR r.deleted = false)
+            AND (b.timestamp < :before OR (b.timestamp = :before AND b.id < :beforeBroadcastId))
+            ORDER BY b.timestamp DESC, b.id DESC
+            """)
+    List<Object[]> findVisibleBefore(Role role, String email, LocalDateTime now, LocalDateTime before,
+                                     long beforeBroadcastId, Pageable pageable);
+
+    @Query("""
+            SELECT COUNT(b) FROM BroadcastNotification b
+            WHERE b.role = :role AND b.expiresAt > :now
+            AND NOT EXISTS (SELECT r.id FROM BroadcastReceipt r
+                WHERE r.broadcastId = b.id AND r.recipientEmail = :email AND r.deleted = true)
+            """)
+    long countVisible(Role role, String email, LocalDateTime now);
+
+    // Same rows as findVisible after a broadcast id, oldest first, for keyset paging
+    @Query("""
+            SELECT b, r FROM BroadcastNotification b
+            LEFT JOIN BroadcastReceipt r ON r.broadcastId = b.id AND r.recipientEmail = :email
+            WHERE b.role = :role AND b.id > :afterId AND b.expiresAt > :now
+            AND (r.id IS NULL OR r.deleted = false)
+            ORDER BY b.id
+            """)
+    List<Object[]> findVisibleAfter(Role role, String email, Long afterId, LocalDateTime now, Pageable pageable);
+
+    // Broadcasts after the user's read cursor that were neither read nor deleted one by one
+    @Query("""
+            SELECT b FROM BroadcastNotification b
+            WHERE b.role = :role AND b.id > :afterId AND b.expiresAt > :now
+            AND NOT EXISTS (SELECT r.id FROM BroadcastReceipt r
+                WHERE r.broadcastId = b.id AND r.recipientEmail = :email AND (r.read = true OR r.deleted = true))
+            ORDER BY b.id
+            """)
+    List<BroadcastNotification> findUnread(Role role, String email, Long afterId, LocalDateTime now, Pageable pageable);
+
+    @Query("""
+            SELECT COUNT(b) FROM BroadcastNotification b
+            WHERE b.role = :role AND b.id > :afterId AND b.expiresAt > :now
+            AND NOT EXISTS (SELECT r.id FROM BroadcastReceipt r
+                WHERE r.broadcastId = b.id AND r.recipientEmail = :email AND (r.read = true OR r.deleted = true))
+            """)
+    long countUnread(Role role, String email, Long afterId, LocalDateTime now);
+
+    @Query("SELECT MAX(b.id) FROM BroadcastNotification b WHERE b.role = :role")
+    Long findLatestId(Role role);
+
+    // Ids for the batched retention purge
+    @Query("SELECT b.id FROM BroadcastNotification b WHERE b.expiresAt < :now")
+    List<Long> findExpiredIds(LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT b.id FROM BroadcastNotification b WHERE b.type = :type AND b.timestamp < :before")
+    List<Long> findIdsByTypeBefore(String type, LocalDateTime before, Pageable pageable);
+}
@@ -0,0 +1,20 @@
+package com.localmarket.main.repository.notification;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.notification.BroadcastReceipt;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface BroadcastReceiptRepository extends JpaRepository<BroadcastReceipt, Long> {
+    Optional<BroadcastReceipt> findByBroadcastIdAndRecipientEmail(Long broadcastId, String recipientEmail);
+
+    // Receipts of the given broadcasts; run before deleting those
+    @Modifying
+    @Query("DELETE FROM BroadcastReceipt r WHERE r.broadcastId IN :broadcastIds")
+    int deleteByBroadcastIds(Collection<Long> broadcastIds);
+}
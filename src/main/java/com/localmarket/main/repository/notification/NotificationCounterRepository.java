@@ -0,0 +1,31 @@
+package com.localmarket.main.repository.notification;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.notification.NotificationCounter;
+
+@Repository
+public interface NotificationCounterRepository extends JpaRepository<NotificationCounter, String> {
+    // Atomic in the database; 0 rows when the counter is not materialized yet
+    @Modifying
+    @Query("""
+            UPDATE NotificationCounter c SET c.unreadCount = c.unreadCount + :delta
+            WHERE c.recipientEmail = :email AND c.unreadCount + :delta >= 0
+            """)
+    int add(String email, long delta);
+
+    @Modifying
+    @Query("UPDATE NotificationCounter c SET c.unreadCount = 0 WHERE c.recipientEmail = :email")
+    int reset(String email);
+
+    // Unread rows deleted by the retention purge; never below 0
+    @Modifying
+    @Query("""
+            UPDATE NotificationCounter c
+            SET c.unreadCount = CASE WHEN c.unreadCount > :count THEN c.unreadCount - :count ELSE 0 END
+            WHERE c.recipientEmail = :email
+            """)
+    int removeUnread(String email, long count);
+}
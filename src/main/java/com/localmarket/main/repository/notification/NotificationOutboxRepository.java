@@ -0,0 +1,37 @@
+package com.localmarket.main.repository.notification;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.notification.NotificationOutbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_LOCK_TIMEOUT;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+    // Rows whose claim has lapsed; rows another sweep is claiming right now are skipped
+    // (lock timeout -2 is SKIP LOCKED)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = HINT_SPEC_LOCK_TIMEOUT, value = "-2"))
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.claimedAt < :cutoff ORDER BY o.id")
+    List<NotificationOutbox> findClaimableForUpdate(LocalDateTime cutoff, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.id IN :ids")
+    List<NotificationOutbox> findAllByIdForUpdate(Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.claimedBy = :claim, o.claimedAt = :claimedAt, "
+        + "o.attempts = o.attempts + 1 WHERE o.id IN :ids")
+    void claim(Collection<Long> ids, String claim, LocalDateTime claimedAt);
+}
@@ -0,0 +1,14 @@
+package com.localmarket.main.repository.notification;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.notification.NotificationReadCursor;
+import com.localmarket.main.entity.user.Role;
+
+import java.util.Optional;
+
+@Repository
+public interface NotificationReadCursorRepository extends JpaRepository<NotificationReadCursor, Long> {
+
+    Optional<NotificationReadCursor> findByRecipientEmailAndRole(String recipientEmail, Role role);
+}
@@ -0,0 +1,24 @@
+package com.localmarket.main.repository.notification;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.notification.PendingProducerNotification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PendingProducerNotificationRepository extends JpaRepository<PendingProducerNotification, Long> {
+    // (producerId, type) of every window whose first event is older than the given time
+    @Query("SELECT p.producerId, p.type FROM PendingProducerNotification p "
+        + "GROUP BY p.producerId, p.type HAVING MIN(p.createdAt) <= :openedBefore")
+    List<Object[]> findWindowsOpenedBefore(LocalDateTime openedBefore);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PendingProducerNotification p WHERE p.producerId = :producerId AND p.type = :type "
+        + "ORDER BY p.id")
+    List<PendingProducerNotification> findWindowForUpdate(Long producerId, String type);
+}
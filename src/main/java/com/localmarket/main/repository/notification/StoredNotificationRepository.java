@@ -1,35 +1,70 @@
 package com.localmarket.main.repository.notification;
 
-import org.springframework.data.domain.Page;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import com.localmarket.main.entity.notification.StoredNotification;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface StoredNotificationRepository extends JpaRepository<StoredNotification, Long> {
-    List<StoredNotification> findByRecipientEmailAndReadFalseAndExpiresAtGreaterThan(
-        String recipientEmail, 
-        LocalDateTime now
+    // Keyset pages for reconnect replay: rows after the last id the client saw, oldest first
+    List<StoredNotification> findByRecipientEmailAndIdGreaterThanAndExpiresAtGreaterThanOrderByIdAsc(
+        String recipientEmail,
+        Long afterId,
+        LocalDateTime now,
+        Pageable pageable
     );
-    
-    Page<StoredNotification> findByRecipientEmailOrderByTimestampDesc(
-        String recipientEmail, 
+
+    List<StoredNotification> findByRecipientEmailAndReadFalseAndIdGreaterThanAndExpiresAtGreaterThanOrderByIdAsc(
+        String recipientEmail,
+        Long afterId,
+        LocalDateTime now,
         Pageable pageable
     );
     
+    List<StoredNotification> findByRecipientEmailOrderByTimestampDescIdDesc(
+        String recipientEmail,
+        Pageable pageable
+    );
+
+    // Keyset page of the notification list: rows after (before, beforeId), newest first
+    @Query("""
+            SELECT n FROM StoredNotification n
+            WHERE n.recipientEmail = :email
+            AND (n.timestamp < :before OR (n.timestamp = :before AND n.id < :beforeId))
+            ORDER BY n.timestamp DESC, n.id DESC
+            """)
+    List<StoredNotification> findPageBefore(String email, LocalDateTime before, long beforeId, Pageable pageable);
+
+    long countByRecipientEmail(String recipientEmail);
+
     Long countByRecipientEmailAndReadFalse(String recipientEmail);
     
     @Modifying
     @Query("UPDATE StoredNotification n SET n.read = true WHERE n.recipientEmail = :email")
     void markAllAsRead(String email);
     
-    @Modifying
-    @Query("DELETE FROM StoredNotification n WHERE n.expiresAt < :date")
-    void deleteByExpiresAtBefore(LocalDateTime date);
+    // Ids for the batched retention purge
+    @Query("SELECT n.id FROM StoredNotification n WHERE n.expiresAt < :now")
+    List<Long> findExpiredIds(LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT n.id FROM StoredNotification n WHERE n.read = true AND n.timestamp < :before")
+    List<Long> findReadIdsBefore(LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT n.id FROM StoredNotification n WHERE n.type = :type AND n.timestamp < :before")
+    List<Long> findIdsByTypeBefore(String type, LocalDateTime before, Pageable pageable);
+
+    // Recipient of each unread row of a purge batch, locked until the batch is deleted so
+    // a concurrent mark-as-read cannot take the same row off the counter as well
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n.recipientEmail FROM StoredNotification n WHERE n.id IN :ids AND n.read = false")
+    List<String> findUnreadRecipientsForUpdate(Collection<Long> ids);
 } 
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.localmarket.main.repository.order;
 import com.localmarket.main.entity.order.OrderItem;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -17,4 +19,14 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
 
     @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.order.orderDate BETWEEN :startDate AND :endDate")
     Integer countTotalProductsSoldInDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    // Item lines of a batch of orders, in insertion order: rows of [orderId, productId, quantity, price, categoryId]
+    @Query("""
+            SELECT oi.order.orderId, p.productId, oi.quantity, oi.price, oi.categoryId
+            FROM OrderItem oi
+            LEFT JOIN oi.product p
+            WHERE oi.order.orderId IN :orderIds
+            ORDER BY oi.orderItemId
+            """)
+    List<Object[]> findLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 }
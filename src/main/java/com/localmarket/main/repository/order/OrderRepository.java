@@ -10,7 +10,6 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.localmarket.main.entity.order.OrderStatus;
-import jakarta.persistence.Tuple;
 
 import java.util.List;
 import java.util.Optional;
@@ -25,58 +24,24 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Optional<Order> findByOrderIdAndCustomerUserId(Long orderId, Long userId);
 
-    @Query(value = """
-            SELECT
-                DATE_FORMAT(o.orderDate, '%Y-%m') as month,
-                SUM(o.totalPrice) as revenue
+    List<Order> findByOrderDateBetween(LocalDateTime start, LocalDateTime end);
+
+    // Keyset page of order headers for batch jobs: rows of [orderId, orderDate, status, totalPrice]
+    @Query("""
+            SELECT o.orderId, o.orderDate, o.status, o.totalPrice
             FROM Order o
-            WHERE o.orderDate BETWEEN :start AND :end
-            GROUP BY DATE_FORMAT(o.orderDate, '%Y-%m')
-            ORDER BY month
+            WHERE o.orderDate >= :from AND o.orderDate < :to
+            AND o.orderId > :afterId
+            ORDER BY o.orderId
             """)
-    List<Tuple> findMonthlyRevenue(LocalDateTime start, LocalDateTime end);
-
-    @Query(value = """
-            SELECT 
-                u.userId,
-                u.username as producerName,
-                COUNT(DISTINCT CASE WHEN o.orderDate >= :start AND o.orderDate < :end THEN o.orderId END) as totalSales,
-                COALESCE(SUM(CASE 
-                    WHEN o.orderDate >= :start AND o.orderDate < :end THEN oi.price * oi.quantity 
-                    ELSE 0 
-                END), 0) as totalRevenue,
-                CASE 
-                    WHEN COALESCE(SUM(CASE 
-                        WHEN o.orderDate >= DATE_SUB(:start, INTERVAL 1 MONTH) AND o.orderDate < :start THEN oi.price * oi.quantity 
-                        ELSE 0 
-                    END), 0) = 0 THEN 100.00
-                    ELSE (
-                        (COALESCE(SUM(CASE 
-                            WHEN o.orderDate >= :start AND o.orderDate < :end THEN oi.price * oi.quantity 
-                            ELSE 0 
-                        END), 0) 
-                        - COALESCE(SUM(CASE 
-                            WHEN o.orderDate >= DATE_SUB(:start, INTERVAL 1 MONTH) AND o.orderDate < :start THEN oi.price * oi.quantity 
-                            ELSE 0 
-                        END), 0)) 
-                        / COALESCE(SUM(CASE 
-                            WHEN o.orderDate >= DATE_SUB(:start, INTERVAL 1 MONTH) AND o.orderDate < :start THEN oi.price * oi.quantity 
-                            ELSE 0 
-                        END), 1) * 100
-                    )
-                END as growthRate
-            FROM User u
-            LEFT JOIN Product p ON u.userId = p.producerId
-            LEFT JOIN OrderItem oi ON p.productId = oi.productId
-            LEFT JOIN `Order` o ON oi.orderId = o.orderId
-            WHERE u.role = 'PRODUCER'
-            GROUP BY u.userId, u.username
-            ORDER BY totalRevenue DESC
-            LIMIT 10
-            """, nativeQuery = true)
-    List<Tuple> findProducerPerformance(LocalDateTime start, LocalDateTime end);
+    List<Object[]> findOrderHeadersAfter(
+        @Param("from") LocalDateTime from,
+        @Param("to") LocalDateTime to,
+        @Param("afterId") Long afterId,
+        Pageable pageable);
 
-    List<Order> findByOrderDateBetween(LocalDateTime start, LocalDateTime end);
+    @Query("SELECT MIN(o.orderDate) FROM Order o")
+    LocalDateTime findFirstOrderDate();
 
    
 
@@ -137,13 +102,31 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate AND o.status = :status")
     int countOrdersByStatusInPeriod(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate, @Param("status") OrderStatus status);
 
-    // Revenue trend per month (monthly breakdown for current year)
-    @Query("SELECT MONTH(o.orderDate) AS month, SUM(o.totalPrice) AS revenue FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate GROUP BY MONTH(o.orderDate) ORDER BY month")
-    List<Object[]> calculateRevenueTrend(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    // Rows of [year, month, day, hour, orders, revenue] per hour of order time. EXTRACT is
+    // rendered by the Hibernate dialect, so this runs unchanged on MySQL, Oracle and H2
+    @Query("""
+            SELECT EXTRACT(YEAR FROM o.orderDate), EXTRACT(MONTH FROM o.orderDate),
+                EXTRACT(DAY FROM o.orderDate), EXTRACT(HOUR FROM o.orderDate),
+                COUNT(o), SUM(o.totalPrice)
+            FROM Order o
+            WHERE o.orderDate >= :from AND o.orderDate < :to
+            GROUP BY EXTRACT(YEAR FROM o.orderDate), EXTRACT(MONTH FROM o.orderDate),
+                EXTRACT(DAY FROM o.orderDate), EXTRACT(HOUR FROM o.orderDate)
+            """)
+    List<Object[]> sumRevenueByHour(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
-    // Monthly orders (count per month for current year)
-    @Query("SELECT MONTH(o.orderDate) AS month, COUNT(o) AS totalOrders FROM Order o WHERE o.orderDate BETWEEN :startDate AND :endDate GROUP BY MONTH(o.orderDate) ORDER BY month")
-    List<Object[]> calculateMonthlyOrders(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    // Same per minute, for zones whose offset is not a whole number of hours:
+    // rows of [year, month, day, hour, minute, orders, revenue]
+    @Query("""
+            SELECT EXTRACT(YEAR FROM o.orderDate), EXTRACT(MONTH FROM o.orderDate),
+                EXTRACT(DAY FROM o.orderDate), EXTRACT(HOUR FROM o.orderDate), EXTRACT(MINUTE FROM o.orderDate),
+                COUNT(o), SUM(o.totalPrice)
+            FROM Order o
+            WHERE o.orderDate >= :from AND o.orderDate < :to
+            GROUP BY EXTRACT(YEAR FROM o.orderDate), EXTRACT(MONTH FROM o.orderDate),
+                EXTRACT(DAY FROM o.orderDate), EXTRACT(HOUR FROM o.orderDate), EXTRACT(MINUTE FROM o.orderDate)
+            """)
+    List<Object[]> sumRevenueByMinute(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
 
     List<Order> findByGuestEmail(String guestEmail);
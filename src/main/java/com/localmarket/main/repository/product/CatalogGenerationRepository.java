@@ -0,0 +1,15 @@
+package com.localmarket.main.repository.product;
+
+import com.localmarket.main.entity.product.CatalogGeneration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CatalogGenerationRepository extends JpaRepository<CatalogGeneration, String> {
+    @Modifying
+    @Query("UPDATE CatalogGeneration g SET g.generation = g.generation + 1 WHERE g.scope = :scope")
+    int increment(@Param("scope") String scope);
+}
@@ -1,15 +1,19 @@
 package com.localmarket.main.repository.product;
 
+import com.localmarket.main.dto.product.ProductSummary;
 import com.localmarket.main.entity.product.Product;
 import com.localmarket.main.entity.product.ProductStatus;
 import com.localmarket.main.entity.user.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -60,13 +64,8 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
         @Param("status") ProductStatus status, 
         Pageable pageable);
 
-    @Query("""
-            SELECT DISTINCT p
-            FROM Product p
-            JOIN FETCH p.producer
-            LEFT JOIN FETCH p.categories cat
-            LEFT JOIN FETCH cat.products
-            """)
+    @EntityGraph(value = "Product.detail")
+    @Query("SELECT p FROM Product p")
     List<Product> findAllWithCategories();
     
     @Query(value = """
@@ -95,14 +94,10 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             """)
     Page<Product> findByStatusPaged(@Param("status") ProductStatus status, Pageable pageable);
 
-    @Query("""
-            SELECT DISTINCT p
-            FROM Product p
-            JOIN FETCH p.producer
-            LEFT JOIN FETCH p.categories cat
-            LEFT JOIN FETCH cat.products
-            WHERE p.productId = :id
-            """)
+    // Loads exactly the product, its producer and its categories in one statement;
+    // the categories' own product sets stay lazy
+    @EntityGraph(value = "Product.detail")
+    @Query("SELECT p FROM Product p WHERE p.productId = :id")
     Optional<Product> findByIdWithCategories(@Param("id") Long id);
 
     // Find distinct producers with approved products
@@ -153,4 +148,183 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
         @Param("status") ProductStatus status,
         @Param("searchTerm") String searchTerm,
         Pageable pageable);
-}
\ No newline at end of file
+
+    // Listing projections: one row per product, producer columns joined in, no entity hydration
+    @Query(value = """
+            SELECT new com.localmarket.main.dto.product.ProductSummary(
+                p.productId, p.name, p.description, p.price, p.quantity, p.imageUrl,
+                p.createdAt, p.updatedAt, p.status, p.declineReason,
+                u.userId, u.username, u.email, u.firstname, u.lastname,
+                p.ratingCount, p.averageRating,
+                p.zeroStarRatings, p.oneStarRatings, p.twoStarRatings,
+                p.threeStarRatings, p.fourStarRatings, p.fiveStarRatings)
+            FROM Product p
+            JOIN p.producer u
+            WHERE p.status = :status
+            """,
+            countQuery = """
+            SELECT COUNT(p)
+            FROM Product p
+            WHERE p.status = :status
+            """)
+    Page<ProductSummary> findSummariesByStatus(@Param("status") ProductStatus status, Pageable pageable);
+
+    @Query(value = """
+            SELECT new com.localmarket.main.dto.product.ProductSummary(
+                p.productId, p.name, p.description, p.price, p.quantity, p.imageUrl,
+                p.createdAt, p.updatedAt, p.status, p.declineReason,
+                u.userId, u.username, u.email, u.firstname, u.lastname,
+                p.ratingCount, p.averageRating,
+                p.zeroStarRatings, p.oneStarRatings, p.twoStarRatings,
+                p.threeStarRatings, p.fourStarRatings, p.fiveStarRatings)
+            FROM Product p
+            JOIN p.producer u
+            WHERE p.status = :status
+            AND (LOWER(p.name) LIKE :searchTerm
+            OR LOWER(p.description) LIKE :searchTerm)
+            """,
+            countQuery = """
+            SELECT COUNT(p)
+            FROM Product p
+            WHERE p.status = :status
+            AND (LOWER(p.name) LIKE :searchTerm
+            OR LOWER(p.description) LIKE :searchTerm)
+            """)
+    Page<ProductSummary> findSummariesByStatusAndSearch(
+        @Param("status") ProductStatus status,
+        @Param("searchTerm") String searchTerm,
+        Pageable pageable);
+
+    @Query(value = """
+            SELECT new com.localmarket.main.dto.product.ProductSummary(
+                p.productId, p.name, p.description, p.price, p.quantity, p.imageUrl,
+                p.createdAt, p.updatedAt, p.status, p.declineReason,
+                u.userId, u.username, u.email, u.firstname, u.lastname,
+                p.ratingCount, p.averageRating,
+                p.zeroStarRatings, p.oneStarRatings, p.twoStarRatings,
+                p.threeStarRatings, p.fourStarRatings, p.fiveStarRatings)
+            FROM Product p
+            JOIN p.producer u
+            JOIN p.categories c
+            WHERE c.categoryId = :categoryId AND p.status = :status
+            """,
+            countQuery = """
+            SELECT COUNT(p)
+            FROM Product p
+            JOIN p.categories c
+            WHERE c.categoryId = :categoryId AND p.status = :status
+            """)
+    Page<ProductSummary> findSummariesByCategoryAndStatus(
+        @Param("categoryId") Long categoryId,
+        @Param("status") ProductStatus status,
+        Pageable pageable);
+
+    @Query(value = """
+            SELECT new com.localmarket.main.dto.product.ProductSummary(
+                p.productId, p.name, p.description, p.price, p.quantity, p.imageUrl,
+                p.createdAt, p.updatedAt, p.status, p.declineReason,
+                u.userId, u.username, u.email, u.firstname, u.lastname,
+                p.ratingCount, p.averageRating,
+                p.zeroStarRatings, p.oneStarRatings, p.twoStarRatings,
+                p.threeStarRatings, p.fourStarRatings, p.fiveStarRatings)
+            FROM Product p
+            JOIN p.producer u
+            WHERE u.userId = :producerId
+            """,
+            countQuery = """
+            SELECT COUNT(p)
+            FROM Product p
+            WHERE p.producer.userId = :producerId
+            """)
+    Page<ProductSummary> findSummariesByProducer(@Param("producerId") Long producerId, Pageable pageable);
+
+    @Query(value = """
+            SELECT new com.localmarket.main.dto.product.ProductSummary(
+                p.productId, p.name, p.description, p.price, p.quantity, p.imageUrl,
+                p.createdAt, p.updatedAt, p.status, p.declineReason,
+                u.userId, u.username, u.email, u.firstname, u.lastname,
+                p.ratingCount, p.averageRating,
+                p.zeroStarRatings, p.oneStarRatings, p.twoStarRatings,
+                p.threeStarRatings, p.fourStarRatings, p.fiveStarRatings)
+            FROM Product p
+            JOIN p.producer u
+            WHERE u.userId = :producerId AND p.status IN :statuses
+            """,
+            countQuery = """
+            SELECT COUNT(p)
+            FROM Product p
+            WHERE p.producer.userId = :producerId AND p.status IN :statuses
+            """)
+    Page<ProductSummary> findSummariesByProducerAndStatusIn(
+        @Param("producerId") Long producerId,
+        @Param("statuses") Collection<ProductStatus> statuses,
+        Pageable pageable);
+
+    @Query("""
+            SELECT COUNT(p) > 0
+            FROM Product p
+            JOIN p.categories c
+            WHERE c.categoryId = :categoryId AND p.status IN :statuses
+            """)
+    boolean existsByCategoryIdAndStatusIn(
+        @Param("categoryId") Long categoryId,
+        @Param("statuses") Collection<ProductStatus> statuses);
+
+    // Single row of [updatedAt, ratingCount, ratingSum]: everything the detail ETag depends on
+    @Query("""
+            SELECT p.updatedAt, p.ratingCount, p.ratingSum
+            FROM Product p
+            WHERE p.productId = :id AND p.status = :status
+            """)
+    List<Object[]> findVersionByIdAndStatus(@Param("id") Long id, @Param("status") ProductStatus status);
+
+    // Moves one review of the given rating into (delta = 1) or out of (delta = -1) the
+    // product's approved aggregates. averageRating is assigned first so it is computed from
+    // the pre-update count/sum on every database (MySQL applies SET clauses left to right)
+    @Modifying
+    @Query("""
+            UPDATE Product p SET
+                p.averageRating = CASE WHEN p.ratingCount + :delta <= 0 THEN 0.0
+                    ELSE (p.ratingSum + :delta * :rating) * 1.0 / (p.ratingCount + :delta) END,
+                p.ratingCount = p.ratingCount + :delta,
+                p.ratingSum = p.ratingSum + :delta * :rating,
+                p.zeroStarRatings = p.zeroStarRatings + CASE WHEN :rating = 0 THEN :delta ELSE 0 END,
+                p.oneStarRatings = p.oneStarRatings + CASE WHEN :rating = 1 THEN :delta ELSE 0 END,
+                p.twoStarRatings = p.twoStarRatings + CASE WHEN :rating = 2 THEN :delta ELSE 0 END,
+                p.threeStarRatings = p.threeStarRatings + CASE WHEN :rating = 3 THEN :delta ELSE 0 END,
+                p.fourStarRatings = p.fourStarRatings + CASE WHEN :rating = 4 THEN :delta ELSE 0 END,
+                p.fiveStarRatings = p.fiveStarRatings + CASE WHEN :rating = 5 THEN :delta ELSE 0 END
+            WHERE p.productId = :productId
+            """)
+    int applyRating(
+        @Param("productId") Long productId,
+        @Param("rating") int rating,
+        @Param("delta") int delta);
+
+    // Categories for a whole page of products in one round trip: rows of [productId, Category]
+    @Query("""
+            SELECT p.productId, c
+            FROM Product p
+            JOIN p.categories c
+            WHERE p.productId IN :productIds
+            """)
+    List<Object[]> findCategoriesByProductIds(@Param("productIds") Collection<Long> productIds);
+
+    // Sales attribution keys: rows of [productId, producerId, lowest categoryId or null]
+    @Query("""
+            SELECT p.productId, p.producer.userId, MIN(c.categoryId)
+            FROM Product p
+            LEFT JOIN p.categories c
+            WHERE p.productId IN :productIds
+            GROUP BY p.productId, p.producer.userId
+            """)
+    List<Object[]> findProducerAndPrimaryCategory(@Param("productIds") Collection<Long> productIds);
+
+    // [productId, name, quantity, producerId] for the stock level monitor
+    @Query("""
+            SELECT p.productId, p.name, p.quantity, p.producer.userId
+            FROM Product p
+            WHERE p.productId IN :productIds
+            """)
+    List<Object[]> findStockLevels(@Param("productIds") Collection<Long> productIds);
+}
@@ -0,0 +1,9 @@
+package com.localmarket.main.repository.product;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.product.StockAlertState;
+
+@Repository
+public interface StockAlertStateRepository extends JpaRepository<StockAlertState, Long> {
+}
@@ -0,0 +1,18 @@
+package com.localmarket.main.repository.product;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import com.localmarket.main.entity.product.StockMonitorWatermark;
+
+import java.util.Optional;
+
+@Repository
+public interface StockMonitorWatermarkRepository extends JpaRepository<StockMonitorWatermark, String> {
+    // Held until the scan commits, so two instances never scan the same range
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM StockMonitorWatermark w WHERE w.name = :name")
+    Optional<StockMonitorWatermark> findForUpdate(String name);
+}
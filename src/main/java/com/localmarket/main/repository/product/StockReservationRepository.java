@@ -4,8 +4,10 @@ import com.localmarket.main.entity.product.Product;
 import com.localmarket.main.entity.product.StockReservation;
 import com.localmarket.main.entity.order.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,4 +16,15 @@ public interface StockReservationRepository extends JpaRepository<StockReservati
     List<StockReservation> findByExpiresAtLessThan(LocalDateTime now);
     void deleteByOrder(Order order);
     List<StockReservation> findByProduct(Product product);
+
+    // [productId, reserved quantity] of the products with active reservations
+    @Query("""
+            SELECT r.product.productId, SUM(r.quantity) FROM StockReservation r
+            WHERE r.product.productId IN :productIds AND r.expiresAt > :now
+            GROUP BY r.product.productId
+            """)
+    List<Object[]> sumActiveQuantities(Collection<Long> productIds, LocalDateTime now);
+
+    @Query("SELECT DISTINCT r.product.productId FROM StockReservation r WHERE r.expiresAt > :from AND r.expiresAt <= :to")
+    List<Long> findProductIdsExpiringBetween(LocalDateTime from, LocalDateTime to);
 } 
\ No newline at end of file
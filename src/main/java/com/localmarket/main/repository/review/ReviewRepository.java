@@ -1,10 +1,13 @@
 package com.localmarket.main.repository.review;
 
 import com.localmarket.main.entity.review.Review;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import com.localmarket.main.entity.review.ReviewStatus;
 import org.springframework.data.repository.query.Param;
+import jakarta.persistence.LockModeType;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
@@ -24,6 +27,15 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     @Query("SELECT COUNT(r) > 0 FROM Review r WHERE r.product.productId = :productId AND r.customer.userId = :customerId")
     boolean existsByProductAndCustomer(@Param("productId") Long productId, @Param("customerId") Long customerId);
 
+    // Moderation reads the review with a row lock, so concurrent approve/decline/edit calls
+    // see each other's status and apply a rating change once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.reviewId = :reviewId")
+    Optional<Review> findByIdForUpdate(@Param("reviewId") Long reviewId);
+
     List<Review> findByStatus(ReviewStatus status);
     Page<Review> findByStatus(ReviewStatus status, Pageable pageable);
-} 
\ No newline at end of file
+
+    @EntityGraph(attributePaths = {"customer", "product"})
+    Page<Review> findByProductProductIdAndStatus(Long productId, ReviewStatus status, Pageable pageable);
+}
@@ -39,6 +39,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     long countByRole(Role role);
 
+    // Rows of [userId, username]
+    @Query("SELECT u.userId, u.username FROM User u WHERE u.role = :role")
+    List<Object[]> findIdAndUsernameByRole(Role role);
+
     @Modifying
     @Query("UPDATE User u SET u.tokenVersion = :tokenVersion, u.lastLogin = :lastLogin WHERE u.userId = :userId")
     void updateTokenVersionAndLastLogin(Long userId, Integer tokenVersion, LocalDateTime lastLogin);
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.Collections;
 import com.localmarket.main.entity.user.Role;
 import com.localmarket.main.repository.producer.ProducerApplicationRepository;
+import com.localmarket.main.service.analytics.ActiveUserTracker;
 import org.springframework.security.core.Authentication;
 
 @Component
@@ -31,6 +32,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final TokenRepository tokenRepository;
     private final CookieUtil cookieUtil;
     private final ProducerApplicationRepository applicationRepository;
+    private final ActiveUserTracker activeUserTracker;
 
     @Override
     protected void doFilterInternal(
@@ -91,6 +93,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (!tokenVersion.equals(user.getTokenVersion())) {
             throw new ApiException(ErrorType.INVALID_TOKEN, "Token has been invalidated");
         }
+        activeUserTracker.record(userId, user.getRole());
 
         String applicationStatus = user.getRole() == Role.CUSTOMER ?
             applicationRepository.findByCustomer(user)
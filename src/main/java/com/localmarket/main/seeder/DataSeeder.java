@@ -47,6 +47,7 @@ import java.util.Collections;
 import com.localmarket.main.entity.product.ProductStatus;
 import com.localmarket.main.service.coupon.CouponService;
 import com.localmarket.main.service.auth.TokenService;
+import com.localmarket.main.service.analytics.SalesRollupService;
 import com.localmarket.main.entity.producer.ProducerApplication;
 import com.localmarket.main.repository.producer.ProducerApplicationRepository;
 import com.localmarket.main.entity.producer.ApplicationStatus;
@@ -937,6 +938,7 @@ public class DataSeeder implements CommandLineRunner {
                     orderItem.setProduct(product);
                     orderItem.setQuantity(1 + random.nextInt(3));
                     orderItem.setPrice(product.getPrice());
+                    orderItem.setCategoryId(SalesRollupService.primaryCategoryId(product));
                     orderItems.add(orderItem);
                 }
 
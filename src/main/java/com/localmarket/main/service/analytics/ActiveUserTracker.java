@@ -0,0 +1,166 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.entity.analytics.DailyActiveUsersSketch;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.analytics.DailyActiveUsersSketchRepository;
+import com.localmarket.main.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Distinct active users per day, kept as one HyperLogLog sketch per day and role.
+// Logins and authenticated requests are added to in-memory sketches that are merged
+// into DailyActiveUsersSketch every few minutes, under a lock on the day's row, so
+// several nodes can flush the same day. A distinct count over any range is the
+// cardinality of the union of its day sketches, with an error of about 1%.
+@Service
+@Slf4j
+public class ActiveUserTracker {
+    // Shared placeholder for settled days without activity; never mutated
+    private static final HyperLogLog EMPTY = new HyperLogLog();
+
+    private final DailyActiveUsersSketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int settledCacheSize;
+
+    private record SketchKey(LocalDate day, Role role) {
+    }
+
+    // Activity recorded since the last flush
+    private final Map<SketchKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    // Persisted sketches of days before yesterday, which no longer change
+    private final Map<SketchKey, HyperLogLog> settled;
+
+    // cachedDays is the longest range served from memory: a dashboard reads its period
+    // and the previous one of the same length, so the default covers a year-to-date
+    // dashboard. Each day and role with activity holds 16 KB of registers.
+    public ActiveUserTracker(DailyActiveUsersSketchRepository sketchRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${analytics.active-users.cached-days:750}") int cachedDays) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.settledCacheSize = cachedDays * Role.values().length;
+        this.settled = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SketchKey, HyperLogLog> eldest) {
+                return size() > settledCacheSize;
+            }
+        });
+    }
+
+    public void record(Long userId, Role role) {
+        if (userId == null || role == null) {
+            return;
+        }
+        // compute() runs under the map's bin lock, so adds never race with flush()
+        pending.compute(new SketchKey(LocalDate.now(), role), (key, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : new HyperLogLog();
+            target.add(userId);
+            return target;
+        });
+    }
+
+    // Distinct users active on any day of [from, to]; every role when role is null
+    public long countDistinct(LocalDate from, LocalDate to, Role role) {
+        HyperLogLog union = new HyperLogLog();
+        LocalDate firstOpenDay = LocalDate.now().minusDays(1);
+
+        LocalDate loadFrom = from;
+        if (from.isBefore(firstOpenDay) && mergeSettled(union, from, min(to, firstOpenDay.minusDays(1)), role)) {
+            loadFrom = firstOpenDay;
+        }
+        if (!loadFrom.isAfter(to)) {
+            for (DailyActiveUsersSketch row : sketchRepository.findByActivityDayBetween(loadFrom, to)) {
+                HyperLogLog sketch = HyperLogLog.fromBytes(row.getSketch());
+                if (row.getActivityDay().isBefore(firstOpenDay)) {
+                    settled.put(new SketchKey(row.getActivityDay(), row.getRole()), sketch);
+                }
+                if (role == null || row.getRole() == role) {
+                    union.merge(sketch);
+                }
+            }
+            for (LocalDate day = loadFrom; !day.isAfter(to) && day.isBefore(firstOpenDay); day = day.plusDays(1)) {
+                for (Role dayRole : Role.values()) {
+                    settled.putIfAbsent(new SketchKey(day, dayRole), EMPTY);
+                }
+            }
+        }
+
+        for (SketchKey key : pending.keySet()) {
+            if (!key.day().isBefore(from) && !key.day().isAfter(to) && (role == null || key.role() == role)) {
+                pending.computeIfPresent(key, (k, sketch) -> {
+                    union.merge(sketch);
+                    return sketch;
+                });
+            }
+        }
+        return union.cardinality();
+    }
+
+    // Merges the cached sketches of [from, to]; false, without merging, unless all are cached
+    private boolean mergeSettled(HyperLogLog union, LocalDate from, LocalDate to, Role role) {
+        List<Role> roles = role != null ? List.of(role) : List.of(Role.values());
+        HyperLogLog days = new HyperLogLog();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            for (Role dayRole : roles) {
+                HyperLogLog sketch = settled.get(new SketchKey(day, dayRole));
+                if (sketch == null) {
+                    return false;
+                }
+                days.merge(sketch);
+            }
+        }
+        union.merge(days);
+        return true;
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelay = 300000) // Persist recorded activity every 5 minutes
+    public synchronized void flush() {
+        for (SketchKey key : pending.keySet()) {
+            HyperLogLog sketch = pending.remove(key);
+            if (sketch == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(key, sketch));
+                settled.remove(key);
+            } catch (RuntimeException e) {
+                // Keep it for the next run (e.g. another node inserted the same day first)
+                pending.merge(key, sketch, (current, failed) -> {
+                    current.merge(failed);
+                    return current;
+                });
+                log.warn("Failed to flush active user sketch for {} {}: {}", key.day(), key.role(), e.getMessage());
+            }
+        }
+    }
+
+    private void save(SketchKey key, HyperLogLog sketch) {
+        DailyActiveUsersSketch row = sketchRepository.findForUpdate(key.day(), key.role())
+            .orElse(null);
+        if (row == null) {
+            sketchRepository.save(new DailyActiveUsersSketch(key.day(), key.role(), sketch.toBytes()));
+            return;
+        }
+        HyperLogLog merged = HyperLogLog.fromBytes(row.getSketch());
+        merged.merge(sketch);
+        row.setSketch(merged.toBytes());
+        sketchRepository.save(row);
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,115 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.exception.ApiException;
+import com.localmarket.main.exception.ErrorType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs the independent queries of a dashboard side by side on the bounded analytics
+// pool, each in its own read-only transaction, so a dashboard costs max(query) instead
+// of sum(query). Queries of one dashboard share a deadline and their timings are logged.
+// At the deadline queued queries are dropped and running ones interrupted; the statement
+// itself is stopped by the database, as the transaction timeout becomes the JDBC query
+// timeout of every query in it.
+//
+// Submit every leaf query of a dashboard to a single batch: a query that itself awaits
+// a batch would hold a pool thread while waiting for others queued behind it.
+@Component
+@Slf4j
+public class AnalyticsQueryExecutor {
+    private final AsyncTaskExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long timeoutMillis;
+
+    public AnalyticsQueryExecutor(@Qualifier("analyticsExecutor") AsyncTaskExecutor executor,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${analytics.dashboard-timeout-ms:15000}") long timeoutMillis) {
+        this.executor = executor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Whole seconds, rounded up so a query never gets less than the dashboard deadline
+        this.readOnlyTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutMillis + 999)));
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public Batch batch(String dashboard) {
+        return new Batch(dashboard);
+    }
+
+    public final class Batch {
+        private final String dashboard;
+        private final long startedAt = System.nanoTime();
+        private final Map<String, CompletableFuture<?>> queries = new LinkedHashMap<>();
+        // The pool's own futures, whose cancel() reaches the worker thread
+        private final List<Future<?>> tasks = new ArrayList<>();
+        // query name -> elapsed ms, filled in by the worker threads
+        private final Map<String, Long> timings = new ConcurrentHashMap<>();
+
+        private Batch(String dashboard) {
+            this.dashboard = dashboard;
+        }
+
+        public <T> CompletableFuture<T> submit(String name, Supplier<T> query) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            queries.put(name, result);
+            tasks.add(executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    result.complete(readOnlyTransaction.execute(status -> query.get()));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    timings.put(name, elapsedMillis(start));
+                }
+            }));
+            return result;
+        }
+
+        // Waits for every submitted query; fails the whole dashboard when one query
+        // fails or the deadline passes
+        public void await() {
+            CompletableFuture<?> all = CompletableFuture.allOf(queries.values().toArray(new CompletableFuture[0]));
+            try {
+                all.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                tasks.forEach(task -> task.cancel(true));
+                queries.values().forEach(query -> query.cancel(true));
+                log.warn("Analytics dashboard {} timed out after {} ms, finished queries: {}",
+                    dashboard, elapsedMillis(startedAt), timings);
+                throw new ApiException(ErrorType.SERVICE_UNAVAILABLE,
+                    "Analytics are taking too long to compute, please try again");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ApiException(ErrorType.INTERNAL_SERVER_ERROR, "Analytics computation was interrupted");
+            } catch (ExecutionException e) {
+                log.error("Analytics dashboard {} failed, finished queries: {}", dashboard, timings, e.getCause());
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new ApiException(ErrorType.INTERNAL_SERVER_ERROR, "Error computing analytics");
+            }
+            log.info("Analytics dashboard {} took {} ms, queries: {}", dashboard, elapsedMillis(startedAt), timings);
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
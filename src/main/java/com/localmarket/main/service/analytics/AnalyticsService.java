@@ -1,7 +1,8 @@
 package com.localmarket.main.service.analytics;
 
 import com.localmarket.main.repository.user.UserRepository;
-import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.order.OrderItemRepository;
+import java.util.Comparator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import java.time.LocalDate;
@@ -12,8 +13,8 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import java.time.temporal.ChronoUnit;
 import com.localmarket.main.entity.user.Role;
-import com.localmarket.main.entity.order.Order;
 import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.dto.analytics.SalesTotals;
 import com.localmarket.main.dto.analytics.admin.BusinessMetricsResponse;
 import com.localmarket.main.dto.analytics.admin.CategorySalesMetric;
 import com.localmarket.main.dto.analytics.admin.CombinedAnalyticsResponse;
@@ -22,20 +23,36 @@ import com.localmarket.main.dto.analytics.admin.ProducerPerformance;
 import com.localmarket.main.dto.analytics.admin.TransactionAnalyticsResponse;
 import com.localmarket.main.dto.analytics.admin.TransactionDetails;
 import com.localmarket.main.dto.analytics.admin.UserAnalyticsResponse;
-import com.localmarket.main.entity.category.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.localmarket.main.service.export.CSVExportService;
 import com.localmarket.main.service.export.PDFExportService;
 import java.util.HashMap;
 import java.math.RoundingMode;
 import java.time.LocalTime;
-import java.util.ArrayList;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.io.IOException;
+import java.io.OutputStream;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyticsService {
     private final UserRepository userRepository;
-    private final OrderRepository orderRepository;
+    private final TransactionExportReader transactionExportReader;
+    private final SalesRollupService salesRollupService;
+    private final OrderItemRepository orderItemRepository;
+    private final ObjectMapper objectMapper;
+    private final AnalyticsQueryExecutor queryExecutor;
+    private final ProducerLeaderboardService producerLeaderboardService;
+    private final RevenueSeriesService revenueSeriesService;
+    private final ActiveUserTracker activeUserTracker;
+
+    private static final int STREAM_FLUSH_ROWS = 500;
 
     @Autowired
     private CSVExportService csvExportService;
@@ -44,157 +61,190 @@ public class AnalyticsService {
     private PDFExportService pdfExportService;
 
     public UserAnalyticsResponse getUserAnalytics(LocalDate startDate, LocalDate endDate) {
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.batch("user-analytics");
+        Supplier<UserAnalyticsResponse> response = submitUserAnalytics(batch, startDate, endDate);
+        batch.await();
+        return response.get();
+    }
+
+    // The submit* methods queue a dashboard's independent queries on the batch and return
+    // the assembly step, to be called once the batch has completed
+    private Supplier<UserAnalyticsResponse> submitUserAnalytics(AnalyticsQueryExecutor.Batch batch,
+                                                                LocalDate startDate, LocalDate endDate) {
         LocalDateTime start = startDate != null ? startDate.atStartOfDay() 
             : LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0);
         LocalDateTime end = endDate != null ? endDate.atTime(23, 59, 59) 
             : LocalDateTime.now();
 
-        long totalUsers = userRepository.countByCreatedAtBefore(end);
-        long activeProducers = userRepository.countByRoleAndCreatedAtBetween(Role.PRODUCER, start, end);
-        long newUsers = userRepository.countByCreatedAtBetween(start, end);
-        
-        double activeProducersPercentage = (double) activeProducers / totalUsers * 100;
-        double newUsersPercentage = (double) newUsers / totalUsers * 100;
-
-        return UserAnalyticsResponse.builder()
-            .totalUsers(totalUsers)
-            .activeProducers(activeProducers)
-            .newUsers(newUsers)
-            .activeProducersPercentage(activeProducersPercentage)
-            .newUsersPercentage(newUsersPercentage)
-            .periodStart(start)
-            .periodEnd(end)
-            .build();
+        CompletableFuture<Long> totalUsersQuery = batch.submit("totalUsers",
+            () -> userRepository.countByCreatedAtBefore(end));
+        CompletableFuture<Long> activeProducersQuery = batch.submit("activeProducers",
+            () -> userRepository.countByRoleAndCreatedAtBetween(Role.PRODUCER, start, end));
+        CompletableFuture<Long> newUsersQuery = batch.submit("newUsers",
+            () -> userRepository.countByCreatedAtBetween(start, end));
+
+        return () -> {
+            long totalUsers = totalUsersQuery.join();
+            long activeProducers = activeProducersQuery.join();
+            long newUsers = newUsersQuery.join();
+
+            double activeProducersPercentage = (double) activeProducers / totalUsers * 100;
+            double newUsersPercentage = (double) newUsers / totalUsers * 100;
+
+            return UserAnalyticsResponse.builder()
+                .totalUsers(totalUsers)
+                .activeProducers(activeProducers)
+                .newUsers(newUsers)
+                .activeProducersPercentage(activeProducersPercentage)
+                .newUsersPercentage(newUsersPercentage)
+                .periodStart(start)
+                .periodEnd(end)
+                .build();
+        };
     }
 
     public TransactionAnalyticsResponse getTransactionAnalytics(LocalDate startDate, LocalDate endDate) {
-        List<Order> orders = getOrdersInDateRange(startDate, endDate);
-        
-        // Handle empty orders list
-        if (orders == null || orders.isEmpty()) {
-            return TransactionAnalyticsResponse.builder()
-                .totalTransactions(0)
-                .totalRevenue(BigDecimal.ZERO)
-                .averageOrderValue(BigDecimal.ZERO)
-                .transactionsByStatus(new HashMap<>())
-                .revenueByDay(new HashMap<>())
-                .transactions(new ArrayList<>())
-                .build();
-        }
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.batch("transaction-analytics");
+        Supplier<TransactionAnalyticsResponse> response = submitTransactionAnalytics(batch, startDate, endDate);
+        batch.await();
+        return response.get();
+    }
 
-        Map<OrderStatus, Long> transactionsByStatus = orders.stream()
-            .collect(Collectors.groupingBy(Order::getStatus, Collectors.counting()));
-
-        BigDecimal totalRevenue = orders.stream()
-            .map(Order::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal averageOrderValue = orders.isEmpty() ? 
-            BigDecimal.ZERO : 
-            totalRevenue.divide(BigDecimal.valueOf(orders.size()), 2, RoundingMode.HALF_UP);
-
-        Map<LocalDate, BigDecimal> revenueByDay = orders.stream()
-            .filter(order -> order.getOrderDate() != null)
-            .collect(Collectors.groupingBy(
-                (Order order) -> order.getOrderDate().toLocalDate(),
-                HashMap::new,
-                Collectors.mapping(
-                    Order::getTotalPrice,
-                    Collectors.reducing(BigDecimal.ZERO, BigDecimal::add)
-                )
-            ));
-
-        List<TransactionDetails> transactions = orders.stream()
-            .filter(order -> !order.getItems().isEmpty())
-            .map(order -> TransactionDetails.builder()
-                .orderId(order.getOrderId())
-                .transactionId(order.getPayment() != null ? order.getPayment().getTransactionId() : null)
-                .customerName(order.getCustomer() != null ? 
-                    order.getCustomer().getFirstname() + " " + order.getCustomer().getLastname() : 
-                    order.getGuestEmail())
-                .producerName(order.getItems().get(0).getProduct().getProducer().getUsername())
-                .amount(order.getTotalPrice())
-                .status(order.getStatus().toString())
-                .date(order.getOrderDate())
-                .build())
-            .collect(Collectors.toList());
+    private Supplier<TransactionAnalyticsResponse> submitTransactionAnalytics(AnalyticsQueryExecutor.Batch batch,
+                                                                              LocalDate startDate, LocalDate endDate) {
+        LocalDate from = startDate != null ? startDate : LocalDate.now().minusMonths(1);
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+
+        // Aggregates only, from the daily rollups; the detail list is streamed by writeTransactions
+        CompletableFuture<Map<OrderStatus, SalesTotals>> totalsByStatusQuery = batch.submit("totalsByStatus",
+            () -> salesRollupService.totalsByStatus(from, to));
+        CompletableFuture<Map<LocalDate, BigDecimal>> revenueByDayQuery = batch.submit("revenueByDay",
+            () -> salesRollupService.netRevenueByDay(from, to));
+
+        return () -> {
+            Map<OrderStatus, SalesTotals> totalsByStatus = totalsByStatusQuery.join();
+            SalesTotals totals = totalsByStatus.values().stream()
+                .reduce(SalesTotals.EMPTY, SalesTotals::plus);
+
+            if (totals.getOrders() == 0) {
+                return TransactionAnalyticsResponse.builder()
+                    .totalTransactions(0)
+                    .totalRevenue(BigDecimal.ZERO)
+                    .averageOrderValue(BigDecimal.ZERO)
+                    .transactionsByStatus(new HashMap<>())
+                    .revenueByDay(new HashMap<>())
+                    .build();
+            }
+
+            Map<OrderStatus, Long> transactionsByStatus = new HashMap<>();
+            totalsByStatus.forEach((status, statusTotals) -> {
+                if (statusTotals.getOrders() > 0) {
+                    transactionsByStatus.put(status, statusTotals.getOrders());
+                }
+            });
+
+            BigDecimal totalRevenue = totals.getRevenue();
+            BigDecimal averageOrderValue = 
+                totalRevenue.divide(BigDecimal.valueOf(totals.getOrders()), 2, RoundingMode.HALF_UP);
 
-        return TransactionAnalyticsResponse.builder()
-            .totalTransactions(orders.size())
-            .totalRevenue(totalRevenue)
-            .averageOrderValue(averageOrderValue)
-            .transactionsByStatus(transactionsByStatus)
-            .transactions(transactions)
-            .revenueByDay(revenueByDay)
-            .build();
+            return TransactionAnalyticsResponse.builder()
+                .totalTransactions((int) totals.getOrders())
+                .totalRevenue(totalRevenue)
+                .averageOrderValue(averageOrderValue)
+                .transactionsByStatus(transactionsByStatus)
+                .revenueByDay(new HashMap<>(revenueByDayQuery.join()))
+                .build();
+        };
     }
 
-    private List<Order> getOrdersInDateRange(LocalDate startDate, LocalDate endDate) {
-        if (startDate == null) {
-            startDate = LocalDate.now().minusMonths(1);
+    // Streams the transactions of a period as a JSON array. Rows come from a forward-only
+    // cursor and are written as they arrive, so memory stays flat whatever the range
+    public void writeTransactions(LocalDate startDate, LocalDate endDate, OutputStream out) throws IOException {
+        LocalDate from = startDate != null ? startDate : LocalDate.now().minusMonths(1);
+        LocalDate to = endDate != null ? endDate : LocalDate.now();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<TransactionDetails> transactions = transactionExportReader.stream(
+                 from.atStartOfDay(), to.atTime(LocalTime.MAX))) {
+            // the servlet stream belongs to the container
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            Iterator<TransactionDetails> iterator = transactions.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                generator.writeObject(iterator.next());
+                if (++written % STREAM_FLUSH_ROWS == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
         }
-        if (endDate == null) {
-            endDate = LocalDate.now();
-        }
-        
-        return orderRepository.findByOrderDateBetween(
-            startDate.atStartOfDay(),
-            endDate.atTime(LocalTime.MAX)
-        );
     }
 
     public BusinessMetricsResponse getBusinessMetrics(LocalDate startDate, LocalDate endDate) {
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.batch("business-metrics");
+        Supplier<BusinessMetricsResponse> response = submitBusinessMetrics(batch, startDate, endDate);
+        batch.await();
+        return response.get();
+    }
+
+    private Supplier<BusinessMetricsResponse> submitBusinessMetrics(AnalyticsQueryExecutor.Batch batch,
+                                                                    LocalDate startDate, LocalDate endDate) {
         LocalDateTime start = startDate != null ? startDate.atStartOfDay() 
             : LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0);
         LocalDateTime end = endDate != null ? endDate.atTime(23, 59, 59) 
             : LocalDateTime.now();
 
-        // Calculate current period metrics
-        List<Order> currentPeriodOrders = orderRepository.findByOrderDateBetween(start, end);
-        BigDecimal currentRevenue = currentPeriodOrders.stream()
-            .map(Order::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Calculate previous period metrics for growth rate
+        // Previous period of the same length, for growth rates
         long periodDays = ChronoUnit.DAYS.between(start, end);
         LocalDateTime previousStart = start.minusDays(periodDays);
-        List<Order> previousPeriodOrders = orderRepository.findByOrderDateBetween(previousStart, start);
-        BigDecimal previousRevenue = previousPeriodOrders.stream()
-            .map(Order::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Calculate growth rates
-        double revenueGrowthRate = calculateGrowthRate(previousRevenue, currentRevenue);
-        
-        long activeUsers = userRepository.countByLastLoginBetween(start, end);
-        long previousActiveUsers = userRepository.countByLastLoginBetween(previousStart, start);
-        double activeUsersGrowthRate = calculateGrowthRate(previousActiveUsers, activeUsers);
-
-        long totalSales = currentPeriodOrders.size();
-        long previousSales = previousPeriodOrders.size();
-        double salesGrowthRate = calculateGrowthRate(previousSales, totalSales);
-
-        // Calculate sales by category
-        List<CategorySalesMetric> salesByCategory = calculateSalesByCategory(currentPeriodOrders);
-
-        // Calculate monthly revenue trend
-        List<MonthlyRevenue> revenueByMonth = calculateMonthlyRevenue(start, end);
-
-        // Calculate top producers performance
-        List<ProducerPerformance> topProducers = calculateTopProducersPerformance(start, end);
-
-        return BusinessMetricsResponse.builder()
-            .totalRevenue(currentRevenue)
-            .revenueGrowthRate(revenueGrowthRate)
-            .activeUsers(activeUsers)
-            .activeUsersGrowthRate(activeUsersGrowthRate)
-            .totalSales(totalSales)
-            .salesGrowthRate(salesGrowthRate)
-            .overallGrowthRate((revenueGrowthRate + activeUsersGrowthRate + salesGrowthRate) / 3)
-            .salesByCategory(salesByCategory)
-            .revenueByMonth(revenueByMonth)
-            .topProducers(topProducers)
-            .build();
+
+        CompletableFuture<SalesTotals> currentTotalsQuery = batch.submit("currentSales",
+            () -> salesRollupService.totals(start.toLocalDate(), end.toLocalDate()));
+        CompletableFuture<SalesTotals> previousTotalsQuery = batch.submit("previousSales",
+            () -> salesRollupService.totals(previousStart.toLocalDate(), start.toLocalDate().minusDays(1)));
+        // Distinct users seen in each period, from the daily activity sketches
+        CompletableFuture<Long> activeUsersQuery = batch.submit("activeUsers",
+            () -> activeUserTracker.countDistinct(start.toLocalDate(), end.toLocalDate(), null));
+        CompletableFuture<Long> previousActiveUsersQuery = batch.submit("previousActiveUsers",
+            () -> activeUserTracker.countDistinct(previousStart.toLocalDate(), start.toLocalDate().minusDays(1), null));
+        CompletableFuture<Long> activeCustomersQuery = batch.submit("activeCustomers",
+            () -> activeUserTracker.countDistinct(start.toLocalDate(), end.toLocalDate(), Role.CUSTOMER));
+        CompletableFuture<List<CategorySalesMetric>> salesByCategoryQuery = batch.submit("salesByCategory",
+            () -> calculateSalesByCategory(start, end));
+        CompletableFuture<List<MonthlyRevenue>> revenueByMonthQuery = batch.submit("revenueByMonth",
+            () -> calculateMonthlyRevenue(start, end));
+        CompletableFuture<List<ProducerPerformance>> topProducersQuery = batch.submit("topProducers",
+            () -> calculateTopProducersPerformance(start, end));
+
+        return () -> {
+            SalesTotals currentTotals = currentTotalsQuery.join();
+            SalesTotals previousTotals = previousTotalsQuery.join();
+
+            // Calculate growth rates
+            BigDecimal currentRevenue = currentTotals.getRevenue();
+            double revenueGrowthRate = calculateGrowthRate(previousTotals.getRevenue(), currentRevenue);
+
+            long activeUsers = activeUsersQuery.join();
+            double activeUsersGrowthRate = calculateGrowthRate(previousActiveUsersQuery.join(), activeUsers);
+
+            long totalSales = currentTotals.getOrders();
+            double salesGrowthRate = calculateGrowthRate(previousTotals.getOrders(), totalSales);
+
+            return BusinessMetricsResponse.builder()
+                .totalRevenue(currentRevenue)
+                .revenueGrowthRate(revenueGrowthRate)
+                .activeUsers(activeUsers)
+                .activeUsersGrowthRate(activeUsersGrowthRate)
+                .activeCustomers(activeCustomersQuery.join())
+                .totalSales(totalSales)
+                .salesGrowthRate(salesGrowthRate)
+                .overallGrowthRate((revenueGrowthRate + activeUsersGrowthRate + salesGrowthRate) / 3)
+                .salesByCategory(salesByCategoryQuery.join())
+                .revenueByMonth(revenueByMonthQuery.join())
+                .topProducers(topProducersQuery.join())
+                .build();
+        };
     }
 
     private double calculateGrowthRate(Number previous, Number current) {
@@ -202,58 +252,75 @@ public class AnalyticsService {
         return ((current.doubleValue() - previous.doubleValue()) / previous.doubleValue()) * 100;
     }
 
-    private List<CategorySalesMetric> calculateSalesByCategory(List<Order> orders) {
-        Map<Category, Long> categorySales = orders.stream()
-            .flatMap(order -> order.getItems().stream())
-            .collect(Collectors.groupingBy(
-                item -> item.getProduct().getCategories().iterator().next(),
-                Collectors.counting()
-            ));
-
-        long totalSales = categorySales.values().stream().mapToLong(Long::valueOf).sum();
-
-        return categorySales.entrySet().stream()
-            .map(entry -> CategorySalesMetric.builder()
-                .category(entry.getKey().getName())
-                .sales(entry.getValue())
-                .percentage((double) entry.getValue() / totalSales * 100)
+    // Units and net revenue per category from the daily rollups, so the breakdown adds up to
+    // the dashboard's totals. Items count towards the category they were sold in (their
+    // snapshot, else the product's primary category); uncategorized items, deleted products
+    // and deleted categories share one "Uncategorized" entry.
+    List<CategorySalesMetric> calculateSalesByCategory(LocalDateTime start, LocalDateTime end) {
+        // categoryId (null for uncategorized) -> name, units, revenue
+        Map<Long, String> names = new HashMap<>();
+        Map<Long, Double> units = new HashMap<>();
+        Map<Long, BigDecimal> revenue = new HashMap<>();
+        for (Object[] row : salesRollupService.salesByCategory(start.toLocalDate(), end.toLocalDate())) {
+            Long categoryId = row[1] != null ? (Long) row[0] : null;
+            names.put(categoryId, categoryId != null ? (String) row[1] : "Uncategorized");
+            units.merge(categoryId, ((Number) row[2]).doubleValue(), Double::sum);
+            revenue.merge(categoryId, (BigDecimal) row[3], BigDecimal::add);
+        }
+
+        double totalUnits = units.values().stream().mapToDouble(Double::doubleValue).sum();
+
+        return names.keySet().stream()
+            .map(categoryId -> CategorySalesMetric.builder()
+                .category(names.get(categoryId))
+                .sales(Math.round(units.get(categoryId)))
+                .revenue(revenue.get(categoryId).setScale(2, RoundingMode.HALF_UP))
+                .percentage(totalUnits == 0 ? 0 : units.get(categoryId) / totalUnits * 100)
                 .build())
+            .sorted(Comparator.comparing(CategorySalesMetric::getRevenue).reversed())
             .collect(Collectors.toList());
     }
 
     private List<MonthlyRevenue> calculateMonthlyRevenue(LocalDateTime start, LocalDateTime end) {
-        return orderRepository.findMonthlyRevenue(start, end).stream()
-            .map(tuple -> MonthlyRevenue.builder()
-                .month(tuple.get("month", String.class))
-                .revenue(tuple.get("revenue", BigDecimal.class))
+        // Whole days, so the series comes from the rollups
+        LocalDateTime endExclusive = end.toLocalDate().plusDays(1).atStartOfDay();
+        return revenueSeriesService.series(start, endExclusive, RevenueSeriesService.Bucket.MONTH, ZoneId.systemDefault())
+            .getPoints().stream()
+            .map(point -> MonthlyRevenue.builder()
+                .month(point.getLabel())
+                .revenue(point.getRevenue())
                 .build())
             .collect(Collectors.toList());
     }
 
     private List<ProducerPerformance> calculateTopProducersPerformance(LocalDateTime start, LocalDateTime end) {
-        return orderRepository.findProducerPerformance(start, end).stream()
-            .map(tuple -> ProducerPerformance.builder()
-                .producerName(tuple.get("producerName", String.class))
-                .totalSales(tuple.get("totalSales", Long.class))
-                .totalRevenue(tuple.get("totalRevenue", BigDecimal.class))
-                .growthRate(tuple.get("growthRate", BigDecimal.class).doubleValue())
-                .build())
-            .collect(Collectors.toList());
+        return producerLeaderboardService.topProducers(start, end, ProducerLeaderboardService.DEFAULT_SIZE);
+    }
+
+    public byte[] exportPdf(LocalDate startDate, LocalDate endDate) {
+        return pdfExportService.generatePDF(getCombinedAnalytics(startDate, endDate));
     }
 
-    public byte[] exportAnalytics(LocalDate startDate, LocalDate endDate, String format) {
-        CombinedAnalyticsResponse analytics = getCombinedAnalytics(startDate, endDate);
-        
-        if (format.equalsIgnoreCase("pdf")) {
-            return pdfExportService.generatePDF(analytics);
+    // Streams the CSV report of a period computed by getCombinedAnalytics: its summary
+    // sections, then every transaction read from a forward-only cursor
+    public void writeCsvExport(CombinedAnalyticsResponse analytics, OutputStream out) throws IOException {
+        try (Stream<TransactionDetails> transactions = transactionExportReader.stream(
+                analytics.getPeriodStart(), analytics.getPeriodEnd())) {
+            csvExportService.writeCSV(analytics, transactions, out);
         }
-        return csvExportService.generateCSV(analytics);
     }
 
-    private CombinedAnalyticsResponse getCombinedAnalytics(LocalDate startDate, LocalDate endDate) {
-        UserAnalyticsResponse userAnalytics = getUserAnalytics(startDate, endDate);
-        TransactionAnalyticsResponse transactionAnalytics = getTransactionAnalytics(startDate, endDate);
-        BusinessMetricsResponse businessMetrics = getBusinessMetrics(startDate, endDate);
+    public CombinedAnalyticsResponse getCombinedAnalytics(LocalDate startDate, LocalDate endDate) {
+        // Every leaf query of the three dashboards in one batch
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.batch("combined-analytics");
+        Supplier<UserAnalyticsResponse> userResponse = submitUserAnalytics(batch, startDate, endDate);
+        Supplier<TransactionAnalyticsResponse> transactionResponse = submitTransactionAnalytics(batch, startDate, endDate);
+        Supplier<BusinessMetricsResponse> businessResponse = submitBusinessMetrics(batch, startDate, endDate);
+        batch.await();
+
+        UserAnalyticsResponse userAnalytics = userResponse.get();
+        TransactionAnalyticsResponse transactionAnalytics = transactionResponse.get();
+        BusinessMetricsResponse businessMetrics = businessResponse.get();
 
         return CombinedAnalyticsResponse.builder()
             // User Analytics
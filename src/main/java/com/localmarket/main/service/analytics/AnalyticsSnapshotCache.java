@@ -0,0 +1,231 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.admin.BusinessMetricsResponse;
+import com.localmarket.main.dto.analytics.admin.TransactionAnalyticsResponse;
+import com.localmarket.main.dto.analytics.admin.UserAnalyticsResponse;
+import com.localmarket.main.dto.analytics.producer.OrderStatisticsResponse;
+import com.localmarket.main.dto.analytics.producer.ProducerAnalyticsResponse;
+import com.localmarket.main.service.analytics.producer.ProducerAnalyticsService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Dashboards of the standard ranges, precomputed per scope: the whole market, or one
+// producer. Reads return the last snapshot at once. A snapshot older than the TTL is
+// still served but refreshed in the background (stale-while-revalidate); the TTL is the
+// only staleness bound. A change to the rollups a snapshot reads (any for the global
+// scope, the producer's own for a producer) only has it refreshed early, and at most
+// once per min-age, since rollups move on every flush of a busy shop.
+//
+// Global snapshots are materialized on a schedule. A producer's are materialized, for
+// every standard range, once that producer opens a dashboard, and kept warm until they
+// have not been read for a day.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalyticsSnapshotCache {
+    private static final long GLOBAL = 0L;
+    private static final List<Kind> GLOBAL_KINDS = List.of(Kind.USERS, Kind.TRANSACTIONS, Kind.BUSINESS_METRICS);
+
+    private final AnalyticsService analyticsService;
+    private final ProducerAnalyticsService producerAnalyticsService;
+    private final SalesRollupService salesRollupService;
+
+    @Value("${analytics.snapshots.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    @Value("${analytics.snapshots.min-age-seconds:10}")
+    private long minAgeSeconds = 10;
+
+    @Value("${analytics.snapshots.idle-hours:24}")
+    private long idleHours = 24;
+
+    // Refreshes run one at a time, off the analytics pool that their own queries use
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "analytics-snapshots");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private enum Kind { USERS, TRANSACTIONS, BUSINESS_METRICS, PRODUCER_OVERVIEW, PRODUCER_ORDERS }
+
+    // range is null for PRODUCER_ORDERS, which covers all time
+    private record Key(Kind kind, long scope, StandardRange range) {
+    }
+
+    public record Snapshot<T>(T value, Instant computedAt, long rollupVersion) {
+    }
+
+    private static final class Entry {
+        final Key key;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile Snapshot<?> snapshot;
+        // 0 for entries that were only materialized, never read
+        volatile long lastReadAt;
+
+        Entry(Key key) {
+            this.key = key;
+        }
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public Snapshot<UserAnalyticsResponse> userAnalytics(StandardRange range) {
+        return get(new Key(Kind.USERS, GLOBAL, range));
+    }
+
+    public Snapshot<TransactionAnalyticsResponse> transactionAnalytics(StandardRange range) {
+        return get(new Key(Kind.TRANSACTIONS, GLOBAL, range));
+    }
+
+    public Snapshot<BusinessMetricsResponse> businessMetrics(StandardRange range) {
+        return get(new Key(Kind.BUSINESS_METRICS, GLOBAL, range));
+    }
+
+    public Snapshot<ProducerAnalyticsResponse> producerOverview(Long producerId, StandardRange range) {
+        return get(new Key(Kind.PRODUCER_OVERVIEW, producerId, range));
+    }
+
+    public Snapshot<OrderStatisticsResponse> producerOrderStatistics(Long producerId) {
+        return get(new Key(Kind.PRODUCER_ORDERS, producerId, null));
+    }
+
+    // Fresh for what is left of the TTL, then usable while the next snapshot is computed
+    public CacheControl cacheControl(Snapshot<?> snapshot) {
+        long age = Duration.between(snapshot.computedAt(), Instant.now()).toSeconds();
+        long maxAge = Math.max(0, ttlSeconds - age);
+        return CacheControl.maxAge(maxAge, TimeUnit.SECONDS)
+            .cachePrivate()
+            .staleWhileRevalidate(ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Snapshot<T> get(Key key) {
+        Entry entry = entries.computeIfAbsent(key, Entry::new);
+        entry.lastReadAt = System.currentTimeMillis();
+        Snapshot<?> snapshot = entry.snapshot;
+        if (snapshot == null) {
+            // Nothing to serve yet: the first reader computes it, concurrent ones wait
+            synchronized (entry) {
+                if (entry.snapshot == null) {
+                    entry.snapshot = compute(key);
+                }
+                snapshot = entry.snapshot;
+            }
+        } else if (needsRefresh(key, snapshot)) {
+            refreshAsync(entry);
+        }
+        return (Snapshot<T>) snapshot;
+    }
+
+    private boolean needsRefresh(Key key, Snapshot<?> snapshot) {
+        Instant now = Instant.now();
+        if (snapshot.computedAt().plusSeconds(ttlSeconds).isBefore(now)) {
+            return true;
+        }
+        return snapshot.rollupVersion() != rollupVersion(key)
+            && !snapshot.computedAt().plusSeconds(minAgeSeconds).isAfter(now);
+    }
+
+    // The version of the rollups behind a snapshot; user analytics do not read them
+    private long rollupVersion(Key key) {
+        if (key.kind() == Kind.USERS) {
+            return 0;
+        }
+        return key.scope() == GLOBAL ? salesRollupService.version() : salesRollupService.version(key.scope());
+    }
+
+    private Snapshot<?> compute(Key key) {
+        // Read the version first, so rollup changes made during the computation are seen
+        long version = rollupVersion(key);
+        LocalDate today = LocalDate.now();
+        StandardRange range = key.range();
+        Object value = switch (key.kind()) {
+            case USERS -> analyticsService.getUserAnalytics(range.start(today), today);
+            case TRANSACTIONS -> analyticsService.getTransactionAnalytics(range.start(today), today);
+            case BUSINESS_METRICS -> analyticsService.getBusinessMetrics(range.start(today), today);
+            case PRODUCER_OVERVIEW -> producerAnalyticsService.getAnalyticsOverview(key.scope(),
+                range.start(today).atStartOfDay(), today.atTime(23, 59, 59),
+                range.previousStart(today).atStartOfDay(), range.previousEnd(today).atTime(23, 59, 59));
+            case PRODUCER_ORDERS -> producerAnalyticsService.getOrderStatistics(key.scope());
+        };
+        return new Snapshot<>(value, Instant.now(), version);
+    }
+
+    private void refreshAsync(Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    entry.snapshot = compute(entry.key);
+                } catch (RuntimeException e) {
+                    // Keep serving the previous snapshot; the next read or run retries
+                    log.warn("Failed to refresh analytics snapshot {}: {}", entry.key, e.getMessage());
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    @Scheduled(initialDelay = 10000, fixedDelayString = "${analytics.snapshots.refresh-ms:30000}")
+    public void refresh() {
+        for (StandardRange range : StandardRange.values()) {
+            for (Kind kind : GLOBAL_KINDS) {
+                entries.computeIfAbsent(new Key(kind, GLOBAL, range), Entry::new);
+            }
+        }
+
+        // A producer's snapshots live as long as any of them is read
+        Map<Long, Long> producerLastRead = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.key.scope() != GLOBAL) {
+                producerLastRead.merge(entry.key.scope(), entry.lastReadAt, Math::max);
+            }
+        }
+        long idleSince = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(idleHours);
+        producerLastRead.forEach((producerId, lastReadAt) -> {
+            if (lastReadAt < idleSince) {
+                entries.keySet().removeIf(key -> key.scope() == producerId);
+                return;
+            }
+            for (StandardRange range : StandardRange.values()) {
+                entries.computeIfAbsent(new Key(Kind.PRODUCER_OVERVIEW, producerId, range), Entry::new);
+            }
+            entries.computeIfAbsent(new Key(Kind.PRODUCER_ORDERS, producerId, null), Entry::new);
+        });
+
+        for (Entry entry : entries.values()) {
+            Snapshot<?> snapshot = entry.snapshot;
+            if (snapshot == null || needsRefresh(entry.key, snapshot)) {
+                refreshAsync(entry);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -0,0 +1,120 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.admin.ProducerPerformance;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.analytics.DailySalesRollupRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Top producers by revenue over a period, with growth against the month before the
+// period start. Reads one row per producer from the daily rollups instead of joining
+// the whole order history, and keeps the last leaderboard in memory until the local
+// rollups change or it is ttl-seconds old, whichever comes first; the age bound covers
+// sales flushed by other nodes.
+//
+// Semantics match the original report: orders of every status count, revenue is the
+// gross item value, growth is 100 when the previous month had no revenue and producers
+// without sales fill the remaining places.
+@Service
+@RequiredArgsConstructor
+public class ProducerLeaderboardService {
+    public static final int DEFAULT_SIZE = 10;
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final UserRepository userRepository;
+    private final SalesRollupService salesRollupService;
+
+    @Value("${analytics.leaderboard.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    private volatile Leaderboard last;
+
+    private record Leaderboard(LocalDate from, LocalDate to, int size, long version, Instant computedAt,
+                               List<ProducerPerformance> entries) {
+    }
+
+    private record Standing(Long producerId, String name, long orders, BigDecimal revenue, BigDecimal previousRevenue) {
+    }
+
+    // Highest revenue first; ties go to the lowest producer id so the result is stable
+    private static final Comparator<Standing> RANKING = Comparator.comparing(Standing::revenue).reversed()
+        .thenComparing(Standing::producerId);
+
+    // The period is [start, end), at day granularity
+    public List<ProducerPerformance> topProducers(LocalDateTime start, LocalDateTime end, int size) {
+        LocalDate from = start.toLocalDate();
+        LocalDate to = end.toLocalTime().equals(LocalTime.MIDNIGHT)
+            ? end.toLocalDate().minusDays(1) : end.toLocalDate();
+        long version = salesRollupService.version();
+
+        Instant now = Instant.now();
+
+        Leaderboard cached = last;
+        if (cached != null && cached.version() == version && cached.size() == size
+                && cached.from().equals(from) && cached.to().equals(to)
+                && cached.computedAt().plusSeconds(ttlSeconds).isAfter(now)) {
+            return cached.entries();
+        }
+        List<ProducerPerformance> entries = compute(from, to, size);
+        last = new Leaderboard(from, to, size, version, now, entries);
+        return entries;
+    }
+
+    private List<ProducerPerformance> compute(LocalDate from, LocalDate to, int size) {
+        Map<Long, Object[]> sales = new HashMap<>();
+        for (Object[] row : rollupRepository.summarizeProducers(from.minusMonths(1), from, to)) {
+            sales.put((Long) row[0], row);
+        }
+
+        // Min-heap of the best `size` producers seen so far
+        PriorityQueue<Standing> top = new PriorityQueue<>(size + 1, RANKING.reversed());
+        for (Object[] producer : userRepository.findIdAndUsernameByRole(Role.PRODUCER)) {
+            Object[] row = sales.get((Long) producer[0]);
+            top.add(row == null
+                ? new Standing((Long) producer[0], (String) producer[1], 0, BigDecimal.ZERO, BigDecimal.ZERO)
+                : new Standing((Long) producer[0], (String) producer[1],
+                    ((Number) row[1]).longValue(), (BigDecimal) row[2], (BigDecimal) row[3]));
+            if (top.size() > size) {
+                top.poll();
+            }
+        }
+
+        List<Standing> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        return ranked.stream()
+            .map(standing -> ProducerPerformance.builder()
+                .producerName(standing.name())
+                .totalSales(standing.orders())
+                .totalRevenue(standing.revenue())
+                .growthRate(growthRate(standing.revenue(), standing.previousRevenue()))
+                .build())
+            .toList();
+    }
+
+    private static double growthRate(BigDecimal current, BigDecimal previous) {
+        if (previous.signum() == 0) {
+            return 100.0;
+        }
+        return current.subtract(previous)
+            .divide(previous, 6, RoundingMode.HALF_UP)
+            .multiply(HUNDRED)
+            .doubleValue();
+    }
+}
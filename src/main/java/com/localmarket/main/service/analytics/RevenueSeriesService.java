@@ -0,0 +1,180 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.SalesTotals;
+import com.localmarket.main.dto.analytics.admin.RevenuePoint;
+import com.localmarket.main.dto.analytics.admin.RevenueSeriesResponse;
+import com.localmarket.main.exception.ApiException;
+import com.localmarket.main.exception.ErrorType;
+import com.localmarket.main.repository.order.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Order count and revenue (sum of order totals, every status) over [from, to), bucketed
+// by hour, day, ISO week or month in any time zone. Every bucket of the range is
+// returned, empty ones included; the first and last bucket may be partial.
+//
+// Whole-day ranges in the server zone are read from the daily rollups. Anything else
+// groups the orders per hour (per minute for half-hour zones) with EXTRACT, which the
+// Hibernate dialect renders for the database in use, and re-buckets that in Java.
+@Service
+@RequiredArgsConstructor
+public class RevenueSeriesService {
+    public static final int MAX_BUCKETS = 5000;
+
+    public enum Bucket { HOUR, DAY, WEEK, MONTH }
+
+    private static final DateTimeFormatter HOUR_LABEL = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:00");
+    private static final DateTimeFormatter DAY_LABEL = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final DateTimeFormatter WEEK_LABEL = new DateTimeFormatterBuilder()
+        .appendValue(IsoFields.WEEK_BASED_YEAR, 4)
+        .appendLiteral("-W")
+        .appendValue(IsoFields.WEEK_OF_WEEK_BASED_YEAR, 2)
+        .toFormatter();
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final SalesRollupService salesRollupService;
+    private final OrderRepository orderRepository;
+
+    // Order dates and rollup days are in the server's local time
+    private final ZoneId serverZone = ZoneId.systemDefault();
+
+    private static final class Totals {
+        long orders;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(long orders, BigDecimal revenue) {
+            this.orders += orders;
+            this.revenue = this.revenue.add(revenue);
+        }
+    }
+
+    // from and to are local times in the given zone
+    public RevenueSeriesResponse series(LocalDateTime from, LocalDateTime to, Bucket bucket, ZoneId zone) {
+        if (!from.isBefore(to)) {
+            throw new ApiException(ErrorType.VALIDATION_FAILED, "The series start must be before its end");
+        }
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (LocalDateTime start = truncate(from, bucket); start.isBefore(to); start = next(start, bucket)) {
+            if (starts.size() == MAX_BUCKETS) {
+                throw new ApiException(ErrorType.VALIDATION_FAILED,
+                    "Too many buckets, use a coarser bucket or a shorter range (max " + MAX_BUCKETS + ")");
+            }
+            starts.add(start);
+        }
+
+        Map<LocalDateTime, Totals> totals = canUseRollups(from, to, bucket, zone)
+            ? fromRollups(from.toLocalDate(), to.toLocalDate().minusDays(1), bucket)
+            : fromOrders(from, to, bucket, zone);
+
+        List<RevenuePoint> points = starts.stream()
+            .map(start -> {
+                Totals bucketTotals = totals.getOrDefault(start, new Totals());
+                return RevenuePoint.builder()
+                    .label(label(start, bucket))
+                    .start(start)
+                    .orders(bucketTotals.orders)
+                    .revenue(bucketTotals.revenue)
+                    .build();
+            })
+            .toList();
+
+        return RevenueSeriesResponse.builder()
+            .bucket(bucket.name())
+            .zone(zone.getId())
+            .from(from)
+            .to(to)
+            .points(points)
+            .build();
+    }
+
+    private boolean canUseRollups(LocalDateTime from, LocalDateTime to, Bucket bucket, ZoneId zone) {
+        return bucket != Bucket.HOUR
+            && zone.getRules().equals(serverZone.getRules())
+            && from.toLocalTime().equals(LocalTime.MIDNIGHT)
+            && to.toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+
+    private Map<LocalDateTime, Totals> fromRollups(LocalDate firstDay, LocalDate lastDay, Bucket bucket) {
+        Map<LocalDateTime, Totals> totals = new HashMap<>();
+        for (Map.Entry<LocalDate, SalesTotals> day : salesRollupService.dailyTotals(firstDay, lastDay).entrySet()) {
+            totals.computeIfAbsent(truncate(day.getKey().atStartOfDay(), bucket), start -> new Totals())
+                .add(day.getValue().getOrders(), day.getValue().getRevenue());
+        }
+        return totals;
+    }
+
+    private Map<LocalDateTime, Totals> fromOrders(LocalDateTime from, LocalDateTime to, Bucket bucket, ZoneId zone) {
+        LocalDateTime serverFrom = convert(from, zone, serverZone);
+        LocalDateTime serverTo = convert(to, zone, serverZone);
+        boolean byHour = wholeHourOffset(zone, from) && wholeHourOffset(zone, to)
+            && wholeHourOffset(serverZone, serverFrom) && wholeHourOffset(serverZone, serverTo);
+
+        Map<LocalDateTime, Totals> totals = new HashMap<>();
+        List<Object[]> rows = byHour
+            ? orderRepository.sumRevenueByHour(serverFrom, serverTo)
+            : orderRepository.sumRevenueByMinute(serverFrom, serverTo);
+        for (Object[] row : rows) {
+            int minute = byHour ? 0 : ((Number) row[4]).intValue();
+            int countIndex = byHour ? 4 : 5;
+            LocalDateTime serverTime = LocalDateTime.of(
+                ((Number) row[0]).intValue(), ((Number) row[1]).intValue(), ((Number) row[2]).intValue(),
+                ((Number) row[3]).intValue(), minute);
+            totals.computeIfAbsent(truncate(convert(serverTime, serverZone, zone), bucket), start -> new Totals())
+                .add(((Number) row[countIndex]).longValue(), (BigDecimal) row[countIndex + 1]);
+        }
+        return totals;
+    }
+
+    private static LocalDateTime convert(LocalDateTime time, ZoneId fromZone, ZoneId toZone) {
+        return time.atZone(fromZone).withZoneSameInstant(toZone).toLocalDateTime();
+    }
+
+    private static boolean wholeHourOffset(ZoneId zone, LocalDateTime time) {
+        Instant instant = time.atZone(zone).toInstant();
+        return zone.getRules().getOffset(instant).getTotalSeconds() % 3600 == 0;
+    }
+
+    private static LocalDateTime truncate(LocalDateTime time, Bucket bucket) {
+        return switch (bucket) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.toLocalDate().atStartOfDay();
+            case WEEK -> time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+            case MONTH -> time.toLocalDate().withDayOfMonth(1).atStartOfDay();
+        };
+    }
+
+    private static LocalDateTime next(LocalDateTime start, Bucket bucket) {
+        return switch (bucket) {
+            case HOUR -> start.plusHours(1);
+            case DAY -> start.plusDays(1);
+            case WEEK -> start.plusWeeks(1);
+            case MONTH -> start.plusMonths(1);
+        };
+    }
+
+    private static String label(LocalDateTime start, Bucket bucket) {
+        return switch (bucket) {
+            case HOUR -> HOUR_LABEL.format(start);
+            case DAY -> DAY_LABEL.format(start);
+            case WEEK -> WEEK_LABEL.format(start);
+            case MONTH -> MONTH_LABEL.format(start);
+        };
+    }
+}
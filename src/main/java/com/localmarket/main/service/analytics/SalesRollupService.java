@@ -0,0 +1,393 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.SalesTotals;
+import com.localmarket.main.entity.analytics.DailySalesRollup;
+import com.localmarket.main.entity.analytics.SalesRollupDelta;
+import com.localmarket.main.entity.category.Category;
+import com.localmarket.main.entity.order.Order;
+import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.repository.analytics.DailySalesRollupRepository;
+import com.localmarket.main.repository.analytics.SalesRollupDeltaRepository;
+import com.localmarket.main.repository.order.OrderItemRepository;
+import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Maintains DailySalesRollup. Order changes are turned into SalesRollupDelta rows inside
+// the order transaction, so they survive a crash with the order, and a scheduled flusher
+// applies and deletes them in one transaction; the checkout path never contends on
+// rollup rows. rebuild() recomputes whole days from the orders table: on first start,
+// nightly for yesterday and on demand from the admin API.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupService {
+    private static final int BATCH_SIZE = 500;
+
+    private final DailySalesRollupRepository rollupRepository;
+    private final SalesRollupDeltaRepository deltaRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Bumped whenever this node changes rollup rows, so readers can tell whether derived
+    // data is stale; producerVersions holds the last version that touched each producer
+    private final AtomicLong version = new AtomicLong();
+    private final Map<Long, Long> producerVersions = new ConcurrentHashMap<>();
+    private volatile long rebuiltAtVersion;
+
+    private record RollupKey(LocalDate day, Long producerId, Long categoryId, OrderStatus status) {
+    }
+
+    private record Delta(long orders, long producerOrders, long units, BigDecimal revenue, BigDecimal discount) {
+        Delta plus(Delta other) {
+            return new Delta(orders + other.orders, producerOrders + other.producerOrders, units + other.units,
+                revenue.add(other.revenue), discount.add(other.discount));
+        }
+
+        boolean isZero() {
+            return orders == 0 && producerOrders == 0 && units == 0
+                && revenue.signum() == 0 && discount.signum() == 0;
+        }
+    }
+
+    // categoryId is the item's snapshot, null for items ordered before it was kept
+    private record Line(Long productId, int quantity, BigDecimal price, Long categoryId) {
+    }
+
+    private record ProductKey(Long producerId, Long categoryId) {
+    }
+
+    private static final ProductKey UNKNOWN_PRODUCT =
+        new ProductKey(DailySalesRollup.NO_PRODUCER, DailySalesRollup.NO_CATEGORY);
+
+    // Moves an order's contribution from previousStatus (null for a new order) to its
+    // current status. Must be called inside the transaction that changes the order.
+    public void record(Order order, OrderStatus previousStatus) {
+        if (order.getOrderDate() == null || previousStatus == order.getStatus()) {
+            return;
+        }
+        List<Line> lines = order.getItems().stream()
+            .map(item -> new Line(
+                item.getProduct() != null ? item.getProduct().getProductId() : null,
+                item.getQuantity(),
+                item.getPrice(),
+                item.getCategoryId()))
+            .toList();
+        Map<Long, ProductKey> products = lookupProducts(lines);
+        LocalDate day = order.getOrderDate().toLocalDate();
+
+        Map<RollupKey, Delta> deltas = new HashMap<>();
+        if (previousStatus != null) {
+            accumulate(deltas, day, previousStatus, order.getTotalPrice(), lines, products, -1);
+        }
+        accumulate(deltas, day, order.getStatus(), order.getTotalPrice(), lines, products, 1);
+        deltaRepository.saveAll(deltas.entrySet().stream()
+            .filter(entry -> !entry.getValue().isZero())
+            .map(entry -> toDelta(entry.getKey(), entry.getValue()))
+            .toList());
+    }
+
+    // The category an item's sales go to: the product's lowest category id, as in
+    // ProductRepository.findProducerAndPrimaryCategory. Kept on the item when it is ordered.
+    public static long primaryCategoryId(Product product) {
+        return product.getCategories().stream()
+            .mapToLong(Category::getCategoryId)
+            .min()
+            .orElse(DailySalesRollup.NO_CATEGORY);
+    }
+
+    public Map<OrderStatus, SalesTotals> totalsByStatus(LocalDate from, LocalDate to) {
+        Map<OrderStatus, SalesTotals> totals = new EnumMap<>(OrderStatus.class);
+        for (Object[] row : rollupRepository.summarizeByStatus(from, to)) {
+            totals.put((OrderStatus) row[0], new SalesTotals(
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).longValue(),
+                ((BigDecimal) row[3]).subtract((BigDecimal) row[4])));
+        }
+        return totals;
+    }
+
+    // Rows of [categoryId, name or null, units, net revenue], by the category each item was sold in
+    public List<Object[]> salesByCategory(LocalDate from, LocalDate to) {
+        return rollupRepository.summarizeByCategory(from, to);
+    }
+
+    public SalesTotals totals(LocalDate from, LocalDate to) {
+        return totalsByStatus(from, to).values().stream()
+            .reduce(SalesTotals.EMPTY, SalesTotals::plus);
+    }
+
+    public SalesTotals totalsForProducer(Long producerId, LocalDate from, LocalDate to) {
+        return rollupRepository.summarizeByStatusForProducer(producerId, from, to).stream()
+            .map(row -> new SalesTotals(
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).longValue(),
+                ((BigDecimal) row[3]).subtract((BigDecimal) row[4])))
+            .reduce(SalesTotals.EMPTY, SalesTotals::plus);
+    }
+
+    public Map<LocalDate, SalesTotals> dailyTotals(LocalDate from, LocalDate to) {
+        return toDays(rollupRepository.dailyTotals(from, to));
+    }
+
+    public Map<LocalDate, SalesTotals> dailyTotalsForProducer(Long producerId, LocalDate from, LocalDate to) {
+        return toDays(rollupRepository.dailyTotalsForProducer(producerId, from, to));
+    }
+
+    // Rows of [day, orders, units, net revenue]
+    private Map<LocalDate, SalesTotals> toDays(List<Object[]> rows) {
+        Map<LocalDate, SalesTotals> days = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            days.put((LocalDate) row[0], new SalesTotals(
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).longValue(),
+                (BigDecimal) row[3]));
+        }
+        return days;
+    }
+
+    public Map<OrderStatus, Long> orderCountsForProducer(Long producerId) {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (Object[] row : rollupRepository.countOrdersByStatusForProducer(producerId)) {
+            counts.put((OrderStatus) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // Moves only when this producer's rows (or a rebuild) changed
+    public long version(Long producerId) {
+        return Math.max(producerVersions.getOrDefault(producerId, 0L), rebuiltAtVersion);
+    }
+
+    public Map<LocalDate, BigDecimal> netRevenueByDay(LocalDate from, LocalDate to) {
+        Map<LocalDate, BigDecimal> revenue = new LinkedHashMap<>();
+        for (Object[] row : rollupRepository.netRevenueByDay(from, to)) {
+            revenue.put((LocalDate) row[0], (BigDecimal) row[1]);
+        }
+        return revenue;
+    }
+
+    @Scheduled(fixedDelay = 5000)
+    public synchronized void flush() {
+        Set<Long> producers = new HashSet<>();
+        try {
+            Integer applied;
+            do {
+                applied = transactionTemplate.execute(status -> applyOldestDeltas(producers));
+            } while (applied != null && applied == BATCH_SIZE);
+        } catch (RuntimeException e) {
+            // The deltas stay in their table for the next run (e.g. another node inserted
+            // the same rollup key first)
+            log.warn("Failed to flush sales rollup deltas: {}", e.getMessage());
+        } finally {
+            if (!producers.isEmpty()) {
+                long flushed = version.incrementAndGet();
+                producers.forEach(producerId -> producerVersions.put(producerId, flushed));
+            }
+        }
+    }
+
+    // Applies a batch of deltas and deletes them in the same transaction; returns its size
+    private int applyOldestDeltas(Set<Long> producers) {
+        List<SalesRollupDelta> rows = deltaRepository.findOldestForUpdate(PageRequest.of(0, BATCH_SIZE));
+        Map<RollupKey, Delta> batch = new HashMap<>();
+        for (SalesRollupDelta row : rows) {
+            batch.merge(new RollupKey(row.getSalesDay(), row.getProducerId(), row.getCategoryId(), row.getStatus()),
+                new Delta(row.getOrderCount(), row.getProducerOrders(), row.getUnits(), row.getRevenue(), row.getDiscount()),
+                Delta::plus);
+        }
+        batch.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                write(key, delta);
+                producers.add(key.producerId());
+            }
+        });
+        deltaRepository.deleteAllInBatch(rows);
+        return rows.size();
+    }
+
+    private void write(RollupKey key, Delta delta) {
+        int updated = rollupRepository.addDelta(key.day(), key.producerId(), key.categoryId(), key.status(),
+            delta.orders(), delta.producerOrders(), delta.units(), delta.revenue(), delta.discount());
+        if (updated == 0) {
+            rollupRepository.save(toRollup(key, delta));
+        }
+    }
+
+    // Recomputes [from, to] from the orders table
+    public synchronized int rebuild(LocalDate from, LocalDate to) {
+        long startedAt = System.currentTimeMillis();
+        Integer orders = transactionTemplate.execute(status -> {
+            // Read first, this fixes the snapshot (REPEATABLE READ) the order reads below
+            // see too: the deltas visible here belong to orders that are counted, so they
+            // are dropped; deltas committed later stay for the flusher, as their orders
+            // are not part of the rebuilt totals.
+            List<Long> counted = deltaRepository.findIdsBySalesDayBetween(from, to);
+            rollupRepository.deleteBySalesDayBetween(from, to);
+
+            Map<RollupKey, Delta> totals = new HashMap<>();
+            LocalDateTime rangeStart = from.atStartOfDay();
+            LocalDateTime rangeEnd = to.plusDays(1).atStartOfDay();
+            long afterId = 0;
+            int count = 0;
+            List<Object[]> headers;
+            do {
+                headers = orderRepository.findOrderHeadersAfter(rangeStart, rangeEnd, afterId,
+                    PageRequest.of(0, BATCH_SIZE));
+                if (headers.isEmpty()) {
+                    break;
+                }
+                accumulatePage(totals, headers);
+                afterId = (Long) headers.get(headers.size() - 1)[0];
+                count += headers.size();
+            } while (headers.size() == BATCH_SIZE);
+
+            rollupRepository.saveAll(totals.entrySet().stream()
+                .filter(entry -> !entry.getValue().isZero())
+                .map(entry -> toRollup(entry.getKey(), entry.getValue()))
+                .toList());
+            for (int i = 0; i < counted.size(); i += BATCH_SIZE) {
+                deltaRepository.deleteAllByIdInBatch(counted.subList(i, Math.min(i + BATCH_SIZE, counted.size())));
+            }
+            return count;
+        });
+        rebuiltAtVersion = version.incrementAndGet();
+        log.info("Rebuilt sales rollups {}..{} from {} orders in {} ms",
+            from, to, orders, System.currentTimeMillis() - startedAt);
+        return orders == null ? 0 : orders;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime firstOrder = orderRepository.findFirstOrderDate();
+        if (firstOrder != null) {
+            rebuild(firstOrder.toLocalDate(), LocalDate.now());
+        }
+    }
+
+    @Scheduled(cron = "0 30 3 * * *") // Repair yesterday every night at 3:30
+    public void rebuildYesterday() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        rebuild(yesterday, yesterday);
+    }
+
+    private void accumulatePage(Map<RollupKey, Delta> totals, List<Object[]> headers) {
+        Map<Long, List<Line>> linesByOrder = new HashMap<>();
+        for (Object[] row : orderItemRepository.findLinesByOrderIds(
+                headers.stream().map(header -> (Long) header[0]).toList())) {
+            linesByOrder.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                .add(new Line((Long) row[1], (Integer) row[2], (BigDecimal) row[3], (Long) row[4]));
+        }
+        Map<Long, ProductKey> products = lookupProducts(
+            linesByOrder.values().stream().flatMap(List::stream).toList());
+
+        for (Object[] header : headers) {
+            accumulate(totals,
+                ((LocalDateTime) header[1]).toLocalDate(),
+                (OrderStatus) header[2],
+                (BigDecimal) header[3],
+                linesByOrder.getOrDefault((Long) header[0], List.of()),
+                products,
+                1);
+        }
+    }
+
+    private Map<Long, ProductKey> lookupProducts(List<Line> lines) {
+        Set<Long> productIds = new HashSet<>();
+        lines.forEach(line -> {
+            if (line.productId() != null) {
+                productIds.add(line.productId());
+            }
+        });
+        // HashMap on purpose: lookups with a null productId must simply miss
+        Map<Long, ProductKey> products = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return products;
+        }
+        for (Object[] row : productRepository.findProducerAndPrimaryCategory(productIds)) {
+            Long categoryId = row[2] != null ? (Long) row[2] : DailySalesRollup.NO_CATEGORY;
+            products.put((Long) row[0], new ProductKey((Long) row[1], categoryId));
+        }
+        return products;
+    }
+
+    // Items add units/revenue to their own category; the order itself (count and coupon
+    // discount) is attributed to its first item's producer and category. Each producer
+    // also counts the order once, on its own first item. Categories come from the item's
+    // snapshot, or the product's current one for items ordered before snapshots.
+    private void accumulate(Map<RollupKey, Delta> into, LocalDate day, OrderStatus status,
+                            BigDecimal totalPrice, List<Line> lines, Map<Long, ProductKey> products, int sign) {
+        BigDecimal gross = BigDecimal.ZERO;
+        Set<Long> producersSeen = new HashSet<>();
+        for (Line line : lines) {
+            ProductKey product = products.getOrDefault(line.productId(), UNKNOWN_PRODUCT);
+            BigDecimal revenue = line.price().multiply(BigDecimal.valueOf(line.quantity()));
+            gross = gross.add(revenue);
+            long producerOrders = producersSeen.add(product.producerId()) ? sign : 0;
+            into.merge(new RollupKey(day, product.producerId(), categoryOf(line, product), status),
+                new Delta(0, producerOrders, (long) sign * line.quantity(),
+                    revenue.multiply(BigDecimal.valueOf(sign)), BigDecimal.ZERO),
+                Delta::plus);
+        }
+
+        ProductKey first = lines.isEmpty() ? UNKNOWN_PRODUCT
+            : products.getOrDefault(lines.get(0).productId(), UNKNOWN_PRODUCT);
+        Long firstCategory = lines.isEmpty() ? first.categoryId() : categoryOf(lines.get(0), first);
+        BigDecimal discount = totalPrice == null ? BigDecimal.ZERO : gross.subtract(totalPrice);
+        into.merge(new RollupKey(day, first.producerId(), firstCategory, status),
+            new Delta(sign, 0, 0, BigDecimal.ZERO, discount.multiply(BigDecimal.valueOf(sign))),
+            Delta::plus);
+    }
+
+    private static Long categoryOf(Line line, ProductKey product) {
+        return line.categoryId() != null ? line.categoryId() : product.categoryId();
+    }
+
+    private SalesRollupDelta toDelta(RollupKey key, Delta delta) {
+        SalesRollupDelta row = new SalesRollupDelta();
+        row.setSalesDay(key.day());
+        row.setProducerId(key.producerId());
+        row.setCategoryId(key.categoryId());
+        row.setStatus(key.status());
+        row.setOrderCount(delta.orders());
+        row.setProducerOrders(delta.producerOrders());
+        row.setUnits(delta.units());
+        row.setRevenue(delta.revenue());
+        row.setDiscount(delta.discount());
+        return row;
+    }
+
+    private DailySalesRollup toRollup(RollupKey key, Delta delta) {
+        DailySalesRollup rollup = new DailySalesRollup(key.day(), key.producerId(), key.categoryId(), key.status());
+        rollup.setOrderCount(delta.orders());
+        rollup.setProducerOrders(delta.producerOrders());
+        rollup.setUnits(delta.units());
+        rollup.setRevenue(delta.revenue());
+        rollup.setDiscount(delta.discount());
+        return rollup;
+    }
+}
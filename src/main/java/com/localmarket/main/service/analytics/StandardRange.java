@@ -0,0 +1,35 @@
+package com.localmarket.main.service.analytics;
+
+import java.time.LocalDate;
+
+// Date ranges the dashboards open with. Each ends today, inclusive.
+public enum StandardRange {
+    THIS_MONTH,
+    LAST_30_DAYS,
+    YEAR_TO_DATE;
+
+    public LocalDate start(LocalDate today) {
+        return switch (this) {
+            case THIS_MONTH -> today.withDayOfMonth(1);
+            case LAST_30_DAYS -> today.minusDays(29);
+            case YEAR_TO_DATE -> today.withDayOfYear(1);
+        };
+    }
+
+    // The period growth figures compare against: the previous month, the 30 days
+    // before, or the same days of last year
+    public LocalDate previousStart(LocalDate today) {
+        return switch (this) {
+            case THIS_MONTH -> start(today).minusMonths(1);
+            case LAST_30_DAYS -> start(today).minusDays(30);
+            case YEAR_TO_DATE -> start(today).minusYears(1);
+        };
+    }
+
+    public LocalDate previousEnd(LocalDate today) {
+        return switch (this) {
+            case THIS_MONTH, LAST_30_DAYS -> start(today).minusDays(1);
+            case YEAR_TO_DATE -> today.minusYears(1);
+        };
+    }
+}
@@ -0,0 +1,75 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.config.ExportDataSourceConfig;
+import com.localmarket.main.dto.analytics.admin.TransactionDetails;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+// Forward-only read of the transaction list of a period, for the exports. The query runs
+// in its own Hibernate session on a connection of the export pool, the only one with
+// server-side cursors, so rows arrive FETCH_SIZE at a time instead of being buffered.
+// Rows are DTOs, so nothing accumulates in the session while the caller consumes them.
+@Component
+public class TransactionExportReader {
+    private static final int FETCH_SIZE = 500;
+
+    private static final String QUERY = """
+            SELECT new com.localmarket.main.dto.analytics.admin.TransactionDetails(
+                o.orderId,
+                pay.transactionId,
+                CASE WHEN c.userId IS NOT NULL THEN CONCAT(c.firstname, ' ', c.lastname) ELSE o.guestEmail END,
+                (SELECT MIN(u.username) FROM OrderItem oi JOIN oi.product p JOIN p.producer u WHERE oi.order = o),
+                o.totalPrice,
+                o.status,
+                o.orderDate)
+            FROM Order o
+            LEFT JOIN o.customer c
+            LEFT JOIN o.payment pay
+            WHERE o.orderDate BETWEEN :start AND :end
+            ORDER BY o.orderDate, o.orderId
+            """;
+
+    private final SessionFactory sessionFactory;
+    private final DataSource dataSource;
+
+    public TransactionExportReader(EntityManagerFactory entityManagerFactory,
+                                   @Qualifier(ExportDataSourceConfig.EXPORT_DATA_SOURCE) DataSource dataSource) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.dataSource = dataSource;
+    }
+
+    // Closing the stream closes the session and returns the connection to the pool
+    public Stream<TransactionDetails> stream(LocalDateTime start, LocalDateTime end) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        Session session = null;
+        try {
+            session = sessionFactory.withOptions().connection(connection).openSession();
+            Session opened = session;
+            return session.createQuery(QUERY, TransactionDetails.class)
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true)
+                .getResultStream()
+                .onClose(() -> {
+                    opened.close();
+                    DataSourceUtils.releaseConnection(connection, dataSource);
+                });
+        } catch (RuntimeException e) {
+            if (session != null) {
+                session.close();
+            }
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw e;
+        }
+    }
+}
@@ -1,58 +1,76 @@
 package com.localmarket.main.service.analytics.producer;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Service;
 
+import com.localmarket.main.dto.analytics.SalesTotals;
 import com.localmarket.main.dto.analytics.producer.MonthlyData;
 import com.localmarket.main.dto.analytics.producer.ProducerAnalyticsResponse;
 import com.localmarket.main.dto.analytics.producer.OrderStatisticsResponse;
 import com.localmarket.main.entity.order.OrderStatus;
-import com.localmarket.main.repository.order.OrderItemRepository;
-import com.localmarket.main.repository.order.OrderRepository;
-    
+import com.localmarket.main.service.analytics.AnalyticsQueryExecutor;
+import com.localmarket.main.service.analytics.SalesRollupService;
 
+
+// Producer dashboards, scoped to the calling producer and read from the daily sales
+// rollups. The controller serves them through AnalyticsSnapshotCache.
 @Service
 public class ProducerAnalyticsService {
+    private final SalesRollupService salesRollupService;
+    private final AnalyticsQueryExecutor queryExecutor;
 
-    private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
+    public ProducerAnalyticsService(SalesRollupService salesRollupService, AnalyticsQueryExecutor queryExecutor) {
+        this.salesRollupService = salesRollupService;
+        this.queryExecutor = queryExecutor;
+    }
 
-    public ProducerAnalyticsService(OrderRepository orderRepository, OrderItemRepository orderItemRepository) {
-        this.orderRepository = orderRepository;
-        this.orderItemRepository = orderItemRepository;
+    public ProducerAnalyticsResponse getAnalyticsOverview(Long producerId, LocalDateTime startOfCurrentPeriod, LocalDateTime endOfCurrentPeriod, LocalDateTime startOfPreviousPeriod, LocalDateTime endOfPreviousPeriod) {
+        return computeOverview(producerId,
+            startOfCurrentPeriod.toLocalDate(), endOfCurrentPeriod.toLocalDate(),
+            startOfPreviousPeriod.toLocalDate(), endOfPreviousPeriod.toLocalDate());
     }
 
-    public ProducerAnalyticsResponse getAnalyticsOverview(LocalDateTime startOfCurrentPeriod, LocalDateTime endOfCurrentPeriod, LocalDateTime startOfPreviousPeriod, LocalDateTime endOfPreviousPeriod) {
-        // Fetch current period data
-        int totalOrders = orderRepository.countAllOrders();
-        double totalRevenue = orderRepository.calculateTotalRevenue() != null ? orderRepository.calculateTotalRevenue() : 0.0;
-        int totalProductsSold = orderItemRepository.countTotalProductsSoldInDateRange(startOfCurrentPeriod, endOfCurrentPeriod) != null
-                ? orderItemRepository.countTotalProductsSoldInDateRange(startOfCurrentPeriod, endOfCurrentPeriod)
-                : 0;
-
-        // Fetch previous period data
-        int prevTotalOrders = orderRepository.countAllOrdersPreviousPeriod(startOfPreviousPeriod, endOfPreviousPeriod);
-        Double prevTotalRevenue = orderRepository.calculateTotalRevenuePreviousPeriod(startOfPreviousPeriod, endOfPreviousPeriod);
-        double prevTotalRevenueValue = (prevTotalRevenue != null) ? prevTotalRevenue : 0.0;
-        int prevTotalProductsSold = orderItemRepository.countTotalProductsSoldInDateRange(startOfPreviousPeriod, endOfPreviousPeriod) != null
-                ? orderItemRepository.countTotalProductsSoldInDateRange(startOfPreviousPeriod, endOfPreviousPeriod)
-                : 0;
-
-        // Fetch Revenue Trend (Monthly Revenue for current year)
-        List<Object[]> revenueTrendData = orderRepository.calculateRevenueTrend(startOfCurrentPeriod.withDayOfYear(1), endOfCurrentPeriod);
-        List<MonthlyData> revenueTrend = mapToMonthlyData(revenueTrendData);
-
-        // Fetch Monthly Orders (Orders count for each month in the current year)
-        List<Object[]> monthlyOrdersData = orderRepository.calculateMonthlyOrders(startOfCurrentPeriod.withDayOfYear(1), endOfCurrentPeriod);
-        List<MonthlyData> monthlyOrders = mapToMonthlyData(monthlyOrdersData);
+    private ProducerAnalyticsResponse computeOverview(Long producerId, LocalDate currentStart, LocalDate currentEnd,
+                                                      LocalDate previousStart, LocalDate previousEnd) {
+        // One query per period, run side by side
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.batch("producer-overview");
+        CompletableFuture<SalesTotals> current = batch.submit("currentPeriod",
+            () -> salesRollupService.totalsForProducer(producerId, currentStart, currentEnd));
+        CompletableFuture<SalesTotals> previous = batch.submit("previousPeriod",
+            () -> salesRollupService.totalsForProducer(producerId, previousStart, previousEnd));
+        // Monthly trends for the current year
+        CompletableFuture<Map<LocalDate, SalesTotals>> yearToDate = batch.submit("yearToDate",
+            () -> salesRollupService.dailyTotalsForProducer(producerId, currentStart.withDayOfYear(1), currentEnd));
+        batch.await();
+
+        SalesTotals currentTotals = current.join();
+        SalesTotals previousTotals = previous.join();
+        Map<LocalDate, SalesTotals> days = yearToDate.join();
+
+        Map<Integer, SalesTotals> months = new TreeMap<>();
+        days.forEach((day, totals) -> months.merge(day.getMonthValue(), totals, SalesTotals::plus));
+        List<MonthlyData> revenueTrend = new ArrayList<>();
+        List<MonthlyData> monthlyOrders = new ArrayList<>();
+        months.forEach((month, totals) -> {
+            revenueTrend.add(new MonthlyData(month, totals.getRevenue().doubleValue()));
+            monthlyOrders.add(new MonthlyData(month, totals.getOrders()));
+        });
+
+        int totalOrders = (int) currentTotals.getOrders();
+        double totalRevenue = currentTotals.getRevenue().doubleValue();
+        int totalProductsSold = (int) currentTotals.getUnits();
 
         // Calculate percentage changes
-        double ordersPercentageChange = calculatePercentageChange(totalOrders, prevTotalOrders);
-        double revenuePercentageChange = calculatePercentageChange(totalRevenue, prevTotalRevenueValue);
-        double productsSoldPercentageChange = calculatePercentageChange(totalProductsSold, prevTotalProductsSold);
+        double ordersPercentageChange = calculatePercentageChange(totalOrders, previousTotals.getOrders());
+        double revenuePercentageChange = calculatePercentageChange(totalRevenue, previousTotals.getRevenue().doubleValue());
+        double productsSoldPercentageChange = calculatePercentageChange(totalProductsSold, previousTotals.getUnits());
 
         // Calculate growth rate (example: revenue-based growth)
         double growthRate = revenuePercentageChange;
@@ -67,37 +85,17 @@ public class ProducerAnalyticsService {
         );
     }
 
-    // New methods for total orders by status
-    public int getTotalOrders() {
-        return orderRepository.countAllOrders();
-    }
-
-    public int getTotalOrdersByStatus(OrderStatus status) {
-        return orderRepository.countOrdersByStatus(status);
-    }
-
-    // Method to get all order statistics at once
-    public OrderStatisticsResponse getOrderStatistics() {
-        int totalOrders = getTotalOrders();
-        int pendingOrders = getTotalOrdersByStatus(OrderStatus.PENDING_PAYMENT);
-        int processingOrders = getTotalOrdersByStatus(OrderStatus.PROCESSING);
-        int deliveredOrders = getTotalOrdersByStatus(OrderStatus.DELIVERED);
-        
+    // Method to get all order statistics at once, from one grouped query
+    public OrderStatisticsResponse getOrderStatistics(Long producerId) {
+        Map<OrderStatus, Long> counts = salesRollupService.orderCountsForProducer(producerId);
         return new OrderStatisticsResponse(
-            totalOrders,
-            pendingOrders,
-            processingOrders,
-            deliveredOrders
+            (int) counts.values().stream().mapToLong(Long::longValue).sum(),
+            counts.getOrDefault(OrderStatus.PENDING_PAYMENT, 0L).intValue(),
+            counts.getOrDefault(OrderStatus.PROCESSING, 0L).intValue(),
+            counts.getOrDefault(OrderStatus.DELIVERED, 0L).intValue()
         );
     }
 
-    // Mapping method for monthly data
-    private List<MonthlyData> mapToMonthlyData(List<Object[]> data) {
-        return data.stream()
-                .map(row -> new MonthlyData((Integer) row[0], ((Number) row[1]).doubleValue()))
-                .collect(Collectors.toList());
-    }
-
     private double calculatePercentageChange(double current, double previous) {
         if (previous == 0) return current > 0 ? 100 : 0;
         return ((current - previous) / previous) * 100;
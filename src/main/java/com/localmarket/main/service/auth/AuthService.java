@@ -28,6 +28,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import com.localmarket.main.security.CustomUserDetails;
+import com.localmarket.main.service.analytics.ActiveUserTracker;
 
 @Service
 @RequiredArgsConstructor
@@ -40,6 +41,7 @@ public class AuthService {
     private final NotificationWebSocketHandler webSocketHandler;
     private final ResetCodeService resetCodeService;
     private final AuthenticationManager authenticationManager;
+    private final ActiveUserTracker activeUserTracker;
     private static final Logger log = LoggerFactory.getLogger(AuthService.class);
 
     public AuthServiceResult register(RegisterRequest request, String jwt) {
@@ -70,6 +72,7 @@ public class AuthService {
         user.setRole(roleToAssign);
         
         User savedUser = userRepository.save(user);
+        activeUserTracker.record(savedUser.getUserId(), savedUser.getRole());
         String token = jwtService.generateToken(savedUser);
         
         // Send welcome email
@@ -120,6 +123,7 @@ public class AuthService {
                 newTokenVersion,
                 LocalDateTime.now()
             );
+            activeUserTracker.record(userDetails.getId(), userDetails.getRole());
 
             // Create user object just for token generation
             User user = new User();
@@ -17,12 +17,15 @@ import java.util.Set;
 import java.util.ArrayList;
 import com.localmarket.main.entity.product.Product;
 import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.service.product.CatalogVersion;
 
 @Service
 @RequiredArgsConstructor
 public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
+    private final CategoryStats categoryStats;
+    private final CatalogVersion catalogVersion;
 
 
     public CategoryResponse createCategory(CategoryRequest request) {
@@ -31,6 +34,7 @@ public class CategoryService {
             category.setName(request.getName());
             
             Category savedCategory = categoryRepository.save(category);
+            catalogVersion.categoriesChanged();
             return CategoryResponse.builder()
                 .categoryId(savedCategory.getCategoryId())
                 .name(savedCategory.getName())
@@ -42,26 +46,29 @@ public class CategoryService {
         }
     }
 
+    public String getCategoriesETag() {
+        return catalogVersion.catalogETag();
+    }
+
     @Transactional(readOnly = true)
     public List<CategoryResponse> getAllCategories() {
-        List<Category> categories = categoryRepository.findAllWithProducts();
+        List<Category> categories = categoryRepository.findAll();
         return categories.stream()
             .map(category -> CategoryResponse.builder()
                 .categoryId(category.getCategoryId())
                 .name(category.getName())
-                .productCount(category.getProducts().stream()
-                    .filter(product -> product.getStatus() == ProductStatus.APPROVED)
-                    .collect(Collectors.toSet())
-                    .size())
+                .productCount(categoryStats.getApprovedCount(category.getCategoryId()))
                 .build())
             .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public Category getCategory(Long id) {
-        return categoryRepository.findByIdWithProducts(id)
+        Category category = categoryRepository.findById(id)
             .orElseThrow(() -> new ApiException(ErrorType.CATEGORY_NOT_FOUND, 
                 "Category with id " + id + " not found"));
+        category.setProductCount(categoryStats.getApprovedCount(id));
+        return category;
     }
 
     public Category updateCategory(Long id, CategoryRequest request) {
@@ -70,17 +77,19 @@ public class CategoryService {
             
         category.setName(request.getName());
         
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        catalogVersion.categoriesChanged();
+        return savedCategory;
     }
 
     public void deleteCategory(Long id) {
-        Category category = categoryRepository.findByIdWithProducts(id)
-            .orElseThrow(() -> new ApiException(ErrorType.RESOURCE_NOT_FOUND, "Category not found"));
+        if (!categoryRepository.existsById(id)) {
+            throw new ApiException(ErrorType.RESOURCE_NOT_FOUND, "Category not found");
+        }
             
         // Check if category has any approved or pending products
-        boolean hasActiveProducts = category.getProducts().stream()
-            .anyMatch(product -> product.getStatus() == ProductStatus.APPROVED || 
-                                product.getStatus() == ProductStatus.PENDING);
+        boolean hasActiveProducts = productRepository.existsByCategoryIdAndStatusIn(
+            id, List.of(ProductStatus.APPROVED, ProductStatus.PENDING));
             
         if (hasActiveProducts) {
             throw new ApiException(ErrorType.RESOURCE_IN_USE, 
@@ -88,6 +97,8 @@ public class CategoryService {
         }
 
         categoryRepository.deleteById(id);
+        categoryStats.categoryDeleted(id);
+        catalogVersion.categoriesChanged();
     }
 
     public void deleteCategoryWithProducts(Long id) {
@@ -122,6 +133,9 @@ public class CategoryService {
         
         // Finally delete the category
         categoryRepository.deleteById(id);
+        categoryStats.categoryDeleted(id);
+        catalogVersion.productsChanged();
+        catalogVersion.categoriesChanged();
     }
 
     public Category findByName(String name) {
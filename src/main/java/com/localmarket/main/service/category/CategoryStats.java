@@ -0,0 +1,135 @@
+package com.localmarket.main.service.category;
+
+import com.localmarket.main.entity.category.Category;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.repository.category.CategoryRepository;
+import com.localmarket.main.service.product.CatalogVersion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.localmarket.main.util.TransactionUtil.afterCommit;
+import static com.localmarket.main.util.TransactionUtil.afterCompletion;
+
+// Approved-product counts per category, kept in memory so /api/categories never
+// touches the products. Updated on every product status/category/delete change and
+// reconciled against a GROUP BY query to repair any drift (seeders, failed commits...)
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryStats {
+    private final CategoryRepository categoryRepository;
+    private final CatalogVersion catalogVersion;
+
+    // categoryId -> number of APPROVED products
+    private volatile Map<Long, AtomicInteger> approvedCounts = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+    // A reconcile cannot tell whether a change committing during its query is part of the
+    // result, so it only keeps a result no change overlapped. Every change bumps changes
+    // when its transaction registers it and again when it completes; open counts the
+    // registered changes whose transaction has not completed yet.
+    private static final int RECONCILE_ATTEMPTS = 3;
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicInteger open = new AtomicInteger();
+    private final Object swapLock = new Object();
+
+    public int getApprovedCount(Long categoryId) {
+        if (!loaded) {
+            reconcile();
+        }
+        AtomicInteger count = approvedCounts.get(categoryId);
+        return count == null ? 0 : Math.max(count.get(), 0);
+    }
+
+    // Snapshot of a product's contribution, taken before it is modified
+    public Set<Long> categoryIdsOf(Product product) {
+        return product.getCategories().stream()
+            .map(Category::getCategoryId)
+            .collect(Collectors.toSet());
+    }
+
+    public void productChanged(ProductStatus oldStatus, Collection<Long> oldCategoryIds,
+                               ProductStatus newStatus, Collection<Long> newCategoryIds) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        if (oldStatus == ProductStatus.APPROVED) {
+            oldCategoryIds.forEach(id -> deltas.merge(id, -1, Integer::sum));
+        }
+        if (newStatus == ProductStatus.APPROVED) {
+            newCategoryIds.forEach(id -> deltas.merge(id, 1, Integer::sum));
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (!deltas.isEmpty()) {
+            changes.incrementAndGet();
+            open.incrementAndGet();
+            afterCommit(() -> apply(deltas));
+            afterCompletion(() -> {
+                open.decrementAndGet();
+                changes.incrementAndGet();
+            });
+        }
+    }
+
+    public void productDeleted(ProductStatus status, Collection<Long> categoryIds) {
+        productChanged(status, categoryIds, null, Set.of());
+    }
+
+    public void categoryDeleted(Long categoryId) {
+        afterCommit(() -> approvedCounts.remove(categoryId));
+    }
+
+    private void apply(Map<Long, Integer> deltas) {
+        synchronized (swapLock) {
+            deltas.forEach((id, delta) -> approvedCounts.computeIfAbsent(id, k -> new AtomicInteger()).addAndGet(delta));
+        }
+    }
+
+    @Scheduled(fixedRate = 600000) // Reconcile every 10 minutes
+    public synchronized void reconcile() {
+        for (int attempt = 1; attempt <= RECONCILE_ATTEMPTS; attempt++) {
+            long before = changes.get();
+            boolean quiet = open.get() == 0;
+            Map<Long, AtomicInteger> fresh = countApproved();
+            boolean wasLoaded = loaded;
+            long drifted;
+            synchronized (swapLock) {
+                // Nothing to keep yet, so the first load takes its last result anyway
+                if (!(quiet && changes.get() == before) && (wasLoaded || attempt < RECONCILE_ATTEMPTS)) {
+                    continue;
+                }
+                drifted = fresh.entrySet().stream()
+                    .filter(e -> {
+                        AtomicInteger current = approvedCounts.get(e.getKey());
+                        return current == null || current.get() != e.getValue().get();
+                    })
+                    .count();
+                approvedCounts = fresh;
+                loaded = true;
+            }
+            if (wasLoaded && drifted > 0) {
+                log.info("Category stats reconciled, {} categories drifted", drifted);
+                catalogVersion.categoriesChanged();
+            }
+            return;
+        }
+        log.info("Category stats reconcile skipped, products changed during each of {} attempts", RECONCILE_ATTEMPTS);
+    }
+
+    private Map<Long, AtomicInteger> countApproved() {
+        Map<Long, AtomicInteger> fresh = new ConcurrentHashMap<>();
+        for (Object[] row : categoryRepository.countProductsByCategory(ProductStatus.APPROVED)) {
+            fresh.put((Long) row[0], new AtomicInteger(((Long) row[1]).intValue()));
+        }
+        return fresh;
+    }
+}
@@ -2,9 +2,17 @@ package com.localmarket.main.service.export;
 
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
-import java.io.StringWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
 
 import com.localmarket.main.dto.analytics.admin.CombinedAnalyticsResponse;
+import com.localmarket.main.dto.analytics.admin.TransactionDetails;
 import com.opencsv.CSVWriter;
 
 import java.time.format.DateTimeFormatter;
@@ -12,42 +20,71 @@ import java.time.format.DateTimeFormatter;
 @Service
 @RequiredArgsConstructor
 public class CSVExportService {
-    private static final DateTimeFormatter DATE_FORMATTER = 
+    private static final DateTimeFormatter DATE_FORMATTER =
         DateTimeFormatter.ofPattern("MMMM dd, yyyy HH:mm");
+    private static final DateTimeFormatter ROW_DATE_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int FLUSH_ROWS = 500;
+
+    // Writes the summary sections, then one line per transaction as the stream yields
+    // them; nothing is buffered beyond the writer, so memory stays flat whatever the
+    // period. out is flushed but left open.
+    public void writeCSV(CombinedAnalyticsResponse analytics, Stream<TransactionDetails> transactions,
+                         OutputStream out) throws IOException {
+        CSVWriter csvWriter = new CSVWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+
+        // Company Header
+        csvWriter.writeNext(new String[] {"LOCALMARKET"});
+        csvWriter.writeNext(new String[] {"Analytics Report"});
+        csvWriter.writeNext(new String[] {"Period: " +
+            analytics.getPeriodStart().format(DATE_FORMATTER) + " to " +
+            analytics.getPeriodEnd().format(DATE_FORMATTER)});
+        csvWriter.writeNext(new String[] {});
+
+        // User Analytics Section
+        csvWriter.writeNext(new String[] {"User Analytics"});
+        csvWriter.writeNext(new String[] {"Total Users", String.valueOf(analytics.getTotalUsers())});
+        csvWriter.writeNext(new String[] {"Active Producers", String.valueOf(analytics.getActiveProducers())});
+        csvWriter.writeNext(new String[] {"New Users", String.valueOf(analytics.getNewUsers())});
+        csvWriter.writeNext(new String[] {});
 
-    public byte[] generateCSV(CombinedAnalyticsResponse analytics) {
-        StringWriter writer = new StringWriter();
-        try (CSVWriter csvWriter = new CSVWriter(writer)) {
-            // Company Header
-            csvWriter.writeNext(new String[] {"LOCALMARKET"});
-            csvWriter.writeNext(new String[] {"Analytics Report"});
-            csvWriter.writeNext(new String[] {"Period: " + 
-                analytics.getPeriodStart().format(DATE_FORMATTER) + " to " + 
-                analytics.getPeriodEnd().format(DATE_FORMATTER)});
-            csvWriter.writeNext(new String[] {});
-            
-            // User Analytics Section
-            csvWriter.writeNext(new String[] {"User Analytics"});
-            csvWriter.writeNext(new String[] {"Total Users", String.valueOf(analytics.getTotalUsers())});
-            csvWriter.writeNext(new String[] {"Active Producers", String.valueOf(analytics.getActiveProducers())});
-            csvWriter.writeNext(new String[] {"New Users", String.valueOf(analytics.getNewUsers())});
-            csvWriter.writeNext(new String[] {});
-            
-            // Transaction Analytics Section
-            csvWriter.writeNext(new String[] {"Transaction Analytics"});
-            csvWriter.writeNext(new String[] {"Total Transactions", String.valueOf(analytics.getTotalTransactions())});
-            csvWriter.writeNext(new String[] {"Average Order Value", analytics.getAverageOrderValue().toString()});
-            csvWriter.writeNext(new String[] {});
-            
-            // Business Metrics Section
-            csvWriter.writeNext(new String[] {"Business Metrics"});
-            csvWriter.writeNext(new String[] {"Total Revenue", analytics.getTotalRevenue().toString()});
-            csvWriter.writeNext(new String[] {"Revenue Growth", 
-                String.format("%.2f%%", analytics.getRevenueGrowthRate())});
-            
-            return writer.toString().getBytes();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate CSV", e);
+        // Transaction Analytics Section
+        csvWriter.writeNext(new String[] {"Transaction Analytics"});
+        csvWriter.writeNext(new String[] {"Total Transactions", String.valueOf(analytics.getTotalTransactions())});
+        csvWriter.writeNext(new String[] {"Average Order Value", analytics.getAverageOrderValue().toString()});
+        csvWriter.writeNext(new String[] {});
+
+        // Business Metrics Section
+        csvWriter.writeNext(new String[] {"Business Metrics"});
+        csvWriter.writeNext(new String[] {"Total Revenue", analytics.getTotalRevenue().toString()});
+        csvWriter.writeNext(new String[] {"Revenue Growth",
+            String.format("%.2f%%", analytics.getRevenueGrowthRate())});
+        csvWriter.writeNext(new String[] {});
+
+        // Transactions Section
+        csvWriter.writeNext(new String[] {"Transactions"});
+        csvWriter.writeNext(new String[] {
+            "Order ID", "Transaction ID", "Customer", "Producer", "Amount", "Status", "Date"});
+        Iterator<TransactionDetails> iterator = transactions.iterator();
+        int written = 0;
+        while (iterator.hasNext()) {
+            TransactionDetails transaction = iterator.next();
+            csvWriter.writeNext(new String[] {
+                String.valueOf(transaction.getOrderId()),
+                transaction.getTransactionId(),
+                transaction.getCustomerName(),
+                transaction.getProducerName(),
+                transaction.getAmount() != null ? transaction.getAmount().toPlainString() : null,
+                transaction.getStatus(),
+                transaction.getDate() != null ? transaction.getDate().format(ROW_DATE_FORMATTER) : null
+            });
+            // checkError flushes, and stops the cursor early once the client has gone
+            if (++written % FLUSH_ROWS == 0 && csvWriter.checkError()) {
+                throw new IOException("Failed to write CSV export", csvWriter.getException());
+            }
+        }
+        if (csvWriter.checkError()) {
+            throw new IOException("Failed to write CSV export", csvWriter.getException());
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,370 @@
+package com.localmarket.main.service.notification;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.entity.notification.NotificationOutbox;
+import com.localmarket.main.entity.order.Order;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.notification.NotificationOutboxRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import com.localmarket.main.websocket.NotificationWebSocketHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.localmarket.main.util.JdbcUtil.insertSql;
+import static com.localmarket.main.util.TransactionUtil.afterCommit;
+
+// Personal notifications leave the publisher's thread as one outbox row, written with
+// plain JDBC in the publisher's transaction so a failure there never rolls it back.
+// Once that transaction commits the event goes on a bounded queue; consumers store
+// queued events with batch inserts, delete their outbox rows and only then push them
+// to the sockets. A full queue leaves the event in the outbox, where the sweeper picks
+// it up again, as it does after a crash or a failed batch (at-least-once). Every row
+// carries a claim: the publisher's at first, then the claim of the sweep that took it
+// over once the old one was older than the grace period. A batch stores only the rows
+// whose claim it still holds, so a row is not delivered by two nodes, nor twice by one.
+@Component
+@Slf4j
+public class NotificationBus {
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationOutboxRepository outboxRepository;
+    private final UserRepository userRepository;
+    private final UnreadCounterService unreadCounterService;
+    private final NotificationWebSocketHandler webSocketHandler;
+
+    private final BlockingQueue<NotificationEvent> queue;
+    private final int consumers;
+    private final int batchSize;
+    private final ExecutorService consumerPool;
+    private volatile boolean running;
+
+    @Value("${notifications.bus.outbox-grace-seconds:60}")
+    private long outboxGraceSeconds = 60;
+    @Value("${notifications.bus.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    private String insertOutboxSql;
+    private String insertNotificationSql;
+
+    record NotificationEvent(Long outboxId, String claim, String recipient, String type, String message,
+                             String data, JsonNode liveData, LocalDateTime timestamp) {
+    }
+
+    public NotificationBus(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           NotificationOutboxRepository outboxRepository, UserRepository userRepository,
+                           UnreadCounterService unreadCounterService, NotificationWebSocketHandler webSocketHandler,
+                           @Value("${notifications.bus.capacity:10000}") int capacity,
+                           @Value("${notifications.bus.consumers:2}") int consumers,
+                           @Value("${notifications.bus.batch-size:100}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.outboxRepository = outboxRepository;
+        this.userRepository = userRepository;
+        this.unreadCounterService = unreadCounterService;
+        this.webSocketHandler = webSocketHandler;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.consumers = consumers;
+        this.batchSize = batchSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.consumerPool = Executors.newFixedThreadPool(Math.max(1, consumers), runnable -> {
+            Thread thread = new Thread(runnable, "notification-bus-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        prepareStatements();
+        running = true;
+        for (int i = 0; i < consumers; i++) {
+            consumerPool.execute(this::consume);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Whatever is still queued stays in the outbox for the next start
+        running = false;
+        consumerPool.shutdownNow();
+    }
+
+    // Never throws and never blocks on the bus; the recipient is an email or a user id
+    public void publish(String recipient, NotificationResponse notification) {
+        try {
+            LocalDateTime timestamp = notification.getTimestamp() != null
+                ? notification.getTimestamp() : LocalDateTime.now();
+            String data = objectMapper.writeValueAsString(storedData(notification.getData()));
+            // Converted here, while entities in the data are still attached
+            JsonNode liveData = objectMapper.valueToTree(notification.getData());
+            String claim = UUID.randomUUID().toString();
+            Long outboxId = writeOutbox(recipient, notification, data, timestamp, claim);
+            NotificationEvent event = new NotificationEvent(outboxId, claim, recipient, notification.getType(),
+                notification.getMessage(), data, liveData, timestamp);
+            afterCommit(() -> offer(event));
+        } catch (Exception e) {
+            log.error("Failed to publish notification for {}: {}", recipient, e.getMessage());
+        }
+    }
+
+    // Rows whose claim is older than the grace period: left behind by a full queue, a
+    // failed batch or a restart, here or on another node
+    @Scheduled(fixedDelayString = "${notifications.bus.outbox-sweep-ms:30000}")
+    public void sweepOutbox() {
+        int room = queue.remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        String claim = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        Map<Boolean, List<NotificationOutbox>> retry = transactionTemplate.execute(status -> {
+            Map<Boolean, List<NotificationOutbox>> rows = outboxRepository
+                .findClaimableForUpdate(now.minusSeconds(outboxGraceSeconds), PageRequest.of(0, room)).stream()
+                .collect(Collectors.partitioningBy(row -> row.getAttempts() < maxAttempts));
+            if (!rows.get(false).isEmpty()) {
+                outboxRepository.deleteAllByIdInBatch(rows.get(false).stream().map(NotificationOutbox::getId).toList());
+            }
+            if (!rows.get(true).isEmpty()) {
+                outboxRepository.claim(rows.get(true).stream().map(NotificationOutbox::getId).toList(), claim, now);
+            }
+            return rows;
+        });
+        retry.get(false).forEach(row -> log.error("Dropping notification {} for {} after {} attempts",
+            row.getId(), row.getRecipient(), row.getAttempts()));
+        retry.get(true).forEach(row -> offer(new NotificationEvent(row.getId(), claim, row.getRecipient(),
+            row.getType(), row.getMessage(), row.getData(), parse(row.getData()), row.getTimestamp())));
+        if (!retry.get(true).isEmpty()) {
+            log.info("Re-queued {} notifications from the outbox", retry.get(true).size());
+        }
+    }
+
+    private void offer(NotificationEvent event) {
+        if (!queue.offer(event)) {
+            if (event.outboxId() != null) {
+                log.debug("Notification bus full, notification {} stays in the outbox", event.outboxId());
+            } else {
+                log.warn("Notification bus full, dropping notification for {}", event.recipient());
+            }
+        }
+    }
+
+    private void consume() {
+        List<NotificationEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                NotificationEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void processBatch(List<NotificationEvent> batch) {
+        try {
+            Map<String, String> emails = resolveRecipients(batch);
+            List<NotificationResponse> stored = new ArrayList<>(batch.size());
+            List<String> recipients = new ArrayList<>(batch.size());
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, String> claims = heldClaims(batch);
+                List<NotificationEvent> deliverable = batch.stream()
+                    .filter(event -> event.outboxId() == null || event.claim().equals(claims.get(event.outboxId())))
+                    .filter(event -> emails.containsKey(event.recipient()))
+                    .toList();
+                List<Long> ids = insertNotifications(deliverable, emails);
+                for (int i = 0; i < deliverable.size(); i++) {
+                    NotificationEvent event = deliverable.get(i);
+                    stored.add(NotificationResponse.builder()
+                        .id(ids.get(i))
+                        .type(event.type())
+                        .message(event.message())
+                        .data(event.liveData())
+                        .timestamp(event.timestamp())
+                        .read(false)
+                        .build());
+                    recipients.add(emails.get(event.recipient()));
+                }
+                recipients.stream()
+                    .collect(Collectors.groupingBy(email -> email, Collectors.counting()))
+                    .forEach(unreadCounterService::personalAdded);
+                List<Long> outboxIds = batch.stream()
+                    .filter(event -> event.outboxId() != null && event.claim().equals(claims.get(event.outboxId())))
+                    .map(NotificationEvent::outboxId)
+                    .toList();
+                if (!outboxIds.isEmpty()) {
+                    outboxRepository.deleteAllByIdInBatch(outboxIds);
+                }
+            });
+            for (int i = 0; i < stored.size(); i++) {
+                webSocketHandler.sendNotification(recipients.get(i), stored.get(i));
+            }
+        } catch (RuntimeException e) {
+            // The outbox rows are still there; the sweeper retries them
+            log.error("Failed to store {} notifications: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    // Current claim of each outbox row in the batch, locked until the batch commits so a
+    // sweep cannot take a row over halfway; stored or taken-over rows are missing
+    private Map<Long, String> heldClaims(List<NotificationEvent> batch) {
+        List<Long> outboxIds = batch.stream().map(NotificationEvent::outboxId).filter(Objects::nonNull).toList();
+        if (outboxIds.isEmpty()) {
+            return Map.of();
+        }
+        return outboxRepository.findAllByIdForUpdate(outboxIds).stream()
+            .collect(Collectors.toMap(NotificationOutbox::getId, NotificationOutbox::getClaimedBy));
+    }
+
+    // Email of every recipient; user ids are looked up here, off the publisher's thread
+    private Map<String, String> resolveRecipients(List<NotificationEvent> batch) {
+        Map<String, String> emails = new HashMap<>();
+        Set<Long> userIds = new HashSet<>();
+        for (NotificationEvent event : batch) {
+            if (event.recipient().matches("\\d+")) {
+                userIds.add(Long.parseLong(event.recipient()));
+            } else {
+                emails.put(event.recipient(), event.recipient());
+            }
+        }
+        if (!userIds.isEmpty()) {
+            for (User user : userRepository.findAllById(userIds)) {
+                emails.put(String.valueOf(user.getUserId()), user.getEmail());
+                userIds.remove(user.getUserId());
+            }
+            userIds.forEach(id -> log.warn("Dropping notification for unknown user {}", id));
+        }
+        return emails;
+    }
+
+    private List<Long> insertNotifications(List<NotificationEvent> events, Map<String, String> emails) {
+        if (events.isEmpty()) {
+            return List.of();
+        }
+        Timestamp expiresAt = Timestamp.valueOf(LocalDateTime.now().plusDays(7));
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(insertNotificationSql, Statement.RETURN_GENERATED_KEYS),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    NotificationEvent event = events.get(i);
+                    statement.setString(1, emails.get(event.recipient()));
+                    statement.setString(2, event.type());
+                    statement.setString(3, event.message());
+                    statement.setString(4, event.data());
+                    statement.setTimestamp(5, Timestamp.valueOf(event.timestamp()));
+                    statement.setBoolean(6, false);
+                    statement.setTimestamp(7, expiresAt);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return events.size();
+                }
+            },
+            keys);
+        return keys.getKeyList().stream()
+            .map(row -> ((Number) row.values().iterator().next()).longValue())
+            .toList();
+    }
+
+    private Long writeOutbox(String recipient, NotificationResponse notification, String data,
+                             LocalDateTime timestamp, String claim) {
+        try {
+            GeneratedKeyHolder key = new GeneratedKeyHolder();
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(insertOutboxSql,
+                    Statement.RETURN_GENERATED_KEYS);
+                statement.setString(1, recipient);
+                statement.setString(2, notification.getType());
+                statement.setString(3, notification.getMessage());
+                statement.setString(4, data);
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                statement.setTimestamp(5, Timestamp.valueOf(timestamp));
+                statement.setTimestamp(6, now);
+                statement.setInt(7, 0);
+                statement.setString(8, claim);
+                statement.setTimestamp(9, now);
+                return statement;
+            }, key);
+            return ((Number) key.getKeyList().get(0).values().iterator().next()).longValue();
+        } catch (RuntimeException e) {
+            // Still delivered from memory, only without the restart guarantee
+            log.warn("Failed to write notification outbox for {}: {}", recipient, e.getMessage());
+            return null;
+        }
+    }
+
+    private void prepareStatements() {
+        insertOutboxSql = insertSql(jdbcTemplate, "NotificationOutbox",
+            "recipient", "type", "message", "data", "timestamp", "createdAt", "attempts", "claimedBy", "claimedAt");
+        insertNotificationSql = insertSql(jdbcTemplate, "StoredNotification",
+            "recipientEmail", "type", "message", "data", "timestamp", "read", "expiresAt");
+    }
+
+    // Orders and products are stored as a few fields rather than the whole entity
+    private Object storedData(Object data) {
+        if (data instanceof Order order) {
+            Map<String, Object> simpleData = new HashMap<>();
+            simpleData.put("orderId", order.getOrderId());
+            simpleData.put("status", order.getStatus());
+            simpleData.put("totalPrice", order.getTotalPrice());
+            return simpleData;
+        }
+        if (data instanceof Product product) {
+            Map<String, Object> simpleData = new HashMap<>();
+            simpleData.put("productId", product.getProductId());
+            simpleData.put("name", product.getName());
+            simpleData.put("price", product.getPrice());
+            return simpleData;
+        }
+        return data;
+    }
+
+    private JsonNode parse(String data) {
+        try {
+            return data != null ? objectMapper.readTree(data) : null;
+        } catch (Exception e) {
+            log.error("Error deserializing notification data: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.localmarket.main.service.notification;
+
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.repository.notification.BroadcastReceiptRepository;
+import com.localmarket.main.repository.notification.StoredNotificationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Purges old notifications a batch at a time: ids are selected first, then deleted by
+// primary key in a short transaction of their own, with a pause in between, so the purge
+// never holds long locks or builds a large undo log. Besides expired rows it drops read
+// notifications after notifications.retention.read-days and, per type, rows older than
+// notifications.retention.type-days (TYPE=days,...). Every run leaves a report. A run
+// takes minutes with its pauses, so it runs on a thread of its own rather than on the
+// scheduler thread that every other @Scheduled job shares.
+@Service
+@Slf4j
+public class NotificationRetentionService {
+    public record RetentionReport(LocalDateTime startedAt, long expired, long read, Map<String, Long> byType,
+                                  long broadcasts, long receipts, int batches, long elapsedMillis) {
+        public long total() {
+            return expired + read + byType.values().stream().mapToLong(Long::longValue).sum() + broadcasts;
+        }
+    }
+
+    private final StoredNotificationRepository storedNotificationRepository;
+    private final BroadcastNotificationRepository broadcastNotificationRepository;
+    private final BroadcastReceiptRepository broadcastReceiptRepository;
+    private final UnreadCounterService unreadCounterService;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Integer> typeDays;
+
+    @Value("${notifications.retention.read-days:2}")
+    private int readDays = 2;
+    @Value("${notifications.retention.batch-size:1000}")
+    private int batchSize = 1000;
+    @Value("${notifications.retention.pause-ms:200}")
+    private long pauseMillis = 200;
+    // Per purge step and run; what is left waits for the next run
+    @Value("${notifications.retention.max-batches:500}")
+    private int maxBatches = 500;
+
+    private volatile RetentionReport lastReport;
+
+    private final ExecutorService purger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "notification-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public NotificationRetentionService(StoredNotificationRepository storedNotificationRepository,
+                                        BroadcastNotificationRepository broadcastNotificationRepository,
+                                        BroadcastReceiptRepository broadcastReceiptRepository,
+                                        UnreadCounterService unreadCounterService,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${notifications.retention.type-days:STOCK_UPDATED=2,STOCK_MOVEMENT=2}") List<String> typeDays) {
+        this.storedNotificationRepository = storedNotificationRepository;
+        this.broadcastNotificationRepository = broadcastNotificationRepository;
+        this.broadcastReceiptRepository = broadcastReceiptRepository;
+        this.unreadCounterService = unreadCounterService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.typeDays = parseTypeDays(typeDays);
+    }
+
+    @Scheduled(cron = "${notifications.retention.cron:0 0 0 * * *}") // Midnight by default
+    public void scheduledPurge() {
+        purger.execute(this::purge);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purger.shutdownNow();
+    }
+
+    public synchronized RetentionReport purge() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        Pageable batch = PageRequest.of(0, batchSize);
+        int[] batches = {0};
+        long[] receipts = {0};
+
+        // Counters lose the unread rows of a batch in the batch's own transaction
+        Consumer<List<Long>> deletePersonal = ids -> {
+            Map<String, Long> unread = storedNotificationRepository.findUnreadRecipientsForUpdate(ids).stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            storedNotificationRepository.deleteAllByIdInBatch(ids);
+            unreadCounterService.personalPurged(unread);
+        };
+        Consumer<List<Long>> deleteBroadcasts = ids -> {
+            receipts[0] += broadcastReceiptRepository.deleteByBroadcastIds(ids);
+            broadcastNotificationRepository.deleteAllByIdInBatch(ids);
+        };
+
+        long expired = purge(batches, () -> storedNotificationRepository.findExpiredIds(now, batch), deletePersonal);
+        LocalDateTime readBefore = now.minusDays(readDays);
+        long read = purge(batches, () -> storedNotificationRepository.findReadIdsBefore(readBefore, batch), deletePersonal);
+        long broadcasts = purge(batches, () -> broadcastNotificationRepository.findExpiredIds(now, batch), deleteBroadcasts);
+        Map<String, Long> byType = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> policy : typeDays.entrySet()) {
+            String type = policy.getKey();
+            LocalDateTime before = now.minusDays(policy.getValue());
+            byType.put(type, purge(batches,
+                () -> storedNotificationRepository.findIdsByTypeBefore(type, before, batch), deletePersonal));
+            broadcasts += purge(batches,
+                () -> broadcastNotificationRepository.findIdsByTypeBefore(type, before, batch), deleteBroadcasts);
+        }
+
+        if (broadcasts > 0) {
+            unreadCounterService.broadcastsPurged();
+        }
+
+        RetentionReport report = new RetentionReport(now, expired, read, byType, broadcasts, receipts[0],
+            batches[0], System.currentTimeMillis() - start);
+        lastReport = report;
+        log.info("Notification retention purged {} rows in {} batches and {} ms: {} expired, {} read, by type {}, {} broadcasts with {} receipts",
+            report.total(), report.batches(), report.elapsedMillis(), expired, read, byType, broadcasts, receipts[0]);
+        return report;
+    }
+
+    public RetentionReport lastReport() {
+        return lastReport;
+    }
+
+    // Deletes the selected ids a batch at a time until none are left; returns the rows deleted
+    private long purge(int[] batches, Supplier<List<Long>> nextIds, Consumer<List<Long>> delete) {
+        long deleted = 0;
+        try {
+            for (int i = 0; i < maxBatches; i++) {
+                List<Long> ids = nextIds.get();
+                if (ids.isEmpty()) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> delete.accept(ids));
+                deleted += ids.size();
+                batches[0]++;
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Notification retention step failed after {} rows: {}", deleted, e.getMessage());
+        }
+        return deleted;
+    }
+
+    private static Map<String, Integer> parseTypeDays(List<String> policies) {
+        Map<String, Integer> days = new LinkedHashMap<>();
+        for (String policy : policies) {
+            if (policy.isBlank()) {
+                continue;
+            }
+            String[] parts = policy.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid notification retention policy: " + policy);
+            }
+            days.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return days;
+    }
+}
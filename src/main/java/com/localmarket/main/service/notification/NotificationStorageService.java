@@ -1,17 +1,272 @@
 package com.localmarket.main.service.notification;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.dto.notification.RawNotificationResponse;
+import com.localmarket.main.entity.notification.BroadcastNotification;
+import com.localmarket.main.entity.notification.BroadcastReceipt;
+import com.localmarket.main.entity.notification.NotificationReadCursor;
+import com.localmarket.main.entity.notification.StoredNotification;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.exception.ApiException;
+import com.localmarket.main.exception.ErrorType;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.repository.notification.BroadcastReceiptRepository;
+import com.localmarket.main.repository.notification.NotificationReadCursorRepository;
 import com.localmarket.main.repository.notification.StoredNotificationRepository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// A user's notifications are the personal StoredNotification rows merged, at read time,
+// with the broadcasts of the user's role. Broadcasts are stored once per event and show
+// up under negative ids; their read and deleted state per user lives in receipts and in
+// a read cursor.
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class NotificationStorageService {
+    // Newest first; at the same timestamp personal notifications, then broadcasts, each by
+    // id descending, which is the order the keyset queries page in
+    private static final Comparator<NotificationResponse> NEWEST_FIRST =
+        Comparator.comparing(NotificationResponse::getTimestamp)
+            .thenComparing(notification -> notification.getId() > 0)
+            .thenComparing(notification -> Math.abs(notification.getId()))
+            .reversed();
+
     private final StoredNotificationRepository storedNotificationRepository;
+    private final BroadcastNotificationRepository broadcastNotificationRepository;
+    private final BroadcastReceiptRepository broadcastReceiptRepository;
+    private final NotificationReadCursorRepository readCursorRepository;
+    private final UnreadCounterService unreadCounterService;
+    private final ObjectMapper objectMapper;
+
+    public static Long broadcastNotificationId(Long broadcastId) {
+        return -broadcastId;
+    }
+
+    // Newest first. Clients page with the timestamp and id of the last notification they
+    // have (before, beforeId): each stream is then read from that key, like the replay.
+    // Page numbers still work without a key, but read offset + size rows of both streams.
+    @Transactional(readOnly = true)
+    public Page<NotificationResponse> getNotifications(String email, Role role, LocalDateTime before, Long beforeId,
+                                                       Pageable pageable) {
+        LocalDateTime now = LocalDateTime.now();
+        long cursor = readCursor(email, role);
+        boolean keyset = before != null && beforeId != null && pageable.isPaged();
+
+        List<StoredNotification> personal;
+        List<Object[]> broadcasts;
+        if (keyset) {
+            Pageable page = PageRequest.of(0, pageable.getPageSize());
+            // Personal rows come first at the same timestamp, so a broadcast key skips them all
+            personal = storedNotificationRepository.findPageBefore(email, before, Math.max(beforeId, 0), page);
+            broadcasts = broadcastNotificationRepository.findVisibleBefore(role, email, now, before,
+                beforeId < 0 ? -beforeId : Long.MAX_VALUE, page);
+        } else {
+            // Both streams are newest first, so the page lies within the first offset + size of each
+            Pageable head = pageable.isPaged()
+                ? PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize())
+                : Pageable.unpaged();
+            personal = storedNotificationRepository.findByRecipientEmailOrderByTimestampDescIdDesc(email, head);
+            broadcasts = broadcastNotificationRepository.findVisible(role, email, now, head);
+        }
+        List<NotificationResponse> merged = new ArrayList<>();
+        personal.forEach(notification -> merged.add(toResponse(notification)));
+        for (Object[] row : broadcasts) {
+            merged.add(toResponse((BroadcastNotification) row[0], (BroadcastReceipt) row[1], cursor));
+        }
+        merged.sort(NEWEST_FIRST);
+
+        long total = storedNotificationRepository.countByRecipientEmail(email)
+            + broadcastNotificationRepository.countVisible(role, email, now);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(merged, pageable, total);
+        }
+        int from = keyset ? 0 : (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(merged.subList(from, to), keyset ? PageRequest.of(0, pageable.getPageSize()) : pageable,
+            total);
+    }
+
+    public long getUnreadCount(String email, Role role) {
+        return unreadCounterService.unreadCount(email, role);
+    }
+
+    // Reconnect replay, one keyset page at a time: personal notifications with an id above
+    // afterId, oldest first. The stored data is handed over as is, without parsing it.
+    @Transactional(readOnly = true)
+    public List<RawNotificationResponse> getPersonalReplayPage(String email, long afterId, boolean unreadOnly, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        Pageable page = PageRequest.of(0, limit);
+        List<StoredNotification> notifications = unreadOnly
+            ? storedNotificationRepository.findByRecipientEmailAndReadFalseAndIdGreaterThanAndExpiresAtGreaterThanOrderByIdAsc(email, afterId, now, page)
+            : storedNotificationRepository.findByRecipientEmailAndIdGreaterThanAndExpiresAtGreaterThanOrderByIdAsc(email, afterId, now, page);
+        return notifications.stream().map(this::toRawResponse).toList();
+    }
+
+    // Same for the role's broadcasts, after the broadcast id afterBroadcastId (positive)
+    @Transactional(readOnly = true)
+    public List<RawNotificationResponse> getBroadcastReplayPage(String email, Role role, long afterBroadcastId,
+                                                                boolean unreadOnly, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        Pageable page = PageRequest.of(0, limit);
+        long cursor = readCursor(email, role);
+        if (unreadOnly) {
+            return broadcastNotificationRepository.findUnread(role, email, Math.max(afterBroadcastId, cursor), now, page)
+                .stream().map(broadcast -> toRawResponse(broadcast, null, 0)).toList();
+        }
+        List<RawNotificationResponse> replay = new ArrayList<>();
+        for (Object[] row : broadcastNotificationRepository.findVisibleAfter(role, email, afterBroadcastId, now, page)) {
+            replay.add(toRawResponse((BroadcastNotification) row[0], (BroadcastReceipt) row[1], cursor));
+        }
+        return replay;
+    }
 
     @Transactional
-    public void markAllAsRead(String email) {
+    public void markAllAsRead(String email, Role role) {
         storedNotificationRepository.markAllAsRead(email);
+        Long latest = broadcastNotificationRepository.findLatestId(role);
+        if (latest != null) {
+            NotificationReadCursor readCursor = readCursorRepository.findByRecipientEmailAndRole(email, role)
+                .orElseGet(() -> new NotificationReadCursor(email, role, 0L));
+            readCursor.setLastReadBroadcastId(Math.max(readCursor.getLastReadBroadcastId(), latest));
+            readCursorRepository.save(readCursor);
+        }
+        unreadCounterService.allRead(email);
+    }
+
+    @Transactional
+    public void markAsRead(String email, Role role, Long notificationId) {
+        if (notificationId < 0) {
+            BroadcastReceipt receipt = receiptFor(email, role, -notificationId);
+            if (isUnread(receipt, role)) {
+                unreadCounterService.broadcastRead(email);
+            }
+            receipt.setRead(true);
+            broadcastReceiptRepository.save(receipt);
+            return;
+        }
+        StoredNotification notification = personalNotification(email, notificationId);
+        boolean wasUnread = !notification.isRead();
+        notification.setRead(true);
+        storedNotificationRepository.save(notification);
+        // After the change, which a counter materialized now has to see
+        if (wasUnread) {
+            unreadCounterService.personalRead(email);
+        }
+    }
+
+    @Transactional
+    public void deleteNotification(String email, Role role, Long notificationId) {
+        if (notificationId < 0) {
+            BroadcastReceipt receipt = receiptFor(email, role, -notificationId);
+            if (isUnread(receipt, role)) {
+                unreadCounterService.broadcastRead(email);
+            }
+            receipt.setDeleted(true);
+            broadcastReceiptRepository.save(receipt);
+            return;
+        }
+        StoredNotification notification = personalNotification(email, notificationId);
+        storedNotificationRepository.delete(notification);
+        if (!notification.isRead()) {
+            unreadCounterService.personalRead(email);
+        }
+    }
+
+    private StoredNotification personalNotification(String email, Long notificationId) {
+        StoredNotification notification = storedNotificationRepository.findById(notificationId)
+            .orElseThrow(() -> new ApiException(ErrorType.RESOURCE_NOT_FOUND, "Notification not found"));
+
+        if (!notification.getRecipientEmail().equals(email)) {
+            throw new ApiException(ErrorType.ACCESS_DENIED, "Access denied");
+        }
+        return notification;
+    }
+
+    private BroadcastReceipt receiptFor(String email, Role role, Long broadcastId) {
+        BroadcastNotification broadcast = broadcastNotificationRepository.findById(broadcastId)
+            .orElseThrow(() -> new ApiException(ErrorType.RESOURCE_NOT_FOUND, "Notification not found"));
+
+        if (broadcast.getRole() != role) {
+            throw new ApiException(ErrorType.ACCESS_DENIED, "Access denied");
+        }
+        return broadcastReceiptRepository.findByBroadcastIdAndRecipientEmail(broadcastId, email)
+            .orElseGet(() -> new BroadcastReceipt(broadcastId, email));
+    }
+
+    private boolean isUnread(BroadcastReceipt receipt, Role role) {
+        return !receipt.isRead() && !receipt.isDeleted()
+            && receipt.getBroadcastId() > readCursor(receipt.getRecipientEmail(), role);
+    }
+
+    private long readCursor(String email, Role role) {
+        return readCursorRepository.findByRecipientEmailAndRole(email, role)
+            .map(NotificationReadCursor::getLastReadBroadcastId)
+            .orElse(0L);
+    }
+
+    private NotificationResponse toResponse(StoredNotification notification) {
+        return NotificationResponse.builder()
+            .id(notification.getId())
+            .type(notification.getType())
+            .message(notification.getMessage())
+            .data(parseData(notification.getData()))
+            .timestamp(notification.getTimestamp())
+            .read(notification.isRead())
+            .build();
+    }
+
+    private NotificationResponse toResponse(BroadcastNotification broadcast, BroadcastReceipt receipt, long cursor) {
+        return NotificationResponse.builder()
+            .id(broadcastNotificationId(broadcast.getId()))
+            .type(broadcast.getType())
+            .message(broadcast.getMessage())
+            .data(parseData(broadcast.getData()))
+            .timestamp(broadcast.getTimestamp())
+            .read(broadcast.getId() <= cursor || (receipt != null && receipt.isRead()))
+            .build();
+    }
+
+    private RawNotificationResponse toRawResponse(StoredNotification notification) {
+        return RawNotificationResponse.builder()
+            .id(notification.getId())
+            .type(notification.getType())
+            .message(notification.getMessage())
+            .data(notification.getData())
+            .timestamp(notification.getTimestamp())
+            .read(notification.isRead())
+            .build();
+    }
+
+    private RawNotificationResponse toRawResponse(BroadcastNotification broadcast, BroadcastReceipt receipt, long cursor) {
+        return RawNotificationResponse.builder()
+            .id(broadcastNotificationId(broadcast.getId()))
+            .type(broadcast.getType())
+            .message(broadcast.getMessage())
+            .data(broadcast.getData())
+            .timestamp(broadcast.getTimestamp())
+            .read(broadcast.getId() <= cursor || (receipt != null && receipt.isRead()))
+            .build();
+    }
+
+    private Object parseData(String data) {
+        try {
+            return data != null ? objectMapper.readValue(data, Object.class) : null;
+        } catch (Exception e) {
+            log.error("Error deserializing notification data: {}", e.getMessage());
+            return null;
+        }
     }
-} 
\ No newline at end of file
+}
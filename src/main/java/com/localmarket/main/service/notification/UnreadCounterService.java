@@ -0,0 +1,212 @@
+package com.localmarket.main.service.notification;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.localmarket.main.entity.notification.NotificationCounter;
+import com.localmarket.main.entity.notification.NotificationReadCursor;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.repository.notification.NotificationCounterRepository;
+import com.localmarket.main.repository.notification.NotificationReadCursorRepository;
+import com.localmarket.main.repository.notification.StoredNotificationRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.localmarket.main.util.JdbcUtil.insertSql;
+import static com.localmarket.main.util.TransactionUtil.afterCommit;
+import static com.localmarket.main.util.TransactionUtil.afterRollback;
+
+// Unread badge counts. The personal part is a NotificationCounter row updated in the
+// same transaction as the notification itself; the broadcast part is counted once per
+// user and then followed in memory, since a role broadcast is one row for everyone.
+// Memory is updated right away and the user's entry dropped if the transaction rolls
+// back. The memory part is per node: a broadcast sent or a notification read through
+// another instance only shows up here when the entry expires (ttl-seconds), so badges
+// may be off by that much in a cluster. The NotificationCounter rows are shared.
+@Service
+@RequiredArgsConstructor
+public class UnreadCounterService {
+    private final NotificationCounterRepository counterRepository;
+    private final StoredNotificationRepository storedNotificationRepository;
+    private final BroadcastNotificationRepository broadcastNotificationRepository;
+    private final NotificationReadCursorRepository readCursorRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${notifications.unread-cache.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Broadcasts sent per role since startup; an entry adds those sent after it was loaded
+    private final Map<Role, AtomicLong> broadcastsSent = new ConcurrentHashMap<>();
+
+    private String insertCounterSql;
+
+    @PostConstruct
+    public void prepareStatements() {
+        insertCounterSql = insertSql(jdbcTemplate, "NotificationCounter", "recipientEmail", "unreadCount");
+    }
+
+    public long unreadCount(String email, Role role) {
+        Entry entry = entries.get(email);
+        if (!isCurrent(entry, role)) {
+            Entry stale = entry;
+            Entry loaded = load(email, role);
+            // An entry another request installed meanwhile may already hold later changes
+            entry = entries.compute(email, (key, current) -> current != stale && isCurrent(current, role)
+                ? current : loaded);
+        }
+        return entry.total();
+    }
+
+    @Transactional
+    public void personalAdded(String email, long count) {
+        add(email, count);
+        update(email, entry -> entry.personal += count);
+    }
+
+    @Transactional
+    public void personalRead(String email) {
+        add(email, -1);
+        update(email, entry -> entry.personal = Math.max(0, entry.personal - 1));
+    }
+
+    // Counted once the broadcast row commits, so a rolled back one never shows up
+    public void broadcastSent(Role role) {
+        afterCommit(() -> sent(role).incrementAndGet());
+    }
+
+    public void broadcastRead(String email) {
+        update(email, entry -> entry.broadcasts = Math.max(0, entry.broadcasts - 1));
+    }
+
+    @Transactional
+    public void allRead(String email) {
+        if (counterRepository.reset(email) == 0) {
+            materialize(email);
+        }
+        update(email, entry -> {
+            entry.personal = 0;
+            entry.broadcasts = 0;
+        });
+    }
+
+    // Unread notifications deleted by the retention purge, per recipient, in the purge
+    // batch's transaction. A recipient without a counter counts the remaining rows later.
+    @Transactional
+    public void personalPurged(Map<String, Long> unreadByRecipient) {
+        unreadByRecipient.forEach((email, count) -> {
+            counterRepository.removeUnread(email, count);
+            update(email, entry -> entry.personal = Math.max(0, entry.personal - count));
+        });
+    }
+
+    // Entries count the broadcasts unread when they were loaded; purged ones drop out
+    // when the users' entries are loaded again
+    public void broadcastsPurged() {
+        entries.clear();
+    }
+
+    @Scheduled(fixedDelayString = "${notifications.unread-cache.purge-ms:600000}")
+    public void purgeExpired() {
+        entries.values().removeIf(Entry::isExpired);
+    }
+
+    // A recipient without a counter gets one counted in this transaction, which sees its
+    // own rows; otherwise a concurrent first read could count without them and install
+    // the counter after this update found nothing to change
+    private void add(String email, long delta) {
+        if (counterRepository.add(email, delta) == 0) {
+            materialize(email);
+        }
+    }
+
+    private void update(String email, Consumer<Entry> change) {
+        entries.computeIfPresent(email, (key, entry) -> {
+            synchronized (entry) {
+                entry.fold();
+                change.accept(entry);
+            }
+            return entry;
+        });
+        afterRollback(() -> entries.remove(email));
+    }
+
+    private boolean isCurrent(Entry entry, Role role) {
+        return entry != null && entry.role == role && !entry.isExpired();
+    }
+
+    private Entry load(String email, Role role) {
+        // Taken before counting, so a broadcast sent meanwhile is counted at most twice
+        // until the entry expires, never missed
+        long mark = sent(role).get();
+        long cursor = readCursorRepository.findByRecipientEmailAndRole(email, role)
+            .map(NotificationReadCursor::getLastReadBroadcastId)
+            .orElse(0L);
+        long broadcasts = broadcastNotificationRepository.countUnread(role, email, cursor, LocalDateTime.now());
+        return new Entry(role, personalCount(email), broadcasts, mark);
+    }
+
+    private long personalCount(String email) {
+        return counterRepository.findById(email)
+            .map(NotificationCounter::getUnreadCount)
+            .orElseGet(() -> materialize(email));
+    }
+
+    // Counts the rows once and keeps the result as the counter, unless one was installed
+    // first: the insert is a put-if-absent, and the one already there wins. Plain JDBC, so
+    // losing the race does not mark the caller's transaction for rollback.
+    private long materialize(String email) {
+        long count = storedNotificationRepository.countByRecipientEmailAndReadFalse(email);
+        try {
+            jdbcTemplate.update(insertCounterSql, email, count);
+        } catch (DataIntegrityViolationException e) {
+            return counterRepository.findById(email).map(NotificationCounter::getUnreadCount).orElse(count);
+        }
+        return count;
+    }
+
+    private AtomicLong sent(Role role) {
+        return broadcastsSent.computeIfAbsent(role, r -> new AtomicLong());
+    }
+
+    private final class Entry {
+        private final Role role;
+        private final long loadedAt = System.nanoTime();
+        private long personal;
+        private long broadcasts;
+        private long mark;
+
+        Entry(Role role, long personal, long broadcasts, long mark) {
+            this.role = role;
+            this.personal = personal;
+            this.broadcasts = broadcasts;
+            this.mark = mark;
+        }
+
+        synchronized long total() {
+            fold();
+            return personal + broadcasts;
+        }
+
+        // Caller holds the lock
+        void fold() {
+            long current = sent(role).get();
+            broadcasts += current - mark;
+            mark = current;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - loadedAt > ttlSeconds * 1_000_000_000L;
+        }
+    }
+}
@@ -4,224 +4,106 @@ import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import com.localmarket.main.dto.notification.NotificationResponse;
-import com.localmarket.main.entity.user.User;
-import com.localmarket.main.repository.user.UserRepository;
 import com.localmarket.main.exception.ApiException;
 import com.localmarket.main.exception.ErrorType;
 import com.localmarket.main.websocket.NotificationWebSocketHandler;
-import com.localmarket.main.entity.notification.StoredNotification;
-import com.localmarket.main.repository.notification.StoredNotificationRepository;
+import com.localmarket.main.entity.notification.BroadcastNotification;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.LocalDateTime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.transaction.annotation.Transactional;
-import java.util.List;
-import java.util.ArrayList;
 import com.localmarket.main.entity.user.Role;
 import java.util.Map;
-import java.util.HashMap;
-import com.localmarket.main.entity.order.Order;
-import com.localmarket.main.entity.product.Product;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WebSocketService {
     private final NotificationWebSocketHandler webSocketHandler;
-    private final UserRepository userRepository;
-    private final StoredNotificationRepository storedNotificationRepository;
+    private final NotificationBus notificationBus;
     private final ObjectMapper objectMapper;
+    private final BroadcastNotificationRepository broadcastNotificationRepository;
+    private final NotificationStorageService notificationStorageService;
+    private final UnreadCounterService unreadCounterService;
 
+    // Queued on the notification bus: never throws, and stores and delivers the
+    // notification only once the caller's transaction has committed
     public void sendToUser(String identifier, NotificationResponse notification) {
-        String email;
-        
-        if (identifier.matches("\\d+")) {
-            User user = userRepository.findById(Long.parseLong(identifier))
-                .orElseThrow(() -> new ApiException(ErrorType.USER_NOT_FOUND, "User not found"));
-            email = user.getEmail();
-        } else {
-            email = identifier;
-        }
-
-        // Store notification first
-        StoredNotification storedNotification = storeNotification(email, notification);
-        
-        // Update notification with stored ID and send
-        NotificationResponse notificationWithId = NotificationResponse.builder()
-            .id(storedNotification.getId())
-            .type(notification.getType())
-            .message(notification.getMessage())
-            .data(notification.getData())
-            .timestamp(notification.getTimestamp())
-            .read(false)
-            .build();
-        
-        // Then try to send via WebSocket if user is online
-        try {
-            webSocketHandler.sendNotification(email, notificationWithId);
-        } catch (Exception e) {
-            log.debug("User {} is offline, notification stored for later delivery", email);
-        }
-    }
-
-    private StoredNotification storeNotification(String email, NotificationResponse notification) {
-        try {
-            StoredNotification storedNotification = new StoredNotification();
-            storedNotification.setRecipientEmail(email);
-            storedNotification.setType(notification.getType());
-            storedNotification.setMessage(notification.getMessage());
-            
-            // Use the injected ObjectMapper instead of creating a new one
-            // Convert complex objects to simple maps if needed
-            Object data = notification.getData();
-            if (data instanceof Order || data instanceof Product) {
-                Map<String, Object> simpleData = new HashMap<>();
-                if (data instanceof Order) {
-                    Order order = (Order) data;
-                    simpleData.put("orderId", order.getOrderId());
-                    simpleData.put("status", order.getStatus());
-                    simpleData.put("totalPrice", order.getTotalPrice());
-                } else if (data instanceof Product) {
-                    Product product = (Product) data;
-                    simpleData.put("productId", product.getProductId());
-                    simpleData.put("name", product.getName());
-                    simpleData.put("price", product.getPrice());
-                }
-                storedNotification.setData(objectMapper.writeValueAsString(simpleData));
-            } else {
-                storedNotification.setData(objectMapper.writeValueAsString(data));
-            }
-            
-            storedNotification.setTimestamp(notification.getTimestamp());
-            storedNotification.setExpiresAt(LocalDateTime.now().plusDays(7));
-            
-            return storedNotificationRepository.save(storedNotification);
-        } catch (Exception e) {
-            log.error("Failed to store notification for user {}: {}", email, e.getMessage());
-            throw new ApiException(ErrorType.INTERNAL_ERROR, "Failed to store notification");
-        }
+        notificationBus.publish(identifier, notification);
     }
 
+    // One row per event whatever the number of recipients; the role's users see it
+    // through NotificationStorageService, merged with their personal notifications
     public void sendToRole(String role, NotificationResponse notification) {
-        // Get all users with this role
-        List<User> usersWithRole = userRepository.findByRole(Role.valueOf(role.toUpperCase()));
-        
-        if (usersWithRole.isEmpty()) {
-            log.debug("No users found with role: {}", role);
-            return;
-        }
-        
-        // Batch store notifications for all users with this role
-        List<StoredNotification> notifications = new ArrayList<>();
+        Role targetRole = Role.valueOf(role.toUpperCase());
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime expiryDate = now.plusDays(7);
-        String dataJson;
-        
-        try {
-            dataJson = objectMapper.writeValueAsString(notification.getData());
-        } catch (Exception e) {
-            log.error("Failed to serialize notification data: {}", e.getMessage());
-            throw new ApiException(ErrorType.INTERNAL_ERROR, "Failed to process notification data");
-        }
         
-        // Create notification objects for all users
-        for (User user : usersWithRole) {
-            StoredNotification storedNotification = new StoredNotification();
-            storedNotification.setRecipientEmail(user.getEmail());
-            storedNotification.setType(notification.getType());
-            storedNotification.setMessage(notification.getMessage());
-            storedNotification.setData(dataJson);
-            storedNotification.setTimestamp(notification.getTimestamp() != null ? notification.getTimestamp() : now);
-            storedNotification.setExpiresAt(expiryDate);
-            notifications.add(storedNotification);
-        }
+        BroadcastNotification broadcast = new BroadcastNotification();
+        broadcast.setRole(targetRole);
+        broadcast.setType(notification.getType());
+        broadcast.setMessage(notification.getMessage());
+        broadcast.setTimestamp(notification.getTimestamp() != null ? notification.getTimestamp() : now);
+        broadcast.setExpiresAt(now.plusDays(7));
         
-        // Batch save all notifications
         try {
-            List<StoredNotification> savedNotifications = storedNotificationRepository.saveAll(notifications);
-            
-            // Send notifications to online users
-            for (StoredNotification saved : savedNotifications) {
-                NotificationResponse notificationWithId = NotificationResponse.builder()
-                    .id(saved.getId())
-                    .type(saved.getType())
-                    .message(saved.getMessage())
-                    .data(notification.getData()) // Use the original data object to avoid re-parsing
-                    .timestamp(saved.getTimestamp())
-                    .read(false)
-                    .build();
-                    
-                try {
-                    webSocketHandler.sendNotification(saved.getRecipientEmail(), notificationWithId);
-                } catch (Exception e) {
-                    // User is offline, notification is already stored
-                    log.debug("User {} is offline, notification stored for later delivery", saved.getRecipientEmail());
-                }
-            }
+            broadcast.setData(objectMapper.writeValueAsString(notification.getData()));
+            broadcast = broadcastNotificationRepository.save(broadcast);
         } catch (Exception e) {
-            log.error("Failed to store notifications for role {}: {}", role, e.getMessage());
+            log.error("Failed to store notification for role {}: {}", role, e.getMessage());
             throw new ApiException(ErrorType.INTERNAL_ERROR, "Failed to store notifications");
         }
+        unreadCounterService.broadcastSent(targetRole);
+        
+        // Same message, and so a single serialization, for every online user of the role
+        webSocketHandler.sendToRole(role, NotificationResponse.builder()
+            .id(NotificationStorageService.broadcastNotificationId(broadcast.getId()))
+            .type(broadcast.getType())
+            .message(broadcast.getMessage())
+            .data(notification.getData())
+            .timestamp(broadcast.getTimestamp())
+            .read(false)
+            .build());
         
-        log.info("Sent notification to {} users with role {}", usersWithRole.size(), role);
+        log.info("Broadcast notification {} to role {}", broadcast.getId(), role);
     }
 
-    public Page<NotificationResponse> getStoredNotifications(String email, Pageable pageable) {
-        return storedNotificationRepository.findByRecipientEmailOrderByTimestampDesc(email, pageable)
-            .map(this::convertToNotificationResponse);
+    public Page<NotificationResponse> getStoredNotifications(String email, Role role, LocalDateTime before,
+                                                             Long beforeId, Pageable pageable) {
+        return notificationStorageService.getNotifications(email, role, before, beforeId, pageable);
     }
 
-    public Long getUnreadCount(String email) {
-        return storedNotificationRepository.countByRecipientEmailAndReadFalse(email);
+    public Long getUnreadCount(String email, Role role) {
+        return unreadCounterService.unreadCount(email, role);
     }
 
-    @Transactional
-    public void markAllAsRead(String email) {
-        storedNotificationRepository.markAllAsRead(email);
+    public void markAllAsRead(String email, Role role) {
+        long before = unreadCounterService.unreadCount(email, role);
+        notificationStorageService.markAllAsRead(email, role);
+        pushUnreadCount(email, role, before);
     }
 
-    @Transactional
-    public void markAsRead(String email, Long notificationId) {
-        StoredNotification notification = storedNotificationRepository.findById(notificationId)
-            .orElseThrow(() -> new ApiException(ErrorType.RESOURCE_NOT_FOUND, "Notification not found"));
-            
-        if (!notification.getRecipientEmail().equals(email)) {
-            throw new ApiException(ErrorType.ACCESS_DENIED, "Access denied");
-        }
-        
-        notification.setRead(true);
-        storedNotificationRepository.save(notification);
+    public void markAsRead(String email, Role role, Long notificationId) {
+        long before = unreadCounterService.unreadCount(email, role);
+        notificationStorageService.markAsRead(email, role, notificationId);
+        pushUnreadCount(email, role, before);
     }
 
-    @Transactional
-    public void deleteNotification(String email, Long notificationId) {
-        StoredNotification notification = storedNotificationRepository.findById(notificationId)
-            .orElseThrow(() -> new ApiException(ErrorType.RESOURCE_NOT_FOUND, "Notification not found"));
-            
-        if (!notification.getRecipientEmail().equals(email)) {
-            throw new ApiException(ErrorType.ACCESS_DENIED, "Access denied");
-        }
-        
-        storedNotificationRepository.delete(notification);
+    public void deleteNotification(String email, Role role, Long notificationId) {
+        long before = unreadCounterService.unreadCount(email, role);
+        notificationStorageService.deleteNotification(email, role, notificationId);
+        pushUnreadCount(email, role, before);
     }
 
-    private NotificationResponse convertToNotificationResponse(StoredNotification notification) {
-        Object data;
-        try {
-            data = objectMapper.readValue(notification.getData(), Object.class);
-        } catch (Exception e) {
-            log.error("Error deserializing notification data: {}", e.getMessage());
-            data = null;
+    // Keeps the badge of the user's other devices in step without polling. New
+    // notifications need no such message: clients count the notification itself.
+    private void pushUnreadCount(String email, Role role, long before) {
+        long unread = unreadCounterService.unreadCount(email, role);
+        if (unread != before) {
+            webSocketHandler.sendNotification(email, Map.of(
+                "type", "UNREAD_COUNT",
+                "delta", unread - before,
+                "unreadCount", unread));
         }
-
-        return NotificationResponse.builder()
-            .id(notification.getId())
-            .type(notification.getType())
-            .message(notification.getMessage())
-            .data(data)
-            .timestamp(notification.getTimestamp())
-            .read(notification.isRead())
-            .build();
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.localmarket.main.service.notification.producer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.entity.notification.PendingProducerNotification;
+import com.localmarket.main.repository.notification.PendingProducerNotificationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static com.localmarket.main.util.JdbcUtil.insertSql;
+import static com.localmarket.main.util.TransactionUtil.afterCommit;
+
+// Collects a producer's notifications of the coalesced types over a short window and
+// sends them as one, e.g. "12 products changed stock", with every event's data under
+// "items". A window holding a single event sends it unchanged. Other types go out at once.
+// Open windows are PendingProducerNotification rows: written with plain JDBC in the
+// publisher's transaction, like the notification outbox, and handed to the bus in the
+// transaction that deletes them, so a crash or a restart loses no event.
+@Service
+@Slf4j
+public class ProducerNotificationCoalescer {
+    private static final Map<String, String> SUMMARIES = Map.of(
+        "STOCK_UPDATED", "%s changed stock",
+        "STOCK_MOVEMENT", "Stock movement on %s",
+        "LOW_STOCK_ALERT", "Alert: stock is running low on %s",
+        "CRITICAL_STOCK_ALERT", "CRITICAL ALERT: stock is critically low on %s");
+
+    private final ProducerNotificationService producerNotificationService;
+    private final PendingProducerNotificationRepository pendingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> coalescedTypes;
+    private final long windowSeconds;
+    private final int maxItems;
+
+    private String insertPendingSql;
+
+    public ProducerNotificationCoalescer(ProducerNotificationService producerNotificationService,
+            PendingProducerNotificationRepository pendingRepository,
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${notifications.coalesce.types:STOCK_UPDATED,STOCK_MOVEMENT,LOW_STOCK_ALERT,CRITICAL_STOCK_ALERT}") Set<String> coalescedTypes,
+            @Value("${notifications.coalesce.window-seconds:60}") long windowSeconds,
+            @Value("${notifications.coalesce.max-items:100}") int maxItems) {
+        this.producerNotificationService = producerNotificationService;
+        this.pendingRepository = pendingRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.coalescedTypes = coalescedTypes;
+        this.windowSeconds = windowSeconds;
+        this.maxItems = maxItems;
+    }
+
+    @PostConstruct
+    public void prepareStatements() {
+        insertPendingSql = insertSql(jdbcTemplate, "PendingProducerNotification",
+            "producerId", "type", "message", "data", "productId", "timestamp", "createdAt");
+    }
+
+    // Part of the surrounding transaction, so a rolled back order notifies nobody. Never
+    // throws: an event that cannot be stored goes out on its own once that transaction commits.
+    public void publish(Long producerId, NotificationResponse notification) {
+        if (!coalescedTypes.contains(notification.getType())) {
+            afterCommit(() -> producerNotificationService.sendToUser(producerId, notification));
+            return;
+        }
+        try {
+            Object productId = notification.getData() instanceof Map<?, ?> data ? data.get("productId") : null;
+            LocalDateTime now = LocalDateTime.now();
+            jdbcTemplate.update(insertPendingSql,
+                producerId,
+                notification.getType(),
+                notification.getMessage(),
+                objectMapper.writeValueAsString(notification.getData()),
+                productId instanceof Number number ? number.longValue() : null,
+                Timestamp.valueOf(notification.getTimestamp() != null ? notification.getTimestamp() : now),
+                Timestamp.valueOf(now));
+        } catch (Exception e) {
+            log.warn("Failed to queue {} notification for producer {}, sending it alone: {}",
+                notification.getType(), producerId, e.getMessage());
+            afterCommit(() -> producerNotificationService.sendToUser(producerId, notification));
+        }
+    }
+
+    // Sends every window opened more than the window length ago, each in its own
+    // transaction; a window that fails stays for the next run
+    @Scheduled(fixedDelayString = "${notifications.coalesce.flush-ms:5000}")
+    public void flushExpired() {
+        LocalDateTime openedBefore = LocalDateTime.now().minusSeconds(windowSeconds);
+        for (Object[] window : pendingRepository.findWindowsOpenedBefore(openedBefore)) {
+            Long producerId = (Long) window[0];
+            String type = (String) window[1];
+            try {
+                transactionTemplate.executeWithoutResult(status -> flush(producerId, type));
+            } catch (RuntimeException e) {
+                log.error("Failed to send coalesced {} notifications to producer {}: {}",
+                    type, producerId, e.getMessage());
+            }
+        }
+    }
+
+    // The bus writes its outbox row in this transaction, which also deletes the events
+    private void flush(Long producerId, String type) {
+        List<PendingProducerNotification> events = pendingRepository.findWindowForUpdate(producerId, type);
+        if (events.isEmpty()) {
+            return;
+        }
+        producerNotificationService.sendToUser(producerId,
+            events.size() == 1 ? notification(events.get(0)) : summarize(type, events));
+        pendingRepository.deleteAllInBatch(events);
+    }
+
+    private NotificationResponse notification(PendingProducerNotification event) {
+        return NotificationResponse.builder()
+            .type(event.getType())
+            .message(event.getMessage())
+            .data(parse(event.getData()))
+            .timestamp(event.getTimestamp())
+            .read(false)
+            .build();
+    }
+
+    private NotificationResponse summarize(String type, List<PendingProducerNotification> events) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        events.stream().map(PendingProducerNotification::getProductId).filter(Objects::nonNull).forEach(productIds::add);
+        int products = productIds.isEmpty() ? events.size() : productIds.size();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("count", events.size());
+        data.put("productIds", List.copyOf(productIds));
+        data.put("items", events.stream().limit(maxItems).map(event -> parse(event.getData())).toList());
+        data.put("truncated", events.size() > maxItems);
+        return NotificationResponse.builder()
+            .type(type)
+            .message(String.format(SUMMARIES.getOrDefault(type, "%s: " + type), products + (products == 1 ? " product" : " products")))
+            .data(data)
+            .timestamp(LocalDateTime.now())
+            .read(false)
+            .build();
+    }
+
+    private Object parse(String data) {
+        try {
+            return data != null ? objectMapper.readValue(data, Object.class) : null;
+        } catch (Exception e) {
+            log.error("Error deserializing notification data: {}", e.getMessage());
+            return null;
+        }
+    }
+}
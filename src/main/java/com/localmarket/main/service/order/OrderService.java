@@ -46,6 +46,7 @@ import com.localmarket.main.exception.ErrorType;
 import com.localmarket.main.service.product.ProductService;
 import com.localmarket.main.service.coupon.CouponService;
 import com.localmarket.main.service.email.EmailService;
+import com.localmarket.main.service.analytics.SalesRollupService;
 import com.localmarket.main.dto.coupon.CouponValidationResponse;
 import com.localmarket.main.dto.order.OrderItemResponse;
 
@@ -65,6 +66,7 @@ public class OrderService {
     private final CustomerNotificationService customerNotificationService;
     private final CouponService couponService;
     private final EmailService emailService;
+    private final SalesRollupService salesRollupService;
     private static final Logger log = LoggerFactory.getLogger(OrderService.class);
     
     @Value("${app.frontend.url}")
@@ -214,6 +216,7 @@ public class OrderService {
             
             // Save order and reserve stock
             order = orderRepository.save(order);
+            salesRollupService.record(order, null);
             try {
                 productService.reserveStock(order);
             } catch (ApiException e) {
@@ -334,6 +337,7 @@ public class OrderService {
                 productService.confirmStockReduction(order);
                 updateOrderPayment(order, paymentResponse);
                 processedOrders.add(orderRepository.save(order));
+                salesRollupService.record(order, OrderStatus.PENDING_PAYMENT);
             }
             
             return processedOrders;
@@ -359,6 +363,7 @@ public class OrderService {
             orderItem.setProduct(product);
             orderItem.setQuantity(itemRequest.getQuantity());
             orderItem.setPrice(product.getPrice());
+            orderItem.setCategoryId(SalesRollupService.primaryCategoryId(product));
             orderItems.add(orderItem);
         }
         return orderItems;
@@ -410,7 +415,9 @@ public class OrderService {
         // Validate status transitions
         validateStatusTransition(order.getStatus(), newStatus);
         
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(newStatus);
+        salesRollupService.record(order, previousStatus);
         
         // If status is SHIPPED, send delivery notification
         if (newStatus == OrderStatus.SHIPPED) {
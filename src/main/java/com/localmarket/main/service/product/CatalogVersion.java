@@ -0,0 +1,97 @@
+package com.localmarket.main.service.product;
+
+import com.localmarket.main.entity.product.CatalogGeneration;
+import com.localmarket.main.repository.product.CatalogGenerationRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+// Generation counters for the public catalog, used to build ETags without loading
+// anything. They live in CatalogGeneration rows and are incremented in the transaction
+// of every change that can alter a catalog payload, so a rolled back change keeps the
+// tag and all instances agree on it. Writers of the same scope queue on its row until
+// commit, which is fine for admin and producer edits; checkouts only change stock and
+// never bump it. Writers bump last, after flushing their own rows.
+@Component
+public class CatalogVersion {
+    static final String PRODUCTS = "products";
+    static final String CATEGORIES = "categories";
+    // Producer names are part of product payloads
+    static final String PRODUCERS = "producers";
+
+    private final CatalogGenerationRepository generationRepository;
+    // Joins the caller's transaction, or runs on its own (e.g. from a scheduled reconcile)
+    private final TransactionTemplate transactionTemplate;
+    // Creates a missing row apart, so a duplicate insert cannot fail the caller's transaction
+    private final TransactionTemplate newTransaction;
+
+    public CatalogVersion(CatalogGenerationRepository generationRepository,
+                          PlatformTransactionManager transactionManager) {
+        this.generationRepository = generationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void productsChanged() {
+        increment(PRODUCTS);
+    }
+
+    public void categoriesChanged() {
+        increment(CATEGORIES);
+    }
+
+    public void producersChanged() {
+        increment(PRODUCERS);
+    }
+
+    // Product pages and category lists (whose counts depend on products) share one tag
+    public String catalogETag() {
+        Map<String, Long> generations = generations();
+        return "W/\"" + generations.getOrDefault(PRODUCTS, 0L) + "-" + generations.getOrDefault(CATEGORIES, 0L)
+            + "-" + generations.getOrDefault(PRODUCERS, 0L) + "\"";
+    }
+
+    // A single product only changes with its own row, its producer, or when a category is renamed/removed
+    public String productETag(Long productId, LocalDateTime updatedAt, int ratingCount, long ratingSum) {
+        Map<String, Long> generations = generations();
+        long updated = updatedAt == null ? 0 : updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli();
+        return "W/\"" + productId + "-" + updated + "-" + ratingCount + "-" + ratingSum
+            + "-" + generations.getOrDefault(CATEGORIES, 0L) + "-" + generations.getOrDefault(PRODUCERS, 0L) + "\"";
+    }
+
+    private Map<String, Long> generations() {
+        Map<String, Long> generations = new HashMap<>();
+        generationRepository.findAll().forEach(row -> generations.put(row.getScope(), row.getGeneration()));
+        return generations;
+    }
+
+    private void increment(String scope) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (generationRepository.increment(scope) == 0) {
+                create(scope);
+                generationRepository.increment(scope);
+            }
+        });
+    }
+
+    // First change of a scope; another instance may create the row at the same time
+    private void create(String scope) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (!generationRepository.existsById(scope)) {
+                    generationRepository.saveAndFlush(new CatalogGeneration(scope, 0));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Created by another instance
+        }
+    }
+}
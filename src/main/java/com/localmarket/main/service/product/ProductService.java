@@ -25,22 +25,22 @@ import java.util.Map;
 import com.localmarket.main.dto.product.ProducerProductsResponse;
 import com.localmarket.main.dto.user.FilterUsersResponse;
 import com.localmarket.main.service.notification.producer.ProducerNotificationService;
+import com.localmarket.main.service.notification.producer.ProducerNotificationCoalescer;
 import com.localmarket.main.service.storage.FileStorageService;
 import org.springframework.web.multipart.MultipartFile;
 import com.localmarket.main.entity.product.ProductStatus;
 import com.localmarket.main.dto.product.MyProductResponse;
+import com.localmarket.main.dto.product.ProductSummary;
 import com.localmarket.main.entity.product.StockReservation;
 import com.localmarket.main.repository.product.StockReservationRepository;
-import org.springframework.scheduling.annotation.Scheduled;
 import java.time.LocalDateTime;
 import com.localmarket.main.entity.order.Order;
 import com.localmarket.main.entity.order.OrderItem;
 import com.localmarket.main.dto.notification.NotificationResponse;
-import com.localmarket.main.dto.review.VerifiedReviews;
 import com.localmarket.main.repository.review.ReviewRepository;
-import com.localmarket.main.entity.review.ReviewStatus;
 import com.localmarket.main.entity.review.Review;
 import com.localmarket.main.service.notification.admin.AdminNotificationService;
+import com.localmarket.main.service.category.CategoryStats;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageImpl;
@@ -60,11 +60,13 @@ public class ProductService {
     private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
     private final ProducerNotificationService producerNotificationService;
+    private final ProducerNotificationCoalescer producerNotificationCoalescer;
     private final StockReservationRepository stockReservationRepository;
     private final ReviewRepository reviewRepository;
     private final AdminNotificationService adminNotificationService;
-    private static final int LOW_STOCK_THRESHOLD = 10;
-    private static final int CRITICAL_STOCK_THRESHOLD = 5;
+    private final CategoryStats categoryStats;
+    private final CatalogVersion catalogVersion;
+    private final StockLevelMonitor stockLevelMonitor;
 
     @ProducerOnly
     public ProductResponse createProduct(ProductRequest request, MultipartFile image, Long producerId) {
@@ -100,6 +102,8 @@ public class ProductService {
 
             product.setStatus(ProductStatus.PENDING);
             Product savedProduct = productRepository.save(product);
+            catalogVersion.productsChanged();
+            stockLevelMonitor.stockChanged(List.of(savedProduct.getProductId()));
 
             adminNotificationService.notifyNewProductNeedsReview(savedProduct);
 
@@ -120,6 +124,9 @@ public class ProductService {
             throw new ApiException(ErrorType.PRODUCT_ACCESS_DENIED, "You can only update your own products");
         }
 
+        ProductStatus previousStatus = product.getStatus();
+        Set<Long> previousCategoryIds = categoryStats.categoryIdsOf(product);
+
         product.setName(request.getName());
         product.setDescription(request.getDescription());
         product.setPrice(request.getPrice());
@@ -138,8 +145,14 @@ public class ProductService {
         }
 
         product.setStatus(ProductStatus.PENDING);
-
-        return convertToDTO(productRepository.save(product));
+        categoryStats.productChanged(previousStatus, previousCategoryIds,
+            product.getStatus(), categoryStats.categoryIdsOf(product));
+        stockLevelMonitor.stockChanged(List.of(product.getProductId()));
+
+        // Product row before the generation row, so writers always lock in that order
+        Product saved = productRepository.saveAndFlush(product);
+        catalogVersion.productsChanged();
+        return convertToDTO(saved);
     }
 
     @Transactional
@@ -162,12 +175,14 @@ public class ProductService {
         }
         
         // Remove categories
+        categoryStats.productDeleted(product.getStatus(), categoryStats.categoryIdsOf(product));
         product.setCategories(new HashSet<>());
         productRepository.save(product);
         
         // Now safe to delete
         productRepository.delete(product);
         productRepository.flush();
+        catalogVersion.productsChanged();
     }
 
     @ProducerOnly
@@ -195,12 +210,14 @@ public class ProductService {
         }
         
         // Remove categories
+        categoryStats.productDeleted(product.getStatus(), categoryStats.categoryIdsOf(product));
         product.setCategories(new HashSet<>());
         productRepository.save(product);
 
         // Now safe to delete
         productRepository.delete(product);
         productRepository.flush();
+        catalogVersion.productsChanged();
     }
 
     private ProductResponse convertToDTO(Product product) {
@@ -208,23 +225,10 @@ public class ProductService {
         FilterUsersResponse producerDTO = new FilterUsersResponse(
             producer.getUserId(),
             producer.getUsername(),
+            producer.getEmail(),
             producer.getFirstname(),
-            producer.getLastname(),
-            producer.getEmail()
+            producer.getLastname()
         );
-        
-        List<VerifiedReviews> verifiedReviews = reviewRepository.findByProductProductId(product.getProductId())
-            .stream()
-            .filter(review -> review.isVerifiedPurchase() && review.getStatus() == ReviewStatus.APPROVED)
-            .map((Review review) -> VerifiedReviews.builder()
-                .reviewId(review.getReviewId())
-                .customerUsername(review.getCustomer().getUsername())
-                .rating(review.getRating())
-                .comment(review.getComment())
-                .verifiedPurchase(review.isVerifiedPurchase())
-                .createdAt(review.getCreatedAt())
-                .build())
-            .collect(Collectors.toList());
 
         ProductResponse response = new ProductResponse();
         response.setProductId(product.getProductId());
@@ -237,27 +241,127 @@ public class ProductService {
         response.setUpdatedAt(product.getUpdatedAt());
         response.setCategories(product.getCategories());
         response.setProducer(producerDTO);
-        response.setVerifiedReviews(verifiedReviews);
+        response.setAverageRating(product.getAverageRating());
+        response.setRatingCount(product.getRatingCount());
+        response.setRatingHistogram(ratingHistogram(
+            product.getZeroStarRatings(), product.getOneStarRatings(), product.getTwoStarRatings(),
+            product.getThreeStarRatings(), product.getFourStarRatings(), product.getFiveStarRatings()));
         response.setStock(product.getQuantity() > 0);
         
         return response;
     }
 
+    private Map<Integer, Integer> ratingHistogram(int... countsByStars) {
+        Map<Integer, Integer> histogram = new LinkedHashMap<>();
+        for (int stars = 0; stars < countsByStars.length; stars++) {
+            histogram.put(stars, countsByStars[stars]);
+        }
+        return histogram;
+    }
+
+    // Listing pages are built from flat projections; categories are fetched for
+    // the whole page in one query instead of per product
+    private Page<ProductResponse> toProductResponsePage(Page<ProductSummary> summaryPage) {
+        return new PageImpl<>(toProductResponses(summaryPage.getContent()),
+            summaryPage.getPageable(), summaryPage.getTotalElements());
+    }
+
+    private List<ProductResponse> toProductResponses(List<ProductSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> productIds = summaries.stream().map(ProductSummary::getProductId).collect(Collectors.toList());
+        Map<Long, Set<Category>> categoriesByProduct = loadCategories(productIds);
+
+        List<ProductResponse> responses = new ArrayList<>(summaries.size());
+        for (ProductSummary summary : summaries) {
+            ProductResponse response = new ProductResponse();
+            response.setProductId(summary.getProductId());
+            response.setName(summary.getName());
+            response.setDescription(summary.getDescription());
+            response.setPrice(summary.getPrice());
+            response.setQuantity(summary.getQuantity());
+            response.setImageUrl(summary.getImageUrl());
+            response.setCreatedAt(summary.getCreatedAt());
+            response.setUpdatedAt(summary.getUpdatedAt());
+            response.setCategories(categoriesByProduct.getOrDefault(summary.getProductId(), new HashSet<>()));
+            response.setProducer(new FilterUsersResponse(
+                summary.getProducerId(),
+                summary.getProducerUsername(),
+                summary.getProducerEmail(),
+                summary.getProducerFirstname(),
+                summary.getProducerLastname()
+            ));
+            response.setAverageRating(summary.getAverageRating());
+            response.setRatingCount(summary.getRatingCount());
+            response.setRatingHistogram(ratingHistogram(
+                summary.getZeroStarRatings(), summary.getOneStarRatings(), summary.getTwoStarRatings(),
+                summary.getThreeStarRatings(), summary.getFourStarRatings(), summary.getFiveStarRatings()));
+            response.setStock(summary.getQuantity() > 0);
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private Page<MyProductResponse> toMyProductResponsePage(Page<ProductSummary> summaryPage) {
+        List<ProductSummary> summaries = summaryPage.getContent();
+        Map<Long, Set<Category>> categoriesByProduct = summaries.isEmpty()
+            ? new HashMap<>()
+            : loadCategories(summaries.stream().map(ProductSummary::getProductId).collect(Collectors.toList()));
+
+        List<MyProductResponse> responses = summaries.stream()
+            .map(summary -> new MyProductResponse(
+                summary.getProductId(),
+                summary.getName(),
+                summary.getDescription(),
+                summary.getPrice(),
+                summary.getQuantity(),
+                summary.getImageUrl(),
+                summary.getCreatedAt(),
+                summary.getUpdatedAt(),
+                categoriesByProduct.getOrDefault(summary.getProductId(), new HashSet<>()),
+                summary.getStatus(),
+                summary.getDeclineReason(),
+                summary.getQuantity() > 0
+            ))
+            .collect(Collectors.toList());
+        return new PageImpl<>(responses, summaryPage.getPageable(), summaryPage.getTotalElements());
+    }
+
+    private Map<Long, Set<Category>> loadCategories(List<Long> productIds) {
+        Map<Long, Set<Category>> categoriesByProduct = new HashMap<>();
+        for (Object[] row : productRepository.findCategoriesByProductIds(productIds)) {
+            categoriesByProduct.computeIfAbsent((Long) row[0], k -> new HashSet<>())
+                .add((Category) row[1]);
+        }
+        return categoriesByProduct;
+    }
+
     @Transactional(readOnly = true)
     public Page<ProductResponse> getAllProducts(Pageable pageable, String searchTerm) {
-        Page<Product> productPage;
+        Page<ProductSummary> summaryPage;
         
         if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            // For search queries, we use a native query with LIKE 7ssn fl performance doesnt lag
             String searchPattern = "%" + searchTerm.toLowerCase() + "%";
-            productPage = productRepository.findByStatusAndNameOrDescriptionContaining(
+            summaryPage = productRepository.findSummariesByStatusAndSearch(
                 ProductStatus.APPROVED, searchPattern, pageable);
         } else {
-            productPage = productRepository.findByStatus(ProductStatus.APPROVED, pageable);
+            summaryPage = productRepository.findSummariesByStatus(ProductStatus.APPROVED, pageable);
         }
         
-        // Convert to ProductResponse
-        return productPage.map(this::convertToDTO);
+        return toProductResponsePage(summaryPage);
+    }
+
+    // Version tag of an approved product, computed from one narrow row so 304s skip DTO assembly
+    @Transactional(readOnly = true)
+    public Optional<String> getProductETag(Long id) {
+        return productRepository.findVersionByIdAndStatus(id, ProductStatus.APPROVED).stream()
+            .findFirst()
+            .map(row -> catalogVersion.productETag(id, (LocalDateTime) row[0], (Integer) row[1], (Long) row[2]));
+    }
+
+    public String getCatalogETag() {
+        return catalogVersion.catalogETag();
     }
 
     @Transactional(readOnly = true)
@@ -300,14 +404,8 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public Page<ProductResponse> getProductsByCategoryFlat(Long categoryId, Pageable pageable) {
-        Page<Product> productPage = productRepository.findByCategoriesCategoryIdAndStatusPaged(
-            categoryId, ProductStatus.APPROVED, pageable);
-        
-        List<ProductResponse> productResponses = productPage.getContent().stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
-        
-        return new PageImpl<>(productResponses, pageable, productPage.getTotalElements());
+        return toProductResponsePage(productRepository.findSummariesByCategoryAndStatus(
+            categoryId, ProductStatus.APPROVED, pageable));
     }
 
     private void validateProductPrice(BigDecimal price) {
@@ -351,31 +449,34 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public Page<ProducerProductsResponse> getProductsByStatus(ProductStatus status, Pageable pageable) {
-        Page<Product> productPage = productRepository.findByStatusPaged(status, pageable);
+        Page<ProductSummary> summaryPage = productRepository.findSummariesByStatus(status, pageable);
+        List<ProductResponse> productResponses = toProductResponses(summaryPage.getContent());
         
-        // Group by producer and convert to response
-        Map<User, List<ProductResponse>> groupedProducts = new HashMap<>();
-        
-        for (Product product : productPage.getContent()) {
-            User producer = product.getProducer();
-            ProductResponse productResponse = convertToDTO(product);
-            
-            groupedProducts.computeIfAbsent(producer, k -> new ArrayList<>())
-                .add(productResponse);
+        // Group by producer, keeping the page order
+        Map<Long, ProductSummary> producers = new LinkedHashMap<>();
+        Map<Long, List<ProductResponse>> groupedProducts = new LinkedHashMap<>();
+        for (int i = 0; i < productResponses.size(); i++) {
+            ProductSummary summary = summaryPage.getContent().get(i);
+            producers.putIfAbsent(summary.getProducerId(), summary);
+            groupedProducts.computeIfAbsent(summary.getProducerId(), k -> new ArrayList<>())
+                .add(productResponses.get(i));
         }
         
         List<ProducerProductsResponse> responses = groupedProducts.entrySet().stream()
-            .map(entry -> new ProducerProductsResponse(
-                entry.getKey().getUserId(),
-                entry.getKey().getUsername(),
-                entry.getKey().getFirstname(),
-                entry.getKey().getLastname(),
-                entry.getKey().getEmail(),
-                entry.getValue()
-            ))
+            .map(entry -> {
+                ProductSummary producer = producers.get(entry.getKey());
+                return new ProducerProductsResponse(
+                    producer.getProducerId(),
+                    producer.getProducerUsername(),
+                    producer.getProducerFirstname(),
+                    producer.getProducerLastname(),
+                    producer.getProducerEmail(),
+                    entry.getValue()
+                );
+            })
             .collect(Collectors.toList());
         
-        return new PageImpl<>(responses, pageable, productPage.getTotalElements());
+        return new PageImpl<>(responses, pageable, summaryPage.getTotalElements());
     }
 
     public List<ProductResponse> getProducerProductsByStatus(Long producerId, ProductStatus status) {
@@ -394,6 +495,8 @@ public class ProductService {
             throw new ApiException(ErrorType.INVALID_REQUEST, "Decline reason is required");
         }
         
+        Set<Long> categoryIds = categoryStats.categoryIdsOf(product);
+        categoryStats.productChanged(product.getStatus(), categoryIds, status, categoryIds);
         product.setStatus(status);
         product.setDeclineReason(declineReason);
 
@@ -408,141 +511,37 @@ public class ProductService {
                 break;
         }
 
-        return convertToDTO(productRepository.save(product));
-    }
-
-    private MyProductResponse convertToMyProductDTO(Product product) {
-        boolean stock = product.getQuantity() > 0;
-        return new MyProductResponse(
-            product.getProductId(),
-            product.getName(),
-            product.getDescription(),
-            product.getPrice(),
-            product.getQuantity(),
-            product.getImageUrl(),
-            product.getCreatedAt(),
-            product.getUpdatedAt(),
-            product.getCategories(),
-            product.getStatus(),
-            product.getDeclineReason(),
-            stock
-        );
+        Product saved = productRepository.saveAndFlush(product);
+        catalogVersion.productsChanged();
+        return convertToDTO(saved);
     }
 
     @Transactional(readOnly = true)
     public Page<MyProductResponse> getProducerProducts(Long producerId, Pageable pageable) {
-        User producer = userRepository.findById(producerId)
-            .orElseThrow(() -> new ApiException(ErrorType.USER_NOT_FOUND, 
-                "Producer not found with id: " + producerId));
-        
-        Page<Product> productPage = productRepository.findByProducer(producer, pageable);
+        if (!userRepository.existsById(producerId)) {
+            throw new ApiException(ErrorType.USER_NOT_FOUND, 
+                "Producer not found with id: " + producerId);
+        }
         
-        return productPage.map(this::convertToMyProductDTO);
+        return toMyProductResponsePage(productRepository.findSummariesByProducer(producerId, pageable));
     }
 
     @Transactional(readOnly = true)
     public Page<MyProductResponse> getProducerPendingAndDeclinedProducts(Long producerId, Pageable pageable) {
-        Page<Product> productPage = productRepository.findByProducerUserIdAndStatusIn(
+        return toMyProductResponsePage(productRepository.findSummariesByProducerAndStatusIn(
             producerId, 
             List.of(ProductStatus.PENDING, ProductStatus.DECLINED),
             pageable
-        );
-        
-        return productPage.map(this::convertToMyProductDTO);
-    }
-
-
-    @Scheduled(fixedRate = 3600000) // Run every hour
-    @Transactional
-    public void monitorStockLevels() {
-        List<Product> products = productRepository.findAll();
-        
-        for (Product product : products) {
-            int availableStock = getAvailableStock(product);
-            int reservedStock = getReservedStock(product);
-            int totalStock = availableStock + reservedStock;
-            
-            // Critical stock notification
-            if (availableStock <= CRITICAL_STOCK_THRESHOLD) {
-                NotificationResponse notification = NotificationResponse.builder()
-                    .type("CRITICAL_STOCK_ALERT")
-                    .message("CRITICAL ALERT: " + product.getName() + " stock is critically low!")
-                    .data(Map.of(
-                        "productId", product.getProductId(),
-                        "productName", product.getName(),
-                        "availableStock", availableStock,
-                        "reservedStock", reservedStock,
-                        "totalStock", totalStock
-                    ))
-                    .timestamp(LocalDateTime.now())
-                    .read(false)
-                    .build();
-                
-                producerNotificationService.sendToUser(
-                    product.getProducer().getUserId(),
-                    notification
-                );
-            }
-            // Low stock notification
-            else if (availableStock <= LOW_STOCK_THRESHOLD) {
-                NotificationResponse notification = NotificationResponse.builder()
-                    .type("LOW_STOCK_ALERT")
-                    .message("Alert: " + product.getName() + " stock is running low")
-                    .data(Map.of(
-                        "productId", product.getProductId(),
-                        "productName", product.getName(),
-                        "availableStock", availableStock,
-                        "reservedStock", reservedStock,
-                        "totalStock", totalStock
-                    ))
-                    .timestamp(LocalDateTime.now())
-                    .read(false)
-                    .build();
-                
-                producerNotificationService.sendToUser(
-                    product.getProducer().getUserId(),
-                    notification
-                );
-            }
-            
-            // Stock movement notification (when reserved stock changes)
-            if (reservedStock > 0) {
-                NotificationResponse notification = NotificationResponse.builder()
-                    .type("STOCK_MOVEMENT")
-                    .message("Stock movement detected for " + product.getName())
-                    .data(Map.of(
-                        "productId", product.getProductId(),
-                        "productName", product.getName(),
-                        "availableStock", availableStock,
-                        "reservedStock", reservedStock,
-                        "totalStock", totalStock
-                    ))
-                    .timestamp(LocalDateTime.now())
-                    .read(false)
-                    .build();
-                
-                producerNotificationService.sendToUser(
-                    product.getProducer().getUserId(),
-                    notification
-                );
-            }
-        }
+        ));
     }
 
-    private int getReservedStock(Product product) {
-        LocalDateTime now = LocalDateTime.now();
-        return stockReservationRepository
-            .findByProductAndExpiresAtGreaterThan(product, now)
-            .stream()
-            .mapToInt(StockReservation::getQuantity)
-            .sum();
-    }
 
     @Transactional
     public void confirmStockReduction(Order order) {
         for (OrderItem item : order.getItems()) {
             Product product = item.getProduct();
-            int newQuantity = product.getQuantity() - item.getQuantity();
+            int previousQuantity = product.getQuantity();
+            int newQuantity = previousQuantity - item.getQuantity();
             product.setQuantity(newQuantity);
             
             NotificationResponse notification = NotificationResponse.builder()
@@ -551,7 +550,7 @@ public class ProductService {
                 .data(Map.of(
                     "productId", product.getProductId(),
                     "productName", product.getName(),
-                    "previousQuantity", product.getQuantity(),
+                    "previousQuantity", previousQuantity,
                     "newQuantity", newQuantity,
                     "reduction", item.getQuantity(),
                     "orderId", order.getOrderId()
@@ -560,14 +559,17 @@ public class ProductService {
                 .read(false)
                 .build();
             
-            producerNotificationService.sendToUser(
+            producerNotificationCoalescer.publish(
                 product.getProducer().getUserId(),
                 notification
             );
             
             productRepository.save(product);
         }
+        // No catalog generation bump: stock is not part of what the listing tags track,
+        // and every checkout would queue on that one row
         stockReservationRepository.deleteByOrder(order);
+        stockLevelMonitor.stockChanged(productIdsOf(order));
     }
 
     @Transactional
@@ -587,11 +589,20 @@ public class ProductService {
             reservation.setQuantity(item.getQuantity());
             stockReservationRepository.save(reservation);
         }
+        stockLevelMonitor.stockChanged(productIdsOf(order));
     }
 
     @Transactional
     public void releaseStock(Order order) {
         stockReservationRepository.deleteByOrder(order);
+        stockLevelMonitor.stockChanged(productIdsOf(order));
+    }
+
+    private static List<Long> productIdsOf(Order order) {
+        return order.getItems().stream()
+            .map(item -> item.getProduct().getProductId())
+            .distinct()
+            .toList();
     }
 
     public int getAvailableStock(Product product) {
@@ -0,0 +1,196 @@
+package com.localmarket.main.service.product;
+
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.entity.product.StockAlertLevel;
+import com.localmarket.main.entity.product.StockAlertState;
+import com.localmarket.main.entity.product.StockMonitorWatermark;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.repository.product.StockAlertStateRepository;
+import com.localmarket.main.repository.product.StockMonitorWatermarkRepository;
+import com.localmarket.main.repository.product.StockReservationRepository;
+import com.localmarket.main.service.notification.producer.ProducerNotificationCoalescer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.localmarket.main.util.TransactionUtil.afterCommit;
+
+// Stock alerts for the products whose quantity or reservations changed, instead of a
+// scan of the whole catalog. Changed products are collected as they commit, plus those
+// whose reservations expired, and evaluated in bounded batches. The last level seen per
+// product (StockAlertState) makes an alert fire once per threshold crossing; going back
+// up re-arms it. Both that state and how far expiries were checked are kept in the
+// database, so a restart neither repeats alerts nor skips the reservations that expired
+// while it was down.
+@Service
+@Slf4j
+public class StockLevelMonitor {
+    private static final String EXPIRIES = "reservation-expiries";
+
+    private final ProductRepository productRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final StockAlertStateRepository stockAlertStateRepository;
+    private final StockMonitorWatermarkRepository watermarkRepository;
+    private final ProducerNotificationCoalescer producerNotificationCoalescer;
+    // Not read-only: alerts are written to the coalescer's pending rows in it
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stock.low-threshold:10}")
+    private int lowStockThreshold = 10;
+    @Value("${stock.critical-threshold:5}")
+    private int criticalStockThreshold = 5;
+    @Value("${stock.monitor.batch-size:200}")
+    private int batchSize = 200;
+    // Batches per run; what is left waits for the next run
+    @Value("${stock.monitor.max-batches:10}")
+    private int maxBatches = 10;
+
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    public StockLevelMonitor(ProductRepository productRepository,
+                             StockReservationRepository stockReservationRepository,
+                             StockAlertStateRepository stockAlertStateRepository,
+                             StockMonitorWatermarkRepository watermarkRepository,
+                             ProducerNotificationCoalescer producerNotificationCoalescer,
+                             PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.stockAlertStateRepository = stockAlertStateRepository;
+        this.watermarkRepository = watermarkRepository;
+        this.producerNotificationCoalescer = producerNotificationCoalescer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void stockChanged(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        afterCommit(() -> changed.addAll(ids));
+    }
+
+    @Scheduled(fixedDelayString = "${stock.monitor.interval-ms:10000}")
+    public synchronized void evaluateChanges() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> collectExpiries());
+        } catch (RuntimeException e) {
+            log.error("Failed to check expired stock reservations: {}", e.getMessage());
+        }
+
+        for (int i = 0; i < maxBatches && !changed.isEmpty(); i++) {
+            List<Long> batch = takeBatch();
+            try {
+                transactionTemplate.executeWithoutResult(status -> evaluate(batch));
+            } catch (RuntimeException e) {
+                // E.g. another instance recorded a state for the same product first
+                log.error("Failed to evaluate stock levels of {} products: {}", batch.size(), e.getMessage());
+                changed.addAll(batch);
+            }
+        }
+    }
+
+    // Expiring reservations free stock without any write to notice. Picks up where the
+    // last scan stopped, on whichever instance; the very first scan starts from now.
+    private void collectExpiries() {
+        LocalDateTime now = LocalDateTime.now();
+        StockMonitorWatermark watermark = watermarkRepository.findForUpdate(EXPIRIES)
+            .orElseGet(() -> new StockMonitorWatermark(EXPIRIES, now));
+        changed.addAll(stockReservationRepository.findProductIdsExpiringBetween(watermark.getCheckedUntil(), now));
+        watermark.setCheckedUntil(now);
+        watermarkRepository.save(watermark);
+    }
+
+    private List<Long> takeBatch() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        Iterator<Long> ids = changed.iterator();
+        while (ids.hasNext() && batch.size() < batchSize) {
+            batch.add(ids.next());
+            ids.remove();
+        }
+        return batch;
+    }
+
+    private void evaluate(List<Long> productIds) {
+        Map<Long, Long> reservedByProduct = new HashMap<>();
+        for (Object[] row : stockReservationRepository.sumActiveQuantities(productIds, LocalDateTime.now())) {
+            reservedByProduct.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+
+        Map<Long, StockAlertState> states = new HashMap<>();
+        stockAlertStateRepository.findAllById(productIds).forEach(state -> states.put(state.getProductId(), state));
+        List<StockAlertState> added = new ArrayList<>();
+        List<StockAlertState> removed = new ArrayList<>();
+
+        Set<Long> deleted = new HashSet<>(productIds);
+        for (Object[] row : productRepository.findStockLevels(productIds)) {
+            Long productId = (Long) row[0];
+            deleted.remove(productId);
+            String name = (String) row[1];
+            long quantity = row[2] != null ? ((Number) row[2]).longValue() : 0;
+            Long producerId = (Long) row[3];
+            long reserved = reservedByProduct.getOrDefault(productId, 0L);
+            long available = quantity - reserved;
+
+            StockAlertLevel level = available <= criticalStockThreshold ? StockAlertLevel.CRITICAL
+                : available <= lowStockThreshold ? StockAlertLevel.LOW
+                : StockAlertLevel.OK;
+            StockAlertState state = states.get(productId);
+            StockAlertLevel previousLevel = state != null ? state.getLevel() : StockAlertLevel.OK;
+            long previousReserved = state != null ? state.getReserved() : 0;
+            if (level == StockAlertLevel.OK && reserved == 0) {
+                if (state != null) {
+                    removed.add(state);
+                }
+            } else if (state == null) {
+                added.add(new StockAlertState(productId, level, reserved));
+            } else {
+                state.setLevel(level);
+                state.setReserved(reserved);
+            }
+
+            Map<String, Object> data = Map.of(
+                "productId", productId,
+                "productName", name,
+                "availableStock", available,
+                "reservedStock", reserved,
+                "totalStock", quantity);
+            if (level.compareTo(previousLevel) > 0) {
+                publish(producerId, level == StockAlertLevel.CRITICAL ? "CRITICAL_STOCK_ALERT" : "LOW_STOCK_ALERT",
+                    level == StockAlertLevel.CRITICAL
+                        ? "CRITICAL ALERT: " + name + " stock is critically low!"
+                        : "Alert: " + name + " stock is running low",
+                    data);
+            }
+            if (reserved > 0 && reserved != previousReserved) {
+                publish(producerId, "STOCK_MOVEMENT", "Stock movement detected for " + name, data);
+            }
+        }
+        deleted.stream().map(states::get).filter(Objects::nonNull).forEach(removed::add);
+        stockAlertStateRepository.saveAll(added);
+        if (!removed.isEmpty()) {
+            stockAlertStateRepository.deleteAllInBatch(removed);
+        }
+    }
+
+    private void publish(Long producerId, String type, String message, Map<String, Object> data) {
+        producerNotificationCoalescer.publish(producerId, NotificationResponse.builder()
+            .type(type)
+            .message(message)
+            .data(data)
+            .timestamp(LocalDateTime.now())
+            .read(false)
+            .build());
+    }
+}
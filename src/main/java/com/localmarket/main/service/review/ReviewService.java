@@ -15,10 +15,9 @@ import com.localmarket.main.entity.user.User;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.List;
-import java.util.stream.Collectors;
 import com.localmarket.main.service.notification.review.ReviewNotificationService;
 import com.localmarket.main.service.notification.admin.AdminNotificationService;
+import com.localmarket.main.service.product.CatalogVersion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.PageImpl;
@@ -32,6 +31,7 @@ public class ReviewService {
     private final UserRepository userRepository;
     private final ReviewNotificationService reviewNotificationService;
     private final AdminNotificationService adminNotificationService;
+    private final CatalogVersion catalogVersion;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ReviewService.class);
     
     @Transactional(readOnly = true)
@@ -116,7 +116,7 @@ public class ReviewService {
     
     @Transactional
     public ReviewResponse updateReview(Long reviewId, ReviewRequest request, Long customerId) {
-        Review review = reviewRepository.findById(reviewId)
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
             .orElseThrow(() -> new ApiException(ErrorType.REVIEW_NOT_FOUND, 
                 "Review not found"));
                 
@@ -125,6 +125,11 @@ public class ReviewService {
                 "You can only edit your own reviews");
         }
         
+        // An edited review leaves the product's aggregates until it is approved again
+        if (review.getStatus() == ReviewStatus.APPROVED) {
+            applyRating(review, -1);
+        }
+
         review.setRating(request.getRating());
         review.setComment(request.getComment());
         review.setStatus(ReviewStatus.PENDING); // Reset to pending for admin approval
@@ -134,9 +139,12 @@ public class ReviewService {
 
     @Transactional
     public ReviewResponse approveReview(Long reviewId) {
-        Review review = reviewRepository.findById(reviewId)
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
             .orElseThrow(() -> new ApiException(ErrorType.REVIEW_NOT_FOUND, "Review not found"));
         
+        if (review.getStatus() != ReviewStatus.APPROVED) {
+            applyRating(review, 1);
+        }
         review.setStatus(ReviewStatus.APPROVED);
         review = reviewRepository.save(review);
         reviewNotificationService.notifyReviewStatusUpdate(review);
@@ -145,9 +153,12 @@ public class ReviewService {
 
     @Transactional
     public ReviewResponse declineReview(Long reviewId) {
-        Review review = reviewRepository.findById(reviewId)
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
             .orElseThrow(() -> new ApiException(ErrorType.REVIEW_NOT_FOUND, "Review not found"));
         
+        if (review.getStatus() == ReviewStatus.APPROVED) {
+            applyRating(review, -1);
+        }
         review.setStatus(ReviewStatus.DECLINED);
         review = reviewRepository.save(review);
         reviewNotificationService.notifyReviewStatusUpdate(review);
@@ -161,12 +172,17 @@ public class ReviewService {
     }
 
     @Transactional(readOnly = true)
-    public List<ReviewResponse> getProductReviews(Long productId) {
-        return reviewRepository.findByProductProductId(productId)
-            .stream()
-            .filter(review -> review.getStatus() == ReviewStatus.APPROVED)
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
+    public Page<ReviewResponse> getProductReviews(Long productId, Pageable pageable) {
+        return reviewRepository.findByProductProductIdAndStatus(productId, ReviewStatus.APPROVED, pageable)
+            .map(this::convertToDTO);
+    }
+
+    // Atomic in-database update, so concurrent moderation cannot lose increments
+    private void applyRating(Review review, int delta) {
+        if (review.getProduct() != null) {
+            productRepository.applyRating(review.getProduct().getProductId(), review.getRating(), delta);
+            catalogVersion.productsChanged();
+        }
     }
 
     @Transactional(readOnly = true)
@@ -30,6 +30,8 @@ import com.localmarket.main.entity.product.Product;
 import com.localmarket.main.repository.product.ProductRepository;
 import com.localmarket.main.entity.product.StockReservation;
 import com.localmarket.main.repository.product.StockReservationRepository;
+import com.localmarket.main.service.category.CategoryStats;
+import com.localmarket.main.service.product.CatalogVersion;
 
 import lombok.RequiredArgsConstructor;
 
@@ -46,6 +48,8 @@ public class UserService {
     private final ProducerApplicationRepository producerApplicationRepository;
     private final ProductRepository productRepository;
     private final StockReservationRepository stockReservationRepository;
+    private final CategoryStats categoryStats;
+    private final CatalogVersion catalogVersion;
 
     @Value("${app.admin.email}")
     private String defaultAdminEmail;
@@ -125,6 +129,7 @@ public class UserService {
             }
             
             // Remove categories
+            categoryStats.productDeleted(product.getStatus(), categoryStats.categoryIdsOf(product));
             product.setCategories(new HashSet<>());
             productRepository.save(product);
         }
@@ -133,6 +138,7 @@ public class UserService {
         if (!products.isEmpty()) {
             productRepository.deleteAll(products);
             productRepository.flush();
+            catalogVersion.productsChanged();
         }
 
         // Batch process orders
@@ -165,6 +171,11 @@ public class UserService {
             .orElseThrow(() -> new ApiException(ErrorType.USER_NOT_FOUND, 
                 "User with id " + id + " not found"));
         
+        // Producer names and emails are part of catalog payloads
+        if (user.getRole() == Role.PRODUCER || request.getRole() == Role.PRODUCER) {
+            catalogVersion.producersChanged();
+        }
+
         // Update basic information
         user.setUsername(request.getUsername());
         user.setFirstname(request.getFirstname());
@@ -0,0 +1,24 @@
+package com.localmarket.main.util;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+public final class JdbcUtil {
+
+    private JdbcUtil() {
+    }
+
+    // INSERT with one placeholder per column; identifiers are quoted like Hibernate
+    // quotes them, whatever the database
+    public static String insertSql(JdbcTemplate jdbcTemplate, String table, String... columns) {
+        String quote = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+            connection.getMetaData().getIdentifierQuoteString().trim());
+        return "INSERT INTO " + quote + table + quote + " ("
+            + Arrays.stream(columns).map(column -> quote + column + quote).collect(Collectors.joining(", "))
+            + ") VALUES (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+    }
+}
@@ -0,0 +1,185 @@
+package com.localmarket.main.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.RawNotificationResponse;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.service.notification.NotificationStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+// Sends what a client missed while it was away. The client connects with the last
+// personal and broadcast ids it saw (?lastSeenId=..&lastSeenBroadcastId=..) and gets
+// only newer rows, read in keyset pages and queued one page at a time once the session's
+// send queue has room, on a pool of its own rather than the connecting thread. Without
+// a cursor it gets the unread notifications, as before. A REPLAY_COMPLETE message with
+// the ids to resume from ends the replay.
+@Component
+@Slf4j
+public class NotificationReplayer {
+    public record Cursor(long lastSeenId, long lastSeenBroadcastId, boolean unreadOnly) {
+        static final Cursor UNREAD = new Cursor(0, 0, true);
+
+        // Broadcast ids are negative on the wire; either sign is accepted
+        public static Cursor from(WebSocketSession session) {
+            if (session.getUri() == null) {
+                return UNREAD;
+            }
+            Map<String, List<String>> params = UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams();
+            Long lastSeenId = parse(params, "lastSeenId");
+            Long lastSeenBroadcastId = parse(params, "lastSeenBroadcastId");
+            if (lastSeenId == null && lastSeenBroadcastId == null) {
+                return UNREAD;
+            }
+            return new Cursor(lastSeenId != null ? Math.max(0, lastSeenId) : 0,
+                lastSeenBroadcastId != null ? Math.abs(lastSeenBroadcastId) : 0, false);
+        }
+
+        private static Long parse(Map<String, List<String>> params, String name) {
+            List<String> values = params.get(name);
+            if (values == null || values.isEmpty() || values.get(0) == null) {
+                return null;
+            }
+            try {
+                return Long.parseLong(values.get(0));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final CloseStatus REPLAY_UNAVAILABLE = new CloseStatus(4003, "Replay unavailable, reconnect");
+
+    private final NotificationStorageService notificationStorageService;
+    private final WebSocketDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+    private final Executor replayPool;
+    private final int pageSize;
+
+    public NotificationReplayer(NotificationStorageService notificationStorageService,
+                                WebSocketDispatcher dispatcher,
+                                ObjectMapper objectMapper,
+                                @Qualifier("webSocketReplayExecutor") Executor replayPool,
+                                @Value("${websocket.replay.page-size:100}") int pageSize) {
+        this.notificationStorageService = notificationStorageService;
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+        this.replayPool = replayPool;
+        // A page has to fit in the send queue next to live messages
+        this.pageSize = Math.max(1, Math.min(pageSize, dispatcher.queueCapacity() / 2));
+    }
+
+    public void replay(WebSocketSession session, String email, Role role, Cursor cursor) {
+        new Replay(session, email, role, cursor).submit(Replay::nextPage);
+    }
+
+    // One replay, run as a chain of steps on the replay pool: read a page, then queue it
+    // once the send queue has room for it. While a slow client drains its queue no
+    // thread waits; the dispatcher's drain task submits the next step. A step the pool
+    // rejects, or one that fails, closes the session so the client reconnects and
+    // replays from the ids it has.
+    private final class Replay {
+        private final WebSocketSession session;
+        private final String email;
+        private final Role role;
+        private final boolean unreadOnly;
+        // Handed from step to step through the pool
+        private long lastSeenId;
+        private long lastSeenBroadcastId;
+        private boolean broadcasts;
+
+        Replay(WebSocketSession session, String email, Role role, Cursor cursor) {
+            this.session = session;
+            this.email = email;
+            this.role = role;
+            this.unreadOnly = cursor.unreadOnly();
+            this.lastSeenId = cursor.lastSeenId();
+            this.lastSeenBroadcastId = cursor.lastSeenBroadcastId();
+        }
+
+        void submit(Consumer<Replay> step) {
+            try {
+                replayPool.execute(() -> {
+                    try {
+                        step.accept(this);
+                    } catch (Exception e) {
+                        log.error("Failed to replay notifications for {}: {}", email, e.getMessage());
+                        dispatcher.disconnect(session, REPLAY_UNAVAILABLE);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                log.warn("Replay pool is full, asking {} to reconnect", email);
+                dispatcher.disconnect(session, REPLAY_UNAVAILABLE);
+            }
+        }
+
+        void nextPage() {
+            List<RawNotificationResponse> page = broadcasts
+                ? notificationStorageService.getBroadcastReplayPage(email, role, lastSeenBroadcastId, unreadOnly, pageSize)
+                : notificationStorageService.getPersonalReplayPage(email, lastSeenId, unreadOnly, pageSize);
+            if (page.isEmpty()) {
+                endOfStream();
+                return;
+            }
+            // False when the session went away, which ends the replay
+            dispatcher.whenRoom(session, page.size(), () -> submit(replay -> replay.queue(page)));
+        }
+
+        private void queue(List<RawNotificationResponse> page) {
+            for (RawNotificationResponse notification : page) {
+                if (!dispatcher.send(session, new TextMessage(write(notification)))) {
+                    return;
+                }
+            }
+            long last = Math.abs(page.get(page.size() - 1).getId());
+            if (broadcasts) {
+                lastSeenBroadcastId = last;
+            } else {
+                lastSeenId = last;
+            }
+            if (page.size() < pageSize) {
+                endOfStream();
+            } else {
+                nextPage();
+            }
+        }
+
+        private void endOfStream() {
+            if (!broadcasts) {
+                broadcasts = true;
+                nextPage();
+                return;
+            }
+            dispatcher.whenRoom(session, 1, () -> submit(Replay::complete));
+        }
+
+        private void complete() {
+            Map<String, Object> complete = new LinkedHashMap<>();
+            complete.put("type", "REPLAY_COMPLETE");
+            complete.put("lastSeenId", lastSeenId);
+            complete.put("lastSeenBroadcastId", NotificationStorageService.broadcastNotificationId(lastSeenBroadcastId));
+            dispatcher.send(session, new TextMessage(write(complete)));
+        }
+
+        private String write(Object value) {
+            try {
+                return objectMapper.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -10,21 +10,15 @@ import com.localmarket.main.security.CustomUserDetails;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.io.IOException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import jakarta.annotation.PostConstruct;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import java.util.List;
-import java.time.LocalDateTime;
-import com.localmarket.main.entity.notification.StoredNotification;
-import com.localmarket.main.repository.notification.StoredNotificationRepository;
-import com.localmarket.main.dto.notification.NotificationResponse;
-import com.localmarket.main.service.notification.NotificationStorageService;
+import com.localmarket.main.entity.user.Role;
 
 @Component
 @RequiredArgsConstructor
@@ -32,12 +26,11 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
     private static final Logger log = LoggerFactory.getLogger(NotificationWebSocketHandler.class);
     private final ObjectMapper objectMapper;
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private final StoredNotificationRepository storedNotificationRepository;
-    private final NotificationStorageService notificationStorageService;
+    private final NotificationReplayer notificationReplayer;
+    private final WebSocketSessionRegistry sessionRegistry;
+    private final WebSocketDispatcher dispatcher;
 
-    private static final ConcurrentHashMap<String, WebSocketSession> userSessions = new ConcurrentHashMap<>();
-    private static final ConcurrentHashMap<String, Set<String>> roleSessions = new ConcurrentHashMap<>();
-    private static final String HEARTBEAT_MESSAGE = "{\"type\":\"heartbeat\"}";
+    private static final TextMessage HEARTBEAT_MESSAGE = new TextMessage("{\"type\":\"heartbeat\"}");
 
     @PostConstruct
     public void startTokenValidator() {
@@ -46,24 +39,19 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void sendHeartbeat() {
-        userSessions.values().forEach(session -> {
+        sessionRegistry.allSessions().forEach(sessions -> sessions.forEach(session -> {
             if (session.isOpen()) {
-                try {
-                    session.sendMessage(new TextMessage(HEARTBEAT_MESSAGE));
-                } catch (IOException e) {
-                    log.warn("Failed to send heartbeat to session: {}", e.getMessage());
-                    closeSession(session, "Failed to send heartbeat");
-                }
+                dispatcher.heartbeat(session, HEARTBEAT_MESSAGE);
             }
-        });
+        }));
     }
 
     private void validateActiveSessions() {
-        userSessions.values().forEach(session -> {
+        sessionRegistry.allSessions().forEach(sessions -> sessions.forEach(session -> {
             if (session.getPrincipal() == null || !session.isOpen()) {
                 closeSession(session, "Invalid session");
             }
-        });
+        }));
     }
 
     @Override
@@ -75,12 +63,14 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
                 return;
             }
 
-            userSessions.put(userDetails.getEmail(), session);
-            roleSessions.computeIfAbsent(userDetails.getRole().name(), k -> new ConcurrentSkipListSet<>())
-                    .add(userDetails.getEmail());
+            // Every device of a user keeps its own session and send queue
+            dispatcher.open(session);
+            sessionRegistry.register(session, new WebSocketSessionRegistry.SessionOwner(
+                userDetails.getId(), userDetails.getEmail(), userDetails.getRole()));
 
-            // Send stored notifications
-            sendStoredNotifications(userDetails.getEmail(), session);
+            // Stored notifications the client has not seen yet, streamed in the background
+            notificationReplayer.replay(session, userDetails.getEmail(), userDetails.getRole(),
+                NotificationReplayer.Cursor.from(session));
 
             log.info("WebSocket connection established for user: {} with role: {}", 
                 userDetails.getEmail(), userDetails.getRole());
@@ -90,53 +80,19 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    private void sendStoredNotifications(String email, WebSocketSession session) {
-        List<StoredNotification> notifications = storedNotificationRepository
-            .findByRecipientEmailAndReadFalseAndExpiresAtGreaterThan(email, LocalDateTime.now());
-            
-        for (StoredNotification notification : notifications) {
-            try {
-                NotificationResponse response = NotificationResponse.builder()
-                    .id(notification.getId())
-                    .type(notification.getType())
-                    .message(notification.getMessage())
-                    .data(objectMapper.readValue(notification.getData(), Object.class))
-                    .timestamp(notification.getTimestamp())
-                    .read(notification.isRead())
-                    .build();
-                    
-                session.sendMessage(new TextMessage(objectMapper.writeValueAsString(response)));
-            } catch (Exception e) {
-                log.error("Failed to send stored notification: {}", e.getMessage());
-            }
-        }
-    }
-
+    // Through the dispatcher, so the close is serialized with the session's writes
     private void closeSession(WebSocketSession session, String reason) {
-        try {
-            session.close(new CloseStatus(4001, reason));
-        } catch (IOException e) {
-            log.error("Error closing WebSocket session: {}", e.getMessage());
-        }
+        dispatcher.disconnect(session, new CloseStatus(4001, reason));
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        try {
-            CustomUserDetails userDetails = extractUserDetails(session);
-            if (userDetails != null) {
-                String email = userDetails.getEmail();
-                String role = userDetails.getRole().name();
-
-                userSessions.remove(email);
-                if (roleSessions.containsKey(role)) {
-                    roleSessions.get(role).remove(email);
-                }
-                
-                log.info("WebSocket connection closed for user: {} with role: {} - Status: {}", 
-                    email, role, status.getReason() != null ? status.getReason() : "Connection closed normally");
-            }
-        } catch (Exception e) {
+        WebSocketSessionRegistry.SessionOwner owner = sessionRegistry.unregister(session);
+        dispatcher.close(session);
+        if (owner != null) {
+            log.info("WebSocket connection closed for user: {} with role: {} - Status: {}", 
+                owner.email(), owner.role(), status.getReason() != null ? status.getReason() : "Connection closed normally");
+        } else {
             log.info("WebSocket connection closed - Status: {}", 
                 status.getReason() != null ? status.getReason() : "Connection closed normally");
         }
@@ -150,52 +106,61 @@ public class NotificationWebSocketHandler extends TextWebSocketHandler {
         return null;
     }
 
+    // Sends to every open session of the user; true when at least one received it
     public boolean sendNotification(String email, Object notification) {
-        WebSocketSession session = userSessions.get(email);
-        if (session != null && session.isOpen()) {
-            try {
-                String message = objectMapper.writeValueAsString(notification);
-                session.sendMessage(new TextMessage(message));
-                return true;
-            } catch (IOException e) {
-                log.error("Error sending notification to user: {}", email, e);
-            }
+        Set<WebSocketSession> sessions = sessionRegistry.sessionsOf(email);
+        if (sessions.isEmpty()) {
+            return false;
+        }
+        try {
+            return sendMessage(email, new TextMessage(objectMapper.writeValueAsString(notification)));
+        } catch (IOException e) {
+            log.error("Error serializing notification for user: {}", email, e);
+            return false;
+        }
+    }
+
+    // Sends a message serialized by the caller, e.g. once for many recipients
+    public boolean sendMessage(String email, TextMessage message) {
+        boolean delivered = false;
+        for (WebSocketSession session : sessionRegistry.sessionsOf(email)) {
+            delivered |= send(session, message);
         }
-        return false;
+        return delivered;
     }
 
     public void sendToRole(String role, Object notification) {
-        Set<String> users = roleSessions.get(role.toUpperCase());
-        if (users != null) {
-            String message;
-            try {
-                message = objectMapper.writeValueAsString(notification);
-                for (String email : users) {
-                    WebSocketSession session = userSessions.get(email);
-                    if (session != null && session.isOpen()) {
-                        session.sendMessage(new TextMessage(message));
-                    }
-                }
-            } catch (IOException e) {
-                log.error("Error sending notification to role: {}", role, e);
+        Set<WebSocketSession> sessions = sessionRegistry.sessionsWithRole(Role.valueOf(role.toUpperCase()));
+        if (sessions.isEmpty()) {
+            return;
+        }
+        try {
+            TextMessage message = new TextMessage(objectMapper.writeValueAsString(notification));
+            for (WebSocketSession session : sessions) {
+                send(session, message);
             }
+        } catch (IOException e) {
+            log.error("Error sending notification to role: {}", role, e);
         }
     }
 
+    // Only queues the message; the dispatcher's sender pool writes it
+    private boolean send(WebSocketSession session, TextMessage message) {
+        return dispatcher.send(session, message);
+    }
+
     public void closeUserSessions(String userEmail) {
-        WebSocketSession session = userSessions.get(userEmail);
-        if (session != null && session.isOpen()) {
+        // A copy: unregistering removes the sessions from the registry's live set
+        List<WebSocketSession> sessions = List.copyOf(sessionRegistry.sessionsOf(userEmail));
+        for (WebSocketSession session : sessions) {
             try {
-                session.close(new CloseStatus(4000, "User logged out"));
-                userSessions.remove(userEmail);
-                
-                // Remove from role sessions
-                roleSessions.values().forEach(users -> users.remove(userEmail));
-                
-                log.info("Closed WebSocket session for user {} due to logout", userEmail);
-            } catch (IOException e) {
-                log.error("Error closing WebSocket session for user {}: {}", userEmail, e.getMessage());
+                dispatcher.disconnect(session, new CloseStatus(4000, "User logged out"));
+            } finally {
+                sessionRegistry.unregister(session);
             }
         }
+        if (!sessions.isEmpty()) {
+            log.info("Closed {} WebSocket sessions for user {} due to logout", sessions.size(), userEmail);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+package com.localmarket.main.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Outbound side of the notification sockets. Every session gets a bounded queue; send()
+// only enqueues, and a sender pool drains each queue with one task at a time, so
+// sessions are never written concurrently and a slow client never blocks the thread
+// that produced the notification. A full queue either drops its oldest message or
+// disconnects the client, which then replays what it missed on reconnect.
+@Component
+@Slf4j
+public class WebSocketDispatcher {
+    // Messages one drain task sends before yielding its thread to other sessions
+    private static final int DRAIN_BATCH = 64;
+    private static final CloseStatus OVERFLOW = new CloseStatus(4002, "Send queue overflow");
+
+    public enum OverflowPolicy { DROP_OLDEST, DISCONNECT }
+
+    public record DeliveryStats(int sessions, long queuedMessages, long maxQueueDepth, long sent, long failed,
+                                long dropped, long disconnected, double averageSendMillis, double maxSendMillis) {
+    }
+
+    private final Executor senderPool;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+    // Enqueue to written, so queueing delay counts
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    public WebSocketDispatcher(@Qualifier("webSocketSenderExecutor") Executor senderPool,
+                               @Value("${websocket.send.queue-capacity:256}") int queueCapacity,
+                               @Value("${websocket.send.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy) {
+        this.senderPool = senderPool;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void open(WebSocketSession session) {
+        outboxes.put(session.getId(), new Outbox(session));
+    }
+
+    public void close(WebSocketSession session) {
+        Outbox outbox = outboxes.remove(session.getId());
+        if (outbox != null) {
+            outbox.discard();
+        }
+    }
+
+    // Queues the message; false when the session is closed or unknown
+    public boolean send(WebSocketSession session, TextMessage message) {
+        Outbox outbox = outboxes.get(session.getId());
+        return outbox != null && session.isOpen() && outbox.offer(message);
+    }
+
+    // Heartbeats bypass the bounded queue so they never evict a notification; heartbeats
+    // not written yet merge into one, sent ahead of the queued messages
+    public boolean heartbeat(WebSocketSession session, TextMessage message) {
+        Outbox outbox = outboxes.get(session.getId());
+        return outbox != null && session.isOpen() && outbox.heartbeat(message);
+    }
+
+    // Closes the session from its drain task, so a close never runs concurrently with a write;
+    // queued messages are discarded. Sessions never opened here are closed right away.
+    public void disconnect(WebSocketSession session, CloseStatus status) {
+        Outbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            outbox.requestClose(status);
+            return;
+        }
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            log.warn("Error closing WebSocket session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    // Messages waiting in the session's queue; -1 when the session is closed or unknown
+    public int pending(WebSocketSession session) {
+        Outbox outbox = outboxes.get(session.getId());
+        return outbox != null && session.isOpen() ? outbox.size() : -1;
+    }
+
+    // Runs the callback once the session's queue can take that many messages: right away
+    // when it already can, otherwise from the drain task that makes the room, which the
+    // callback must only hand work off from. One callback per session; false when the
+    // session is closed or unknown, and a session closed while waiting never calls back.
+    public boolean whenRoom(WebSocketSession session, int messages, Runnable callback) {
+        Outbox outbox = outboxes.get(session.getId());
+        return outbox != null && session.isOpen() && outbox.whenRoom(messages, callback);
+    }
+
+    public int queueCapacity() {
+        return queueCapacity;
+    }
+
+    public DeliveryStats stats() {
+        long count = sent.sum();
+        return new DeliveryStats(outboxes.size(), queued.get(), maxQueueDepth.get(), count, failed.sum(),
+            dropped.sum(), disconnected.sum(),
+            count > 0 ? sendNanos.sum() / 1e6 / count : 0, maxSendNanos.get() / 1e6);
+    }
+
+    private record Pending(TextMessage message, long enqueuedAt) {
+    }
+
+    private final class Outbox implements Runnable {
+        private final WebSocketSession session;
+        // Guarded by this
+        private final ArrayDeque<Pending> messages = new ArrayDeque<>();
+        private Pending heartbeat;
+        private Runnable roomWaiter;
+        private int roomNeeded;
+        private boolean scheduled;
+        // Set once; the drain task closes the session with it
+        private CloseStatus closing;
+
+        Outbox(WebSocketSession session) {
+            this.session = session;
+        }
+
+        boolean offer(TextMessage message) {
+            synchronized (this) {
+                if (closing != null) {
+                    return false;
+                }
+                if (messages.size() >= queueCapacity) {
+                    if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                        log.warn("Closing WebSocket session {}: send queue overflow", session.getId());
+                        disconnected.increment();
+                        requestClose(OVERFLOW);
+                        return false;
+                    }
+                    messages.pollFirst();
+                    queued.decrementAndGet();
+                    dropped.increment();
+                }
+                messages.addLast(new Pending(message, System.nanoTime()));
+                maxQueueDepth.accumulateAndGet(messages.size(), Math::max);
+                queued.incrementAndGet();
+                schedule();
+                return true;
+            }
+        }
+
+        synchronized boolean heartbeat(TextMessage message) {
+            if (closing != null) {
+                return false;
+            }
+            heartbeat = new Pending(message, System.nanoTime());
+            schedule();
+            return true;
+        }
+
+        boolean whenRoom(int needed, Runnable callback) {
+            synchronized (this) {
+                if (closing != null) {
+                    return false;
+                }
+                if (messages.size() + needed > queueCapacity) {
+                    roomWaiter = callback;
+                    roomNeeded = needed;
+                    return true;
+                }
+            }
+            callback.run();
+            return true;
+        }
+
+        synchronized void requestClose(CloseStatus status) {
+            if (closing != null) {
+                return;
+            }
+            closing = status;
+            heartbeat = null;
+            roomWaiter = null;
+            clear();
+            schedule();
+        }
+
+        synchronized int size() {
+            return messages.size();
+        }
+
+        synchronized void discard() {
+            roomWaiter = null;
+            clear();
+        }
+
+        // Caller holds the lock
+        private void clear() {
+            queued.addAndGet(-messages.size());
+            messages.clear();
+        }
+
+        // Caller holds the lock
+        private void schedule() {
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+            try {
+                senderPool.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled = false;
+                log.warn("WebSocket sender pool rejected session {}", session.getId());
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Pending next;
+                CloseStatus closeWith;
+                Runnable roomMade = null;
+                synchronized (this) {
+                    closeWith = closing;
+                    next = null;
+                    if (closeWith == null && heartbeat != null) {
+                        next = heartbeat;
+                        heartbeat = null;
+                    } else if (closeWith == null) {
+                        next = messages.pollFirst();
+                        if (next == null) {
+                            scheduled = false;
+                            return;
+                        }
+                        queued.decrementAndGet();
+                        if (roomWaiter != null && messages.size() + roomNeeded <= queueCapacity) {
+                            roomMade = roomWaiter;
+                            roomWaiter = null;
+                        }
+                    }
+                }
+                if (roomMade != null) {
+                    roomMade.run();
+                }
+                if (closeWith != null) {
+                    // Stays scheduled, so nothing is written after the close
+                    closeSession(closeWith);
+                    return;
+                }
+                write(next);
+            }
+            synchronized (this) {
+                scheduled = false;
+                if (!messages.isEmpty() || heartbeat != null || closing != null) {
+                    schedule();
+                }
+            }
+        }
+
+        private void write(Pending pending) {
+            if (!session.isOpen()) {
+                failed.increment();
+                return;
+            }
+            try {
+                session.sendMessage(pending.message());
+                long elapsed = System.nanoTime() - pending.enqueuedAt();
+                sent.increment();
+                sendNanos.add(elapsed);
+                maxSendNanos.accumulateAndGet(elapsed, Math::max);
+            } catch (IOException | RuntimeException e) {
+                failed.increment();
+                log.warn("Failed to send WebSocket message to session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+
+        private void closeSession(CloseStatus status) {
+            try {
+                session.close(status);
+            } catch (IOException e) {
+                log.warn("Error closing WebSocket session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+}
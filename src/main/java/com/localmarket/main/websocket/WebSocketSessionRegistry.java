@@ -0,0 +1,85 @@
+package com.localmarket.main.websocket;
+
+import com.localmarket.main.entity.user.Role;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Open notification sessions, any number per user (phone, laptop, several tabs).
+// Sessions are indexed by user ID, by role and by session ID, with an email lookup for
+// the callers that address users by email. Every index is a concurrent map; a user's
+// set is created and dropped inside compute(), which only locks that user's bin.
+@Component
+public class WebSocketSessionRegistry {
+
+    public record SessionOwner(Long userId, String email, Role role) {
+    }
+
+    private final Map<Long, Set<WebSocketSession>> sessionsByUser = new ConcurrentHashMap<>();
+    private final Map<Role, Set<WebSocketSession>> sessionsByRole = new ConcurrentHashMap<>();
+    private final Map<String, SessionOwner> ownersBySessionId = new ConcurrentHashMap<>();
+    private final Map<String, Long> userIdsByEmail = new ConcurrentHashMap<>();
+
+    public void register(WebSocketSession session, SessionOwner owner) {
+        ownersBySessionId.put(session.getId(), owner);
+        sessionsByUser.compute(owner.userId(), (userId, sessions) -> {
+            Set<WebSocketSession> target = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            target.add(session);
+            // Under the same bin lock as the removal of the user's last session
+            userIdsByEmail.put(owner.email(), userId);
+            return target;
+        });
+        sessionsByRole.computeIfAbsent(owner.role(), role -> ConcurrentHashMap.newKeySet()).add(session);
+    }
+
+    // The owner of the removed session, or null when it was not registered
+    public SessionOwner unregister(WebSocketSession session) {
+        SessionOwner owner = ownersBySessionId.remove(session.getId());
+        if (owner == null) {
+            return null;
+        }
+        Set<WebSocketSession> roleSessions = sessionsByRole.get(owner.role());
+        if (roleSessions != null) {
+            roleSessions.remove(session);
+        }
+        sessionsByUser.computeIfPresent(owner.userId(), (userId, sessions) -> {
+            sessions.remove(session);
+            if (sessions.isEmpty()) {
+                userIdsByEmail.remove(owner.email(), userId);
+                return null;
+            }
+            return sessions;
+        });
+        return owner;
+    }
+
+    public SessionOwner ownerOf(WebSocketSession session) {
+        return ownersBySessionId.get(session.getId());
+    }
+
+    public Set<WebSocketSession> sessionsOf(Long userId) {
+        Set<WebSocketSession> sessions = userId != null ? sessionsByUser.get(userId) : null;
+        return sessions != null ? sessions : Set.of();
+    }
+
+    public Set<WebSocketSession> sessionsOf(String email) {
+        return sessionsOf(userIdsByEmail.get(email));
+    }
+
+    public Set<WebSocketSession> sessionsWithRole(Role role) {
+        Set<WebSocketSession> sessions = sessionsByRole.get(role);
+        return sessions != null ? sessions : Set.of();
+    }
+
+    public boolean isOnline(String email) {
+        return !sessionsOf(email).isEmpty();
+    }
+
+    public Collection<Set<WebSocketSession>> allSessions() {
+        return sessionsByUser.values();
+    }
+}
@@ -0,0 +1,29 @@
+package com.localmarket.main.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The analytics pool must not take the place of the executor Spring MVC runs async requests on
+class TaskExecutorConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+        .withUserConfiguration(AnalyticsConfig.class, TaskExecutorConfig.class)
+        .withPropertyValues("spring.task.execution.pool.core-size=3");
+
+    @Test
+    void applicationTaskExecutorSurvivesTheAnalyticsPool() {
+        contextRunner.run(context -> {
+            ThreadPoolTaskExecutor executor = context.getBean(
+                TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, ThreadPoolTaskExecutor.class);
+            assertEquals(3, executor.getCorePoolSize());
+            assertEquals("task-", executor.getThreadNamePrefix());
+            assertNotSame(executor, context.getBean("analyticsExecutor"));
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.analytics.DailyActiveUsersSketchRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Flushes from several nodes merge into the same day, and settled days of a
+// year-to-date dashboard stay cached between requests
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:active-users;MODE=MySQL")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ActiveUserTrackerTest {
+
+    @Autowired
+    private DailyActiveUsersSketchRepository sketchRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        sketchRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentFlushesOfOneDayKeepEveryUser() {
+        ActiveUserTracker first = tracker(sketchRepository);
+        first.record(1L, Role.CUSTOMER);
+        first.flush();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> flushes = List.of(2L, 3L, 4L).stream()
+            .map(userId -> {
+                ActiveUserTracker node = tracker(sketchRepository);
+                node.record(userId, Role.CUSTOMER);
+                return CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    node.flush();
+                });
+            })
+            .toList();
+        start.countDown();
+        CompletableFuture.allOf(flushes.toArray(new CompletableFuture[0])).join();
+
+        LocalDate today = LocalDate.now();
+        assertEquals(1, sketchRepository.count());
+        assertEquals(4, tracker(sketchRepository).countDistinct(today, today, Role.CUSTOMER));
+    }
+
+    @Test
+    void yearToDateDashboardIsServedFromTheCache() {
+        DailyActiveUsersSketchRepository repository = mock(DailyActiveUsersSketchRepository.class);
+        when(repository.findByActivityDayBetween(any(), any())).thenReturn(List.of());
+        ActiveUserTracker tracker = tracker(repository);
+        LocalDate to = LocalDate.now().minusDays(2);
+        LocalDate from = to.minusDays(364);
+        LocalDate previousFrom = from.minusDays(365);
+
+        for (int i = 0; i < 2; i++) {
+            tracker.countDistinct(from, to, null);
+            tracker.countDistinct(previousFrom, from.minusDays(1), null);
+            tracker.countDistinct(from, to, Role.CUSTOMER);
+        }
+
+        verify(repository, times(2)).findByActivityDayBetween(any(), any());
+    }
+
+    private ActiveUserTracker tracker(DailyActiveUsersSketchRepository repository) {
+        return new ActiveUserTracker(repository, new TransactionTemplate(transactionManager), 750);
+    }
+}
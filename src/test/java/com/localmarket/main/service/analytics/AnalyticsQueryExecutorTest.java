@@ -0,0 +1,101 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.exception.ApiException;
+import com.localmarket.main.exception.ErrorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Dashboard queries run side by side in read-only transactions and stop at the deadline
+class AnalyticsQueryExecutorTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private ExecutorService pool;
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void runsTheQueriesOfABatchInParallel() {
+        AnalyticsQueryExecutor queryExecutor = executor(2, 15000);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        CountDownLatch bothRunning = new CountDownLatch(2);
+
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.batch("test");
+        CompletableFuture<Integer> first = batch.submit("first", () -> meet(bothRunning, 1));
+        CompletableFuture<Integer> second = batch.submit("second", () -> meet(bothRunning, 2));
+        batch.await();
+
+        assertEquals(1, first.join());
+        assertEquals(2, second.join());
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager, times(2)).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+        assertEquals(15, definition.getValue().getTimeout());
+    }
+
+    @Test
+    void deadlineInterruptsRunningQueriesAndDropsQueuedOnes() throws Exception {
+        AnalyticsQueryExecutor queryExecutor = executor(1, 100);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+
+        AnalyticsQueryExecutor.Batch batch = queryExecutor.batch("test");
+        batch.submit("slow", () -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return 0;
+        });
+        batch.submit("queued", () -> queuedRan.getAndSet(true));
+
+        ApiException timeout = assertThrows(ApiException.class, batch::await);
+        assertEquals(ErrorType.SERVICE_UNAVAILABLE, timeout.getErrorType());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertFalse(queuedRan.get());
+        // The timeout is whole seconds, rounded up
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertEquals(1, definition.getValue().getTimeout());
+    }
+
+    private AnalyticsQueryExecutor executor(int threads, long timeoutMillis) {
+        pool = Executors.newFixedThreadPool(threads);
+        return new AnalyticsQueryExecutor(new TaskExecutorAdapter(pool), transactionManager, timeoutMillis);
+    }
+
+    // Only returns once every query of the batch is running at the same time
+    private static int meet(CountDownLatch latch, int result) {
+        latch.countDown();
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("queries did not run in parallel");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.admin.BusinessMetricsResponse;
+import com.localmarket.main.dto.analytics.producer.OrderStatisticsResponse;
+import com.localmarket.main.service.analytics.producer.ProducerAnalyticsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Snapshots are served as they are and recomputed in the background once the rollups
+// they read move; only the TTL bounds how long caches may keep them
+class AnalyticsSnapshotCacheTest {
+
+    private AnalyticsService analyticsService;
+    private ProducerAnalyticsService producerAnalyticsService;
+    private SalesRollupService salesRollupService;
+    private AnalyticsSnapshotCache cache;
+
+    @BeforeEach
+    void setUp() {
+        analyticsService = mock(AnalyticsService.class);
+        producerAnalyticsService = mock(ProducerAnalyticsService.class);
+        salesRollupService = mock(SalesRollupService.class);
+        cache = new AnalyticsSnapshotCache(analyticsService, producerAnalyticsService, salesRollupService);
+        ReflectionTestUtils.setField(cache, "minAgeSeconds", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    @Test
+    void servesTheStaleSnapshotWhileItIsRefreshed() {
+        BusinessMetricsResponse first = BusinessMetricsResponse.builder().activeUsers(1).build();
+        BusinessMetricsResponse second = BusinessMetricsResponse.builder().activeUsers(2).build();
+        when(analyticsService.getBusinessMetrics(any(), any())).thenReturn(first, second);
+        when(salesRollupService.version()).thenReturn(1L);
+
+        LocalDate today = LocalDate.now();
+        assertSame(first, cache.businessMetrics(StandardRange.YEAR_TO_DATE).value());
+        assertSame(first, cache.businessMetrics(StandardRange.YEAR_TO_DATE).value());
+        verify(analyticsService, times(1)).getBusinessMetrics(today.withDayOfYear(1), today);
+        assertTrue(cache.cacheControl(cache.businessMetrics(StandardRange.YEAR_TO_DATE))
+            .getHeaderValue().contains("stale-while-revalidate=60"));
+
+        when(salesRollupService.version()).thenReturn(2L);
+        AnalyticsSnapshotCache.Snapshot<BusinessMetricsResponse> outdated = cache.businessMetrics(StandardRange.YEAR_TO_DATE);
+        assertSame(first, outdated.value());
+        assertTrue(cache.cacheControl(outdated).getHeaderValue().matches("max-age=(59|60), .*"));
+        verify(analyticsService, timeout(TimeUnit.SECONDS.toMillis(5)).times(2)).getBusinessMetrics(any(), any());
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (cache.businessMetrics(StandardRange.YEAR_TO_DATE).value() != second
+            && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertSame(second, cache.businessMetrics(StandardRange.YEAR_TO_DATE).value());
+        verify(analyticsService, times(2)).getBusinessMetrics(any(), any());
+    }
+
+    @Test
+    void producerSnapshotsIgnoreOtherProducersSales() {
+        OrderStatisticsResponse statistics = new OrderStatisticsResponse();
+        when(producerAnalyticsService.getOrderStatistics(7L)).thenReturn(statistics);
+        when(salesRollupService.version(7L)).thenReturn(1L);
+        when(salesRollupService.version()).thenReturn(1L);
+
+        assertSame(statistics, cache.producerOrderStatistics(7L).value());
+        when(salesRollupService.version()).thenReturn(5L);
+        cache.producerOrderStatistics(7L);
+        cache.refresh();
+        when(salesRollupService.version(7L)).thenReturn(2L);
+        cache.producerOrderStatistics(7L);
+
+        verify(producerAnalyticsService, after(500).times(2)).getOrderStatistics(7L);
+    }
+
+    @Test
+    void rollupChangesWaitForTheMinimumAge() {
+        ReflectionTestUtils.setField(cache, "minAgeSeconds", 3600L);
+        when(analyticsService.getBusinessMetrics(any(), any()))
+            .thenReturn(BusinessMetricsResponse.builder().build());
+        when(salesRollupService.version()).thenReturn(1L);
+        cache.businessMetrics(StandardRange.LAST_30_DAYS);
+
+        when(salesRollupService.version()).thenReturn(2L);
+        cache.businessMetrics(StandardRange.LAST_30_DAYS);
+        cache.businessMetrics(StandardRange.LAST_30_DAYS);
+
+        verify(analyticsService, after(200).times(1)).getBusinessMetrics(any(), any());
+    }
+}
@@ -0,0 +1,190 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.admin.CategorySalesMetric;
+import com.localmarket.main.entity.category.Category;
+import com.localmarket.main.entity.order.Order;
+import com.localmarket.main.entity.order.OrderItem;
+import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.entity.payment.PaymentMethod;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.analytics.DailySalesRollupRepository;
+import com.localmarket.main.repository.analytics.SalesRollupDeltaRepository;
+import com.localmarket.main.repository.order.OrderItemRepository;
+import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// Category sales come from the rollups in one grouped query, by the category each item
+// was sold in, and add up to the dashboard's totals
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:category-sales;MODE=MySQL",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class CategorySalesAggregationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 2);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private DailySalesRollupRepository rollupRepository;
+    @Autowired
+    private SalesRollupDeltaRepository deltaRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SalesRollupService salesRollupService;
+    private AnalyticsService analyticsService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        salesRollupService = new SalesRollupService(rollupRepository, deltaRepository, orderRepository,
+            orderItemRepository, productRepository, new TransactionTemplate(transactionManager));
+        analyticsService = new AnalyticsService(userRepository, mock(TransactionExportReader.class),
+            salesRollupService, orderItemRepository, new ObjectMapper(),
+            mock(AnalyticsQueryExecutor.class), mock(ProducerLeaderboardService.class),
+            mock(RevenueSeriesService.class), mock(ActiveUserTracker.class));
+
+        User producer = persistUser();
+        Category vegetables = persistCategory("Vegetables");
+        Category organic = persistCategory("Organic");
+        Category dairy = persistCategory("Dairy");
+
+        Product carrots = persistProduct("Carrots", producer, Set.of(vegetables, organic), "2.50");
+        Product cheese = persistProduct("Cheese", producer, Set.of(dairy), "3.00");
+        Product mystery = persistProduct("Mystery", producer, Set.of(), "1.00");
+        // 3 carrots sold in Vegetables and 2 cheeses in Dairy
+        persistOrder(DAY.atTime(10, 0), null, item(carrots, 3, vegetables.getCategoryId()),
+            item(cheese, 2, dairy.getCategoryId()));
+        // An item from before category snapshots follows the product's current category; the
+        // 2.00 coupon goes with the order's first item
+        persistOrder(DAY.atTime(15, 0), "1.50", item(carrots, 1, null), item(mystery, 1, 0L));
+        // outside the period
+        persistOrder(DAY.plusDays(3).atTime(10, 0), null, item(cheese, 50, dairy.getCategoryId()));
+
+        // Carrots move to Organic after the first sale
+        carrots.getCategories().remove(vegetables);
+        entityManager.flush();
+        salesRollupService.rebuild(DAY, DAY.plusDays(3));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void attributesSalesToTheCategoryTheyWereMadeIn() {
+        Map<String, CategorySalesMetric> metrics = analyticsService.calculateSalesByCategory(
+                DAY.atStartOfDay(), DAY.atTime(23, 59, 59)).stream()
+            .collect(Collectors.toMap(CategorySalesMetric::getCategory, metric -> metric));
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(Set.of("Vegetables", "Organic", "Dairy", "Uncategorized"), metrics.keySet());
+        assertEquals(3, metrics.get("Vegetables").getSales());
+        assertEquals(0, new BigDecimal("7.50").compareTo(metrics.get("Vegetables").getRevenue()));
+        assertEquals(2, metrics.get("Dairy").getSales());
+        assertEquals(0, new BigDecimal("6.00").compareTo(metrics.get("Dairy").getRevenue()));
+        assertEquals(1, metrics.get("Organic").getSales());
+        assertEquals(0, new BigDecimal("0.50").compareTo(metrics.get("Organic").getRevenue()));
+        assertEquals(1, metrics.get("Uncategorized").getSales());
+        assertEquals(100.0, metrics.values().stream().mapToDouble(CategorySalesMetric::getPercentage).sum(), 0.0001);
+
+        BigDecimal categoryRevenue = metrics.values().stream()
+            .map(CategorySalesMetric::getRevenue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, salesRollupService.totals(DAY, DAY).getRevenue().compareTo(categoryRevenue));
+    }
+
+    private User persistUser() {
+        User user = new User();
+        user.setUsername("producer");
+        user.setEmail("producer@localmarket.test");
+        user.setFirstname("First");
+        user.setLastname("Last");
+        user.setPasswordHash("hash");
+        user.setRole(Role.PRODUCER);
+        user.setCreatedAt(LocalDateTime.now());
+        return entityManager.persist(user);
+    }
+
+    private Category persistCategory(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return entityManager.persist(category);
+    }
+
+    private Product persistProduct(String name, User producer, Set<Category> categories, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name + " description");
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(100);
+        product.setProducer(producer);
+        product.setCategories(new HashSet<>(categories));
+        product.setStatus(ProductStatus.APPROVED);
+        return entityManager.persist(product);
+    }
+
+    private OrderItem item(Product product, int quantity, Long categoryId) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setPrice(product.getPrice());
+        item.setCategoryId(categoryId);
+        return item;
+    }
+
+    private void persistOrder(LocalDateTime date, String totalPrice, OrderItem... items) {
+        Order order = new Order();
+        order.setGuestEmail("guest@localmarket.test");
+        order.setShippingAddress("1 Market Street");
+        order.setPhoneNumber("0600000000");
+        order.setPaymentMethod(PaymentMethod.CARD);
+        order.setOrderDate(date);
+        order.setStatus(OrderStatus.DELIVERED);
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            order.getItems().add(item);
+            total = total.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        order.setTotalPrice(totalPrice != null ? new BigDecimal(totalPrice) : total);
+        entityManager.persist(order);
+    }
+}
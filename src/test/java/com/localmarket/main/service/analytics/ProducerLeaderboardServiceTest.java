@@ -0,0 +1,230 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.admin.ProducerPerformance;
+import com.localmarket.main.entity.order.Order;
+import com.localmarket.main.entity.order.OrderItem;
+import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.entity.payment.PaymentMethod;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.analytics.DailySalesRollupRepository;
+import com.localmarket.main.repository.analytics.SalesRollupDeltaRepository;
+import com.localmarket.main.repository.order.OrderItemRepository;
+import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import jakarta.persistence.Tuple;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The leaderboard read from the rollups must rank producers exactly like the old
+// native query over the order history
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:producer-leaderboard;MODE=MySQL")
+class ProducerLeaderboardServiceTest {
+
+    private static final LocalDateTime START = LocalDate.of(2024, 3, 1).atStartOfDay();
+    private static final LocalDateTime END = LocalDate.of(2024, 4, 1).atStartOfDay();
+
+    // The former OrderRepository.findProducerPerformance, translated for H2: identifiers
+    // are quoted and DATE_SUB is replaced by DATEADD
+    private static final String REFERENCE_QUERY = """
+            SELECT
+                u."userId",
+                u."username" as "producerName",
+                COUNT(DISTINCT CASE WHEN o."orderDate" >= :start AND o."orderDate" < :end THEN o."orderId" END) as "totalSales",
+                COALESCE(SUM(CASE
+                    WHEN o."orderDate" >= :start AND o."orderDate" < :end THEN oi."price" * oi."quantity"
+                    ELSE 0
+                END), 0) as "totalRevenue",
+                CASE
+                    WHEN COALESCE(SUM(CASE
+                        WHEN o."orderDate" >= DATEADD(MONTH, -1, CAST(:start AS TIMESTAMP)) AND o."orderDate" < :start THEN oi."price" * oi."quantity"
+                        ELSE 0
+                    END), 0) = 0 THEN 100.00
+                    ELSE (
+                        (COALESCE(SUM(CASE
+                            WHEN o."orderDate" >= :start AND o."orderDate" < :end THEN oi."price" * oi."quantity"
+                            ELSE 0
+                        END), 0)
+                        - COALESCE(SUM(CASE
+                            WHEN o."orderDate" >= DATEADD(MONTH, -1, CAST(:start AS TIMESTAMP)) AND o."orderDate" < :start THEN oi."price" * oi."quantity"
+                            ELSE 0
+                        END), 0))
+                        / COALESCE(SUM(CASE
+                            WHEN o."orderDate" >= DATEADD(MONTH, -1, CAST(:start AS TIMESTAMP)) AND o."orderDate" < :start THEN oi."price" * oi."quantity"
+                            ELSE 0
+                        END), 1) * 100
+                    )
+                END as "growthRate"
+            FROM "User" u
+            LEFT JOIN "Product" p ON u."userId" = p."producerId"
+            LEFT JOIN "OrderItem" oi ON p."productId" = oi."productId"
+            LEFT JOIN "Order" o ON oi."orderId" = o."orderId"
+            WHERE u."role" = 'PRODUCER'
+            GROUP BY u."userId", u."username"
+            ORDER BY "totalRevenue" DESC
+            LIMIT 10
+            """;
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private DailySalesRollupRepository rollupRepository;
+    @Autowired
+    private SalesRollupDeltaRepository deltaRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SalesRollupService salesRollupService;
+    private ProducerLeaderboardService leaderboardService;
+
+    @BeforeEach
+    void setUp() {
+        salesRollupService = new SalesRollupService(rollupRepository, deltaRepository, orderRepository,
+            orderItemRepository, productRepository, new TransactionTemplate(transactionManager));
+        leaderboardService = new ProducerLeaderboardService(rollupRepository, userRepository, salesRollupService);
+
+        User farmer = persistUser("farmer", Role.PRODUCER);
+        User baker = persistUser("baker", Role.PRODUCER);
+        User dairy = persistUser("dairy", Role.PRODUCER);
+        persistUser("newcomer", Role.PRODUCER);
+        persistUser("customer", Role.CUSTOMER);
+
+        Product carrots = persistProduct("Carrots", farmer, "2.50");
+        Product potatoes = persistProduct("Potatoes", farmer, "1.20");
+        Product loaf = persistProduct("Loaf", baker, "4.00");
+        Product cheese = persistProduct("Cheese", dairy, "7.30");
+
+        // previous month
+        persistOrder(LocalDateTime.of(2024, 2, 3, 10, 0), OrderStatus.DELIVERED, item(carrots, 4));
+        persistOrder(LocalDateTime.of(2024, 2, 20, 16, 0), OrderStatus.CANCELLED, item(loaf, 5), item(carrots, 2));
+        // current period; the second order spans two producers and has two farmer items
+        persistOrder(LocalDateTime.of(2024, 3, 1, 0, 0), OrderStatus.DELIVERED, item(carrots, 6));
+        persistOrder(LocalDateTime.of(2024, 3, 14, 12, 30), OrderStatus.PROCESSING,
+            item(carrots, 1), item(loaf, 3), item(potatoes, 10));
+        persistOrder(LocalDateTime.of(2024, 3, 31, 23, 59), OrderStatus.PENDING_PAYMENT, item(cheese, 2));
+        // outside both windows
+        persistOrder(LocalDateTime.of(2024, 1, 31, 9, 0), OrderStatus.DELIVERED, item(cheese, 40));
+        persistOrder(LocalDateTime.of(2024, 4, 1, 0, 0), OrderStatus.DELIVERED, item(loaf, 40));
+        entityManager.flush();
+
+        salesRollupService.rebuild(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 4, 30));
+    }
+
+    @Test
+    void leaderboardMatchesReferenceQuery() {
+        List<Tuple> expected = entityManager.getEntityManager().unwrap(Session.class)
+            .createNativeQuery(REFERENCE_QUERY, Tuple.class)
+            .setParameter("start", START)
+            .setParameter("end", END)
+            .getResultList();
+        List<ProducerPerformance> actual = leaderboardService.topProducers(START, END, ProducerLeaderboardService.DEFAULT_SIZE);
+
+        assertEquals(4, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Tuple row = expected.get(i);
+            ProducerPerformance entry = actual.get(i);
+            assertEquals(row.get("producerName", String.class), entry.getProducerName());
+            assertEquals(((Number) row.get("totalSales")).longValue(), entry.getTotalSales());
+            assertEquals(0, ((BigDecimal) row.get("totalRevenue")).compareTo(entry.getTotalRevenue()));
+            assertEquals(((Number) row.get("growthRate")).doubleValue(), entry.getGrowthRate(), 0.01);
+        }
+    }
+
+    @Test
+    void keepsOnlyTheTopEntries() {
+        List<ProducerPerformance> top = leaderboardService.topProducers(START, END, 2);
+
+        assertEquals(List.of("farmer", "dairy"), top.stream().map(ProducerPerformance::getProducerName).toList());
+        // carrots 6 + 1 and potatoes 10, in two orders
+        assertEquals(2, top.get(0).getTotalSales());
+        assertEquals(0, new BigDecimal("29.50").compareTo(top.get(0).getTotalRevenue()));
+        // 29.50 against 15.00 in February
+        assertEquals(96.67, top.get(0).getGrowthRate(), 0.01);
+        assertEquals(100.0, top.get(1).getGrowthRate(), 0.0001);
+    }
+
+    @Test
+    void cachedLeaderboardExpiresAfterTheTtl() {
+        List<ProducerPerformance> first = leaderboardService.topProducers(START, END, 2);
+        assertSame(first, leaderboardService.topProducers(START, END, 2));
+
+        // Rollups flushed by another node do not move the local version, only the TTL
+        ReflectionTestUtils.setField(leaderboardService, "ttlSeconds", 0L);
+        assertNotSame(first, leaderboardService.topProducers(START, END, 2));
+    }
+
+    private User persistUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@localmarket.test");
+        user.setFirstname("First");
+        user.setLastname("Last");
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        user.setCreatedAt(LocalDateTime.now());
+        return entityManager.persist(user);
+    }
+
+    private Product persistProduct(String name, User producer, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name + " description");
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(100);
+        product.setProducer(producer);
+        product.setStatus(ProductStatus.APPROVED);
+        return entityManager.persist(product);
+    }
+
+    private OrderItem item(Product product, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setPrice(product.getPrice());
+        return item;
+    }
+
+    private void persistOrder(LocalDateTime date, OrderStatus status, OrderItem... items) {
+        Order order = new Order();
+        order.setGuestEmail("guest@localmarket.test");
+        order.setShippingAddress("1 Market Street");
+        order.setPhoneNumber("0600000000");
+        order.setPaymentMethod(PaymentMethod.CARD);
+        order.setOrderDate(date);
+        order.setStatus(status);
+        BigDecimal total = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            order.getItems().add(item);
+            total = total.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        order.setTotalPrice(total);
+        entityManager.persist(order);
+    }
+}
@@ -0,0 +1,184 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.admin.RevenuePoint;
+import com.localmarket.main.dto.analytics.admin.RevenueSeriesResponse;
+import com.localmarket.main.entity.order.Order;
+import com.localmarket.main.entity.order.OrderItem;
+import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.entity.payment.PaymentMethod;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.analytics.DailySalesRollupRepository;
+import com.localmarket.main.repository.analytics.SalesRollupDeltaRepository;
+import com.localmarket.main.repository.order.OrderItemRepository;
+import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.service.analytics.RevenueSeriesService.Bucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The rollup path and the order query path must produce the same series, with every
+// bucket present and months of different years kept apart
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:revenue-series;MODE=MySQL")
+class RevenueSeriesServiceTest {
+
+    private static final ZoneId SERVER = ZoneId.systemDefault();
+    private static final List<LocalDateTime> ORDER_DATES = List.of(
+        LocalDateTime.of(2023, 1, 15, 10, 0),
+        LocalDateTime.of(2024, 1, 20, 23, 30),
+        LocalDateTime.of(2024, 1, 21, 0, 15),
+        LocalDateTime.of(2024, 3, 5, 12, 0));
+    private static final List<String> ORDER_TOTALS = List.of("10.00", "20.00", "5.00", "7.50");
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private DailySalesRollupRepository rollupRepository;
+    @Autowired
+    private SalesRollupDeltaRepository deltaRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private RevenueSeriesService revenueSeriesService;
+
+    @BeforeEach
+    void setUp() {
+        SalesRollupService salesRollupService = new SalesRollupService(rollupRepository, deltaRepository, orderRepository,
+            orderItemRepository, productRepository, new TransactionTemplate(transactionManager));
+        revenueSeriesService = new RevenueSeriesService(salesRollupService, orderRepository);
+
+        Product product = persistProduct();
+        for (int i = 0; i < ORDER_DATES.size(); i++) {
+            persistOrder(product, ORDER_DATES.get(i), ORDER_TOTALS.get(i));
+        }
+        entityManager.flush();
+        salesRollupService.rebuild(LocalDate.of(2023, 1, 1), LocalDate.of(2024, 12, 31));
+    }
+
+    @Test
+    void monthlySeriesKeepsYearsApartAndFillsGaps() {
+        RevenueSeriesResponse series = revenueSeriesService.series(
+            LocalDateTime.of(2023, 1, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0), Bucket.MONTH, SERVER);
+
+        Map<String, RevenuePoint> points = byLabel(series);
+        assertEquals(15, points.size());
+        assertRevenue("10.00", 1, points.get("2023-01"));
+        assertRevenue("25.00", 2, points.get("2024-01"));
+        assertRevenue("0", 0, points.get("2024-02"));
+        assertRevenue("7.50", 1, points.get("2024-03"));
+    }
+
+    @Test
+    void rollupsMatchTheOrderQuery() {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 15, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 29, 0, 0);
+
+        // Whole days in the server zone come from the rollups, hours from the orders table
+        Map<String, RevenuePoint> days = byLabel(revenueSeriesService.series(from, to, Bucket.DAY, SERVER));
+        Map<String, BigDecimal> hoursPerDay = revenueSeriesService.series(from, to, Bucket.HOUR, SERVER)
+            .getPoints().stream()
+            .collect(Collectors.groupingBy(point -> point.getStart().toLocalDate().toString(),
+                Collectors.reducing(BigDecimal.ZERO, RevenuePoint::getRevenue, BigDecimal::add)));
+
+        assertEquals(14, days.size());
+        assertEquals(days.keySet(), hoursPerDay.keySet());
+        days.forEach((day, point) -> assertEquals(0, point.getRevenue().compareTo(hoursPerDay.get(day)), day));
+        assertRevenue("20.00", 1, days.get("2024-01-20"));
+
+        Map<String, RevenuePoint> weeks = byLabel(revenueSeriesService.series(from, to, Bucket.WEEK, SERVER));
+        assertEquals(List.of("2024-W03", "2024-W04"), List.copyOf(weeks.keySet()));
+        assertRevenue("25.00", 2, weeks.get("2024-W03"));
+    }
+
+    @Test
+    void bucketsFollowTheRequestedZone() {
+        ZoneId kolkata = ZoneId.of("Asia/Kolkata");
+        RevenueSeriesResponse series = revenueSeriesService.series(
+            LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0), Bucket.DAY, kolkata);
+
+        Map<String, BigDecimal> expected = new TreeMap<>();
+        for (int i = 1; i < ORDER_DATES.size(); i++) {
+            LocalDate day = ORDER_DATES.get(i).atZone(SERVER).withZoneSameInstant(kolkata).toLocalDate();
+            expected.merge(day.toString(), new BigDecimal(ORDER_TOTALS.get(i)), BigDecimal::add);
+        }
+
+        Map<String, RevenuePoint> points = byLabel(series);
+        assertEquals(91, points.size());
+        points.forEach((day, point) -> assertEquals(0,
+            expected.getOrDefault(day, BigDecimal.ZERO).compareTo(point.getRevenue()), day));
+    }
+
+    private Map<String, RevenuePoint> byLabel(RevenueSeriesResponse series) {
+        return series.getPoints().stream()
+            .collect(Collectors.toMap(RevenuePoint::getLabel, point -> point, (a, b) -> a, TreeMap::new));
+    }
+
+    private void assertRevenue(String revenue, long orders, RevenuePoint point) {
+        assertNotNull(point);
+        assertEquals(orders, point.getOrders());
+        assertEquals(0, new BigDecimal(revenue).compareTo(point.getRevenue()));
+    }
+
+    private Product persistProduct() {
+        User producer = new User();
+        producer.setUsername("producer");
+        producer.setEmail("producer@localmarket.test");
+        producer.setFirstname("First");
+        producer.setLastname("Last");
+        producer.setPasswordHash("hash");
+        producer.setRole(Role.PRODUCER);
+        producer.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(producer);
+
+        Product product = new Product();
+        product.setName("Basket");
+        product.setDescription("Basket description");
+        product.setPrice(BigDecimal.ONE);
+        product.setQuantity(100);
+        product.setProducer(producer);
+        product.setStatus(ProductStatus.APPROVED);
+        return entityManager.persist(product);
+    }
+
+    private void persistOrder(Product product, LocalDateTime date, String total) {
+        Order order = new Order();
+        order.setGuestEmail("guest@localmarket.test");
+        order.setShippingAddress("1 Market Street");
+        order.setPhoneNumber("0600000000");
+        order.setPaymentMethod(PaymentMethod.CARD);
+        order.setOrderDate(date);
+        order.setStatus(OrderStatus.DELIVERED);
+        order.setTotalPrice(new BigDecimal(total));
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setQuantity(1);
+        item.setPrice(new BigDecimal(total));
+        order.getItems().add(item);
+        entityManager.persist(order);
+    }
+}
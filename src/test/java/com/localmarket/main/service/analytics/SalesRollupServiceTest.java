@@ -0,0 +1,285 @@
+package com.localmarket.main.service.analytics;
+
+import com.localmarket.main.dto.analytics.SalesTotals;
+import com.localmarket.main.entity.analytics.DailySalesRollup;
+import com.localmarket.main.entity.category.Category;
+import com.localmarket.main.entity.order.Order;
+import com.localmarket.main.entity.order.OrderItem;
+import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.entity.payment.PaymentMethod;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.analytics.DailySalesRollupRepository;
+import com.localmarket.main.repository.analytics.SalesRollupDeltaRepository;
+import com.localmarket.main.repository.order.OrderItemRepository;
+import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The rollups must add up to exactly what the Order table says, whether they were
+// built incrementally from order events or rebuilt from scratch
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:sales-rollup;MODE=MySQL")
+class SalesRollupServiceTest {
+
+    private static final LocalDate DAY_ONE = LocalDate.of(2024, 3, 10);
+    private static final LocalDate DAY_TWO = LocalDate.of(2024, 3, 11);
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private DailySalesRollupRepository rollupRepository;
+    @Autowired
+    private SalesRollupDeltaRepository deltaRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private SalesRollupService salesRollupService;
+    private final List<Order> orders = new ArrayList<>();
+    private Long farmerId;
+    private Long bakerId;
+    private Long vegetablesId;
+    private Long breadId;
+    private Product carrots;
+
+    @BeforeEach
+    void setUp() {
+        salesRollupService = new SalesRollupService(rollupRepository, deltaRepository, orderRepository,
+            orderItemRepository, productRepository, new TransactionTemplate(transactionManager));
+
+        User farmer = persistUser("farmer", Role.PRODUCER);
+        User baker = persistUser("baker", Role.PRODUCER);
+        farmerId = farmer.getUserId();
+        bakerId = baker.getUserId();
+        Category vegetables = persistCategory("Vegetables");
+        Category organic = persistCategory("Organic");
+        Category bread = persistCategory("Bread");
+        vegetablesId = vegetables.getCategoryId();
+        breadId = bread.getCategoryId();
+
+        carrots = persistProduct("Carrots", farmer, Set.of(vegetables, organic), "2.50");
+        Product loaf = persistProduct("Loaf", baker, Set.of(bread), "4.00");
+        Product unsorted = persistProduct("Unsorted", baker, Set.of(), "1.00");
+
+        orders.add(persistOrder(DAY_ONE.atTime(9, 0), OrderStatus.DELIVERED, null, item(carrots, 4)));
+        // coupon order: 10.00 of items paid 8.00
+        orders.add(persistOrder(DAY_ONE.atTime(18, 30), OrderStatus.PAYMENT_COMPLETED, "8.00",
+            item(loaf, 2), item(unsorted, 2)));
+        orders.add(persistOrder(DAY_TWO.atTime(7, 15), OrderStatus.PENDING_PAYMENT, null, item(carrots, 1)));
+        entityManager.flush();
+    }
+
+    @Test
+    void rebuildMatchesOrderTotals() {
+        assertEquals(3, salesRollupService.rebuild(DAY_ONE, DAY_TWO));
+        assertMatchesOrders();
+    }
+
+    @Test
+    void producerReadsOnlySeeTheirOwnOrders() {
+        salesRollupService.rebuild(DAY_ONE, DAY_TWO);
+
+        SalesTotals farmer = salesRollupService.totalsForProducer(farmerId, DAY_ONE, DAY_TWO);
+        assertEquals(2, farmer.getOrders());
+        assertEquals(5, farmer.getUnits());
+        assertEquals(0, new BigDecimal("12.50").compareTo(farmer.getRevenue()));
+
+        SalesTotals baker = salesRollupService.totalsForProducer(bakerId, DAY_ONE, DAY_ONE);
+        assertEquals(1, baker.getOrders());
+        assertEquals(0, new BigDecimal("8.00").compareTo(baker.getRevenue()));
+
+        Map<LocalDate, SalesTotals> farmerDays = salesRollupService.dailyTotalsForProducer(farmerId, DAY_ONE, DAY_TWO);
+        assertEquals(4, farmerDays.get(DAY_ONE).getUnits());
+        assertEquals(1, farmerDays.get(DAY_TWO).getOrders());
+
+        assertEquals(Map.of(OrderStatus.DELIVERED, 1L, OrderStatus.PENDING_PAYMENT, 1L),
+            salesRollupService.orderCountsForProducer(farmerId));
+    }
+
+    @Test
+    void incrementalUpdatesMatchRebuild() {
+        recordAllWithStatusChanges();
+
+        salesRollupService.flush();
+        assertEquals(0, deltaRepository.count());
+        assertMatchesOrders();
+        // Only producers whose rows changed see their version move
+        assertEquals(salesRollupService.version(), salesRollupService.version(farmerId));
+        assertEquals(0, salesRollupService.version(-1L));
+        Map<OrderStatus, SalesTotals> incremental = salesRollupService.totalsByStatus(DAY_ONE, DAY_TWO);
+
+        salesRollupService.rebuild(DAY_ONE, DAY_TWO);
+        assertEquals(incremental.keySet(), salesRollupService.totalsByStatus(DAY_ONE, DAY_TWO).keySet());
+        salesRollupService.totalsByStatus(DAY_ONE, DAY_TWO).forEach((status, totals) -> {
+            assertEquals(incremental.get(status).getOrders(), totals.getOrders());
+            assertEquals(incremental.get(status).getUnits(), totals.getUnits());
+            assertEquals(0, incremental.get(status).getRevenue().compareTo(totals.getRevenue()));
+        });
+    }
+
+    @Test
+    void deltasWaitingAtRestartAreStillApplied() {
+        recordAllWithStatusChanges();
+        assertTrue(deltaRepository.count() > 0);
+
+        // A fresh instance stands for the node after a restart: no state but the tables
+        new SalesRollupService(rollupRepository, deltaRepository, orderRepository, orderItemRepository,
+            productRepository, new TransactionTemplate(transactionManager)).flush();
+
+        assertEquals(0, deltaRepository.count());
+        assertMatchesOrders();
+    }
+
+    @Test
+    void rebuildDropsTheDeltasItCounts() {
+        recordAllWithStatusChanges();
+
+        salesRollupService.rebuild(DAY_ONE, DAY_TWO);
+        assertEquals(0, deltaRepository.count());
+        salesRollupService.flush();
+
+        assertMatchesOrders();
+    }
+
+    @Test
+    void salesStayWithTheCategoryTheyWereMadeIn() {
+        Order order = persistOrder(DAY_TWO.atTime(12, 0), OrderStatus.DELIVERED, null, item(carrots, 3));
+        order.getItems().forEach(item -> item.setCategoryId(SalesRollupService.primaryCategoryId(carrots)));
+        entityManager.flush();
+        salesRollupService.record(order, null);
+        salesRollupService.flush();
+
+        carrots.getCategories().clear();
+        carrots.getCategories().add(entityManager.find(Category.class, breadId));
+        entityManager.flush();
+        salesRollupService.rebuild(DAY_TWO, DAY_TWO);
+
+        // The older DAY_TWO order has no snapshot and follows the product's current category
+        assertEquals(3, unitsInCategory(DAY_TWO, vegetablesId));
+        assertEquals(1, unitsInCategory(DAY_TWO, breadId));
+    }
+
+    private void recordAllWithStatusChanges() {
+        for (Order order : orders) {
+            salesRollupService.record(order, null);
+        }
+        Order pending = orders.get(2);
+        pending.setStatus(OrderStatus.PAYMENT_COMPLETED);
+        salesRollupService.record(pending, OrderStatus.PENDING_PAYMENT);
+        Order delivered = orders.get(0);
+        delivered.setStatus(OrderStatus.RETURNED);
+        salesRollupService.record(delivered, OrderStatus.DELIVERED);
+        entityManager.flush();
+    }
+
+    private long unitsInCategory(LocalDate day, Long categoryId) {
+        return rollupRepository.findAll().stream()
+            .filter(rollup -> rollup.getSalesDay().equals(day) && rollup.getCategoryId().equals(categoryId))
+            .mapToLong(DailySalesRollup::getUnits)
+            .sum();
+    }
+
+    private void assertMatchesOrders() {
+        List<Order> current = orderRepository.findByOrderDateBetween(
+            DAY_ONE.atStartOfDay(), DAY_TWO.plusDays(1).atStartOfDay());
+
+        SalesTotals totals = salesRollupService.totals(DAY_ONE, DAY_TWO);
+        assertEquals(current.size(), totals.getOrders());
+        assertEquals(0, sum(current).compareTo(totals.getRevenue()));
+        assertEquals(9, totals.getUnits());
+
+        Map<OrderStatus, SalesTotals> byStatus = salesRollupService.totalsByStatus(DAY_ONE, DAY_TWO);
+        for (Order order : current) {
+            assertTrue(byStatus.get(order.getStatus()).getOrders() >= 1);
+        }
+        assertEquals(current.size(), byStatus.values().stream().mapToLong(SalesTotals::getOrders).sum());
+
+        Map<LocalDate, BigDecimal> byDay = salesRollupService.netRevenueByDay(DAY_ONE, DAY_TWO);
+        assertEquals(0, new BigDecimal("18.00").compareTo(byDay.get(DAY_ONE)));
+        assertEquals(0, new BigDecimal("2.50").compareTo(byDay.get(DAY_TWO)));
+        assertEquals(SalesTotals.EMPTY.getOrders(), salesRollupService.totals(DAY_TWO.plusDays(1), DAY_TWO.plusDays(5)).getOrders());
+    }
+
+    private BigDecimal sum(List<Order> orders) {
+        return orders.stream().map(Order::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private User persistUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@localmarket.test");
+        user.setFirstname("First");
+        user.setLastname("Last");
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        user.setCreatedAt(LocalDateTime.now());
+        return entityManager.persist(user);
+    }
+
+    private Category persistCategory(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return entityManager.persist(category);
+    }
+
+    private Product persistProduct(String name, User producer, Set<Category> categories, String price) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name + " description");
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(100);
+        product.setProducer(producer);
+        product.setCategories(new java.util.HashSet<>(categories));
+        product.setStatus(ProductStatus.APPROVED);
+        return entityManager.persist(product);
+    }
+
+    private OrderItem item(Product product, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setPrice(product.getPrice());
+        return item;
+    }
+
+    private Order persistOrder(LocalDateTime date, OrderStatus status, String paid, OrderItem... items) {
+        Order order = new Order();
+        order.setGuestEmail("guest@localmarket.test");
+        order.setShippingAddress("1 Market Street");
+        order.setPhoneNumber("0600000000");
+        order.setPaymentMethod(PaymentMethod.CARD);
+        order.setOrderDate(date);
+        order.setStatus(status);
+        BigDecimal gross = BigDecimal.ZERO;
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            order.getItems().add(item);
+            gross = gross.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        order.setTotalPrice(paid != null ? new BigDecimal(paid) : gross);
+        return entityManager.persist(order);
+    }
+}
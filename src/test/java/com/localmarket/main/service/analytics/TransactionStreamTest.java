@@ -0,0 +1,180 @@
+package com.localmarket.main.service.analytics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.entity.order.Order;
+import com.localmarket.main.entity.order.OrderItem;
+import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.entity.payment.Payment;
+import com.localmarket.main.entity.payment.PaymentMethod;
+import com.localmarket.main.entity.payment.PaymentStatus;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.order.OrderItemRepository;
+import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.payment.PaymentRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// The transaction list is written row by row from DTOs, without loading any entity. The
+// rows are read on a connection of their own, so the data is committed first
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:transaction-stream;MODE=MySQL",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionStreamTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 2);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private AnalyticsService analyticsService;
+
+    @BeforeEach
+    void setUp() {
+        analyticsService = new AnalyticsService(userRepository,
+            new TransactionExportReader(entityManagerFactory, dataSource), mock(SalesRollupService.class), orderItemRepository, objectMapper,
+            mock(AnalyticsQueryExecutor.class), mock(ProducerLeaderboardService.class),
+            mock(RevenueSeriesService.class), mock(ActiveUserTracker.class));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAll();
+        paymentRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void writesTheTransactionsOfThePeriodInOrder() throws Exception {
+        User producer = persistUser("producer", Role.PRODUCER);
+        User customer = persistUser("customer", Role.CUSTOMER);
+        Product carrots = persistProduct(producer);
+        Order guestOrder = persistOrder(DAY.atTime(15, 0), null, null, carrots);
+        Order customerOrder = persistOrder(DAY.atTime(10, 0), customer, persistPayment("txn-1"), carrots);
+        // outside the period
+        persistOrder(DAY.plusDays(3).atTime(10, 0), customer, null, carrots);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        analyticsService.writeTransactions(DAY, DAY, out);
+
+        assertEquals(0, statistics.getEntityLoadCount());
+        JsonNode transactions = objectMapper.readTree(out.toByteArray());
+        assertEquals(2, transactions.size());
+
+        JsonNode first = transactions.get(0);
+        assertEquals(customerOrder.getOrderId(), first.get("orderId").asLong());
+        assertEquals("txn-1", first.get("transactionId").asText());
+        assertEquals("First Last", first.get("customerName").asText());
+        assertEquals("producer", first.get("producerName").asText());
+        assertEquals(0, new BigDecimal("2.50").compareTo(first.get("amount").decimalValue()));
+        assertEquals("DELIVERED", first.get("status").asText());
+
+        JsonNode second = transactions.get(1);
+        assertEquals(guestOrder.getOrderId(), second.get("orderId").asLong());
+        assertTrue(second.get("transactionId").isNull());
+        assertEquals("guest@localmarket.test", second.get("customerName").asText());
+    }
+
+    @Test
+    void writesAnEmptyArrayForAnEmptyPeriod() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        analyticsService.writeTransactions(DAY, DAY, out);
+
+        assertEquals("[]", out.toString());
+    }
+
+    private User persistUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@localmarket.test");
+        user.setFirstname("First");
+        user.setLastname("Last");
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        user.setCreatedAt(LocalDateTime.now());
+        return userRepository.save(user);
+    }
+
+    private Product persistProduct(User producer) {
+        Product product = new Product();
+        product.setName("Carrots");
+        product.setDescription("Carrots description");
+        product.setPrice(new BigDecimal("2.50"));
+        product.setQuantity(100);
+        product.setProducer(producer);
+        product.setStatus(ProductStatus.APPROVED);
+        return productRepository.save(product);
+    }
+
+    private Payment persistPayment(String transactionId) {
+        Payment payment = new Payment();
+        payment.setPaymentMethod(PaymentMethod.CARD);
+        payment.setPaymentStatus(PaymentStatus.COMPLETED);
+        payment.setTransactionId(transactionId);
+        payment.setAmount(new BigDecimal("2.50"));
+        return paymentRepository.save(payment);
+    }
+
+    private Order persistOrder(LocalDateTime date, User customer, Payment payment, Product product) {
+        Order order = new Order();
+        order.setCustomer(customer);
+        if (customer == null) {
+            order.setGuestEmail("guest@localmarket.test");
+        }
+        order.setPayment(payment);
+        order.setShippingAddress("1 Market Street");
+        order.setPhoneNumber("0600000000");
+        order.setPaymentMethod(PaymentMethod.CARD);
+        order.setOrderDate(date);
+        order.setStatus(OrderStatus.DELIVERED);
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(1);
+        item.setPrice(product.getPrice());
+        item.setOrder(order);
+        order.getItems().add(item);
+        order.setTotalPrice(product.getPrice());
+        return orderRepository.save(order);
+    }
+}
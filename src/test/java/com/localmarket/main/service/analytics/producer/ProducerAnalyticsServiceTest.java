@@ -0,0 +1,93 @@
+package com.localmarket.main.service.analytics.producer;
+
+import com.localmarket.main.dto.analytics.SalesTotals;
+import com.localmarket.main.dto.analytics.producer.MonthlyData;
+import com.localmarket.main.dto.analytics.producer.OrderStatisticsResponse;
+import com.localmarket.main.dto.analytics.producer.ProducerAnalyticsResponse;
+import com.localmarket.main.entity.order.OrderStatus;
+import com.localmarket.main.service.analytics.AnalyticsQueryExecutor;
+import com.localmarket.main.service.analytics.SalesRollupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// The producer dashboards read only the calling producer's rollups, one query per period
+class ProducerAnalyticsServiceTest {
+
+    private static final Long PRODUCER_ID = 7L;
+    private static final LocalDate START = LocalDate.of(2024, 3, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    private final SalesRollupService salesRollupService = mock(SalesRollupService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ExecutorService pool = Executors.newFixedThreadPool(3);
+    private final ProducerAnalyticsService analyticsService = new ProducerAnalyticsService(salesRollupService,
+        new AnalyticsQueryExecutor(new TaskExecutorAdapter(pool), transactionManager, 15000));
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void overviewComparesThePeriodsOfTheProducerOnly() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(salesRollupService.totalsForProducer(PRODUCER_ID, START, END))
+            .thenReturn(new SalesTotals(6, 12, new BigDecimal("150.00")));
+        when(salesRollupService.totalsForProducer(PRODUCER_ID, START.minusMonths(1), START.minusDays(1)))
+            .thenReturn(new SalesTotals(4, 12, new BigDecimal("100.00")));
+        when(salesRollupService.dailyTotalsForProducer(PRODUCER_ID, LocalDate.of(2024, 1, 1), END))
+            .thenReturn(Map.of(
+                LocalDate.of(2024, 1, 5), new SalesTotals(1, 2, new BigDecimal("20.00")),
+                LocalDate.of(2024, 3, 2), new SalesTotals(2, 3, new BigDecimal("50.00")),
+                LocalDate.of(2024, 3, 9), new SalesTotals(4, 9, new BigDecimal("100.00"))));
+
+        ProducerAnalyticsResponse overview = analyticsService.getAnalyticsOverview(PRODUCER_ID,
+            START.atStartOfDay(), END.atTime(23, 59, 59),
+            START.minusMonths(1).atStartOfDay(), START.minusDays(1).atTime(23, 59, 59));
+
+        assertEquals(6, overview.getTotalOrders());
+        assertEquals(50.0, overview.getOrdersPercentageChange(), 0.0001);
+        assertEquals(150.0, overview.getTotalRevenue(), 0.0001);
+        assertEquals(50.0, overview.getRevenuePercentageChange(), 0.0001);
+        assertEquals(12, overview.getTotalProductsSold());
+        assertEquals(0.0, overview.getProductsSoldPercentageChange(), 0.0001);
+        assertEquals(List.of(new MonthlyData(1, 20.0), new MonthlyData(3, 150.0)), overview.getRevenueTrend());
+        assertEquals(List.of(new MonthlyData(1, 1), new MonthlyData(3, 6)), overview.getMonthlyOrders());
+
+        verify(salesRollupService, times(2)).totalsForProducer(eq(PRODUCER_ID), any(), any());
+        verify(salesRollupService).dailyTotalsForProducer(eq(PRODUCER_ID), any(), any());
+        verifyNoMoreInteractions(salesRollupService);
+    }
+
+    @Test
+    void orderStatisticsComeFromOneGroupedQuery() {
+        when(salesRollupService.orderCountsForProducer(PRODUCER_ID)).thenReturn(Map.of(
+            OrderStatus.PENDING_PAYMENT, 2L,
+            OrderStatus.PROCESSING, 3L,
+            OrderStatus.DELIVERED, 5L,
+            OrderStatus.CANCELLED, 1L));
+
+        OrderStatisticsResponse statistics = analyticsService.getOrderStatistics(PRODUCER_ID);
+
+        assertEquals(11, statistics.getTotalOrders());
+        assertEquals(2, statistics.getPendingOrders());
+        assertEquals(3, statistics.getProcessingOrders());
+        assertEquals(5, statistics.getDeliveredOrders());
+        verify(salesRollupService).orderCountsForProducer(PRODUCER_ID);
+        verifyNoMoreInteractions(salesRollupService);
+    }
+}
@@ -0,0 +1,71 @@
+package com.localmarket.main.service.category;
+
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.repository.category.CategoryRepository;
+import com.localmarket.main.service.product.CatalogVersion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Approved-product counts follow product changes, and a reconcile keeps only a result
+// no concurrent change could have made ambiguous
+class CategoryStatsTest {
+
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final CatalogVersion catalogVersion = mock(CatalogVersion.class);
+    private final CategoryStats categoryStats = new CategoryStats(categoryRepository, catalogVersion);
+
+    @Test
+    void followsApprovalsMovesAndDeletes() {
+        when(categoryRepository.countProductsByCategory(ProductStatus.APPROVED))
+            .thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+        assertEquals(2, categoryStats.getApprovedCount(1L));
+
+        categoryStats.productChanged(ProductStatus.PENDING, Set.of(1L), ProductStatus.APPROVED, Set.of(1L, 2L));
+        categoryStats.productChanged(ProductStatus.APPROVED, Set.of(1L), ProductStatus.APPROVED, Set.of(2L));
+        categoryStats.productDeleted(ProductStatus.APPROVED, Set.of(2L));
+
+        assertEquals(2, categoryStats.getApprovedCount(1L));
+        assertEquals(1, categoryStats.getApprovedCount(2L));
+        verify(categoryRepository, times(1)).countProductsByCategory(ProductStatus.APPROVED);
+    }
+
+    @Test
+    void retriesWhenAChangeOverlapsTheQuery() {
+        when(categoryRepository.countProductsByCategory(ProductStatus.APPROVED))
+            .thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+        categoryStats.reconcile();
+
+        // An approval commits while the GROUP BY runs; whether its result includes it is
+        // unknown, so that result is dropped and the query runs again
+        when(categoryRepository.countProductsByCategory(ProductStatus.APPROVED)).thenAnswer(invocation -> {
+            categoryStats.productChanged(ProductStatus.PENDING, Set.of(1L), ProductStatus.APPROVED, Set.of(1L));
+            return List.<Object[]>of(new Object[]{1L, 3L});
+        }).thenReturn(List.<Object[]>of(new Object[]{1L, 3L}));
+        categoryStats.reconcile();
+
+        assertEquals(3, categoryStats.getApprovedCount(1L));
+        verify(categoryRepository, times(3)).countProductsByCategory(ProductStatus.APPROVED);
+        verify(catalogVersion, never()).categoriesChanged();
+    }
+
+    @Test
+    void keepsTheCountsWhileChangesKeepOverlapping() {
+        when(categoryRepository.countProductsByCategory(ProductStatus.APPROVED))
+            .thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+        categoryStats.reconcile();
+
+        when(categoryRepository.countProductsByCategory(ProductStatus.APPROVED)).thenAnswer(invocation -> {
+            categoryStats.productChanged(ProductStatus.PENDING, Set.of(1L), ProductStatus.APPROVED, Set.of(1L));
+            return List.<Object[]>of(new Object[]{1L, 9L});
+        });
+        categoryStats.reconcile();
+
+        assertEquals(5, categoryStats.getApprovedCount(1L));
+        verify(catalogVersion, never()).categoriesChanged();
+    }
+}
@@ -0,0 +1,62 @@
+package com.localmarket.main.service.export;
+
+import com.localmarket.main.dto.analytics.admin.CombinedAnalyticsResponse;
+import com.localmarket.main.dto.analytics.admin.TransactionDetails;
+import com.opencsv.CSVReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The export is the summary followed by one quoted line per streamed transaction
+class CSVExportServiceTest {
+
+    private final CSVExportService csvExportService = new CSVExportService();
+
+    @Test
+    void streamsSummaryAndEveryTransaction() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        CombinedAnalyticsResponse analytics = CombinedAnalyticsResponse.builder()
+            .totalUsers(3)
+            .periodStart(start)
+            .periodEnd(start.plusMonths(1))
+            .averageOrderValue(new BigDecimal("12.50"))
+            .totalRevenue(new BigDecimal("12500.00"))
+            .build();
+        int count = 1000;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream compressed = new GZIPOutputStream(bytes);
+        csvExportService.writeCSV(analytics, IntStream.rangeClosed(1, count).mapToObj(i -> TransactionDetails.builder()
+            .orderId((long) i)
+            .customerName("Doe, \"Jane\"")
+            .amount(new BigDecimal("12.50"))
+            .status("DELIVERED")
+            .date(start.plusMinutes(i))
+            .build()), compressed);
+        compressed.finish();
+
+        List<String[]> rows;
+        try (CSVReader reader = new CSVReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())), StandardCharsets.UTF_8))) {
+            rows = reader.readAll();
+        }
+
+        assertArrayEquals(new String[] {"Total Users", "3"}, rows.get(5));
+        int header = rows.indexOf(rows.stream().filter(row -> row[0].equals("Order ID")).findFirst().orElseThrow());
+        assertEquals(count, rows.size() - header - 1);
+        assertArrayEquals(new String[] {"1", "", "Doe, \"Jane\"", "", "12.50", "DELIVERED", "2024-01-01 00:01:00"},
+            rows.get(header + 1));
+        assertEquals(String.valueOf(count), rows.get(rows.size() - 1)[0]);
+    }
+}
@@ -0,0 +1,193 @@
+package com.localmarket.main.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.entity.notification.StoredNotification;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.repository.notification.NotificationCounterRepository;
+import com.localmarket.main.repository.notification.NotificationOutboxRepository;
+import com.localmarket.main.repository.notification.NotificationReadCursorRepository;
+import com.localmarket.main.repository.notification.StoredNotificationRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import com.localmarket.main.websocket.NotificationWebSocketHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Publishing only writes the outbox; stored rows and socket messages come from the consumers' batches
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationBusTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+    @Autowired
+    private StoredNotificationRepository storedNotificationRepository;
+    @Autowired
+    private NotificationCounterRepository counterRepository;
+    @Autowired
+    private BroadcastNotificationRepository broadcastNotificationRepository;
+    @Autowired
+    private NotificationReadCursorRepository readCursorRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<NotificationBus> buses = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void cleanUp() {
+        release.countDown();
+        buses.forEach(NotificationBus::shutdown);
+        storedNotificationRepository.deleteAll();
+        outboxRepository.deleteAll();
+        counterRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void storesAndDeliversPublishedNotificationsInBatches() {
+        NotificationWebSocketHandler webSocketHandler = mock(NotificationWebSocketHandler.class);
+        NotificationBus bus = bus(10, webSocketHandler);
+        User producer = userRepository.save(producer());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bus.publish("alice@localmarket.test", notification("ORDER_STATUS_UPDATE"));
+            bus.publish(String.valueOf(producer.getUserId()), notification("NEW_ORDER"));
+            bus.publish("999999", notification("NEW_ORDER"));
+            assertEquals(3, outboxRepository.count());
+            assertEquals(0, storedNotificationRepository.count());
+        });
+
+        await(() -> outboxRepository.count() == 0);
+        List<StoredNotification> stored = storedNotificationRepository.findAll();
+        assertEquals(2, stored.size());
+        assertTrue(stored.stream().anyMatch(n -> n.getRecipientEmail().equals(producer.getEmail())));
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(webSocketHandler, timeout(5000)).sendNotification(eq(producer.getEmail()), sent.capture());
+        assertTrue(((NotificationResponse) sent.getValue()).getId() > 0);
+    }
+
+    @Test
+    void leavesWhatDoesNotFitInTheOutboxForTheSweeper() throws Exception {
+        CountDownLatch delivering = new CountDownLatch(1);
+        NotificationBus bus = bus(1, blockingHandler(delivering));
+        ReflectionTestUtils.setField(bus, "outboxGraceSeconds", -1L);
+
+        // The consumer holds the first batch, the queue takes one more, the third stays behind
+        bus.publish("alice@localmarket.test", notification("ORDER_STATUS_UPDATE"));
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+        bus.publish("alice@localmarket.test", notification("ORDER_STATUS_UPDATE"));
+        bus.publish("alice@localmarket.test", notification("ORDER_STATUS_UPDATE"));
+        release.countDown();
+        await(() -> storedNotificationRepository.count() == 2);
+        assertEquals(1, outboxRepository.count());
+
+        bus.sweepOutbox();
+
+        await(() -> outboxRepository.count() == 0);
+        assertEquals(3, storedNotificationRepository.count());
+    }
+
+    @Test
+    void storesARowOnlyUnderTheClaimItHolds() throws Exception {
+        CountDownLatch delivering = new CountDownLatch(1);
+        NotificationWebSocketHandler slowHandler = blockingHandler(delivering);
+        NotificationBus slowNode = bus(10, slowHandler);
+        NotificationBus otherNode = bus(10, mock(NotificationWebSocketHandler.class));
+        ReflectionTestUtils.setField(otherNode, "outboxGraceSeconds", -1L);
+
+        slowNode.publish("alice@localmarket.test", notification("ORDER_STATUS_UPDATE"));
+        assertTrue(delivering.await(5, TimeUnit.SECONDS));
+        slowNode.publish("alice@localmarket.test", notification("NEW_ORDER"));
+
+        // The slow node's claim lapses and the other node takes the row over
+        otherNode.sweepOutbox();
+        await(() -> outboxRepository.count() == 0);
+        release.countDown();
+
+        verify(slowHandler, after(500).times(1)).sendNotification(anyString(), any());
+        assertEquals(1, storedNotificationRepository.findAll().stream()
+            .filter(n -> n.getType().equals("NEW_ORDER")).count());
+    }
+
+    private NotificationBus bus(int capacity, NotificationWebSocketHandler webSocketHandler) {
+        UnreadCounterService unreadCounterService = new UnreadCounterService(counterRepository,
+            storedNotificationRepository, broadcastNotificationRepository, readCursorRepository, jdbcTemplate);
+        unreadCounterService.prepareStatements();
+        NotificationBus bus = new NotificationBus(new ObjectMapper(), jdbcTemplate, transactionManager,
+            outboxRepository, userRepository, unreadCounterService, webSocketHandler, capacity, 1, 50);
+        bus.start();
+        buses.add(bus);
+        return bus;
+    }
+
+    // Holds the consumer in its first socket push until the test releases it
+    private NotificationWebSocketHandler blockingHandler(CountDownLatch delivering) {
+        NotificationWebSocketHandler webSocketHandler = mock(NotificationWebSocketHandler.class);
+        when(webSocketHandler.sendNotification(anyString(), any())).thenAnswer(invocation -> {
+            delivering.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        return webSocketHandler;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the consumers");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    private static NotificationResponse notification(String type) {
+        return NotificationResponse.builder()
+            .type(type)
+            .message("Something happened")
+            .data(Map.of("orderId", 1))
+            .timestamp(LocalDateTime.now())
+            .build();
+    }
+
+    private static User producer() {
+        User user = new User();
+        user.setUsername("producer");
+        user.setEmail("producer@localmarket.test");
+        user.setFirstname("Pat");
+        user.setLastname("Producer");
+        user.setPasswordHash("hash");
+        user.setRole(Role.PRODUCER);
+        return user;
+    }
+}
@@ -0,0 +1,127 @@
+package com.localmarket.main.service.notification;
+
+import com.localmarket.main.entity.notification.BroadcastNotification;
+import com.localmarket.main.entity.notification.BroadcastReceipt;
+import com.localmarket.main.entity.notification.NotificationCounter;
+import com.localmarket.main.entity.notification.StoredNotification;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.repository.notification.BroadcastReceiptRepository;
+import com.localmarket.main.repository.notification.NotificationCounterRepository;
+import com.localmarket.main.repository.notification.NotificationReadCursorRepository;
+import com.localmarket.main.repository.notification.StoredNotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Retention deletes in batches by policy: expired rows, old read rows and noisy types,
+// each batch committing on its own and taking its unread rows off the counters
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:notification-retention;MODE=MySQL")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationRetentionServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    private static final String ALICE = "alice@localmarket.test";
+
+    @Autowired
+    private StoredNotificationRepository storedNotificationRepository;
+    @Autowired
+    private BroadcastNotificationRepository broadcastNotificationRepository;
+    @Autowired
+    private BroadcastReceiptRepository broadcastReceiptRepository;
+    @Autowired
+    private NotificationCounterRepository counterRepository;
+    @Autowired
+    private NotificationReadCursorRepository readCursorRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        broadcastReceiptRepository.deleteAll();
+        broadcastNotificationRepository.deleteAll();
+        storedNotificationRepository.deleteAll();
+        counterRepository.deleteAll();
+    }
+
+    @Test
+    void purgesByPolicyInBatches() {
+        UnreadCounterService unreadCounterService = new UnreadCounterService(counterRepository,
+            storedNotificationRepository, broadcastNotificationRepository, readCursorRepository, jdbcTemplate);
+        unreadCounterService.prepareStatements();
+        NotificationRetentionService retentionService = new NotificationRetentionService(storedNotificationRepository,
+            broadcastNotificationRepository, broadcastReceiptRepository, unreadCounterService, transactionManager,
+            List.of("STOCK_UPDATED=1"));
+        ReflectionTestUtils.setField(retentionService, "batchSize", 2);
+        ReflectionTestUtils.setField(retentionService, "pauseMillis", 0L);
+
+        for (int i = 0; i < 3; i++) {
+            persistPersonal("ORDER_STATUS_UPDATE", false, NOW.minusDays(8), NOW.minusDays(1));
+        }
+        persistPersonal("ORDER_STATUS_UPDATE", true, NOW.minusDays(3), NOW.plusDays(4));
+        StoredNotification recentRead = persistPersonal("ORDER_STATUS_UPDATE", true, NOW.minusHours(1), NOW.plusDays(7));
+        persistPersonal("STOCK_UPDATED", false, NOW.minusDays(2), NOW.plusDays(5));
+        StoredNotification kept = persistPersonal("STOCK_UPDATED", false, NOW.minusHours(1), NOW.plusDays(7));
+        BroadcastNotification expired = persistBroadcast(NOW.minusDays(8), NOW.minusDays(1));
+        BroadcastNotification live = persistBroadcast(NOW.minusHours(1), NOW.plusDays(7));
+        broadcastReceiptRepository.save(new BroadcastReceipt(expired.getId(), ALICE));
+        // 5 unread rows, 4 of them purged
+        assertEquals(5, unreadCounterService.unreadCount(ALICE, Role.CUSTOMER));
+
+        NotificationRetentionService.RetentionReport report = retentionService.purge();
+
+        assertEquals(3, report.expired());
+        assertEquals(1, report.read());
+        assertEquals(Map.of("STOCK_UPDATED", 1L), report.byType());
+        assertEquals(1, report.broadcasts());
+        assertEquals(1, report.receipts());
+        assertEquals(6, report.total());
+        assertEquals(5, report.batches());
+        assertSame(report, retentionService.lastReport());
+        assertEquals(1, counterRepository.findById(ALICE).map(NotificationCounter::getUnreadCount).orElseThrow());
+        assertEquals(1, unreadCounterService.unreadCount(ALICE, Role.CUSTOMER));
+
+        assertEquals(List.of(recentRead.getId(), kept.getId()),
+            storedNotificationRepository.findAll().stream().map(StoredNotification::getId).sorted().toList());
+        assertEquals(List.of(live.getId()),
+            broadcastNotificationRepository.findAll().stream().map(BroadcastNotification::getId).toList());
+        assertEquals(0, broadcastReceiptRepository.count());
+    }
+
+    private StoredNotification persistPersonal(String type, boolean read, LocalDateTime timestamp, LocalDateTime expiresAt) {
+        StoredNotification notification = new StoredNotification();
+        notification.setRecipientEmail(ALICE);
+        notification.setType(type);
+        notification.setMessage("Notification");
+        notification.setData("{}");
+        notification.setRead(read);
+        notification.setTimestamp(timestamp);
+        notification.setExpiresAt(expiresAt);
+        return storedNotificationRepository.save(notification);
+    }
+
+    private BroadcastNotification persistBroadcast(LocalDateTime timestamp, LocalDateTime expiresAt) {
+        BroadcastNotification broadcast = new BroadcastNotification();
+        broadcast.setRole(Role.ADMIN);
+        broadcast.setType("NEW_PRODUCT_REVIEW");
+        broadcast.setMessage("A new product needs review");
+        broadcast.setData("{}");
+        broadcast.setTimestamp(timestamp);
+        broadcast.setExpiresAt(expiresAt);
+        return broadcastNotificationRepository.save(broadcast);
+    }
+}
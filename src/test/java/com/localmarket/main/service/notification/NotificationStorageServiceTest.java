@@ -0,0 +1,220 @@
+package com.localmarket.main.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.dto.notification.RawNotificationResponse;
+import com.localmarket.main.entity.notification.BroadcastNotification;
+import com.localmarket.main.entity.notification.StoredNotification;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.repository.notification.BroadcastReceiptRepository;
+import com.localmarket.main.repository.notification.NotificationCounterRepository;
+import com.localmarket.main.repository.notification.NotificationReadCursorRepository;
+import com.localmarket.main.repository.notification.StoredNotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Personal notifications and role broadcasts read as one stream, with the read and
+// deleted state of a broadcast kept per user
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:notification-storage;MODE=MySQL")
+class NotificationStorageServiceTest {
+
+    private static final String ALICE = "alice@localmarket.test";
+    private static final String BOB = "bob@localmarket.test";
+    // Microseconds, as stored, so keys taken from loaded rows match the rows
+    private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private StoredNotificationRepository storedNotificationRepository;
+    @Autowired
+    private BroadcastNotificationRepository broadcastNotificationRepository;
+    @Autowired
+    private BroadcastReceiptRepository broadcastReceiptRepository;
+    @Autowired
+    private NotificationReadCursorRepository readCursorRepository;
+    @Autowired
+    private NotificationCounterRepository counterRepository;
+
+    private UnreadCounterService unreadCounterService;
+    private NotificationStorageService storageService;
+    private BroadcastNotification older;
+    private BroadcastNotification newer;
+    private StoredNotification personal;
+
+    @BeforeEach
+    void setUp() {
+        unreadCounterService = new UnreadCounterService(counterRepository, storedNotificationRepository,
+            broadcastNotificationRepository, readCursorRepository, jdbcTemplate);
+        unreadCounterService.prepareStatements();
+        storageService = new NotificationStorageService(storedNotificationRepository,
+            broadcastNotificationRepository, broadcastReceiptRepository, readCursorRepository,
+            unreadCounterService, new ObjectMapper());
+
+        older = persistBroadcast(Role.ADMIN, NOW.minusHours(3));
+        personal = persistPersonal(ALICE, NOW.minusHours(2));
+        newer = persistBroadcast(Role.ADMIN, NOW.minusHours(1));
+        persistBroadcast(Role.PRODUCER, NOW.minusMinutes(30));
+        entityManager.flush();
+    }
+
+    @Test
+    void mergesPersonalAndRoleBroadcastsNewestFirst() {
+        Page<NotificationResponse> page = storageService.getNotifications(ALICE, Role.ADMIN, null, null, PageRequest.of(0, 2));
+
+        assertEquals(3, page.getTotalElements());
+        assertEquals(List.of(-newer.getId(), page.getContent().get(1).getId()),
+            page.getContent().stream().map(NotificationResponse::getId).toList());
+        assertTrue(page.getContent().get(1).getId() > 0);
+        assertEquals(-older.getId(),
+            storageService.getNotifications(ALICE, Role.ADMIN, null, null, PageRequest.of(1, 2)).getContent().get(0).getId());
+
+        // Every admin sees the broadcasts, nobody else does
+        assertEquals(2, storageService.getUnreadCount(BOB, Role.ADMIN));
+        assertEquals(1, storageService.getUnreadCount(BOB, Role.PRODUCER));
+    }
+
+    @Test
+    void tracksReadAndDeletedBroadcastsPerUser() {
+        assertEquals(3, storageService.getUnreadCount(ALICE, Role.ADMIN));
+
+        storageService.markAsRead(ALICE, Role.ADMIN, -older.getId());
+        storageService.deleteNotification(ALICE, Role.ADMIN, -newer.getId());
+        entityManager.flush();
+
+        assertEquals(1, storageService.getUnreadCount(ALICE, Role.ADMIN));
+        assertEquals(2, storageService.getUnreadCount(BOB, Role.ADMIN));
+        List<NotificationResponse> all = storageService.getNotifications(ALICE, Role.ADMIN, null, null, PageRequest.of(0, 10))
+            .getContent();
+        assertEquals(2, all.size());
+        assertTrue(all.stream().filter(n -> n.getId() == -older.getId()).findFirst().orElseThrow().isRead());
+
+        storageService.markAllAsRead(BOB, Role.ADMIN);
+        entityManager.flush();
+        assertEquals(0, storageService.getUnreadCount(BOB, Role.ADMIN));
+        assertTrue(storageService.getBroadcastReplayPage(BOB, Role.ADMIN, 0, true, 10).isEmpty());
+
+        assertEquals(1, storageService.getPersonalReplayPage(ALICE, 0, true, 10).size());
+        assertTrue(storageService.getBroadcastReplayPage(ALICE, Role.ADMIN, 0, true, 10).isEmpty());
+    }
+
+    @Test
+    void replaysOnlyRowsAfterTheCursorWithRawData() throws Exception {
+        storageService.markAsRead(ALICE, Role.ADMIN, -older.getId());
+        entityManager.flush();
+
+        List<RawNotificationResponse> first = storageService.getBroadcastReplayPage(ALICE, Role.ADMIN, 0, false, 1);
+        assertEquals(List.of(-older.getId()), first.stream().map(RawNotificationResponse::getId).toList());
+        assertTrue(first.get(0).isRead());
+        List<RawNotificationResponse> next = storageService.getBroadcastReplayPage(ALICE, Role.ADMIN, older.getId(), false, 1);
+        assertEquals(List.of(-newer.getId()), next.stream().map(RawNotificationResponse::getId).toList());
+        assertTrue(storageService.getBroadcastReplayPage(ALICE, Role.ADMIN, newer.getId(), false, 1).isEmpty());
+
+        assertTrue(storageService.getPersonalReplayPage(ALICE, personal.getId(), false, 10).isEmpty());
+        assertTrue(new ObjectMapper().findAndRegisterModules().writeValueAsString(next.get(0))
+            .contains("\"data\":{\"productId\":1}"));
+    }
+
+    @Test
+    void keepsTheBadgeCountWithoutRecounting() {
+        // First read materializes the personal counter
+        assertEquals(3, storageService.getUnreadCount(ALICE, Role.ADMIN));
+        entityManager.flush();
+        assertEquals(1, counterRepository.findById(ALICE).orElseThrow().getUnreadCount());
+
+        storageService.markAsRead(ALICE, Role.ADMIN, personal.getId());
+        storageService.markAsRead(ALICE, Role.ADMIN, personal.getId());
+        unreadCounterService.broadcastSent(Role.ADMIN);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(0, counterRepository.findById(ALICE).orElseThrow().getUnreadCount());
+        // The broadcast counts once it commits, which this test's transaction never does
+        assertEquals(2, storageService.getUnreadCount(ALICE, Role.ADMIN));
+    }
+
+    @Test
+    void keysetPagesFollowTheMergedOrder() {
+        // A personal notification and a broadcast at the same instant as the newer broadcast
+        StoredNotification tied = persistPersonal(ALICE, newer.getTimestamp());
+        BroadcastNotification tiedBroadcast = persistBroadcast(Role.ADMIN, newer.getTimestamp());
+        entityManager.flush();
+
+        List<Long> expected = storageService.getNotifications(ALICE, Role.ADMIN, null, null, PageRequest.of(0, 10))
+            .getContent().stream().map(NotificationResponse::getId).toList();
+        assertEquals(List.of(tied.getId(), -tiedBroadcast.getId(), -newer.getId(), personal.getId(), -older.getId()),
+            expected);
+
+        List<Long> walked = new ArrayList<>();
+        NotificationResponse last = null;
+        for (int pages = 0; pages < 10; pages++) {
+            List<NotificationResponse> page = storageService.getNotifications(ALICE, Role.ADMIN,
+                last != null ? last.getTimestamp() : null, last != null ? last.getId() : null,
+                PageRequest.of(0, 2)).getContent();
+            if (page.isEmpty()) {
+                break;
+            }
+            page.forEach(notification -> walked.add(notification.getId()));
+            last = page.get(page.size() - 1);
+        }
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void readCursorIsKeptPerRole() {
+        BroadcastNotification producerBroadcast = broadcastNotificationRepository.findAll().stream()
+            .filter(broadcast -> broadcast.getRole() == Role.PRODUCER).findFirst().orElseThrow();
+        // An admin broadcast newer than the producer one
+        persistBroadcast(Role.ADMIN, NOW.minusMinutes(10));
+        entityManager.flush();
+
+        storageService.markAllAsRead(ALICE, Role.ADMIN);
+        entityManager.flush();
+
+        // Alice becomes a producer: the admin cursor says nothing about producer broadcasts
+        NotificationResponse asProducer = storageService.getNotifications(ALICE, Role.PRODUCER, null, null,
+            PageRequest.of(0, 10)).getContent().stream()
+            .filter(notification -> notification.getId() == -producerBroadcast.getId())
+            .findFirst().orElseThrow();
+        assertFalse(asProducer.isRead());
+        assertEquals(1, readCursorRepository.count());
+    }
+
+    private BroadcastNotification persistBroadcast(Role role, LocalDateTime timestamp) {
+        BroadcastNotification broadcast = new BroadcastNotification();
+        broadcast.setRole(role);
+        broadcast.setType("NEW_PRODUCT_REVIEW");
+        broadcast.setMessage("A new product needs review");
+        broadcast.setData("{\"productId\":1}");
+        broadcast.setTimestamp(timestamp);
+        broadcast.setExpiresAt(NOW.plusDays(7));
+        return entityManager.persist(broadcast);
+    }
+
+    private StoredNotification persistPersonal(String email, LocalDateTime timestamp) {
+        StoredNotification notification = new StoredNotification();
+        notification.setRecipientEmail(email);
+        notification.setType("ORDER_STATUS_UPDATE");
+        notification.setMessage("Your order was shipped");
+        notification.setData("{}");
+        notification.setTimestamp(timestamp);
+        notification.setExpiresAt(NOW.plusDays(7));
+        return entityManager.persist(notification);
+    }
+}
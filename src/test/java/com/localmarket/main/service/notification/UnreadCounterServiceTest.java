@@ -0,0 +1,111 @@
+package com.localmarket.main.service.notification;
+
+import com.localmarket.main.entity.notification.NotificationCounter;
+import com.localmarket.main.entity.notification.StoredNotification;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.repository.notification.NotificationCounterRepository;
+import com.localmarket.main.repository.notification.NotificationReadCursorRepository;
+import com.localmarket.main.repository.notification.StoredNotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Counters are materialized in the writer's transaction when missing, and broadcasts
+// count once their row has committed
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UnreadCounterServiceTest {
+
+    private static final String ALICE = "alice@localmarket.test";
+
+    @Autowired
+    private NotificationCounterRepository counterRepository;
+    @Autowired
+    private StoredNotificationRepository storedNotificationRepository;
+    @Autowired
+    private BroadcastNotificationRepository broadcastNotificationRepository;
+    @Autowired
+    private NotificationReadCursorRepository readCursorRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UnreadCounterService unreadCounterService;
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        unreadCounterService = new UnreadCounterService(counterRepository, storedNotificationRepository,
+            broadcastNotificationRepository, readCursorRepository, jdbcTemplate);
+        unreadCounterService.prepareStatements();
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        storedNotificationRepository.deleteAll();
+        counterRepository.deleteAll();
+    }
+
+    @Test
+    void materializesAMissingCounterWithTheWritersOwnRows() {
+        transaction.executeWithoutResult(status -> {
+            storedNotificationRepository.save(personal());
+            storedNotificationRepository.save(personal());
+            unreadCounterService.personalAdded(ALICE, 2);
+        });
+
+        assertEquals(2, counterRepository.findById(ALICE).map(NotificationCounter::getUnreadCount).orElseThrow());
+        assertEquals(2, unreadCounterService.unreadCount(ALICE, Role.CUSTOMER));
+
+        // A counter already there is kept and added to
+        transaction.executeWithoutResult(status -> {
+            storedNotificationRepository.save(personal());
+            unreadCounterService.personalAdded(ALICE, 1);
+        });
+        assertEquals(3, counterRepository.findById(ALICE).map(NotificationCounter::getUnreadCount).orElseThrow());
+        assertEquals(3, unreadCounterService.unreadCount(ALICE, Role.CUSTOMER));
+    }
+
+    @Test
+    void countsABroadcastOnlyOnceItCommits() {
+        assertEquals(0, unreadCounterService.unreadCount(ALICE, Role.ADMIN));
+
+        transaction.executeWithoutResult(status -> {
+            unreadCounterService.broadcastSent(Role.ADMIN);
+            status.setRollbackOnly();
+        });
+        assertEquals(0, unreadCounterService.unreadCount(ALICE, Role.ADMIN));
+
+        transaction.executeWithoutResult(status -> {
+            unreadCounterService.broadcastSent(Role.ADMIN);
+            assertEquals(0, unreadCounterService.unreadCount(ALICE, Role.ADMIN));
+        });
+        assertEquals(1, unreadCounterService.unreadCount(ALICE, Role.ADMIN));
+    }
+
+    private static StoredNotification personal() {
+        StoredNotification notification = new StoredNotification();
+        notification.setRecipientEmail(ALICE);
+        notification.setType("ORDER_STATUS_UPDATE");
+        notification.setMessage("Your order was shipped");
+        notification.setData("{}");
+        notification.setRead(false);
+        notification.setTimestamp(LocalDateTime.now());
+        notification.setExpiresAt(LocalDateTime.now().plusDays(7));
+        return notification;
+    }
+}
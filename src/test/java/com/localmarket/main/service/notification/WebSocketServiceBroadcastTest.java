@@ -0,0 +1,54 @@
+package com.localmarket.main.service.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.entity.notification.BroadcastNotification;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.repository.notification.BroadcastNotificationRepository;
+import com.localmarket.main.websocket.NotificationWebSocketHandler;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// A role broadcast is one row and one message, whatever the number of recipients
+class WebSocketServiceBroadcastTest {
+
+    @Test
+    void storesOneRowPerBroadcast() {
+        NotificationBus notificationBus = mock(NotificationBus.class);
+        BroadcastNotificationRepository broadcastNotificationRepository = mock(BroadcastNotificationRepository.class);
+        NotificationWebSocketHandler webSocketHandler = mock(NotificationWebSocketHandler.class);
+        WebSocketService webSocketService = new WebSocketService(webSocketHandler, notificationBus,
+            new ObjectMapper(), broadcastNotificationRepository,
+            mock(NotificationStorageService.class), mock(UnreadCounterService.class));
+
+        when(broadcastNotificationRepository.save(any())).thenAnswer(invocation -> {
+            BroadcastNotification broadcast = invocation.getArgument(0);
+            broadcast.setId(7L);
+            return broadcast;
+        });
+
+        webSocketService.sendToRole("admin", NotificationResponse.builder()
+            .type("NEW_PRODUCT_REVIEW")
+            .message("A new product needs review")
+            .data(Map.of("productId", 42))
+            .timestamp(LocalDateTime.of(2024, 1, 1, 12, 0))
+            .build());
+
+        ArgumentCaptor<BroadcastNotification> stored = ArgumentCaptor.forClass(BroadcastNotification.class);
+        verify(broadcastNotificationRepository).save(stored.capture());
+        assertEquals(Role.ADMIN, stored.getValue().getRole());
+        assertEquals("{\"productId\":42}", stored.getValue().getData());
+
+        ArgumentCaptor<NotificationResponse> sent = ArgumentCaptor.forClass(NotificationResponse.class);
+        verify(webSocketHandler).sendToRole(eq("admin"), sent.capture());
+        assertEquals(-7L, sent.getValue().getId());
+        verifyNoInteractions(notificationBus);
+    }
+}
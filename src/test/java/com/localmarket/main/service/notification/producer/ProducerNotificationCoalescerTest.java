@@ -0,0 +1,116 @@
+package com.localmarket.main.service.notification.producer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.repository.notification.PendingProducerNotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// One notification per producer and type per window, with the events' data as items;
+// open windows are rows, so they outlive the instance that collected them
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProducerNotificationCoalescerTest {
+
+    @Autowired
+    private PendingProducerNotificationRepository pendingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ProducerNotificationService producerNotificationService = mock(ProducerNotificationService.class);
+
+    @AfterEach
+    void cleanUp() {
+        pendingRepository.deleteAll();
+    }
+
+    @Test
+    void summarizesAWindowPerProducer() {
+        ProducerNotificationCoalescer coalescer = coalescer(0);
+        coalescer.publish(1L, stockUpdated(10L));
+        coalescer.publish(1L, stockUpdated(11L));
+        coalescer.publish(1L, stockUpdated(11L));
+        coalescer.publish(2L, stockUpdated(20L));
+        verifyNoInteractions(producerNotificationService);
+
+        coalescer.flushExpired();
+
+        ArgumentCaptor<NotificationResponse> summary = ArgumentCaptor.forClass(NotificationResponse.class);
+        verify(producerNotificationService).sendToUser(eq(1L), summary.capture());
+        assertEquals("2 products changed stock", summary.getValue().getMessage());
+        Map<?, ?> data = (Map<?, ?>) summary.getValue().getData();
+        assertEquals(3, data.get("count"));
+        assertEquals(List.of(10L, 11L), data.get("productIds"));
+        assertEquals(3, ((List<?>) data.get("items")).size());
+
+        // A lone event goes out unchanged
+        verify(producerNotificationService).sendToUser(eq(2L),
+            argThat(notification -> notification.getMessage().equals("Stock reduced for product 20")));
+        assertEquals(0, pendingRepository.count());
+    }
+
+    @Test
+    void keepsOpenWindowsForTheNextInstance() {
+        coalescer(60).publish(1L, stockUpdated(10L));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            coalescer(60).publish(1L, stockUpdated(11L));
+            status.setRollbackOnly();
+        });
+        coalescer(60).flushExpired();
+        verifyNoInteractions(producerNotificationService);
+
+        // After a restart the window is still there, without the rolled back event
+        coalescer(0).flushExpired();
+
+        verify(producerNotificationService).sendToUser(eq(1L),
+            argThat(notification -> notification.getMessage().equals("Stock reduced for product 10")
+                && ((Map<?, ?>) notification.getData()).get("productId").equals(10)));
+        assertEquals(0, pendingRepository.count());
+    }
+
+    @Test
+    void sendsOtherTypesAtOnce() {
+        NotificationResponse newOrder = NotificationResponse.builder().type("NEW_ORDER").message("New order").build();
+
+        coalescer(60).publish(1L, newOrder);
+
+        verify(producerNotificationService).sendToUser(1L, newOrder);
+        assertEquals(0, pendingRepository.count());
+    }
+
+    private ProducerNotificationCoalescer coalescer(long windowSeconds) {
+        ProducerNotificationCoalescer coalescer = new ProducerNotificationCoalescer(producerNotificationService,
+            pendingRepository, jdbcTemplate, new ObjectMapper(), transactionManager, Set.of("STOCK_UPDATED"),
+            windowSeconds, 100);
+        coalescer.prepareStatements();
+        return coalescer;
+    }
+
+    private static NotificationResponse stockUpdated(Long productId) {
+        return NotificationResponse.builder()
+            .type("STOCK_UPDATED")
+            .message("Stock reduced for product " + productId)
+            .data(Map.of("productId", productId, "newQuantity", 3))
+            .timestamp(LocalDateTime.now())
+            .build();
+    }
+}
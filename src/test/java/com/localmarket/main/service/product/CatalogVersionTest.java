@@ -0,0 +1,56 @@
+package com.localmarket.main.service.product;
+
+import com.localmarket.main.repository.product.CatalogGenerationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Catalog ETags come from database generations: every instance agrees on them, producer
+// edits change them, and a rolled back change does not
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:catalog-version;MODE=MySQL")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogVersionTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Autowired
+    private CatalogGenerationRepository generationRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void tagsAreSharedAndFollowCommittedChanges() {
+        CatalogVersion node1 = new CatalogVersion(generationRepository, transactionManager);
+        CatalogVersion node2 = new CatalogVersion(generationRepository, transactionManager);
+        String catalog = node1.catalogETag();
+        String product = node1.productETag(1L, UPDATED_AT, 2, 9);
+
+        node1.productsChanged();
+        assertNotEquals(catalog, node2.catalogETag());
+        assertEquals(node1.catalogETag(), node2.catalogETag());
+        assertEquals(product, node2.productETag(1L, UPDATED_AT, 2, 9));
+
+        catalog = node2.catalogETag();
+        node2.producersChanged();
+        assertNotEquals(catalog, node1.catalogETag());
+        assertNotEquals(product, node1.productETag(1L, UPDATED_AT, 2, 9));
+
+        catalog = node1.catalogETag();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            node1.categoriesChanged();
+            status.setRollbackOnly();
+        });
+        assertEquals(catalog, node2.catalogETag());
+
+        generationRepository.deleteAll();
+    }
+}
@@ -0,0 +1,203 @@
+package com.localmarket.main.service.product;
+
+import com.localmarket.main.dto.product.ProductResponse;
+import com.localmarket.main.entity.category.Category;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.entity.review.Review;
+import com.localmarket.main.entity.review.ReviewStatus;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.category.CategoryRepository;
+import com.localmarket.main.repository.product.CatalogGenerationRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.repository.product.StockReservationRepository;
+import com.localmarket.main.repository.review.ReviewRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import com.localmarket.main.service.category.CategoryStats;
+import com.localmarket.main.service.notification.admin.AdminNotificationService;
+import com.localmarket.main.service.notification.producer.ProducerNotificationService;
+import com.localmarket.main.service.notification.producer.ProducerNotificationCoalescer;
+import com.localmarket.main.service.storage.FileStorageService;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// Guards the product detail loading strategy: one product must not drag in the rest
+// of the catalog through its categories
+@DataJpaTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:product-detail;MODE=MySQL",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProductDetailLoadingTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private CatalogGenerationRepository catalogGenerationRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ProductService productService;
+    private Statistics statistics;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        productService = new ProductService(
+            productRepository,
+            categoryRepository,
+            userRepository,
+            mock(FileStorageService.class),
+            mock(ProducerNotificationService.class),
+            mock(ProducerNotificationCoalescer.class),
+            stockReservationRepository,
+            reviewRepository,
+            mock(AdminNotificationService.class),
+            mock(CategoryStats.class),
+            new CatalogVersion(catalogGenerationRepository, transactionManager),
+            mock(StockLevelMonitor.class)
+        );
+
+        User producer = persistUser("producer1", Role.PRODUCER);
+        User otherProducer = persistUser("producer2", Role.PRODUCER);
+        User customer = persistUser("customer1", Role.CUSTOMER);
+        Category vegetables = persistCategory("Vegetables");
+        Category organic = persistCategory("Organic");
+
+        Product product = persistProduct("Carrots", producer, Set.of(vegetables, organic));
+        productId = product.getProductId();
+        persistReview(product, customer, 4);
+        persistReview(product, customer, 5);
+
+        // Neighbours sharing the categories; none of these may be loaded for the detail page
+        for (int i = 0; i < 20; i++) {
+            persistProduct("Neighbour " + i, otherProducer, Set.of(vegetables, organic));
+        }
+
+        entityManager.flush();
+        productRepository.applyRating(productId, 4, 1);
+        productRepository.applyRating(productId, 5, 1);
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+            .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void detailQueryLoadsOnlyProductProducerAndCategories() {
+        Product product = productRepository.findByIdWithCategories(productId).orElseThrow();
+
+        assertEquals(1, statistics.getPrepareStatementCount(), "detail must be a single statement");
+        // 1 product + 1 producer + 2 categories
+        assertEquals(4, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getCollectionLoadCount());
+        assertTrue(Hibernate.isInitialized(product.getCategories()));
+        assertEquals(2, product.getCategories().size());
+        product.getCategories().forEach(category ->
+            assertFalse(Hibernate.isInitialized(category.getProducts())));
+        // walking the graph must not trigger further loads
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void detailRequestUsesFixedNumberOfStatements() {
+        ProductResponse response = productService.getProductByIdWithCategories(productId).orElseThrow();
+
+        // ratings are precomputed columns, so the graph query is all it takes
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(4, statistics.getEntityLoadCount());
+        assertEquals(2, response.getCategories().size());
+        assertEquals(2, response.getRatingCount());
+        assertEquals(4.5, response.getAverageRating(), 0.0001);
+        assertEquals(1, response.getRatingHistogram().get(4));
+        assertEquals(1, response.getRatingHistogram().get(5));
+        assertEquals(0, response.getRatingHistogram().get(0));
+    }
+
+    @Test
+    void removingARatingUpdatesAggregates() {
+        productRepository.applyRating(productId, 5, -1);
+        entityManager.clear();
+
+        Product product = productRepository.findById(productId).orElseThrow();
+        assertEquals(1, product.getRatingCount());
+        assertEquals(4, product.getRatingSum());
+        assertEquals(4.0, product.getAverageRating(), 0.0001);
+        assertEquals(0, product.getFiveStarRatings());
+
+        productRepository.applyRating(productId, 4, -1);
+        entityManager.clear();
+
+        product = productRepository.findById(productId).orElseThrow();
+        assertEquals(0, product.getRatingCount());
+        assertEquals(0.0, product.getAverageRating(), 0.0001);
+    }
+
+    private User persistUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@localmarket.test");
+        user.setFirstname("First");
+        user.setLastname("Last");
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        user.setCreatedAt(LocalDateTime.now());
+        return entityManager.persist(user);
+    }
+
+    private Category persistCategory(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return entityManager.persist(category);
+    }
+
+    private Product persistProduct(String name, User producer, Set<Category> categories) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name + " description");
+        product.setPrice(new BigDecimal("2.50"));
+        product.setQuantity(10);
+        product.setProducer(producer);
+        product.setCategories(new HashSet<>(categories));
+        product.setStatus(ProductStatus.APPROVED);
+        return entityManager.persist(product);
+    }
+
+    private void persistReview(Product product, User customer, int rating) {
+        Review review = new Review();
+        review.setProduct(product);
+        review.setCustomer(customer);
+        review.setRating(rating);
+        review.setComment("Good");
+        review.setStatus(ReviewStatus.APPROVED);
+        review.setVerifiedPurchase(true);
+        review.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(review);
+    }
+}
@@ -0,0 +1,92 @@
+package com.localmarket.main.service.product;
+
+import com.localmarket.main.dto.notification.NotificationResponse;
+import com.localmarket.main.entity.product.StockMonitorWatermark;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.repository.product.StockAlertStateRepository;
+import com.localmarket.main.repository.product.StockMonitorWatermarkRepository;
+import com.localmarket.main.repository.product.StockReservationRepository;
+import com.localmarket.main.service.notification.producer.ProducerNotificationCoalescer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Only changed products are evaluated, and an alert fires once per threshold crossing,
+// also across a restart
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockLevelMonitorTest {
+
+    @Autowired
+    private StockAlertStateRepository stockAlertStateRepository;
+    @Autowired
+    private StockMonitorWatermarkRepository watermarkRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockReservationRepository stockReservationRepository = mock(StockReservationRepository.class);
+    private final ProducerNotificationCoalescer coalescer = mock(ProducerNotificationCoalescer.class);
+
+    @AfterEach
+    void cleanUp() {
+        stockAlertStateRepository.deleteAll();
+        watermarkRepository.deleteAll();
+    }
+
+    @Test
+    void alertsOncePerThresholdCrossing() {
+        StockLevelMonitor monitor = monitor();
+        monitor.evaluateChanges();
+        verify(productRepository, never()).findStockLevels(any());
+
+        assertEquals(List.of("CRITICAL_STOCK_ALERT"), evaluate(monitor, 4));
+        assertEquals(List.of(), evaluate(monitor, 3));
+        assertEquals(List.of(), evaluate(monitor, 30));
+        assertEquals(0, stockAlertStateRepository.count());
+        assertEquals(List.of("LOW_STOCK_ALERT"), evaluate(monitor, 8));
+        assertEquals(List.of("CRITICAL_STOCK_ALERT"), evaluate(monitor, 5));
+    }
+
+    @Test
+    void keepsAlertsAndExpiryChecksAcrossARestart() {
+        assertEquals(List.of("LOW_STOCK_ALERT"), evaluate(monitor(), 8));
+        LocalDateTime checkedUntil = watermarkRepository.findById("reservation-expiries")
+            .map(StockMonitorWatermark::getCheckedUntil).orElseThrow();
+
+        // A new instance neither repeats the alert nor skips what expired while it was down
+        StockLevelMonitor restarted = monitor();
+        assertEquals(List.of(), evaluate(restarted, 7));
+        verify(stockReservationRepository).findProductIdsExpiringBetween(eq(checkedUntil), any());
+    }
+
+    private StockLevelMonitor monitor() {
+        return new StockLevelMonitor(productRepository, stockReservationRepository, stockAlertStateRepository,
+            watermarkRepository, coalescer, transactionManager);
+    }
+
+    private List<String> evaluate(StockLevelMonitor monitor, int quantity) {
+        clearInvocations(coalescer);
+        when(productRepository.findStockLevels(List.of(1L)))
+            .thenReturn(List.<Object[]>of(new Object[] {1L, "Carrots", quantity, 7L}));
+
+        monitor.stockChanged(List.of(1L));
+        monitor.evaluateChanges();
+
+        ArgumentCaptor<NotificationResponse> alerts = ArgumentCaptor.forClass(NotificationResponse.class);
+        verify(coalescer, atLeast(0)).publish(eq(7L), alerts.capture());
+        return alerts.getAllValues().stream().map(NotificationResponse::getType).toList();
+    }
+}
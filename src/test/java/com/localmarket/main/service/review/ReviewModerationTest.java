@@ -0,0 +1,171 @@
+package com.localmarket.main.service.review;
+
+import com.localmarket.main.dto.review.ReviewRequest;
+import com.localmarket.main.entity.product.Product;
+import com.localmarket.main.entity.product.ProductStatus;
+import com.localmarket.main.entity.review.Review;
+import com.localmarket.main.entity.review.ReviewStatus;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.entity.user.User;
+import com.localmarket.main.repository.order.OrderRepository;
+import com.localmarket.main.repository.product.CatalogGenerationRepository;
+import com.localmarket.main.repository.product.ProductRepository;
+import com.localmarket.main.repository.review.ReviewRepository;
+import com.localmarket.main.repository.user.UserRepository;
+import com.localmarket.main.service.notification.admin.AdminNotificationService;
+import com.localmarket.main.service.notification.review.ReviewNotificationService;
+import com.localmarket.main.service.product.CatalogVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// Moderation moves a review's rating in and out of the product aggregates exactly once,
+// also when two moderators act on the same review at the same time
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:review-moderation;MODE=MySQL;LOCK_TIMEOUT=10000")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReviewModerationTest {
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CatalogGenerationRepository catalogGenerationRepository;
+
+    private TransactionTemplate transaction;
+    private ReviewService reviewService;
+    private Long productId;
+    private Long reviewId;
+    private Long customerId;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        reviewService = new ReviewService(reviewRepository, orderRepository, productRepository, userRepository,
+            mock(ReviewNotificationService.class), mock(AdminNotificationService.class),
+            new CatalogVersion(catalogGenerationRepository, transactionManager));
+
+        transaction.executeWithoutResult(status -> {
+            User producer = userRepository.save(user("producer1", Role.PRODUCER));
+            User customer = userRepository.save(user("customer1", Role.CUSTOMER));
+            customerId = customer.getUserId();
+
+            Product product = new Product();
+            product.setName("Carrots");
+            product.setDescription("Carrots description");
+            product.setPrice(new BigDecimal("2.50"));
+            product.setQuantity(10);
+            product.setProducer(producer);
+            product.setStatus(ProductStatus.APPROVED);
+            productId = productRepository.save(product).getProductId();
+
+            Review review = new Review();
+            review.setProduct(product);
+            review.setCustomer(customer);
+            review.setRating(4);
+            review.setComment("Good");
+            review.setStatus(ReviewStatus.PENDING);
+            review.setVerifiedPurchase(true);
+            review.setCreatedAt(LocalDateTime.now());
+            reviewId = reviewRepository.save(review).getReviewId();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.executeWithoutResult(status -> {
+            reviewRepository.deleteAll();
+            productRepository.deleteAll();
+            userRepository.deleteAll();
+        });
+    }
+
+    @Test
+    void appliesEachTransitionOnce() {
+        transaction.executeWithoutResult(status -> reviewService.approveReview(reviewId));
+        transaction.executeWithoutResult(status -> reviewService.approveReview(reviewId));
+        assertRatings(1, 4);
+
+        ReviewRequest edit = new ReviewRequest();
+        edit.setProductId(productId);
+        edit.setRating(2);
+        edit.setComment("Changed my mind");
+        transaction.executeWithoutResult(status -> reviewService.updateReview(reviewId, edit, customerId));
+        assertRatings(0, 0);
+
+        transaction.executeWithoutResult(status -> reviewService.approveReview(reviewId));
+        assertRatings(1, 2);
+        transaction.executeWithoutResult(status -> reviewService.declineReview(reviewId));
+        transaction.executeWithoutResult(status -> reviewService.declineReview(reviewId));
+        assertRatings(0, 0);
+    }
+
+    @Test
+    void concurrentApprovalsCountTheRatingOnce() {
+        CountDownLatch start = new CountDownLatch(1);
+        Runnable approve = () -> {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            transaction.executeWithoutResult(status -> reviewService.approveReview(reviewId));
+        };
+        CompletableFuture<Void> first = CompletableFuture.runAsync(approve);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(approve);
+        start.countDown();
+        CompletableFuture.allOf(first, second).join();
+
+        assertRatings(1, 4);
+    }
+
+    @Test
+    void savingAStaleProductKeepsTheRatings() {
+        Product stale = productRepository.findById(productId).orElseThrow();
+        transaction.executeWithoutResult(status -> reviewService.approveReview(reviewId));
+
+        stale.setQuantity(9);
+        productRepository.save(stale);
+
+        assertRatings(1, 4);
+        assertEquals(9, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    private void assertRatings(int count, long sum) {
+        Product product = productRepository.findById(productId).orElseThrow();
+        assertEquals(count, product.getRatingCount());
+        assertEquals(sum, product.getRatingSum());
+    }
+
+    private static User user(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@localmarket.test");
+        user.setFirstname("First");
+        user.setLastname("Last");
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        user.setCreatedAt(LocalDateTime.now());
+        return user;
+    }
+}
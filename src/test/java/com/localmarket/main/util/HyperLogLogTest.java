@@ -0,0 +1,79 @@
+package com.localmarket.main.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void smallCountsAreNearlyExact() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 1; id <= 100; id++) {
+            sketch.add(id);
+            sketch.add(id);
+        }
+        assertEquals(100, sketch.cardinality(), 1);
+    }
+
+    @Test
+    void largeCountsStayWithinTheErrorBound() {
+        HyperLogLog sketch = new HyperLogLog();
+        int distinct = 200_000;
+        for (long id = 1; id <= distinct; id++) {
+            sketch.add(id);
+        }
+        // 3 standard errors at precision 14
+        double error = Math.abs(sketch.cardinality() - distinct) / (double) distinct;
+        assertTrue(error < 0.025, "error " + error);
+    }
+
+    @Test
+    void mergeCountsTheUnion() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (long id = 1; id <= 30_000; id++) {
+            monday.add(id);
+        }
+        // half of Tuesday's users were already active on Monday
+        for (long id = 15_001; id <= 45_000; id++) {
+            tuesday.add(id);
+        }
+        HyperLogLog week = monday.copy();
+        week.merge(tuesday);
+        week.merge(tuesday);
+
+        assertEquals(45_000, week.cardinality(), 45_000 * 0.025);
+        assertEquals(30_000, monday.cardinality(), 30_000 * 0.025);
+    }
+
+    @Test
+    void serializedSketchesRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 1; id <= 500; id++) {
+            sketch.add(id * 7919);
+        }
+        byte[] bytes = sketch.toBytes();
+
+        assertTrue(bytes.length < 4096, "sparse sketch should compress, got " + bytes.length);
+        assertEquals(sketch.cardinality(), HyperLogLog.fromBytes(bytes).cardinality());
+        assertTrue(HyperLogLog.fromBytes(new HyperLogLog().toBytes()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new HyperLogLog(12)));
+    }
+
+    @Test
+    void truncatedSketchesAreRejected() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (long id = 1; id <= 500; id++) {
+            sketch.add(id * 7919);
+        }
+        byte[] bytes = sketch.toBytes();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> HyperLogLog.fromBytes(Arrays.copyOf(bytes, bytes.length / 2)));
+        assertThrows(IllegalArgumentException.class,
+            () -> HyperLogLog.fromBytes(Arrays.copyOf(bytes, 1)));
+    }
+}
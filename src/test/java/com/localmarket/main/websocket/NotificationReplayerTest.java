@@ -0,0 +1,127 @@
+package com.localmarket.main.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.localmarket.main.dto.notification.RawNotificationResponse;
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.service.notification.NotificationStorageService;
+import com.localmarket.main.websocket.WebSocketDispatcher.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Reconnect replay pages from the client's cursor and ends with the ids to resume from
+class NotificationReplayerTest {
+
+    @Test
+    void streamsPagesAfterTheCursor() throws Exception {
+        NotificationStorageService storage = mock(NotificationStorageService.class);
+        WebSocketDispatcher dispatcher = new WebSocketDispatcher(Runnable::run, 4, OverflowPolicy.DROP_OLDEST);
+        NotificationReplayer replayer = new NotificationReplayer(storage, dispatcher, new ObjectMapper(),
+            Runnable::run, 2);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws?lastSeenId=10&lastSeenBroadcastId=-3"));
+        dispatcher.open(session);
+
+        when(storage.getPersonalReplayPage("alice@example.com", 10, false, 2))
+            .thenReturn(List.of(notification(11, "{\"orderId\":5}"), notification(12, null)));
+        when(storage.getPersonalReplayPage("alice@example.com", 12, false, 2))
+            .thenReturn(List.of(notification(14, "[1,2]")));
+        when(storage.getBroadcastReplayPage("alice@example.com", Role.ADMIN, 3, false, 2))
+            .thenReturn(List.of());
+
+        NotificationReplayer.Cursor cursor = NotificationReplayer.Cursor.from(session);
+        assertEquals(new NotificationReplayer.Cursor(10, 3, false), cursor);
+        replayer.replay(session, "alice@example.com", Role.ADMIN, cursor);
+
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(4)).sendMessage(sent.capture());
+        List<String> payloads = sent.getAllValues().stream().map(TextMessage::getPayload).toList();
+        assertTrue(payloads.get(0).contains("\"data\":{\"orderId\":5}"));
+        assertTrue(payloads.get(1).contains("\"data\":null"));
+        assertTrue(payloads.get(2).contains("\"data\":[1,2]"));
+        assertEquals("{\"type\":\"REPLAY_COMPLETE\",\"lastSeenId\":14,\"lastSeenBroadcastId\":-3}", payloads.get(3));
+        verify(storage, never()).getPersonalReplayPage(anyString(), eq(14L), anyBoolean(), anyInt());
+    }
+
+    @Test
+    void waitsForRoomWithoutHoldingAThread() throws Exception {
+        NotificationStorageService storage = mock(NotificationStorageService.class);
+        List<Runnable> senderTasks = new ArrayList<>();
+        WebSocketDispatcher dispatcher = new WebSocketDispatcher(senderTasks::add, 4, OverflowPolicy.DROP_OLDEST);
+        NotificationReplayer replayer = new NotificationReplayer(storage, dispatcher, new ObjectMapper(),
+            Runnable::run, 2);
+        WebSocketSession session = openSession(dispatcher);
+        when(storage.getPersonalReplayPage("alice@example.com", 10, false, 2))
+            .thenReturn(List.of(notification(11, null)));
+        when(storage.getBroadcastReplayPage("alice@example.com", Role.ADMIN, 3, false, 2)).thenReturn(List.of());
+        for (int i = 0; i < 4; i++) {
+            dispatcher.send(session, new TextMessage("live " + i));
+        }
+
+        // The queue is full: the replay returns with its page read but not queued
+        replayer.replay(session, "alice@example.com", Role.ADMIN, new NotificationReplayer.Cursor(10, 3, false));
+        assertEquals(4, dispatcher.pending(session));
+
+        // Draining the live messages makes room and moves the replay on
+        while (!senderTasks.isEmpty()) {
+            senderTasks.remove(0).run();
+        }
+
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(6)).sendMessage(sent.capture());
+        List<String> payloads = sent.getAllValues().stream().map(TextMessage::getPayload).toList();
+        assertTrue(payloads.get(4).contains("\"id\":11"));
+        assertEquals("{\"type\":\"REPLAY_COMPLETE\",\"lastSeenId\":11,\"lastSeenBroadcastId\":-3}", payloads.get(5));
+    }
+
+    @Test
+    void asksTheClientToReconnectWhenThePoolIsFull() throws Exception {
+        WebSocketDispatcher dispatcher = new WebSocketDispatcher(Runnable::run, 4, OverflowPolicy.DROP_OLDEST);
+        NotificationReplayer replayer = new NotificationReplayer(mock(NotificationStorageService.class), dispatcher,
+            new ObjectMapper(), runnable -> {
+                throw new RejectedExecutionException();
+            }, 2);
+        WebSocketSession session = openSession(dispatcher);
+
+        replayer.replay(session, "alice@example.com", Role.ADMIN, NotificationReplayer.Cursor.UNREAD);
+
+        verify(session).close(argThat(status -> status.getCode() == 4003));
+    }
+
+    @Test
+    void withoutACursorReplaysUnreadOnly() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws?token=abc"));
+
+        assertTrue(NotificationReplayer.Cursor.from(session).unreadOnly());
+    }
+
+    private static WebSocketSession openSession(WebSocketDispatcher dispatcher) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        dispatcher.open(session);
+        return session;
+    }
+
+    private RawNotificationResponse notification(long id, String data) {
+        return RawNotificationResponse.builder()
+            .id(id)
+            .type("ORDER_STATUS_UPDATE")
+            .message("Your order was shipped")
+            .data(data)
+            .build();
+    }
+}
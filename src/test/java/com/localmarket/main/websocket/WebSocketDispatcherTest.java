@@ -0,0 +1,100 @@
+package com.localmarket.main.websocket;
+
+import com.localmarket.main.websocket.WebSocketDispatcher.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Sends only enqueue; a full queue drops its oldest message or disconnects the client
+class WebSocketDispatcherTest {
+
+    private final Queue<Runnable> senderTasks = new ArrayDeque<>();
+
+    @Test
+    void dropsTheOldestMessageWhenFull() throws Exception {
+        WebSocketDispatcher dispatcher = new WebSocketDispatcher(senderTasks::add, 2, OverflowPolicy.DROP_OLDEST);
+        WebSocketSession session = openSession();
+        dispatcher.open(session);
+
+        assertTrue(dispatcher.send(session, new TextMessage("1")));
+        assertTrue(dispatcher.send(session, new TextMessage("2")));
+        assertTrue(dispatcher.send(session, new TextMessage("3")));
+        verify(session, never()).sendMessage(any());
+        assertEquals(1, senderTasks.size());
+        assertEquals(2, dispatcher.stats().queuedMessages());
+
+        senderTasks.poll().run();
+
+        InOrder order = inOrder(session);
+        order.verify(session).sendMessage(new TextMessage("2"));
+        order.verify(session).sendMessage(new TextMessage("3"));
+        WebSocketDispatcher.DeliveryStats stats = dispatcher.stats();
+        assertEquals(2, stats.sent());
+        assertEquals(1, stats.dropped());
+        assertEquals(0, stats.queuedMessages());
+    }
+
+    @Test
+    void disconnectsAClientThatFallsBehind() throws Exception {
+        WebSocketDispatcher dispatcher = new WebSocketDispatcher(senderTasks::add, 1, OverflowPolicy.DISCONNECT);
+        WebSocketSession session = openSession();
+        dispatcher.open(session);
+
+        assertTrue(dispatcher.send(session, new TextMessage("1")));
+        assertFalse(dispatcher.send(session, new TextMessage("2")));
+        assertFalse(dispatcher.send(session, new TextMessage("3")));
+
+        senderTasks.poll().run();
+
+        verify(session, never()).sendMessage(any());
+        verify(session).close(new CloseStatus(4002, "Send queue overflow"));
+        assertEquals(1, dispatcher.stats().disconnected());
+    }
+
+    @Test
+    void heartbeatsNeverEvictNotificationsAndCloseRunsOnTheDrainTask() throws Exception {
+        WebSocketDispatcher dispatcher = new WebSocketDispatcher(senderTasks::add, 2, OverflowPolicy.DROP_OLDEST);
+        WebSocketSession session = openSession();
+        dispatcher.open(session);
+
+        assertTrue(dispatcher.send(session, new TextMessage("1")));
+        assertTrue(dispatcher.send(session, new TextMessage("2")));
+        assertTrue(dispatcher.heartbeat(session, new TextMessage("ping")));
+        assertTrue(dispatcher.heartbeat(session, new TextMessage("ping")));
+        assertEquals(0, dispatcher.stats().dropped());
+
+        senderTasks.poll().run();
+
+        InOrder order = inOrder(session);
+        order.verify(session).sendMessage(new TextMessage("ping"));
+        order.verify(session).sendMessage(new TextMessage("1"));
+        order.verify(session).sendMessage(new TextMessage("2"));
+        verify(session, times(3)).sendMessage(any());
+
+        dispatcher.send(session, new TextMessage("3"));
+        dispatcher.disconnect(session, new CloseStatus(4000, "User logged out"));
+        verify(session, never()).close(any());
+        assertFalse(dispatcher.send(session, new TextMessage("4")));
+
+        senderTasks.poll().run();
+
+        verify(session).close(new CloseStatus(4000, "User logged out"));
+        verify(session, never()).sendMessage(new TextMessage("3"));
+    }
+
+    private static WebSocketSession openSession() {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("session");
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}
@@ -0,0 +1,48 @@
+package com.localmarket.main.websocket;
+
+import com.localmarket.main.entity.user.Role;
+import com.localmarket.main.websocket.WebSocketSessionRegistry.SessionOwner;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// A user keeps one session per device; closing one leaves the others reachable
+class WebSocketSessionRegistryTest {
+
+    private final WebSocketSessionRegistry registry = new WebSocketSessionRegistry();
+
+    @Test
+    void tracksEverySessionOfAUser() {
+        SessionOwner admin = new SessionOwner(1L, "admin@localmarket.test", Role.ADMIN);
+        WebSocketSession phone = session("phone");
+        WebSocketSession laptop = session("laptop");
+        WebSocketSession other = session("other");
+        registry.register(phone, admin);
+        registry.register(laptop, admin);
+        registry.register(other, new SessionOwner(2L, "producer@localmarket.test", Role.PRODUCER));
+
+        assertEquals(Set.of(phone, laptop), registry.sessionsOf("admin@localmarket.test"));
+        assertEquals(Set.of(phone, laptop), registry.sessionsWithRole(Role.ADMIN));
+        assertEquals(Set.of(other), registry.sessionsOf(2L));
+
+        assertEquals(admin, registry.unregister(phone));
+        assertEquals(Set.of(laptop), registry.sessionsOf("admin@localmarket.test"));
+        assertNull(registry.unregister(phone));
+
+        registry.unregister(laptop);
+        assertFalse(registry.isOnline("admin@localmarket.test"));
+        assertTrue(registry.sessionsWithRole(Role.ADMIN).isEmpty());
+        assertTrue(registry.isOnline("producer@localmarket.test"));
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        return session;
+    }
+}